@@ -11,21 +11,53 @@ CREATE TABLE IF NOT EXISTS workflow_definition (
     description VARCHAR(1000),
     config TEXT NOT NULL,
     status VARCHAR(50),
+    current_version_id BIGINT,
     create_time DATETIME,
     update_time DATETIME
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 工作流定义版本表：每次保存定义追加一行，写入后不再修改；实例固定到创建时的版本
+CREATE TABLE IF NOT EXISTS workflow_definition_version (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    workflow_definition_id BIGINT NOT NULL,
+    version_number INT NOT NULL,
+    config TEXT NOT NULL,
+    execution_plan TEXT,
+    create_time DATETIME,
+    UNIQUE KEY uk_definition_version (workflow_definition_id, version_number)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 已有库升级：为每个定义补建第 1 版并指向它，已有实例的 definition_version_id 留空，按定义的当前版本推进；
+-- 补建的版本没有 execution_plan，编排器加载时再编译
+-- ALTER TABLE workflow_definition ADD COLUMN current_version_id BIGINT;
+-- ALTER TABLE workflow_instance ADD COLUMN definition_version_id BIGINT;
+-- ALTER TABLE workflow_instance_archive ADD COLUMN definition_version_id BIGINT;
+-- INSERT INTO workflow_definition_version (workflow_definition_id, version_number, config, create_time)
+--     SELECT id, 1, config, update_time FROM workflow_definition WHERE current_version_id IS NULL;
+-- UPDATE workflow_definition d JOIN workflow_definition_version v
+--     ON v.workflow_definition_id = d.id AND v.version_number = 1
+--     SET d.current_version_id = v.id WHERE d.current_version_id IS NULL;
+
 -- 工作流实例表
 CREATE TABLE IF NOT EXISTS workflow_instance (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     workflow_definition_id BIGINT NOT NULL,
+    definition_version_id BIGINT,
     status VARCHAR(50),
     input TEXT,
-    output TEXT,
+    output MEDIUMTEXT,
     error_message TEXT,
     start_time DATETIME,
     end_time DATETIME,
-    INDEX idx_workflow_definition_id (workflow_definition_id)
+    version BIGINT NOT NULL DEFAULT 0,
+    batch_id VARCHAR(36),
+    parent_instance_id BIGINT,
+    parent_node_instance_id BIGINT,
+    INDEX idx_workflow_definition_id (workflow_definition_id),
+    INDEX idx_batch_id (batch_id),
+    INDEX idx_parent_instance_id (parent_instance_id),
+    INDEX idx_instance_status_start_time (status, start_time),
+    INDEX idx_status_end_time (status, end_time)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
 -- 节点实例表
@@ -36,12 +68,133 @@ CREATE TABLE IF NOT EXISTS node_instance (
     node_type VARCHAR(50),
     node_name VARCHAR(200),
     status VARCHAR(50),
-    input TEXT,
-    output TEXT,
+    input MEDIUMTEXT,
+    output MEDIUMTEXT,
     error_message TEXT,
     start_time DATETIME,
+    execute_time DATETIME,
     end_time DATETIME,
+    version BIGINT NOT NULL DEFAULT 0,
     INDEX idx_workflow_instance_id (workflow_instance_id),
-    INDEX idx_node_id (node_id)
+    INDEX idx_node_id (node_id),
+    INDEX idx_node_status_start_time (status, start_time),
+    UNIQUE KEY uk_instance_node (workflow_instance_id, node_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 已有库升级：对账扫描的索引原先在两张表上同名，H2 等索引名全库唯一的数据库无法建出第二个
+-- ALTER TABLE workflow_instance RENAME INDEX idx_status_start_time TO idx_instance_status_start_time;
+-- ALTER TABLE node_instance RENAME INDEX idx_status_start_time TO idx_node_status_start_time;
+
+
+-- 执行事件日志：状态迁移只追加不更新，各服务后台批量写入，用于审计和回放；
+-- seq 为迁移后实例或节点行的版本号，同一行的事件按它排序
+CREATE TABLE IF NOT EXISTS execution_event (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    workflow_instance_id BIGINT NOT NULL,
+    node_instance_id BIGINT,
+    node_id VARCHAR(100),
+    transition VARCHAR(50) NOT NULL,
+    seq BIGINT NOT NULL DEFAULT 0,
+    detail VARCHAR(500),
+    create_time DATETIME,
+    INDEX idx_instance_event (workflow_instance_id, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 已有库升级：
+-- ALTER TABLE execution_event ADD COLUMN seq BIGINT NOT NULL DEFAULT 0 AFTER transition;
+
+-- 归档表：超过保留期的已结束实例由 API 服务的归档任务从热表分批迁入，结构与热表一致
+CREATE TABLE IF NOT EXISTS workflow_instance_archive (
+    id BIGINT PRIMARY KEY,
+    workflow_definition_id BIGINT NOT NULL,
+    definition_version_id BIGINT,
+    status VARCHAR(50),
+    input TEXT,
+    output MEDIUMTEXT,
+    error_message TEXT,
+    start_time DATETIME,
+    end_time DATETIME,
+    version BIGINT NOT NULL DEFAULT 0,
+    batch_id VARCHAR(36),
+    parent_instance_id BIGINT,
+    parent_node_instance_id BIGINT,
+    archived_at DATETIME,
+    INDEX idx_workflow_definition_id (workflow_definition_id),
+    INDEX idx_end_time (end_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS node_instance_archive (
+    id BIGINT PRIMARY KEY,
+    workflow_instance_id BIGINT NOT NULL,
+    node_id VARCHAR(100) NOT NULL,
+    node_type VARCHAR(50),
+    node_name VARCHAR(200),
+    status VARCHAR(50),
+    input MEDIUMTEXT,
+    output MEDIUMTEXT,
+    error_message TEXT,
+    start_time DATETIME,
+    execute_time DATETIME,
+    end_time DATETIME,
+    version BIGINT NOT NULL DEFAULT 0,
+    INDEX idx_workflow_instance_id (workflow_instance_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+CREATE TABLE IF NOT EXISTS execution_event_archive (
+    id BIGINT PRIMARY KEY,
+    workflow_instance_id BIGINT NOT NULL,
+    node_instance_id BIGINT,
+    node_id VARCHAR(100),
+    transition VARCHAR(50) NOT NULL,
+    seq BIGINT NOT NULL DEFAULT 0,
+    detail VARCHAR(500),
+    create_time DATETIME,
+    INDEX idx_workflow_instance_id (workflow_instance_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 归档表可按结束时间分区，过期数据整区删除（ALTER TABLE ... DROP PARTITION）而不是逐行 DELETE。
+-- 分区列必须包含在主键中，启用时先把主键改为 (id, end_time)：
+-- ALTER TABLE workflow_instance_archive DROP PRIMARY KEY, ADD PRIMARY KEY (id, end_time),
+--     PARTITION BY RANGE COLUMNS (end_time) (
+--         PARTITION p202601 VALUES LESS THAN ('2026-02-01'),
+--         PARTITION p202602 VALUES LESS THAN ('2026-03-01'),
+--         PARTITION pmax VALUES LESS THAN (MAXVALUE));
+
+-- 节点延迟统计表（按定义 + 节点累积的分位数草图）
+CREATE TABLE IF NOT EXISTS node_latency_stats (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    workflow_definition_id BIGINT NOT NULL,
+    node_id VARCHAR(100) NOT NULL,
+    sample_count BIGINT,
+    queue_sketch TEXT,
+    execution_sketch TEXT,
+    update_time DATETIME,
+    UNIQUE KEY uk_definition_node (workflow_definition_id, node_id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 批量提交批次表
+CREATE TABLE IF NOT EXISTS bulk_submission (
+    batch_id VARCHAR(36) PRIMARY KEY,
+    workflow_definition_id BIGINT NOT NULL,
+    definition_version_id BIGINT,
+    status VARCHAR(50),
+    total INT,
+    created INT,
+    dispatched INT,
+    failed INT,
+    error_message TEXT,
+    create_time DATETIME,
+    update_time DATETIME
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 批量提交中尚未创建实例的输入，实例创建后在同一事务中删除，API 重启后从剩余输入继续
+CREATE TABLE IF NOT EXISTS bulk_submission_input (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    batch_id VARCHAR(36) NOT NULL,
+    seq INT NOT NULL,
+    input TEXT,
+    UNIQUE KEY uk_bulk_input_seq (batch_id, seq)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- 已有库升级：
+-- ALTER TABLE bulk_submission ADD COLUMN definition_version_id BIGINT;
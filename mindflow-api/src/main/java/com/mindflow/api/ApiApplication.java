@@ -1,13 +1,19 @@
 package com.mindflow.api;
 
+import com.mindflow.common.event.ExecutionEventLog;
+import com.mindflow.common.instance.WorkflowInstanceCreator;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EntityScan("com.mindflow.common.entity")
 @EnableJpaRepositories("com.mindflow.api.repository")
+@EnableScheduling
+@Import({ExecutionEventLog.class, WorkflowInstanceCreator.class})
 public class ApiApplication {
     public static void main(String[] args) {
         SpringApplication.run(ApiApplication.class, args);
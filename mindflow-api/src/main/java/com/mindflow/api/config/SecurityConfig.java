@@ -38,7 +38,9 @@ public class SecurityConfig {
                         .requestMatchers(
                                 "/api/auth/**",              // 登录注册接口
                                 "/api/workflows/**",         // 放开所有工作流接口（临时，方便调试）
-                                "/ws/**"                     // WebSocket 端点
+                                "/ws/**",                    // WebSocket 端点
+                                "/actuator/health",          // 健康检查
+                                "/actuator/prometheus"       // Prometheus 抓取
                         ).permitAll()
                         .anyRequest().authenticated()
                 )
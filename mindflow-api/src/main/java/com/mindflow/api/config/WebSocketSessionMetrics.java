@@ -0,0 +1,38 @@
+package com.mindflow.api.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebSocket（STOMP）会话数指标
+ */
+@Component
+public class WebSocketSessionMetrics {
+    private final Set<String> sessions = ConcurrentHashMap.newKeySet();
+
+    public WebSocketSessionMetrics(MeterRegistry meterRegistry) {
+        Gauge.builder("mindflow.websocket.sessions", sessions, Set::size)
+                .description("WebSocket 会话数量")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String sessionId = (String) event.getMessage().getHeaders().get("simpSessionId");
+        if (sessionId != null) {
+            sessions.add(sessionId);
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        sessions.remove(event.getSessionId());
+    }
+}
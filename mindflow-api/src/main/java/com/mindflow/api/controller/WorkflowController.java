@@ -2,23 +2,43 @@ package com.mindflow.api.controller;
 
 import com.mindflow.api.repository.NodeInstanceRepository;
 import com.mindflow.api.repository.WorkflowDefinitionRepository;
+import com.mindflow.api.repository.WorkflowDefinitionVersionRepository;
 import com.mindflow.api.repository.WorkflowInstanceRepository;
+import com.mindflow.api.service.BulkSubmissionService;
+import com.mindflow.api.service.ExecutionHistoryService;
+import com.mindflow.api.service.InstanceArchiveService;
 import com.mindflow.api.service.InstanceStatusService;
+import com.mindflow.api.service.LatencyAnalysisService;
+import com.mindflow.api.service.WorkflowDefinitionService;
 import com.mindflow.api.service.WorkflowService;
 import com.mindflow.common.dto.WorkflowDefinitionDTO;
 import com.mindflow.common.dto.WorkflowInstanceDTO;
+import com.mindflow.common.entity.BulkSubmission;
 import com.mindflow.common.entity.NodeInstance;
 import com.mindflow.common.entity.WorkflowDefinition;
+import com.mindflow.common.entity.WorkflowDefinitionVersion;
 import com.mindflow.common.entity.WorkflowInstance;
 import com.mindflow.common.util.JsonUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.BufferedReader;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * 查询接口使用只读事务，开启读写分离时由副本承担（见 {@link com.mindflow.api.datasource.ReadReplicaConfig}）；
+ * 订阅实例状态的接口通常紧跟在创建之后调用，仍读主库。
+ */
 @RestController
 @RequestMapping("/api/workflows")
 @CrossOrigin(origins = "*")
@@ -27,6 +47,9 @@ public class WorkflowController {
     @Autowired
     private WorkflowDefinitionRepository workflowDefinitionRepository;
 
+    @Autowired
+    private WorkflowDefinitionVersionRepository workflowDefinitionVersionRepository;
+
     @Autowired
     private WorkflowInstanceRepository workflowInstanceRepository;
 
@@ -36,9 +59,24 @@ public class WorkflowController {
     @Autowired
     private WorkflowService workflowService;
 
+    @Autowired
+    private WorkflowDefinitionService workflowDefinitionService;
+
     @Autowired
     private InstanceStatusService instanceStatusService;
 
+    @Autowired
+    private LatencyAnalysisService latencyAnalysisService;
+
+    @Autowired
+    private BulkSubmissionService bulkSubmissionService;
+
+    @Autowired
+    private InstanceArchiveService instanceArchiveService;
+
+    @Autowired
+    private ExecutionHistoryService executionHistoryService;
+
     @PostMapping("/definitions")
     public ResponseEntity<WorkflowDefinitionDTO> createWorkflowDefinition(@RequestBody WorkflowDefinitionDTO dto) {
         WorkflowDefinition definition = new WorkflowDefinition();
@@ -46,10 +84,11 @@ public class WorkflowController {
         definition.setDescription(dto.getDescription());
         definition.setConfig(JsonUtils.toJson(dto.getConfig()));
         definition.setStatus("ACTIVE");
-        definition = workflowDefinitionRepository.save(definition);
+        definition = workflowDefinitionService.save(definition);
         
         dto.setId(definition.getId());
         dto.setStatus(definition.getStatus());
+        dto.setVersionId(definition.getCurrentVersionId());
         dto.setCreateTime(definition.getCreateTime());
         dto.setUpdateTime(definition.getUpdateTime());
         
@@ -57,6 +96,7 @@ public class WorkflowController {
     }
 
     @GetMapping("/definitions")
+    @Transactional(readOnly = true)
     public ResponseEntity<List<WorkflowDefinitionDTO>> listWorkflowDefinitions() {
         List<WorkflowDefinition> definitions = workflowDefinitionRepository.findAll();
         List<WorkflowDefinitionDTO> dtos = definitions.stream().map(def -> {
@@ -66,6 +106,7 @@ public class WorkflowController {
             dto.setDescription(def.getDescription());
             dto.setConfig(JsonUtils.fromJson(def.getConfig(), WorkflowDefinitionDTO.WorkflowConfig.class));
             dto.setStatus(def.getStatus());
+            dto.setVersionId(def.getCurrentVersionId());
             dto.setCreateTime(def.getCreateTime());
             dto.setUpdateTime(def.getUpdateTime());
             return dto;
@@ -74,6 +115,7 @@ public class WorkflowController {
     }
 
     @GetMapping("/definitions/{id}")
+    @Transactional(readOnly = true)
     public ResponseEntity<WorkflowDefinitionDTO> getWorkflowDefinition(@PathVariable("id") Long id) {
         WorkflowDefinition definition = workflowDefinitionRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("工作流定义不存在"));
@@ -84,12 +126,25 @@ public class WorkflowController {
         dto.setDescription(definition.getDescription());
         dto.setConfig(JsonUtils.fromJson(definition.getConfig(), WorkflowDefinitionDTO.WorkflowConfig.class));
         dto.setStatus(definition.getStatus());
+        dto.setVersionId(definition.getCurrentVersionId());
         dto.setCreateTime(definition.getCreateTime());
         dto.setUpdateTime(definition.getUpdateTime());
         
         return ResponseEntity.ok(dto);
     }
 
+    /**
+     * 定义的全部历史版本，新版本在前
+     */
+    @GetMapping("/definitions/{id}/versions")
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<WorkflowDefinitionVersion>> listWorkflowDefinitionVersions(@PathVariable("id") Long id) {
+        return ResponseEntity.ok(workflowDefinitionVersionRepository.findByWorkflowDefinitionIdOrderByVersionNumberDesc(id));
+    }
+
+    /**
+     * 保存为新版本，已在运行的实例继续按原版本执行
+     */
     @PutMapping("/definitions/{id}")
     public ResponseEntity<WorkflowDefinitionDTO> updateWorkflowDefinition(
             @PathVariable("id") Long id,
@@ -100,10 +155,11 @@ public class WorkflowController {
         definition.setName(dto.getName());
         definition.setDescription(dto.getDescription());
         definition.setConfig(JsonUtils.toJson(dto.getConfig()));
-        definition = workflowDefinitionRepository.save(definition);
+        definition = workflowDefinitionService.save(definition);
         
         dto.setId(definition.getId());
         dto.setStatus(definition.getStatus());
+        dto.setVersionId(definition.getCurrentVersionId());
         dto.setCreateTime(definition.getCreateTime());
         dto.setUpdateTime(definition.getUpdateTime());
         
@@ -123,12 +179,18 @@ public class WorkflowController {
             throw new RuntimeException("无法删除该工作流定义，存在 " + instances.size() + " 个关联的工作流实例");
         }
         
-        // 删除工作流定义
-        workflowDefinitionRepository.delete(definition);
+        // 删除工作流定义及其版本
+        workflowDefinitionService.delete(definition);
         
         return ResponseEntity.ok().build();
     }
 
+    @GetMapping("/definitions/{id}/latency")
+    @Transactional(readOnly = true)
+    public ResponseEntity<Map<String, Object>> getDefinitionLatency(@PathVariable("id") Long id) {
+        return ResponseEntity.ok(latencyAnalysisService.definitionLatency(id));
+    }
+
     @PostMapping("/instances")
     public ResponseEntity<WorkflowInstanceDTO> createWorkflowInstance(
             @RequestParam(value = "workflowDefinitionId", required = false) Long workflowDefinitionId,
@@ -144,7 +206,39 @@ public class WorkflowController {
         return ResponseEntity.ok(dto);
     }
 
+    /**
+     * 批量提交：请求体为输入数组，每个元素创建一个实例；返回批次 ID，进度通过 GET /instances/bulk/{batchId} 查询
+     */
+    @PostMapping(value = "/instances/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BulkSubmission> bulkCreateWorkflowInstances(
+            @RequestParam("workflowDefinitionId") Long workflowDefinitionId,
+            @RequestBody List<Object> inputs) {
+        List<String> rawInputs = new ArrayList<>(inputs.size());
+        for (Object input : inputs) {
+            rawInputs.add(input instanceof String s ? s : JsonUtils.toJson(input));
+        }
+        return ResponseEntity.accepted().body(bulkSubmissionService.submit(workflowDefinitionId, rawInputs.iterator()));
+    }
+
+    /**
+     * 批量提交（NDJSON）：每行一个输入，边读边按块写入，适合流式上传大批量数据
+     */
+    @PostMapping(value = "/instances/bulk", consumes = "application/x-ndjson")
+    public ResponseEntity<BulkSubmission> bulkCreateWorkflowInstancesNdjson(
+            @RequestParam("workflowDefinitionId") Long workflowDefinitionId,
+            BufferedReader reader) {
+        Iterator<String> lines = reader.lines().map(String::trim).filter(line -> !line.isEmpty()).iterator();
+        return ResponseEntity.accepted().body(bulkSubmissionService.submit(workflowDefinitionId, lines));
+    }
+
+    @GetMapping("/instances/bulk/{batchId}")
+    @Transactional(readOnly = true)
+    public ResponseEntity<BulkSubmission> getBulkSubmission(@PathVariable("batchId") String batchId) {
+        return ResponseEntity.ok(bulkSubmissionService.getProgress(batchId));
+    }
+
     @GetMapping("/instances")
+    @Transactional(readOnly = true)
     public ResponseEntity<List<WorkflowInstanceDTO>> listWorkflowInstances(
             @RequestParam(value = "workflowDefinitionId", required = false) Long workflowDefinitionId) {
         List<WorkflowInstance> instances;
@@ -161,14 +255,19 @@ public class WorkflowController {
     }
 
     @GetMapping("/instances/{id}")
+    @Transactional(readOnly = true)
     public ResponseEntity<WorkflowInstanceDTO> getWorkflowInstance(@PathVariable("id") Long id) {
-        WorkflowInstance instance = workflowInstanceRepository.findById(id)
+        // 热表中没有时到归档表中查找
+        Optional<WorkflowInstance> live = workflowInstanceRepository.findById(id);
+        WorkflowInstance instance = live.or(() -> instanceArchiveService.findArchivedInstance(id))
                 .orElseThrow(() -> new RuntimeException("工作流实例不存在"));
         
         WorkflowInstanceDTO dto = convertToDTO(instance);
         
         // 加载节点实例
-        List<NodeInstance> nodeInstances = nodeInstanceRepository.findByWorkflowInstanceId(id);
+        List<NodeInstance> nodeInstances = live.isPresent()
+                ? nodeInstanceRepository.findByWorkflowInstanceId(id)
+                : instanceArchiveService.findArchivedNodes(id);
         List<com.mindflow.common.dto.NodeInstanceDTO> nodeDTOs = nodeInstances.stream().map(ni -> {
             com.mindflow.common.dto.NodeInstanceDTO nodeDTO = new com.mindflow.common.dto.NodeInstanceDTO();
             nodeDTO.setId(ni.getId());
@@ -181,14 +280,46 @@ public class WorkflowController {
             nodeDTO.setOutput(ni.getOutput());
             nodeDTO.setErrorMessage(ni.getErrorMessage());
             nodeDTO.setStartTime(ni.getStartTime());
+            nodeDTO.setExecuteTime(ni.getExecuteTime());
             nodeDTO.setEndTime(ni.getEndTime());
             return nodeDTO;
         }).collect(Collectors.toList());
+
+        // 延迟创建模式下尚未调度的节点没有行，按实例固定的定义版本补出 PENDING 条目
+        WorkflowDefinitionDTO.WorkflowConfig config = workflowDefinitionService.getConfig(instance);
+        if (config != null && config.getNodes() != null && nodeDTOs.size() < config.getNodes().size()) {
+            Set<String> materialized = nodeDTOs.stream()
+                    .map(com.mindflow.common.dto.NodeInstanceDTO::getNodeId)
+                    .collect(Collectors.toSet());
+            for (WorkflowDefinitionDTO.NodeConfig node : config.getNodes()) {
+                if (!materialized.contains(node.getId())) {
+                    com.mindflow.common.dto.NodeInstanceDTO pending = new com.mindflow.common.dto.NodeInstanceDTO();
+                    pending.setWorkflowInstanceId(id);
+                    pending.setNodeId(node.getId());
+                    pending.setNodeType(node.getType());
+                    pending.setNodeName(node.getName());
+                    pending.setStatus("PENDING");
+                    nodeDTOs.add(pending);
+                }
+            }
+        }
         dto.setNodeInstances(nodeDTOs);
         
         return ResponseEntity.ok(dto);
     }
 
+    @GetMapping("/instances/{id}/critical-path")
+    @Transactional(readOnly = true)
+    public ResponseEntity<Map<String, Object>> getCriticalPath(@PathVariable("id") Long id) {
+        return ResponseEntity.ok(latencyAnalysisService.criticalPath(id));
+    }
+
+    @GetMapping("/instances/{id}/events")
+    @Transactional(readOnly = true)
+    public ResponseEntity<Map<String, Object>> getExecutionHistory(@PathVariable("id") Long id) {
+        return ResponseEntity.ok(executionHistoryService.history(id));
+    }
+
     @GetMapping("/instances/{id}/stream")
     public SseEmitter streamInstanceStatus(@PathVariable("id") Long id) {
         // 验证实例存在
@@ -200,29 +331,7 @@ public class WorkflowController {
 
     @PostMapping("/instances/{id}/terminate")
     public ResponseEntity<WorkflowInstanceDTO> terminateWorkflowInstance(@PathVariable("id") Long id) {
-        WorkflowInstance instance = workflowInstanceRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("工作流实例不存在"));
-        
-        if ("RUNNING".equals(instance.getStatus())) {
-            instance.setStatus("TERMINATED");
-            instance.setEndTime(java.time.LocalDateTime.now());
-            instance.setErrorMessage("工作流被手动终止");
-            workflowInstanceRepository.save(instance);
-            
-            // 终止所有运行中的节点
-            List<NodeInstance> runningNodes = nodeInstanceRepository.findByWorkflowInstanceId(id)
-                    .stream()
-                    .filter(n -> "RUNNING".equals(n.getStatus()) || "PENDING".equals(n.getStatus()))
-                    .toList();
-            
-            for (NodeInstance node : runningNodes) {
-                node.setStatus("TERMINATED");
-                node.setErrorMessage("工作流被终止");
-                node.setEndTime(java.time.LocalDateTime.now());
-                nodeInstanceRepository.save(node);
-            }
-        }
-        
+        WorkflowInstance instance = workflowService.terminateWorkflowInstance(id);
         return ResponseEntity.ok(convertToDTO(instance));
     }
 
@@ -250,6 +359,7 @@ public class WorkflowController {
         WorkflowInstanceDTO dto = new WorkflowInstanceDTO();
         dto.setId(instance.getId());
         dto.setWorkflowDefinitionId(instance.getWorkflowDefinitionId());
+        dto.setDefinitionVersionId(instance.getDefinitionVersionId());
         
         WorkflowDefinition definition = workflowDefinitionRepository.findById(instance.getWorkflowDefinitionId())
                 .orElse(null);
@@ -263,6 +373,7 @@ public class WorkflowController {
         dto.setErrorMessage(instance.getErrorMessage());
         dto.setStartTime(instance.getStartTime());
         dto.setEndTime(instance.getEndTime());
+        dto.setParentInstanceId(instance.getParentInstanceId());
         return dto;
     }
 }
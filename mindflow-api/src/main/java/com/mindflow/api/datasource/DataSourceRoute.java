@@ -0,0 +1,23 @@
+package com.mindflow.api.datasource;
+
+/**
+ * 当前请求是否可以读副本：由 {@link ReadYourWritesInterceptor} 在进入只读查询接口前设置，默认读主库
+ */
+public final class DataSourceRoute {
+    private static final ThreadLocal<Boolean> REPLICA_ALLOWED = new ThreadLocal<>();
+
+    private DataSourceRoute() {
+    }
+
+    public static void allowReplica() {
+        REPLICA_ALLOWED.set(Boolean.TRUE);
+    }
+
+    public static boolean isReplicaAllowed() {
+        return REPLICA_ALLOWED.get() != null;
+    }
+
+    public static void clear() {
+        REPLICA_ALLOWED.remove();
+    }
+}
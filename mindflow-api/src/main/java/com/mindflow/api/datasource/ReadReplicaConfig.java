@@ -0,0 +1,96 @@
+package com.mindflow.api.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读写分离：spring.datasource 为主库，mindflow.read-replicas.replicas 为只读副本。
+ * 看板的列表、详情查询（标注只读事务的接口）分摊到副本，写入和编排器、worker 的访问仍只在主库上。
+ * 未开启时使用 Spring Boot 默认的单数据源。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "mindflow.read-replicas", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig implements WebMvcConfigurer {
+
+    private final ReadReplicaProperties readReplicaProperties;
+
+    private final StringRedisTemplate redisTemplate;
+
+    /** 连接池不注册为 bean，避免被再包一层观测代理后重复统计，停机时在这里关闭 */
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    public ReadReplicaConfig(ReadReplicaProperties readReplicaProperties, StringRedisTemplate redisTemplate) {
+        this.readReplicaProperties = readReplicaProperties;
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(DataSourceProperties dataSourceProperties, MeterRegistry meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        List<ReadReplicaProperties.Replica> configured = readReplicaProperties.getReplicas();
+        for (int i = 0; i < configured.size(); i++) {
+            ReadReplicaProperties.Replica replica = configured.get(i);
+            HikariDataSource dataSource = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(dataSourceProperties.getDriverClassName())
+                    .url(replica.getUrl())
+                    .username(replica.getUsername())
+                    .password(replica.getPassword())
+                    .build();
+            dataSource.setPoolName("mindflow-replica-" + i);
+            dataSource.setReadOnly(true);
+            pools.add(dataSource);
+            replicas.put("replica-" + i, dataSource);
+        }
+        return new ReplicaLagMonitor(replicas, readReplicaProperties.getMaxLag().toSeconds(), meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties dataSourceProperties, ReplicaLagMonitor replicaLagMonitor) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        primary.setPoolName("mindflow-primary");
+        pools.add(primary);
+        Map<Object, Object> targets = new HashMap<>(replicaLagMonitor.getDataSources());
+        targets.put(ReplicaRoutingDataSource.PRIMARY, primary);
+
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(replicaLagMonitor);
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(primary);
+        routing.afterPropertiesSet();
+        return routing;
+    }
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker() {
+        return new ReadYourWritesTracker(redisTemplate, readReplicaProperties.getReadYourWritesWindow());
+    }
+
+    @PreDestroy
+    public void closePools() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ReadYourWritesInterceptor(readYourWritesTracker())).addPathPatterns("/api/**");
+    }
+}
@@ -0,0 +1,87 @@
+package com.mindflow.api.datasource;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 只读副本配置（mindflow.read-replicas.*）
+ */
+@Component
+@ConfigurationProperties(prefix = "mindflow.read-replicas")
+public class ReadReplicaProperties {
+    private boolean enabled = false;
+
+    /** 复制延迟超过该值的副本不再接收读请求，全部副本都不可用时读主库 */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    /** 用户写入后的这段时间内，它的读请求以及对被写入实例、定义的读请求都走主库，保证能读到自己刚创建的实例 */
+    private Duration readYourWritesWindow = Duration.ofSeconds(10);
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getMaxLag() {
+        return maxLag;
+    }
+
+    public void setMaxLag(Duration maxLag) {
+        this.maxLag = maxLag;
+    }
+
+    public Duration getReadYourWritesWindow() {
+        return readYourWritesWindow;
+    }
+
+    public void setReadYourWritesWindow(Duration readYourWritesWindow) {
+        this.readYourWritesWindow = readYourWritesWindow;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    public static class Replica {
+        private String url;
+        private String username;
+        private String password;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.mindflow.api.datasource;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * 标注了 {@code @Transactional(readOnly = true)} 的查询接口允许读副本。
+ * 写请求由 {@link ReadYourWritesTracker} 在服务端记录发起的用户和路径中的资源 ID，
+ * 窗口期内同一用户的查询、或针对同一资源的查询仍读主库，客户端写入后立即查询不会因副本延迟读不到。
+ * 新建的实例在 ID 生成后由 WorkflowService 记录。
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor {
+    static final String ID_VARIABLE = "id";
+
+    private final ReadYourWritesTracker tracker;
+
+    public ReadYourWritesInterceptor(ReadYourWritesTracker tracker) {
+        this.tracker = tracker;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String method = request.getMethod();
+        String principal = principal();
+        String resource = resource(request);
+        String id = resource != null ? pathVariables(request).get(ID_VARIABLE) : null;
+        if (!"GET".equals(method) && !"HEAD".equals(method)) {
+            // 在处理前记录：写入提交时窗口已经生效
+            if (principal != null) {
+                tracker.recordPrincipal(principal);
+            }
+            if (id != null) {
+                tracker.recordResource(resource, id);
+            }
+        } else if (isReadOnly(handler) && !tracker.recentlyWritten(principal, resource, id)) {
+            DataSourceRoute.allowReplica();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        DataSourceRoute.clear();
+    }
+
+    /**
+     * SSE 等异步请求在这里释放处理线程
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        DataSourceRoute.clear();
+    }
+
+    private boolean isReadOnly(Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return false;
+        }
+        Transactional transactional = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), Transactional.class);
+        return transactional != null && transactional.readOnly();
+    }
+
+    /**
+     * JWT 过滤器认证的用户名，匿名请求返回 null
+     */
+    private String principal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * 接口路径模板中 {id} 前的一段，如 /api/workflows/instances/{id}/events 为 instances
+     */
+    private String resource(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null) {
+            return null;
+        }
+        String path = pattern.toString();
+        int index = path.indexOf("/{" + ID_VARIABLE + "}");
+        if (index <= 0) {
+            return null;
+        }
+        return path.substring(path.lastIndexOf('/', index - 1) + 1, index);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String> pathVariables(HttpServletRequest request) {
+        Object variables = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        return variables instanceof Map ? (Map<String, String>) variables : Map.of();
+    }
+}
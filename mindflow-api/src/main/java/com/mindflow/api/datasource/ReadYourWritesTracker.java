@@ -0,0 +1,78 @@
+package com.mindflow.api.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 记录最近的写入，在 Redis 中保存 read-your-writes-window 时长，多个 API 节点共享。
+ * 按两类键记录：已认证的用户（JWT 中的用户名），以及被写入的资源（实例、定义的 ID），
+ * 匿名客户端创建实例后按实例 ID 查询也能读到主库。
+ */
+public class ReadYourWritesTracker {
+    private static final Logger logger = LoggerFactory.getLogger(ReadYourWritesTracker.class);
+    private static final String KEY_PREFIX = "mindflow:last-write:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration window;
+
+    public ReadYourWritesTracker(StringRedisTemplate redisTemplate, Duration window) {
+        this.redisTemplate = redisTemplate;
+        this.window = window;
+    }
+
+    public void recordPrincipal(String principal) {
+        record(principalKey(principal));
+    }
+
+    /**
+     * @param resource 资源类型，取自接口路径中 ID 前的一段，如 instances、definitions
+     */
+    public void recordResource(String resource, Object id) {
+        record(resourceKey(resource, id));
+    }
+
+    /**
+     * 用户或资源在窗口期内有写入时返回 true；Redis 不可用时同样返回 true，读主库
+     */
+    public boolean recentlyWritten(String principal, String resource, Object id) {
+        List<String> keys = new ArrayList<>(2);
+        if (principal != null) {
+            keys.add(principalKey(principal));
+        }
+        if (resource != null && id != null) {
+            keys.add(resourceKey(resource, id));
+        }
+        if (keys.isEmpty()) {
+            return false;
+        }
+        try {
+            Long existing = redisTemplate.countExistingKeys(keys);
+            return existing == null || existing > 0;
+        } catch (Exception e) {
+            logger.warn("查询最近写入记录失败，改读主库: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    private void record(String key) {
+        try {
+            redisTemplate.opsForValue().set(key, "1", window);
+        } catch (Exception e) {
+            // 记录失败时最多读到副本上稍旧的数据，不影响写请求本身
+            logger.warn("记录最近写入失败: key={}, error={}", key, e.getMessage());
+        }
+    }
+
+    private String principalKey(String principal) {
+        return KEY_PREFIX + "user:" + principal;
+    }
+
+    private String resourceKey(String resource, Object id) {
+        return KEY_PREFIX + resource + ":" + id;
+    }
+}
@@ -0,0 +1,96 @@
+package com.mindflow.api.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 定期查询各副本的复制延迟（SHOW REPLICA STATUS，需要 REPLICATION CLIENT 权限），
+ * 只把延迟在 max-lag 以内的副本用于读；复制中断、查询失败的副本在恢复前不再使用。
+ */
+public class ReplicaLagMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final Map<String, DataSource> dataSources;
+    private final Map<String, JdbcTemplate> replicas = new LinkedHashMap<>();
+    private final Map<String, Long> lagSeconds = new ConcurrentHashMap<>();
+    private final long maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+
+    /** 可用副本，检查后整体替换 */
+    private volatile List<String> healthy = List.of();
+
+    public ReplicaLagMonitor(Map<String, DataSource> replicaDataSources, long maxLagSeconds, MeterRegistry meterRegistry) {
+        this.dataSources = replicaDataSources;
+        this.maxLagSeconds = maxLagSeconds;
+        replicaDataSources.forEach((name, dataSource) -> {
+            replicas.put(name, new JdbcTemplate(dataSource));
+            lagSeconds.put(name, -1L);
+            Gauge.builder("mindflow.datasource.replica.lag", lagSeconds, m -> m.getOrDefault(name, -1L))
+                    .description("副本复制延迟（秒），-1 表示不可用")
+                    .baseUnit("seconds")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+        });
+    }
+
+    public Map<String, DataSource> getDataSources() {
+        return dataSources;
+    }
+
+    /**
+     * 轮询选择一个可用副本，没有可用副本时返回 null
+     */
+    public String nextReplica() {
+        List<String> candidates = healthy;
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        return candidates.get(Math.floorMod(next.getAndIncrement(), candidates.size()));
+    }
+
+    @Scheduled(fixedDelayString = "${mindflow.read-replicas.check-interval:1000}")
+    public void check() {
+        List<String> available = new ArrayList<>();
+        replicas.forEach((name, jdbcTemplate) -> {
+            Long lag = queryLag(name, jdbcTemplate);
+            boolean wasHealthy = healthy.contains(name);
+            boolean isHealthy = lag != null && lag <= maxLagSeconds;
+            lagSeconds.put(name, lag != null ? lag : -1L);
+            if (isHealthy) {
+                available.add(name);
+            }
+            if (wasHealthy != isHealthy) {
+                logger.info("只读副本{}: replica={}, lag={}s", isHealthy ? "恢复可用" : "暂停使用", name, lag);
+            }
+        });
+        healthy = List.copyOf(available);
+    }
+
+    private Long queryLag(String name, JdbcTemplate jdbcTemplate) {
+        try {
+            List<Map<String, Object>> rows = jdbcTemplate.queryForList("SHOW REPLICA STATUS");
+            if (rows.isEmpty()) {
+                logger.warn("只读副本未配置复制: replica={}", name);
+                return null;
+            }
+            Object seconds = rows.get(0).get("Seconds_Behind_Source");
+            // 复制线程未运行时为 NULL
+            return seconds instanceof Number n ? n.longValue() : null;
+        } catch (Exception e) {
+            logger.warn("查询副本复制延迟失败: replica={}, error={}", name, e.getMessage());
+            return null;
+        }
+    }
+}
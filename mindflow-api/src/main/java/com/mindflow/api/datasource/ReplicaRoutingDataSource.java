@@ -0,0 +1,26 @@
+package com.mindflow.api.datasource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+/**
+ * 允许读副本的请求路由到复制延迟在阈值内的副本，其余（写请求、刚写入过的客户端、定时任务等）都走主库。
+ * 路由在请求进入时决定，而不是在获取连接时看事务的只读标记：JPA 事务在设置只读标记之前就会取连接。
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+    public static final String PRIMARY = "primary";
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    public ReplicaRoutingDataSource(ReplicaLagMonitor lagMonitor) {
+        this.lagMonitor = lagMonitor;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!DataSourceRoute.isReplicaAllowed()) {
+            return PRIMARY;
+        }
+        String replica = lagMonitor.nextReplica();
+        return replica != null ? replica : PRIMARY;
+    }
+}
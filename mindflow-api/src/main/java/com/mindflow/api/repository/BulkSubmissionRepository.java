@@ -0,0 +1,9 @@
+package com.mindflow.api.repository;
+
+import com.mindflow.common.entity.BulkSubmission;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface BulkSubmissionRepository extends JpaRepository<BulkSubmission, String> {
+}
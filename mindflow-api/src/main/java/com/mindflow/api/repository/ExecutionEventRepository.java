@@ -0,0 +1,12 @@
+package com.mindflow.api.repository;
+
+import com.mindflow.common.entity.ExecutionEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface ExecutionEventRepository extends JpaRepository<ExecutionEvent, Long> {
+    List<ExecutionEvent> findByWorkflowInstanceIdOrderByCreateTimeAscSequenceAscIdAsc(Long workflowInstanceId);
+}
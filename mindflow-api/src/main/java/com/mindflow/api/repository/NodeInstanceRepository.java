@@ -2,12 +2,39 @@ package com.mindflow.api.repository;
 
 import com.mindflow.common.entity.NodeInstance;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface NodeInstanceRepository extends JpaRepository<NodeInstance, Long> {
     List<NodeInstance> findByWorkflowInstanceId(Long workflowInstanceId);
-}
 
+    /**
+     * 终止实例中尚未结束的节点
+     */
+    @Modifying
+    @Query("update NodeInstance n set n.status = 'TERMINATED', n.errorMessage = :reason, n.endTime = :now, "
+            + "n.version = n.version + 1 where n.workflowInstanceId = :workflowInstanceId "
+            + "and n.status in ('PENDING', 'RUNNING')")
+    int terminateActive(@Param("workflowInstanceId") Long workflowInstanceId, @Param("reason") String reason,
+                        @Param("now") LocalDateTime now);
+
+    /**
+     * 仅当节点仍为 RUNNING 时标记失败
+     */
+    @Modifying
+    @Query("update NodeInstance n set n.status = 'FAILED', n.errorMessage = :errorMessage, n.endTime = :now, "
+            + "n.version = n.version + 1 where n.id = :id and n.status = 'RUNNING'")
+    int failRunning(@Param("id") Long id, @Param("errorMessage") String errorMessage, @Param("now") LocalDateTime now);
+
+    /**
+     * 当前版本号，在迁移所在的事务中读取即为本次迁移后的版本，用作执行事件的序号
+     */
+    @Query("select n.version from NodeInstance n where n.id = :id")
+    Long findVersionById(@Param("id") Long id);
+}
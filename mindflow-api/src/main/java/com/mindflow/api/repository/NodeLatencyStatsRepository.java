@@ -0,0 +1,12 @@
+package com.mindflow.api.repository;
+
+import com.mindflow.common.entity.NodeLatencyStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface NodeLatencyStatsRepository extends JpaRepository<NodeLatencyStats, Long> {
+    List<NodeLatencyStats> findByWorkflowDefinitionId(Long workflowDefinitionId);
+}
@@ -0,0 +1,23 @@
+package com.mindflow.api.repository;
+
+import com.mindflow.common.entity.WorkflowDefinitionVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WorkflowDefinitionVersionRepository extends JpaRepository<WorkflowDefinitionVersion, Long> {
+    List<WorkflowDefinitionVersion> findByWorkflowDefinitionIdOrderByVersionNumberDesc(Long workflowDefinitionId);
+
+    @Query("select max(v.versionNumber) from WorkflowDefinitionVersion v where v.workflowDefinitionId = :definitionId")
+    Optional<Integer> findMaxVersionNumber(@Param("definitionId") Long definitionId);
+
+    @Modifying
+    @Query("delete from WorkflowDefinitionVersion v where v.workflowDefinitionId = :definitionId")
+    int deleteByDefinitionId(@Param("definitionId") Long definitionId);
+}
@@ -2,12 +2,31 @@ package com.mindflow.api.repository;
 
 import com.mindflow.common.entity.WorkflowInstance;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface WorkflowInstanceRepository extends JpaRepository<WorkflowInstance, Long> {
     List<WorkflowInstance> findByWorkflowDefinitionId(Long workflowDefinitionId);
-}
 
+    List<WorkflowInstance> findByParentInstanceIdAndStatus(Long parentInstanceId, String status);
+
+    /**
+     * 仅当实例仍为 RUNNING 时终止，返回 0 表示实例已结束
+     */
+    @Modifying
+    @Query("update WorkflowInstance w set w.status = 'TERMINATED', w.errorMessage = :reason, w.endTime = :now, "
+            + "w.version = w.version + 1 where w.id = :id and w.status = 'RUNNING'")
+    int terminate(@Param("id") Long id, @Param("reason") String reason, @Param("now") LocalDateTime now);
+
+    /**
+     * 当前版本号，在迁移所在的事务中读取即为本次迁移后的版本，用作执行事件的序号
+     */
+    @Query("select w.version from WorkflowInstance w where w.id = :id")
+    Long findVersionById(@Param("id") Long id);
+}
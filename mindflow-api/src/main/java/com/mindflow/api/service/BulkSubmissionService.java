@@ -0,0 +1,453 @@
+package com.mindflow.api.service;
+
+import com.mindflow.api.repository.BulkSubmissionRepository;
+import com.mindflow.api.repository.WorkflowDefinitionRepository;
+import com.mindflow.api.repository.WorkflowDefinitionVersionRepository;
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.entity.BulkSubmission;
+import com.mindflow.common.entity.WorkflowDefinition;
+import com.mindflow.common.entity.WorkflowDefinitionVersion;
+import com.mindflow.common.event.ExecutionEventLog;
+import com.mindflow.common.util.JsonUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 批量提交实例：输入先按块写入 bulk_submission_input，再由后台按块在独立事务中批量插入实例和节点行，
+ * 同一事务删除已处理的输入并累加 created；提交后批量发送工作流创建事件。
+ *
+ * 批次进度只保存在数据库中：API 重启后，超过 orphan-after 没有推进的批次从剩余输入继续处理，
+ * 输入未写完就中断的批次标记失败。实例已提交但创建事件未发出的，由编排器的对账扫描补发。
+ */
+@Service
+public class BulkSubmissionService {
+    private static final Logger logger = LoggerFactory.getLogger(BulkSubmissionService.class);
+    private static final String WORKFLOW_CREATED_TOPIC = "mindflow-workflow-created";
+
+    private static final String INSERT_INSTANCE = "INSERT INTO workflow_instance "
+            + "(workflow_definition_id, definition_version_id, status, input, start_time, batch_id, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_NODE = "INSERT INTO node_instance "
+            + "(workflow_instance_id, node_id, node_type, node_name, status, input, start_time, version) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_INPUT = "INSERT INTO bulk_submission_input (batch_id, seq, input) "
+            + "VALUES (?, ?, ?)";
+
+    @Autowired
+    private WorkflowDefinitionRepository workflowDefinitionRepository;
+
+    @Autowired
+    private WorkflowDefinitionVersionRepository workflowDefinitionVersionRepository;
+
+    @Autowired
+    private BulkSubmissionRepository bulkSubmissionRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ExecutionEventLog executionEventLog;
+
+    /** 每个事务写入的实例数 */
+    @Value("${mindflow.bulk.chunk-size:500}")
+    private int chunkSize;
+
+    /** 为 true 时不插入节点行，由编排器在调度节点时插入 */
+    @Value("${mindflow.instance.lazy-nodes:false}")
+    private boolean lazyNodes;
+
+    /** 单批次最多提交的实例数 */
+    @Value("${mindflow.bulk.max-instances:100000}")
+    private int maxInstances;
+
+    /** 批次超过该时间没有推进，视为处理它的 API 实例已停止，由其他实例接手 */
+    @Value("${mindflow.bulk.orphan-after:10m}")
+    private Duration orphanAfter;
+
+    private final ExecutorService executor;
+
+    /** 本实例已排队或正在处理的批次，接手孤儿批次时跳过 */
+    private final Set<String> activeBatches = ConcurrentHashMap.newKeySet();
+
+    public BulkSubmissionService(@Value("${mindflow.bulk.max-concurrent:2}") int maxConcurrent) {
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(maxConcurrent, r -> {
+            Thread thread = new Thread(r, "mindflow-bulk-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 登记批次并按块写入输入，写完后在后台执行，立即返回批次信息。输入边读边写，不在内存中保留整个批次
+     */
+    public BulkSubmission submit(Long workflowDefinitionId, Iterator<String> inputs) {
+        WorkflowDefinition definition = workflowDefinitionRepository.findById(workflowDefinitionId)
+                .orElseThrow(() -> new RuntimeException("工作流定义不存在: " + workflowDefinitionId));
+        WorkflowDefinitionDTO.WorkflowConfig config = JsonUtils.fromJson(
+                definition.getConfig(), WorkflowDefinitionDTO.WorkflowConfig.class);
+        if (config == null || config.getNodes() == null) {
+            throw new RuntimeException("工作流配置无效");
+        }
+
+        BulkSubmission batch = new BulkSubmission();
+        batch.setBatchId(UUID.randomUUID().toString());
+        batch.setWorkflowDefinitionId(workflowDefinitionId);
+        // 整个批次固定到提交时的版本
+        batch.setDefinitionVersionId(definition.getCurrentVersionId());
+        batch.setStatus("UPLOADING");
+        batch.setTotal(0);
+        batch.setCreated(0);
+        batch.setDispatched(0);
+        batch.setFailed(0);
+        batch = bulkSubmissionRepository.save(batch);
+        String batchId = batch.getBatchId();
+
+        int total = 0;
+        try {
+            List<String> chunk = new ArrayList<>(chunkSize);
+            while (inputs.hasNext()) {
+                if (total >= maxInstances) {
+                    throw new RuntimeException("单批次最多提交 " + maxInstances + " 个实例");
+                }
+                chunk.add(inputs.next());
+                total++;
+                if (chunk.size() == chunkSize) {
+                    stageInputs(batchId, total - chunk.size(), chunk);
+                    chunk.clear();
+                }
+            }
+            if (total == 0) {
+                throw new RuntimeException("批量提交的输入不能为空");
+            }
+            stageInputs(batchId, total - chunk.size(), chunk);
+        } catch (RuntimeException e) {
+            discard(batchId);
+            throw e;
+        }
+
+        batch.setTotal(total);
+        batch.setStatus("PENDING");
+        batch = bulkSubmissionRepository.save(batch);
+        enqueue(batchId);
+        logger.info("已登记批量提交: batchId={}, definitionId={}, total={}", batchId, workflowDefinitionId, total);
+        return batch;
+    }
+
+    public BulkSubmission getProgress(String batchId) {
+        return bulkSubmissionRepository.findById(batchId)
+                .orElseThrow(() -> new RuntimeException("批次不存在: " + batchId));
+    }
+
+    /**
+     * 接手超过 orphan-after 没有推进的批次：输入未写完的标记失败，其余从剩余输入继续。
+     * 以 update_time 做条件更新认领，多个 API 实例同时扫描时只有一个接手
+     */
+    @Scheduled(initialDelayString = "${mindflow.bulk.orphan-check-initial-delay:10000}",
+            fixedDelayString = "${mindflow.bulk.orphan-check-interval:60000}")
+    public void resumeOrphaned() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(orphanAfter);
+        List<Map<String, Object>> orphans = jdbcTemplate.queryForList("SELECT batch_id, status, update_time "
+                + "FROM bulk_submission WHERE status IN ('UPLOADING', 'PENDING', 'RUNNING') AND update_time < ?",
+                Timestamp.valueOf(cutoff));
+        for (Map<String, Object> orphan : orphans) {
+            String batchId = (String) orphan.get("batch_id");
+            if (activeBatches.contains(batchId)) {
+                continue;
+            }
+            if ("UPLOADING".equals(orphan.get("status"))) {
+                int updated = jdbcTemplate.update("UPDATE bulk_submission SET status = 'FAILED', error_message = ?, "
+                        + "update_time = ? WHERE batch_id = ? AND status = 'UPLOADING' AND update_time = ?",
+                        "输入上传中断", Timestamp.valueOf(LocalDateTime.now()), batchId, orphan.get("update_time"));
+                if (updated > 0) {
+                    jdbcTemplate.update("DELETE FROM bulk_submission_input WHERE batch_id = ?", batchId);
+                    logger.warn("批量提交的输入未写完，标记失败: batchId={}", batchId);
+                }
+                continue;
+            }
+            int claimed = jdbcTemplate.update("UPDATE bulk_submission SET update_time = ? "
+                    + "WHERE batch_id = ? AND update_time = ?",
+                    Timestamp.valueOf(LocalDateTime.now()), batchId, orphan.get("update_time"));
+            if (claimed > 0) {
+                logger.warn("接手中断的批量提交: batchId={}, status={}", batchId, orphan.get("status"));
+                enqueue(batchId);
+            }
+        }
+    }
+
+    private void enqueue(String batchId) {
+        if (!activeBatches.add(batchId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    process(batchId);
+                } finally {
+                    activeBatches.remove(batchId);
+                }
+            });
+        } catch (RuntimeException e) {
+            activeBatches.remove(batchId);
+            throw e;
+        }
+    }
+
+    private void stageInputs(String batchId, int firstSeq, List<String> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_INPUT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                ps.setString(1, batchId);
+                ps.setInt(2, firstSeq + i);
+                ps.setString(3, chunk.get(i));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunk.size();
+            }
+        });
+        // 上传期间保持批次活跃，不被当作中断的批次
+        jdbcTemplate.update("UPDATE bulk_submission SET update_time = ? WHERE batch_id = ?",
+                Timestamp.valueOf(LocalDateTime.now()), batchId);
+    }
+
+    private void discard(String batchId) {
+        jdbcTemplate.update("DELETE FROM bulk_submission_input WHERE batch_id = ?", batchId);
+        bulkSubmissionRepository.deleteById(batchId);
+    }
+
+    private void process(String batchId) {
+        BulkSubmission batch = bulkSubmissionRepository.findById(batchId).orElse(null);
+        if (batch == null || !("PENDING".equals(batch.getStatus()) || "RUNNING".equals(batch.getStatus()))) {
+            return;
+        }
+        Long definitionId = batch.getWorkflowDefinitionId();
+        Long versionId = batch.getDefinitionVersionId();
+        try {
+            WorkflowDefinitionDTO.WorkflowConfig config = loadConfig(batch);
+            jdbcTemplate.update("UPDATE bulk_submission SET status = 'RUNNING', update_time = ? WHERE batch_id = ?",
+                    Timestamp.valueOf(LocalDateTime.now()), batchId);
+            while (true) {
+                long start = System.nanoTime();
+                List<String> chunk = new ArrayList<>(chunkSize);
+                List<Long> instanceIds = transactionTemplate.execute(
+                        status -> createChunk(status, batchId, definitionId, versionId, config, chunk));
+                if (instanceIds == null) {
+                    logger.info("批量提交已由其他处理者继续: batchId={}", batchId);
+                    return;
+                }
+                if (instanceIds.isEmpty()) {
+                    break;
+                }
+                for (Long instanceId : instanceIds) {
+                    executionEventLog.instance(instanceId, "CREATED", 0, null);
+                }
+
+                int failed = dispatch(definitionId, versionId, instanceIds, chunk);
+                jdbcTemplate.update("UPDATE bulk_submission SET dispatched = dispatched + ?, failed = failed + ?, "
+                        + "update_time = ? WHERE batch_id = ?",
+                        instanceIds.size() - failed, failed, Timestamp.valueOf(LocalDateTime.now()), batchId);
+                meterRegistry.timer("mindflow.instance.bulk.chunk").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            jdbcTemplate.update("UPDATE bulk_submission SET status = CASE WHEN failed > 0 THEN 'FAILED' "
+                    + "ELSE 'COMPLETED' END, update_time = ? WHERE batch_id = ? AND status = 'RUNNING'",
+                    Timestamp.valueOf(LocalDateTime.now()), batchId);
+            logger.info("批量提交完成: batchId={}, total={}", batchId, batch.getTotal());
+        } catch (Exception e) {
+            logger.error("批量提交失败: batchId={}", batchId, e);
+            jdbcTemplate.update("UPDATE bulk_submission SET status = 'FAILED', error_message = ?, update_time = ? "
+                    + "WHERE batch_id = ?", e.getMessage(), Timestamp.valueOf(LocalDateTime.now()), batchId);
+        }
+    }
+
+    private WorkflowDefinitionDTO.WorkflowConfig loadConfig(BulkSubmission batch) {
+        String config;
+        if (batch.getDefinitionVersionId() != null) {
+            config = workflowDefinitionVersionRepository.findById(batch.getDefinitionVersionId())
+                    .map(WorkflowDefinitionVersion::getConfig)
+                    .orElseThrow(() -> new RuntimeException("定义版本不存在: " + batch.getDefinitionVersionId()));
+        } else {
+            config = workflowDefinitionRepository.findById(batch.getWorkflowDefinitionId())
+                    .map(WorkflowDefinition::getConfig)
+                    .orElseThrow(() -> new RuntimeException("工作流定义不存在: " + batch.getWorkflowDefinitionId()));
+        }
+        return JsonUtils.fromJson(config, WorkflowDefinitionDTO.WorkflowConfig.class);
+    }
+
+    /**
+     * 取出下一块输入并创建实例，同一事务删除这些输入并累加 created。取出的输入按序号追加到 chunk，
+     * 返回新实例 ID；没有剩余输入时返回空列表，输入已被其他处理者取走时回滚并返回 null
+     */
+    private List<Long> createChunk(TransactionStatus status, String batchId, Long definitionId, Long versionId,
+                                   WorkflowDefinitionDTO.WorkflowConfig config, List<String> chunk) {
+        List<Integer> seqs = new ArrayList<>(chunkSize);
+        jdbcTemplate.query("SELECT seq, input FROM bulk_submission_input WHERE batch_id = ? ORDER BY seq LIMIT ?",
+                rs -> {
+                    seqs.add(rs.getInt("seq"));
+                    chunk.add(rs.getString("input"));
+                }, batchId, chunkSize);
+        if (seqs.isEmpty()) {
+            return List.of();
+        }
+        int deleted = jdbcTemplate.update("DELETE FROM bulk_submission_input WHERE batch_id = ? AND seq BETWEEN ? AND ?",
+                batchId, seqs.get(0), seqs.get(seqs.size() - 1));
+        if (deleted != seqs.size()) {
+            status.setRollbackOnly();
+            return null;
+        }
+        List<Long> instanceIds = insertChunk(batchId, definitionId, versionId, config, chunk);
+        jdbcTemplate.update("UPDATE bulk_submission SET created = created + ?, update_time = ? WHERE batch_id = ?",
+                instanceIds.size(), Timestamp.valueOf(LocalDateTime.now()), batchId);
+        return instanceIds;
+    }
+
+    /**
+     * 一次批量插入实例并取回自增 ID，再一次批量插入全部节点行（延迟创建模式下不插入）
+     */
+    private List<Long> insertChunk(String batchId, Long definitionId, Long versionId,
+                                   WorkflowDefinitionDTO.WorkflowConfig config, List<String> chunk) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        GeneratedKeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+                con -> con.prepareStatement(INSERT_INSTANCE, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        ps.setLong(1, definitionId);
+                        ps.setObject(2, versionId, Types.BIGINT);
+                        ps.setString(3, "RUNNING");
+                        ps.setString(4, chunk.get(i));
+                        ps.setTimestamp(5, now);
+                        ps.setString(6, batchId);
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return chunk.size();
+                    }
+                },
+                keyHolder);
+
+        List<Long> instanceIds = new ArrayList<>(chunk.size());
+        for (Map<String, Object> keys : keyHolder.getKeyList()) {
+            instanceIds.add(((Number) keys.values().iterator().next()).longValue());
+        }
+        if (instanceIds.size() != chunk.size()) {
+            throw new RuntimeException("批量插入返回的主键数量不一致: " + instanceIds.size() + " != " + chunk.size());
+        }
+
+        if (lazyNodes) {
+            return instanceIds;
+        }
+        List<WorkflowDefinitionDTO.NodeConfig> nodes = config.getNodes();
+        jdbcTemplate.batchUpdate(INSERT_NODE, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                int instanceIndex = i / nodes.size();
+                WorkflowDefinitionDTO.NodeConfig node = nodes.get(i % nodes.size());
+                ps.setLong(1, instanceIds.get(instanceIndex));
+                ps.setString(2, node.getId());
+                ps.setString(3, node.getType());
+                ps.setString(4, node.getName());
+                ps.setString(5, "PENDING");
+                ps.setString(6, chunk.get(instanceIndex));
+                ps.setTimestamp(7, now);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return chunk.size() * nodes.size();
+            }
+        });
+        return instanceIds;
+    }
+
+    /**
+     * 异步发送整块事件后统一等待确认，返回发送失败的数量
+     */
+    private int dispatch(Long definitionId, Long versionId, List<Long> instanceIds, List<String> inputs) {
+        List<CompletableFuture<?>> futures = new ArrayList<>(instanceIds.size());
+        for (int i = 0; i < instanceIds.size(); i++) {
+            Map<String, Object> event = new HashMap<>();
+            event.put("workflowInstanceId", instanceIds.get(i));
+            event.put("workflowDefinitionId", definitionId);
+            event.put("definitionVersionId", versionId);
+            event.put("input", inputs.get(i));
+            futures.add(kafkaTemplate.send(WORKFLOW_CREATED_TOPIC, String.valueOf(instanceIds.get(i)), JsonUtils.toJson(event)));
+        }
+        kafkaTemplate.flush();
+
+        List<Object[]> failed = new ArrayList<>();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get();
+            } catch (Exception e) {
+                logger.error("发送工作流创建事件失败: instanceId={}, error={}", instanceIds.get(i), e.getMessage());
+                failed.add(new Object[]{"发送工作流创建事件失败: " + e.getMessage(), now, instanceIds.get(i)});
+            }
+        }
+        // 没有发出去的实例不会被编排器推进，直接标记失败；新建实例的版本为 0，这是它的第一次迁移
+        if (!failed.isEmpty()) {
+            int[] updated = jdbcTemplate.batchUpdate("UPDATE workflow_instance SET status = 'FAILED', error_message = ?, "
+                    + "end_time = ?, version = version + 1 WHERE id = ? AND status = 'RUNNING'", failed);
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] != 0) {
+                    executionEventLog.instance((Long) failed.get(i)[2], "FAILED", 1, (String) failed.get(i)[0]);
+                }
+            }
+        }
+        return failed.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,92 @@
+package com.mindflow.api.service;
+
+import com.mindflow.api.repository.ExecutionEventRepository;
+import com.mindflow.common.entity.ExecutionEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 实例执行历史：按时间返回执行事件日志，并折叠出实例和各节点的状态，用于审计和与实例表核对。
+ * 事件由多个服务异步写入，折叠时每个实例或节点取 seq 最大的事件，不依赖写入顺序；已归档的实例从归档表读取
+ */
+@Service
+public class ExecutionHistoryService {
+    private static final String INSTANCE_PREFIX = "INSTANCE_";
+
+    @Autowired
+    private ExecutionEventRepository executionEventRepository;
+
+    @Autowired
+    private InstanceArchiveService instanceArchiveService;
+
+    public Map<String, Object> history(Long instanceId) {
+        List<ExecutionEvent> events = executionEventRepository
+                .findByWorkflowInstanceIdOrderByCreateTimeAscSequenceAscIdAsc(instanceId);
+        if (events.isEmpty()) {
+            events = instanceArchiveService.findArchivedEvents(instanceId);
+        }
+
+        List<Map<String, Object>> eventList = new ArrayList<>(events.size());
+        for (ExecutionEvent event : events) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("id", event.getId());
+            item.put("nodeInstanceId", event.getNodeInstanceId());
+            item.put("nodeId", event.getNodeId());
+            item.put("transition", event.getTransition());
+            item.put("sequence", event.getSequence());
+            item.put("detail", event.getDetail());
+            item.put("time", event.getCreateTime());
+            eventList.add(item);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("workflowInstanceId", instanceId);
+        result.put("state", fold(events));
+        result.put("events", eventList);
+        return result;
+    }
+
+    /**
+     * 折叠事件得到状态：实例和每个节点各取 seq 最大的迁移；实例被终止时未结束的节点视为 TERMINATED
+     */
+    private Map<String, Object> fold(List<ExecutionEvent> events) {
+        ExecutionEvent instanceEvent = null;
+        Map<String, ExecutionEvent> nodeEvents = new LinkedHashMap<>();
+        for (ExecutionEvent event : events) {
+            if (event.getTransition().startsWith(INSTANCE_PREFIX)) {
+                if (instanceEvent == null || event.getSequence() >= instanceEvent.getSequence()) {
+                    instanceEvent = event;
+                }
+                continue;
+            }
+            ExecutionEvent current = nodeEvents.get(event.getNodeId());
+            if (current == null || event.getSequence() >= current.getSequence()) {
+                nodeEvents.put(event.getNodeId(), event);
+            }
+        }
+
+        String status = instanceEvent != null
+                ? instanceEvent.getTransition().substring(INSTANCE_PREFIX.length()) : null;
+        if ("CREATED".equals(status)) {
+            status = "RUNNING";
+        }
+        Map<String, String> nodes = new LinkedHashMap<>();
+        for (Map.Entry<String, ExecutionEvent> entry : nodeEvents.entrySet()) {
+            String nodeStatus = entry.getValue().getTransition();
+            if ("TERMINATED".equals(status) && "RUNNING".equals(nodeStatus)) {
+                nodeStatus = "TERMINATED";
+            }
+            nodes.put(entry.getKey(), nodeStatus);
+        }
+        Map<String, Object> state = new HashMap<>();
+        state.put("status", status);
+        state.put("nodes", nodes);
+        return state;
+    }
+}
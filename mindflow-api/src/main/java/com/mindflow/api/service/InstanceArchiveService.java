@@ -0,0 +1,143 @@
+package com.mindflow.api.service;
+
+import com.mindflow.common.entity.ExecutionEvent;
+import com.mindflow.common.entity.NodeInstance;
+import com.mindflow.common.entity.WorkflowInstance;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冷热分层：超过保留期的已结束实例及其节点、执行事件分批迁入归档表，热表只保留运行中和近期的实例。
+ * 每块在独立的短事务中按主键插入归档表再删除热表行，块之间暂停，避免长时间持锁和挤占缓冲池。
+ * 归档后的实例仍可按 ID 查询。
+ */
+@Service
+public class InstanceArchiveService {
+    private static final Logger logger = LoggerFactory.getLogger(InstanceArchiveService.class);
+
+    private static final String INSTANCE_COLUMNS = "id, workflow_definition_id, definition_version_id, status, input, "
+            + "output, error_message, start_time, end_time, version, batch_id, parent_instance_id, parent_node_instance_id";
+    private static final String NODE_COLUMNS = "id, workflow_instance_id, node_id, node_type, node_name, status, "
+            + "input, output, error_message, start_time, execute_time, end_time, version";
+    private static final String EVENT_COLUMNS = "id, workflow_instance_id, node_instance_id, node_id, transition, seq, "
+            + "detail, create_time";
+
+    private static final String SELECT_EXPIRED = "SELECT id FROM workflow_instance "
+            + "WHERE status IN ('SUCCESS', 'FAILED', 'TERMINATED') AND end_time < ? ORDER BY end_time LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${mindflow.archive.enabled:true}")
+    private boolean enabled;
+
+    /** 实例结束后在热表中保留的时间 */
+    @Value("${mindflow.archive.retention:7d}")
+    private Duration retention;
+
+    /** 每个事务迁移的实例数 */
+    @Value("${mindflow.archive.chunk-size:200}")
+    private int chunkSize;
+
+    /** 两块之间的暂停，给在线写入让出锁和 IO */
+    @Value("${mindflow.archive.chunk-pause:200ms}")
+    private Duration chunkPause;
+
+    @Scheduled(initialDelayString = "${mindflow.archive.interval:600000}",
+            fixedDelayString = "${mindflow.archive.interval:600000}")
+    public void archiveExpired() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(retention);
+        long start = System.nanoTime();
+        int archived = 0;
+        try {
+            while (true) {
+                List<Long> ids = jdbcTemplate.queryForList(SELECT_EXPIRED, Long.class,
+                        Timestamp.valueOf(cutoff), chunkSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                transactionTemplate.executeWithoutResult(status -> archiveChunk(ids));
+                archived += ids.size();
+                meterRegistry.counter("mindflow.archive.instances").increment(ids.size());
+                if (ids.size() < chunkSize) {
+                    break;
+                }
+                Thread.sleep(chunkPause.toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // 多个 API 实例同时归档时可能撞上同一块，留给下一轮
+            logger.warn("归档实例失败，下一轮重试: error={}", e.getMessage());
+        }
+        if (archived > 0) {
+            logger.info("已归档实例: count={}, cutoff={}, 耗时 {}ms", archived, cutoff,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    private void archiveChunk(List<Long> ids) {
+        String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Object[] args = ids.toArray();
+        jdbcTemplate.update("INSERT INTO node_instance_archive (" + NODE_COLUMNS + ") SELECT " + NODE_COLUMNS
+                + " FROM node_instance WHERE workflow_instance_id IN (" + in + ")", args);
+        jdbcTemplate.update("INSERT INTO execution_event_archive (" + EVENT_COLUMNS + ") SELECT " + EVENT_COLUMNS
+                + " FROM execution_event WHERE workflow_instance_id IN (" + in + ")", args);
+        jdbcTemplate.update("INSERT INTO workflow_instance_archive (" + INSTANCE_COLUMNS + ", archived_at) SELECT "
+                + INSTANCE_COLUMNS + ", CURRENT_TIMESTAMP FROM workflow_instance WHERE id IN (" + in + ")", args);
+        jdbcTemplate.update("DELETE FROM node_instance WHERE workflow_instance_id IN (" + in + ")", args);
+        jdbcTemplate.update("DELETE FROM execution_event WHERE workflow_instance_id IN (" + in + ")", args);
+        jdbcTemplate.update("DELETE FROM workflow_instance WHERE id IN (" + in + ")", args);
+    }
+
+    /**
+     * 按 ID 查询已归档的实例
+     */
+    public Optional<WorkflowInstance> findArchivedInstance(Long id) {
+        List<WorkflowInstance> instances = jdbcTemplate.query(
+                "SELECT " + INSTANCE_COLUMNS + " FROM workflow_instance_archive WHERE id = ?",
+                new BeanPropertyRowMapper<>(WorkflowInstance.class), id);
+        return instances.stream().findFirst();
+    }
+
+    public List<NodeInstance> findArchivedNodes(Long workflowInstanceId) {
+        return jdbcTemplate.query(
+                "SELECT " + NODE_COLUMNS + " FROM node_instance_archive WHERE workflow_instance_id = ?",
+                new BeanPropertyRowMapper<>(NodeInstance.class), workflowInstanceId);
+    }
+
+    /**
+     * 已归档实例的执行事件，顺序与热表查询一致
+     */
+    public List<ExecutionEvent> findArchivedEvents(Long workflowInstanceId) {
+        return jdbcTemplate.query("SELECT id, workflow_instance_id, node_instance_id, node_id, transition, "
+                        + "seq AS sequence, detail, create_time FROM execution_event_archive "
+                        + "WHERE workflow_instance_id = ? ORDER BY create_time, seq, id",
+                new BeanPropertyRowMapper<>(ExecutionEvent.class), workflowInstanceId);
+    }
+}
@@ -1,42 +1,83 @@
 package com.mindflow.api.service;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class InstanceStatusService {
-    // 存储每个工作流实例的 SSE 连接
-    private final Map<Long, CopyOnWriteArrayList<SseEmitter>> instanceEmitters = new ConcurrentHashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(InstanceStatusService.class);
+
+    // 存储每个工作流实例的 SSE 订阅者
+    private final Map<Long, CopyOnWriteArrayList<Subscriber>> instanceSubscribers = new ConcurrentHashMap<>();
+
+    /** 每个订阅者最多缓冲的事件数，慢客户端超出后丢弃最旧的进度片段 */
+    @Value("${mindflow.sse.buffer-size:256}")
+    private int bufferSize;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ExecutorService senders;
+
+    public InstanceStatusService(@Value("${mindflow.sse.sender-threads:8}") int senderThreads) {
+        AtomicInteger counter = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, r -> {
+            Thread thread = new Thread(r, "mindflow-sse-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("mindflow.sse.subscribers", this, InstanceStatusService::getSubscriberCount)
+                .description("SSE 订阅者数量")
+                .register(meterRegistry);
+    }
 
     /**
      * 添加 SSE 连接
      */
     public SseEmitter addEmitter(Long instanceId) {
         SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
-        
-        instanceEmitters.computeIfAbsent(instanceId, k -> new CopyOnWriteArrayList<>()).add(emitter);
-        
-        emitter.onCompletion(() -> removeEmitter(instanceId, emitter));
-        emitter.onTimeout(() -> removeEmitter(instanceId, emitter));
-        emitter.onError(e -> removeEmitter(instanceId, emitter));
-        
+        Subscriber subscriber = new Subscriber(instanceId, emitter);
+
+        instanceSubscribers.computeIfAbsent(instanceId, k -> new CopyOnWriteArrayList<>()).add(subscriber);
+
+        emitter.onCompletion(() -> removeSubscriber(subscriber));
+        emitter.onTimeout(() -> removeSubscriber(subscriber));
+        emitter.onError(e -> removeSubscriber(subscriber));
+
         return emitter;
     }
 
     /**
      * 移除 SSE 连接
      */
-    private void removeEmitter(Long instanceId, SseEmitter emitter) {
-        CopyOnWriteArrayList<SseEmitter> emitters = instanceEmitters.get(instanceId);
-        if (emitters != null) {
-            emitters.remove(emitter);
-            if (emitters.isEmpty()) {
-                instanceEmitters.remove(instanceId);
+    private void removeSubscriber(Subscriber subscriber) {
+        CopyOnWriteArrayList<Subscriber> subscribers = instanceSubscribers.get(subscriber.instanceId);
+        if (subscribers != null) {
+            subscribers.remove(subscriber);
+            if (subscribers.isEmpty()) {
+                instanceSubscribers.remove(subscriber.instanceId);
             }
         }
     }
@@ -45,18 +86,118 @@ public class InstanceStatusService {
      * 发送状态更新到所有监听该实例的客户端
      */
     public void sendStatusUpdate(Long instanceId, Object data) {
-        CopyOnWriteArrayList<SseEmitter> emitters = instanceEmitters.get(instanceId);
-        if (emitters != null) {
-            for (SseEmitter emitter : emitters) {
+        publish(instanceId, new Event("status-update", data, false));
+    }
+
+    /**
+     * 发送节点增量输出，缓冲区满时可以丢弃
+     */
+    public void sendNodeProgress(Long instanceId, Object data) {
+        publish(instanceId, new Event("node-progress", data, true));
+    }
+
+    public int getSubscriberCount() {
+        return instanceSubscribers.values().stream().mapToInt(CopyOnWriteArrayList::size).sum();
+    }
+
+    private void publish(Long instanceId, Event event) {
+        CopyOnWriteArrayList<Subscriber> subscribers = instanceSubscribers.get(instanceId);
+        if (subscribers != null) {
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.offer(event)) {
+                    senders.execute(subscriber::drain);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    private record Event(String name, Object data, boolean droppable) {
+    }
+
+    /**
+     * 单个 SSE 订阅者：有界缓冲 + 同一时刻最多一个线程在发送，慢客户端不会阻塞其他订阅者
+     */
+    private class Subscriber {
+        private final Long instanceId;
+        private final SseEmitter emitter;
+        private final ArrayDeque<Event> buffer = new ArrayDeque<>();
+        private boolean draining;
+        private long dropped;
+
+        private Subscriber(Long instanceId, SseEmitter emitter) {
+            this.instanceId = instanceId;
+            this.emitter = emitter;
+        }
+
+        /**
+         * 入队，返回 true 表示需要调度发送
+         */
+        synchronized boolean offer(Event event) {
+            if (buffer.size() >= bufferSize && !dropOldestProgress()) {
+                if (event.droppable()) {
+                    dropped++;
+                    return false;
+                }
+                // 缓冲区全是状态事件，仍然保留新的状态事件
+            }
+            buffer.addLast(event);
+            if (draining) {
+                return false;
+            }
+            draining = true;
+            return true;
+        }
+
+        private boolean dropOldestProgress() {
+            for (Event queued : buffer) {
+                if (queued.droppable()) {
+                    buffer.remove(queued);
+                    dropped++;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private synchronized Event next() {
+            Event event = buffer.pollFirst();
+            if (event == null) {
+                draining = false;
+            }
+            return event;
+        }
+
+        private synchronized long takeDropped() {
+            long count = dropped;
+            dropped = 0;
+            return count;
+        }
+
+        void drain() {
+            Event event;
+            while ((event = next()) != null) {
                 try {
+                    long droppedCount = takeDropped();
+                    if (droppedCount > 0) {
+                        // 告知客户端中间有片段被丢弃，最终结果以节点完成后的输出为准
+                        Map<String, Object> gap = new HashMap<>();
+                        gap.put("dropped", droppedCount);
+                        emitter.send(SseEmitter.event().name("progress-gap").data(gap));
+                    }
                     emitter.send(SseEmitter.event()
-                            .name("status-update")
-                            .data(data));
-                } catch (IOException e) {
-                    removeEmitter(instanceId, emitter);
+                            .name(event.name())
+                            .data(event.data()));
+                } catch (IOException | IllegalStateException e) {
+                    logger.debug("SSE 发送失败，移除订阅者: instanceId={}", instanceId);
+                    removeSubscriber(this);
+                    return;
                 }
             }
         }
     }
 }
-
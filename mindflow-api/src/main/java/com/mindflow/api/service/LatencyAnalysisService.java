@@ -0,0 +1,165 @@
+package com.mindflow.api.service;
+
+import com.mindflow.api.repository.NodeInstanceRepository;
+import com.mindflow.api.repository.NodeLatencyStatsRepository;
+import com.mindflow.api.repository.WorkflowDefinitionRepository;
+import com.mindflow.api.repository.WorkflowInstanceRepository;
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.entity.NodeInstance;
+import com.mindflow.common.entity.NodeLatencyStats;
+import com.mindflow.common.entity.WorkflowInstance;
+import com.mindflow.common.metrics.LatencySketch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 延迟分析：实例关键路径、按定义的节点延迟分位数
+ */
+@Service
+public class LatencyAnalysisService {
+
+    @Autowired
+    private WorkflowDefinitionRepository workflowDefinitionRepository;
+
+    @Autowired
+    private WorkflowInstanceRepository workflowInstanceRepository;
+
+    @Autowired
+    private NodeInstanceRepository nodeInstanceRepository;
+
+    @Autowired
+    private NodeLatencyStatsRepository nodeLatencyStatsRepository;
+
+    @Autowired
+    private WorkflowDefinitionService workflowDefinitionService;
+
+    /**
+     * 从最后结束的节点沿 DAG 反向回溯，每一步取最晚结束的上游节点（即放行当前节点的依赖），
+     * 路径上每个节点的耗时拆分为调度延迟（上游结束到派发）、排队等待（派发到 worker 开始执行）和执行耗时
+     */
+    public Map<String, Object> criticalPath(Long instanceId) {
+        WorkflowInstance instance = workflowInstanceRepository.findById(instanceId)
+                .orElseThrow(() -> new RuntimeException("工作流实例不存在"));
+        WorkflowDefinitionDTO.WorkflowConfig config = workflowDefinitionService.getConfig(instance);
+        if (config == null) {
+            throw new RuntimeException("工作流定义不存在");
+        }
+
+        Map<String, NodeInstance> finished = new HashMap<>();
+        for (NodeInstance node : nodeInstanceRepository.findByWorkflowInstanceId(instanceId)) {
+            // 被跳过的分支没有执行，不参与关键路径
+            if (node.getStartTime() != null && node.getEndTime() != null && !"SKIPPED".equals(node.getStatus())) {
+                finished.put(node.getNodeId(), node);
+            }
+        }
+
+        Map<String, List<String>> upstream = new HashMap<>();
+        if (config.getEdges() != null) {
+            for (WorkflowDefinitionDTO.EdgeConfig edge : config.getEdges()) {
+                upstream.computeIfAbsent(edge.getTarget(), k -> new ArrayList<>()).add(edge.getSource());
+            }
+        }
+
+        NodeInstance current = finished.values().stream()
+                .max((a, b) -> a.getEndTime().compareTo(b.getEndTime()))
+                .orElse(null);
+        List<Map<String, Object>> path = new ArrayList<>();
+        long dispatchTotal = 0;
+        long queueTotal = 0;
+        long executionTotal = 0;
+        while (current != null) {
+            NodeInstance gate = null;
+            for (String source : upstream.getOrDefault(current.getNodeId(), Collections.emptyList())) {
+                NodeInstance candidate = finished.get(source);
+                if (candidate != null && (gate == null || candidate.getEndTime().isAfter(gate.getEndTime()))) {
+                    gate = candidate;
+                }
+            }
+            LocalDateTime readyTime = gate != null ? gate.getEndTime() : instance.getStartTime();
+
+            Map<String, Object> step = new LinkedHashMap<>();
+            step.put("nodeId", current.getNodeId());
+            step.put("nodeName", current.getNodeName());
+            step.put("nodeType", current.getNodeType());
+            step.put("status", current.getStatus());
+            long dispatchDelay = readyTime != null ? millis(readyTime, current.getStartTime()) : 0;
+            step.put("dispatchDelayMs", dispatchDelay);
+            dispatchTotal += dispatchDelay;
+            if (current.getExecuteTime() != null) {
+                long queueWait = millis(current.getStartTime(), current.getExecuteTime());
+                long execution = millis(current.getExecuteTime(), current.getEndTime());
+                step.put("queueWaitMs", queueWait);
+                step.put("executionMs", execution);
+                queueTotal += queueWait;
+                executionTotal += execution;
+            } else {
+                // 旧数据没有 execute_time，无法区分排队和执行
+                long execution = millis(current.getStartTime(), current.getEndTime());
+                step.put("executionMs", execution);
+                executionTotal += execution;
+            }
+            path.add(step);
+            current = gate;
+        }
+        Collections.reverse(path);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("workflowInstanceId", instanceId);
+        result.put("status", instance.getStatus());
+        if (!path.isEmpty() && instance.getStartTime() != null) {
+            LocalDateTime lastEnd = finished.get((String) path.get(path.size() - 1).get("nodeId")).getEndTime();
+            result.put("totalMs", millis(instance.getStartTime(), lastEnd));
+        }
+        result.put("dispatchDelayMs", dispatchTotal);
+        result.put("queueWaitMs", queueTotal);
+        result.put("executionMs", executionTotal);
+        result.put("criticalPath", path);
+        return result;
+    }
+
+    /**
+     * 按节点返回排队等待和执行耗时的 p50/p95/p99，数据来自编排器增量合并的草图
+     */
+    public Map<String, Object> definitionLatency(Long definitionId) {
+        workflowDefinitionRepository.findById(definitionId)
+                .orElseThrow(() -> new RuntimeException("工作流定义不存在"));
+
+        List<Map<String, Object>> nodes = new ArrayList<>();
+        for (NodeLatencyStats stats : nodeLatencyStatsRepository.findByWorkflowDefinitionId(definitionId)) {
+            Map<String, Object> node = new LinkedHashMap<>();
+            node.put("nodeId", stats.getNodeId());
+            node.put("samples", stats.getSampleCount());
+            node.put("queueWait", percentiles(LatencySketch.decode(stats.getQueueSketch())));
+            node.put("execution", percentiles(LatencySketch.decode(stats.getExecutionSketch())));
+            node.put("updateTime", stats.getUpdateTime());
+            nodes.add(node);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("workflowDefinitionId", definitionId);
+        result.put("nodes", nodes);
+        return result;
+    }
+
+    private Map<String, Object> percentiles(LatencySketch sketch) {
+        Map<String, Object> p = new LinkedHashMap<>();
+        p.put("count", sketch.getCount());
+        p.put("p50", sketch.quantile(0.50));
+        p.put("p95", sketch.quantile(0.95));
+        p.put("p99", sketch.quantile(0.99));
+        return p;
+    }
+
+    private long millis(LocalDateTime from, LocalDateTime to) {
+        return Math.max(0, Duration.between(from, to).toMillis());
+    }
+}
@@ -0,0 +1,38 @@
+package com.mindflow.api.service;
+
+import com.mindflow.common.util.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.annotation.TopicPartition;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+
+@Service
+public class NodeProgressListener {
+    private static final Logger logger = LoggerFactory.getLogger(NodeProgressListener.class);
+    public static final String TOPIC = "mindflow-node-progress";
+
+    @Autowired
+    private InstanceStatusService instanceStatusService;
+
+    /**
+     * 监听节点增量输出，转发给该实例的 SSE 订阅者
+     * 每个 API 实例手动分配全部分区、不加入消费组，保证任意实例上的订阅者都能收到；
+     * 不提交偏移量，启动时从各分区末尾开始读，重启不会在 Kafka 中留下消费组
+     */
+    @KafkaListener(id = "mindflow-api-progress", idIsGroup = false,
+            topicPartitions = @TopicPartition(topic = TOPIC, partitions = "#{@nodeProgressPartitions.all()}"),
+            properties = {"auto.offset.reset=latest", "enable.auto.commit=false"})
+    public void handleNodeProgress(String message) {
+        try {
+            Map<String, Object> event = JsonUtils.fromJson(message, Map.class);
+            Long workflowInstanceId = ((Number) event.get("workflowInstanceId")).longValue();
+            instanceStatusService.sendNodeProgress(workflowInstanceId, event);
+        } catch (Exception e) {
+            logger.error("转发节点进度失败", e);
+        }
+    }
+}
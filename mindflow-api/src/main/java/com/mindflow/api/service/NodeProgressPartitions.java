@@ -0,0 +1,28 @@
+package com.mindflow.api.service;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 节点进度主题的分区列表，供 {@link NodeProgressListener} 手动分配；只在启动时查询一次，主题扩容后需重启 API
+ */
+@Component
+public class NodeProgressPartitions {
+
+    @Autowired
+    private ConsumerFactory<?, ?> consumerFactory;
+
+    public List<Integer> all() {
+        try (Consumer<?, ?> consumer = consumerFactory.createConsumer()) {
+            return consumer.partitionsFor(NodeProgressListener.TOPIC).stream()
+                    .map(PartitionInfo::partition)
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.mindflow.api.service;
 
+import com.mindflow.common.util.JsonUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,6 +17,9 @@ public class StatusBroadcastService {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private InstanceStatusService instanceStatusService;
+
     /**
      * 监听工作流状态更新事件，通过 WebSocket 推送给前端
      */
@@ -26,6 +30,12 @@ public class StatusBroadcastService {
             
             // 广播给所有订阅的客户端
             messagingTemplate.convertAndSend("/topic/workflow-status", message);
+
+            // 同时推送给该实例的 SSE 订阅者
+            Map<String, Object> update = JsonUtils.fromJson(message, Map.class);
+            if (update.get("workflowInstanceId") instanceof Number instanceId) {
+                instanceStatusService.sendStatusUpdate(instanceId.longValue(), update);
+            }
             
         } catch (Exception e) {
             logger.error("推送状态更新失败", e);
@@ -0,0 +1,139 @@
+package com.mindflow.api.service;
+
+import com.mindflow.api.datasource.ReadYourWritesTracker;
+import com.mindflow.api.repository.WorkflowDefinitionRepository;
+import com.mindflow.api.repository.WorkflowDefinitionVersionRepository;
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.entity.WorkflowDefinition;
+import com.mindflow.common.entity.WorkflowDefinitionVersion;
+import com.mindflow.common.entity.WorkflowInstance;
+import com.mindflow.common.exception.MindFlowException;
+import com.mindflow.common.plan.ExecutionPlan;
+import com.mindflow.common.plan.WorkflowCompiler;
+import com.mindflow.common.util.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 定义的保存和版本管理：每次保存先校验并编译执行计划，再追加一个不可变版本，定义行只记录最新配置和当前版本 ID。
+ * 运行中的实例固定在创建时的版本上，修改定义不会改变它们的执行图。
+ */
+@Service
+public class WorkflowDefinitionService {
+    private static final Logger logger = LoggerFactory.getLogger(WorkflowDefinitionService.class);
+
+    @Autowired
+    private WorkflowDefinitionRepository workflowDefinitionRepository;
+
+    @Autowired
+    private WorkflowDefinitionVersionRepository workflowDefinitionVersionRepository;
+
+    /** 开启读写分离时存在：新建的定义在窗口期内按 ID 查询仍读主库 */
+    @Autowired(required = false)
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    @Value("${mindflow.definition.node-types:http,ai,email,reduce,map,subworkflow}")
+    private Set<String> nodeTypes;
+
+    /** memory 只在编排器和 worker 同进程的嵌入模式下可用，独立部署时不接受 */
+    @Value("${mindflow.definition.state-stores:mysql,redis}")
+    private Set<String> stateStores;
+
+    /**
+     * 校验定义并保存为新版本，定义无效时不写入任何数据；并发修改同一定义时版本号唯一键冲突，后提交的一方失败
+     */
+    @Transactional
+    public WorkflowDefinition save(WorkflowDefinition definition) {
+        WorkflowDefinitionDTO.WorkflowConfig config =
+                JsonUtils.fromJson(definition.getConfig(), WorkflowDefinitionDTO.WorkflowConfig.class);
+        ExecutionPlan plan = WorkflowCompiler.compile(config, nodeTypes.isEmpty() ? null : nodeTypes);
+        checkStateStore(config);
+        checkSubWorkflows(config);
+        definition = workflowDefinitionRepository.save(definition);
+        if (readYourWritesTracker != null) {
+            readYourWritesTracker.recordResource("definitions", definition.getId());
+        }
+
+        WorkflowDefinitionVersion version = new WorkflowDefinitionVersion();
+        version.setWorkflowDefinitionId(definition.getId());
+        version.setVersionNumber(
+                workflowDefinitionVersionRepository.findMaxVersionNumber(definition.getId()).orElse(0) + 1);
+        version.setConfig(definition.getConfig());
+        version.setExecutionPlan(plan.encode());
+        version = workflowDefinitionVersionRepository.save(version);
+
+        definition.setCurrentVersionId(version.getId());
+        definition = workflowDefinitionRepository.save(definition);
+        logger.info("已保存工作流定义: definitionId={}, version={}, versionId={}, 节点 {} 个, 最长路径 {}",
+                definition.getId(), version.getVersionNumber(), version.getId(), plan.getNodeCount(), plan.getDepth());
+        return definition;
+    }
+
+    private void checkStateStore(WorkflowDefinitionDTO.WorkflowConfig config) {
+        if (config.getStateStore() != null && !stateStores.contains(config.getStateStore())) {
+            throw new MindFlowException("INVALID_DEFINITION",
+                    "工作流定义无效: 状态存储 " + config.getStateStore() + " 未启用，可选 " + stateStores);
+        }
+    }
+
+    /**
+     * 子工作流节点引用的定义必须存在，否则实例要到执行到该节点时才失败
+     */
+    private void checkSubWorkflows(WorkflowDefinitionDTO.WorkflowConfig config) {
+        List<String> errors = new ArrayList<>();
+        for (WorkflowDefinitionDTO.NodeConfig node : config.getNodes()) {
+            if (!"subworkflow".equals(node.getType()) || node.getConfig() == null
+                    || node.getConfig().get("definitionId") == null) {
+                continue;
+            }
+            Object definitionId = node.getConfig().get("definitionId");
+            Long childDefinitionId;
+            try {
+                childDefinitionId = Long.valueOf(definitionId.toString());
+            } catch (NumberFormatException e) {
+                errors.add("节点 " + node.getId() + " 的 definitionId 不是有效的定义 ID: " + definitionId);
+                continue;
+            }
+            if (!workflowDefinitionRepository.existsById(childDefinitionId)) {
+                errors.add("节点 " + node.getId() + " 引用的子工作流定义不存在: " + childDefinitionId);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new MindFlowException("INVALID_DEFINITION", "工作流定义无效: " + String.join("; ", errors));
+        }
+    }
+
+    /**
+     * 删除定义及其全部版本，调用方负责确认没有关联实例
+     */
+    @Transactional
+    public void delete(WorkflowDefinition definition) {
+        workflowDefinitionVersionRepository.deleteByDefinitionId(definition.getId());
+        workflowDefinitionRepository.delete(definition);
+    }
+
+    /**
+     * 实例固定版本的配置；没有版本的旧实例取定义当前的配置，定义或版本已删除时返回 null
+     */
+    public WorkflowDefinitionDTO.WorkflowConfig getConfig(WorkflowInstance instance) {
+        String config;
+        if (instance.getDefinitionVersionId() != null) {
+            config = workflowDefinitionVersionRepository.findById(instance.getDefinitionVersionId())
+                    .map(WorkflowDefinitionVersion::getConfig)
+                    .orElse(null);
+        } else {
+            config = workflowDefinitionRepository.findById(instance.getWorkflowDefinitionId())
+                    .map(WorkflowDefinition::getConfig)
+                    .orElse(null);
+        }
+        return config != null ? JsonUtils.fromJson(config, WorkflowDefinitionDTO.WorkflowConfig.class) : null;
+    }
+}
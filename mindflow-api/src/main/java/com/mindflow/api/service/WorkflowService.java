@@ -1,16 +1,21 @@
 package com.mindflow.api.service;
 
+import com.mindflow.api.datasource.ReadYourWritesTracker;
 import com.mindflow.api.repository.NodeInstanceRepository;
 import com.mindflow.api.repository.WorkflowDefinitionRepository;
 import com.mindflow.api.repository.WorkflowInstanceRepository;
-import com.mindflow.common.dto.WorkflowDefinitionDTO;
 import com.mindflow.common.entity.NodeInstance;
 import com.mindflow.common.entity.WorkflowDefinition;
+import com.mindflow.common.event.ExecutionEventLog;
+import com.mindflow.common.instance.WorkflowInstanceCreator;
 import com.mindflow.common.entity.WorkflowInstance;
+import com.mindflow.common.metrics.DbStatementCounter;
 import com.mindflow.common.util.JsonUtils;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,11 +24,12 @@ import org.springframework.transaction.support.TransactionSynchronizationManager
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class WorkflowService {
     private static final Logger logger = LoggerFactory.getLogger(WorkflowService.class);
-    private static final String WORKFLOW_CREATED_TOPIC = "mindflow-workflow-created";
+    private static final String NODE_COMPLETED_TOPIC = "mindflow-node-completed";
 
     @Autowired
     private WorkflowDefinitionRepository workflowDefinitionRepository;
@@ -37,56 +43,54 @@ public class WorkflowService {
     @Autowired
     private KafkaTemplate<String, String> kafkaTemplate;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ExecutionEventLog executionEventLog;
+
+    @Autowired
+    private WorkflowInstanceCreator workflowInstanceCreator;
+
+    /** 开启读写分离时存在：新建的实例在窗口期内按 ID 查询仍读主库 */
+    @Autowired(required = false)
+    private ReadYourWritesTracker readYourWritesTracker;
+
+    /** 为 true 时不预先创建 PENDING 节点行，由编排器在调度节点时插入 */
+    @Value("${mindflow.instance.lazy-nodes:false}")
+    private boolean lazyNodes;
+
     @Transactional
     public Long createWorkflowInstance(Long workflowDefinitionId, String input) {
         logger.info("创建工作流实例: workflowDefinitionId={}", workflowDefinitionId);
+        final long start = System.nanoTime();
+        DbStatementCounter.reset();
 
         WorkflowDefinition definition = workflowDefinitionRepository.findById(workflowDefinitionId)
                 .orElseThrow(() -> new RuntimeException("工作流定义不存在: " + workflowDefinitionId));
 
-        // 创建工作流实例
-        WorkflowInstance instance = new WorkflowInstance();
-        instance.setWorkflowDefinitionId(workflowDefinitionId);
-        instance.setStatus("RUNNING");
-        instance.setInput(input);
-        instance = workflowInstanceRepository.save(instance);
-
-        // 解析工作流配置
-        WorkflowDefinitionDTO.WorkflowConfig config = JsonUtils.fromJson(
-                definition.getConfig(), WorkflowDefinitionDTO.WorkflowConfig.class);
-
-        if (config == null || config.getNodes() == null) {
-            throw new RuntimeException("工作流配置无效");
-        }
-
-        // 创建节点实例
-        for (WorkflowDefinitionDTO.NodeConfig nodeConfig : config.getNodes()) {
-            NodeInstance nodeInstance = new NodeInstance();
-            nodeInstance.setWorkflowInstanceId(instance.getId());
-            nodeInstance.setNodeId(nodeConfig.getId());
-            nodeInstance.setNodeType(nodeConfig.getType());
-            nodeInstance.setNodeName(nodeConfig.getName());
-            nodeInstance.setStatus("PENDING");
-            nodeInstance.setInput(input);
-            nodeInstanceRepository.save(nodeInstance);
+        // 创建工作流实例和节点实例（延迟创建模式下跳过节点行，PENDING 状态由定义推出）
+        WorkflowInstance instance = workflowInstanceCreator.create(definition, input, lazyNodes);
+        if (readYourWritesTracker != null) {
+            readYourWritesTracker.recordResource("instances", instance.getId());
         }
 
         // 在事务提交后发送工作流创建事件到 Kafka，由 orchestrator 处理
         final Long instanceId = instance.getId();
-        final Long defId = workflowDefinitionId;
-        final String inputData = input;
-        
+        final String message = JsonUtils.toJson(WorkflowInstanceCreator.createdEvent(instance));
+
         TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
             @Override
             public void afterCommit() {
-                Map<String, Object> event = new HashMap<>();
-                event.put("workflowInstanceId", instanceId);
-                event.put("workflowDefinitionId", defId);
-                event.put("input", inputData);
-                
-                String message = JsonUtils.toJson(event);
+                // 创建耗时包含事务提交，不包含后续 Kafka 发送
+                meterRegistry.timer("mindflow.instance.create").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                meterRegistry.summary("mindflow.db.statements.per.event", "event", "instance-create")
+                        .record(DbStatementCounter.current());
+                executionEventLog.instance(instanceId, "CREATED", 0, null);
+
                 try {
-                    kafkaTemplate.send(WORKFLOW_CREATED_TOPIC, message).get();
+                    kafkaTemplate.send(WorkflowInstanceCreator.WORKFLOW_CREATED_TOPIC, String.valueOf(instanceId),
+                            message).get();
                     logger.info("事务提交后成功发送工作流创建事件到 Kafka: instanceId={}", instanceId);
                 } catch (Exception e) {
                     logger.error("发送工作流创建事件到 Kafka 失败: instanceId={}, error={}", instanceId, e.getMessage());
@@ -98,5 +102,77 @@ public class WorkflowService {
 
         return instance.getId();
     }
+
+    /**
+     * 终止运行中的实例及其全部子工作流实例；被单独终止的子实例会让父实例中的子工作流节点失败。
+     * 状态迁移都带前置状态条件，与编排器并发写入时不会覆盖已到达的终态。
+     */
+    @Transactional
+    public WorkflowInstance terminateWorkflowInstance(Long id) {
+        WorkflowInstance instance = workflowInstanceRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("工作流实例不存在"));
+        if (!"RUNNING".equals(instance.getStatus()) || !terminate(id, "工作流被手动终止")) {
+            return instance;
+        }
+
+        if (instance.getParentNodeInstanceId() != null) {
+            String errorMessage = "子工作流 " + id + " 被终止";
+            if (nodeInstanceRepository.failRunning(instance.getParentNodeInstanceId(), errorMessage,
+                    java.time.LocalDateTime.now()) > 0) {
+                nodeInstanceRepository.findById(instance.getParentNodeInstanceId())
+                        .ifPresent(parentNode -> notifyParentAfterCommit(instance, parentNode, errorMessage));
+            }
+        }
+        return workflowInstanceRepository.findById(id).orElse(instance);
+    }
+
+    private boolean terminate(Long instanceId, String reason) {
+        java.time.LocalDateTime now = java.time.LocalDateTime.now();
+        if (workflowInstanceRepository.terminate(instanceId, reason, now) == 0) {
+            return false;
+        }
+        long sequence = workflowInstanceRepository.findVersionById(instanceId);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                executionEventLog.instance(instanceId, "TERMINATED", sequence, reason);
+            }
+        });
+        // 终止所有运行中的节点
+        nodeInstanceRepository.terminateActive(instanceId, "工作流被终止", now);
+
+        // 向下传播到子工作流实例
+        for (WorkflowInstance child : workflowInstanceRepository.findByParentInstanceIdAndStatus(instanceId, "RUNNING")) {
+            logger.info("级联终止子工作流实例: parentInstanceId={}, childInstanceId={}", instanceId, child.getId());
+            terminate(child.getId(), "父工作流被终止");
+        }
+        return true;
+    }
+
+    /**
+     * 事务提交后以父节点失败的完成事件通知编排器
+     */
+    private void notifyParentAfterCommit(WorkflowInstance child, NodeInstance parentNode, String errorMessage) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("workflowInstanceId", child.getParentInstanceId());
+        event.put("nodeInstanceId", parentNode.getId());
+        event.put("nodeId", parentNode.getNodeId());
+        event.put("status", "FAILED");
+        event.put("errorMessage", errorMessage);
+        long sequence = nodeInstanceRepository.findVersionById(parentNode.getId());
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                executionEventLog.node(child.getParentInstanceId(), parentNode.getId(), parentNode.getNodeId(),
+                        "FAILED", sequence, errorMessage);
+                try {
+                    kafkaTemplate.send(NODE_COMPLETED_TOPIC, String.valueOf(child.getParentInstanceId()),
+                            JsonUtils.toJson(event)).get();
+                } catch (Exception e) {
+                    logger.error("通知父工作流失败: childInstanceId={}, error={}", child.getId(), e.getMessage());
+                }
+            }
+        });
+    }
 }
 
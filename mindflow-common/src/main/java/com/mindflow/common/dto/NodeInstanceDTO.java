@@ -16,6 +16,7 @@ public class NodeInstanceDTO {
     private String output;
     private String errorMessage;
     private LocalDateTime startTime;
+    private LocalDateTime executeTime;
     private LocalDateTime endTime;
 
     public Long getId() {
@@ -98,6 +99,14 @@ public class NodeInstanceDTO {
         this.startTime = startTime;
     }
 
+    public LocalDateTime getExecuteTime() {
+        return executeTime;
+    }
+
+    public void setExecuteTime(LocalDateTime executeTime) {
+        this.executeTime = executeTime;
+    }
+
     public LocalDateTime getEndTime() {
         return endTime;
     }
@@ -14,6 +14,10 @@ public class TaskMessage {
     private Map<String, Object> nodeConfig;
     private String input;
     private Map<String, Object> context;
+    /** 编排器投递任务的时间（毫秒时间戳），worker 据此计算排队等待时间 */
+    private Long dispatchTime;
+    /** map 节点的子任务序号，为空表示普通节点任务 */
+    private Integer itemIndex;
 
     public Long getWorkflowInstanceId() {
         return workflowInstanceId;
@@ -78,5 +82,20 @@ public class TaskMessage {
     public void setContext(Map<String, Object> context) {
         this.context = context;
     }
-}
 
+    public Long getDispatchTime() {
+        return dispatchTime;
+    }
+
+    public void setDispatchTime(Long dispatchTime) {
+        this.dispatchTime = dispatchTime;
+    }
+
+    public Integer getItemIndex() {
+        return itemIndex;
+    }
+
+    public void setItemIndex(Integer itemIndex) {
+        this.itemIndex = itemIndex;
+    }
+}
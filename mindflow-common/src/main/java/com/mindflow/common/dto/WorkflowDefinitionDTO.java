@@ -21,12 +21,16 @@ public class WorkflowDefinitionDTO {
     private WorkflowConfig config;
     
     private String status;
+    /** 定义当前版本的 ID，只读 */
+    private Long versionId;
     private LocalDateTime createTime;
     private LocalDateTime updateTime;
 
     public static class WorkflowConfig {
         private List<NodeConfig> nodes;
         private List<EdgeConfig> edges;
+        /** 实例状态存储：mysql（默认）或 memory，见 {@link com.mindflow.common.state.RoutingStateStore} */
+        private String stateStore;
 
         public WorkflowConfig() {
         }
@@ -46,6 +50,14 @@ public class WorkflowDefinitionDTO {
         public void setEdges(List<EdgeConfig> edges) {
             this.edges = edges;
         }
+
+        public String getStateStore() {
+            return stateStore;
+        }
+
+        public void setStateStore(String stateStore) {
+            this.stateStore = stateStore;
+        }
     }
 
     public static class NodeConfig {
@@ -112,6 +124,8 @@ public class WorkflowDefinitionDTO {
         private String id;
         private String source;
         private String target;
+        /** 分支条件（SpEL），基于上游节点输出求值；为空表示无条件 */
+        private String condition;
 
         public EdgeConfig() {
         }
@@ -139,6 +153,14 @@ public class WorkflowDefinitionDTO {
         public void setTarget(String target) {
             this.target = target;
         }
+
+        public String getCondition() {
+            return condition;
+        }
+
+        public void setCondition(String condition) {
+            this.condition = condition;
+        }
     }
 
     // Getters and Setters
@@ -182,6 +204,14 @@ public class WorkflowDefinitionDTO {
         this.status = status;
     }
 
+    public Long getVersionId() {
+        return versionId;
+    }
+
+    public void setVersionId(Long versionId) {
+        this.versionId = versionId;
+    }
+
     public LocalDateTime getCreateTime() {
         return createTime;
     }
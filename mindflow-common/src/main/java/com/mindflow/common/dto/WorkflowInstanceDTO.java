@@ -9,6 +9,7 @@ import java.util.List;
 public class WorkflowInstanceDTO {
     private Long id;
     private Long workflowDefinitionId;
+    private Long definitionVersionId;
     private String workflowName;
     private String status;
     private String input;
@@ -17,6 +18,7 @@ public class WorkflowInstanceDTO {
     private LocalDateTime startTime;
     private LocalDateTime endTime;
     private List<NodeInstanceDTO> nodeInstances;
+    private Long parentInstanceId;
 
     public Long getId() {
         return id;
@@ -34,6 +36,14 @@ public class WorkflowInstanceDTO {
         this.workflowDefinitionId = workflowDefinitionId;
     }
 
+    public Long getDefinitionVersionId() {
+        return definitionVersionId;
+    }
+
+    public void setDefinitionVersionId(Long definitionVersionId) {
+        this.definitionVersionId = definitionVersionId;
+    }
+
     public String getWorkflowName() {
         return workflowName;
     }
@@ -97,5 +107,12 @@ public class WorkflowInstanceDTO {
     public void setNodeInstances(List<NodeInstanceDTO> nodeInstances) {
         this.nodeInstances = nodeInstances;
     }
-}
 
+    public Long getParentInstanceId() {
+        return parentInstanceId;
+    }
+
+    public void setParentInstanceId(Long parentInstanceId) {
+        this.parentInstanceId = parentInstanceId;
+    }
+}
@@ -0,0 +1,146 @@
+package com.mindflow.common.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 批量提交任务：记录批次总数和已创建/已派发/失败的实例数，用于查询进度
+ */
+@Entity
+@Table(name = "bulk_submission")
+public class BulkSubmission {
+    @Id
+    @Column(name = "batch_id", length = 36)
+    private String batchId;
+
+    @Column(name = "workflow_definition_id", nullable = false)
+    private Long workflowDefinitionId;
+
+    /** 整个批次固定到提交时的定义版本 */
+    @Column(name = "definition_version_id")
+    private Long definitionVersionId;
+
+    /** UPLOADING（输入写入中）/ PENDING / RUNNING / COMPLETED / FAILED */
+    @Column(length = 50)
+    private String status;
+
+    private Integer total;
+
+    private Integer created;
+
+    private Integer dispatched;
+
+    private Integer failed;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "create_time")
+    private LocalDateTime createTime;
+
+    @Column(name = "update_time")
+    private LocalDateTime updateTime;
+
+    @PrePersist
+    public void prePersist() {
+        createTime = LocalDateTime.now();
+        updateTime = LocalDateTime.now();
+        if (status == null) {
+            status = "PENDING";
+        }
+    }
+
+    @PreUpdate
+    public void preUpdate() {
+        updateTime = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+
+    public Long getWorkflowDefinitionId() {
+        return workflowDefinitionId;
+    }
+
+    public void setWorkflowDefinitionId(Long workflowDefinitionId) {
+        this.workflowDefinitionId = workflowDefinitionId;
+    }
+
+    public Long getDefinitionVersionId() {
+        return definitionVersionId;
+    }
+
+    public void setDefinitionVersionId(Long definitionVersionId) {
+        this.definitionVersionId = definitionVersionId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public Integer getTotal() {
+        return total;
+    }
+
+    public void setTotal(Integer total) {
+        this.total = total;
+    }
+
+    public Integer getCreated() {
+        return created;
+    }
+
+    public void setCreated(Integer created) {
+        this.created = created;
+    }
+
+    public Integer getDispatched() {
+        return dispatched;
+    }
+
+    public void setDispatched(Integer dispatched) {
+        this.dispatched = dispatched;
+    }
+
+    public Integer getFailed() {
+        return failed;
+    }
+
+    public void setFailed(Integer failed) {
+        this.failed = failed;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+}
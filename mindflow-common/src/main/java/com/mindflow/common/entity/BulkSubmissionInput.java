@@ -0,0 +1,60 @@
+package com.mindflow.common.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * 批量提交中尚未创建实例的输入：提交时写入，实例创建后在同一事务中删除。
+ * API 重启后从剩余的输入继续处理，已创建的实例不会重复创建
+ */
+@Entity
+@Table(name = "bulk_submission_input", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_bulk_input_seq", columnNames = {"batch_id", "seq"})
+})
+public class BulkSubmissionInput {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "batch_id", length = 36, nullable = false)
+    private String batchId;
+
+    /** 批次内从 0 开始的序号，按序号创建实例 */
+    @Column(nullable = false)
+    private Integer seq;
+
+    @Column(columnDefinition = "TEXT")
+    private String input;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+
+    public Integer getSeq() {
+        return seq;
+    }
+
+    public void setSeq(Integer seq) {
+        this.seq = seq;
+    }
+
+    public String getInput() {
+        return input;
+    }
+
+    public void setInput(String input) {
+        this.input = input;
+    }
+}
@@ -0,0 +1,109 @@
+package com.mindflow.common.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 执行事件日志：实例和节点的每次状态迁移追加一条，只插入不更新。
+ * 各服务异步批量写入，自增 id 不反映迁移顺序；同一实例或节点的事件按 seq（迁移后的行版本号）排序，
+ * 折叠后即可得到其状态，用于审计和回放。输入输出仍保存在实例和节点行中，不在日志里重复
+ */
+@Entity
+@Table(name = "execution_event", indexes = {
+        @Index(name = "idx_instance_event", columnList = "workflow_instance_id, id")
+})
+public class ExecutionEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "workflow_instance_id", nullable = false)
+    private Long workflowInstanceId;
+
+    /** 实例级事件为空 */
+    @Column(name = "node_instance_id")
+    private Long nodeInstanceId;
+
+    @Column(name = "node_id", length = 100)
+    private String nodeId;
+
+    /** 迁移后的状态，如 RUNNING / SUCCESS / SKIPPED；实例级事件带 INSTANCE_ 前缀 */
+    @Column(name = "transition", length = 50, nullable = false)
+    private String transition;
+
+    /** 迁移后该实例或节点行的版本号，同一行的事件按它排序 */
+    @Column(name = "seq", nullable = false)
+    private Long sequence;
+
+    /** 失败原因等简短说明 */
+    @Column(name = "detail", length = 500)
+    private String detail;
+
+    @Column(name = "create_time")
+    private LocalDateTime createTime;
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getWorkflowInstanceId() {
+        return workflowInstanceId;
+    }
+
+    public void setWorkflowInstanceId(Long workflowInstanceId) {
+        this.workflowInstanceId = workflowInstanceId;
+    }
+
+    public Long getNodeInstanceId() {
+        return nodeInstanceId;
+    }
+
+    public void setNodeInstanceId(Long nodeInstanceId) {
+        this.nodeInstanceId = nodeInstanceId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public String getTransition() {
+        return transition;
+    }
+
+    public void setTransition(String transition) {
+        this.transition = transition;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    public void setDetail(String detail) {
+        this.detail = detail;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+}
@@ -4,7 +4,11 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "node_instance")
+@Table(name = "node_instance", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_instance_node", columnNames = {"workflow_instance_id", "node_id"})
+}, indexes = {
+        @Index(name = "idx_node_status_start_time", columnList = "status, start_time")
+})
 public class NodeInstance {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -25,10 +29,11 @@ public class NodeInstance {
     @Column(length = 50)
     private String status;
 
-    @Column(columnDefinition = "TEXT")
+    /** map 节点的汇总结果和 reduce 节点的输入可能较大，使用 MEDIUMTEXT */
+    @Column(columnDefinition = "MEDIUMTEXT")
     private String input;
 
-    @Column(columnDefinition = "TEXT")
+    @Column(columnDefinition = "MEDIUMTEXT")
     private String output;
 
     @Column(name = "error_message", columnDefinition = "TEXT")
@@ -37,9 +42,18 @@ public class NodeInstance {
     @Column(name = "start_time")
     private LocalDateTime startTime;
 
+    /** worker 开始执行的时间，start_time 到此为排队等待，此后到 end_time 为执行耗时 */
+    @Column(name = "execute_time")
+    private LocalDateTime executeTime;
+
     @Column(name = "end_time")
     private LocalDateTime endTime;
 
+    /** 乐观锁版本号，每次状态迁移加一 */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
     @PrePersist
     public void prePersist() {
         startTime = LocalDateTime.now();
@@ -129,6 +143,14 @@ public class NodeInstance {
         this.startTime = startTime;
     }
 
+    public LocalDateTime getExecuteTime() {
+        return executeTime;
+    }
+
+    public void setExecuteTime(LocalDateTime executeTime) {
+        this.executeTime = executeTime;
+    }
+
     public LocalDateTime getEndTime() {
         return endTime;
     }
@@ -136,5 +158,12 @@ public class NodeInstance {
     public void setEndTime(LocalDateTime endTime) {
         this.endTime = endTime;
     }
-}
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
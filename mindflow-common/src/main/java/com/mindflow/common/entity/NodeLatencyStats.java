@@ -0,0 +1,98 @@
+package com.mindflow.common.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 按工作流定义 + 节点累积的延迟统计，排队等待和执行耗时分别保存为可合并的草图（LatencySketch 编码）
+ */
+@Entity
+@Table(name = "node_latency_stats", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_definition_node", columnNames = {"workflow_definition_id", "node_id"})
+})
+public class NodeLatencyStats {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "workflow_definition_id", nullable = false)
+    private Long workflowDefinitionId;
+
+    @Column(name = "node_id", length = 100, nullable = false)
+    private String nodeId;
+
+    @Column(name = "sample_count")
+    private Long sampleCount;
+
+    @Column(name = "queue_sketch", columnDefinition = "TEXT")
+    private String queueSketch;
+
+    @Column(name = "execution_sketch", columnDefinition = "TEXT")
+    private String executionSketch;
+
+    @Column(name = "update_time")
+    private LocalDateTime updateTime;
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        updateTime = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getWorkflowDefinitionId() {
+        return workflowDefinitionId;
+    }
+
+    public void setWorkflowDefinitionId(Long workflowDefinitionId) {
+        this.workflowDefinitionId = workflowDefinitionId;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public Long getSampleCount() {
+        return sampleCount;
+    }
+
+    public void setSampleCount(Long sampleCount) {
+        this.sampleCount = sampleCount;
+    }
+
+    public String getQueueSketch() {
+        return queueSketch;
+    }
+
+    public void setQueueSketch(String queueSketch) {
+        this.queueSketch = queueSketch;
+    }
+
+    public String getExecutionSketch() {
+        return executionSketch;
+    }
+
+    public void setExecutionSketch(String executionSketch) {
+        this.executionSketch = executionSketch;
+    }
+
+    public LocalDateTime getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(LocalDateTime updateTime) {
+        this.updateTime = updateTime;
+    }
+}
@@ -22,6 +22,10 @@ public class WorkflowDefinition {
     @Column(length = 50)
     private String status;
 
+    /** 最新版本的 ID，新实例固定到该版本；config 与该版本的配置一致 */
+    @Column(name = "current_version_id")
+    private Long currentVersionId;
+
     @Column(name = "create_time")
     private LocalDateTime createTime;
 
@@ -83,6 +87,14 @@ public class WorkflowDefinition {
         this.status = status;
     }
 
+    public Long getCurrentVersionId() {
+        return currentVersionId;
+    }
+
+    public void setCurrentVersionId(Long currentVersionId) {
+        this.currentVersionId = currentVersionId;
+    }
+
     public LocalDateTime getCreateTime() {
         return createTime;
     }
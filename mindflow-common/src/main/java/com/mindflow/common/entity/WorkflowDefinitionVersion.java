@@ -0,0 +1,89 @@
+package com.mindflow.common.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 工作流定义的不可变版本：每次保存定义追加一行，写入后不再修改。
+ * 实例创建时固定到当时的版本，运行期间定义被修改也不影响已有实例；解析后的配置可以按版本 ID 永久缓存
+ */
+@Entity
+@Table(name = "workflow_definition_version", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_definition_version", columnNames = {"workflow_definition_id", "version_number"})
+})
+public class WorkflowDefinitionVersion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "workflow_definition_id", nullable = false, updatable = false)
+    private Long workflowDefinitionId;
+
+    /** 同一定义内从 1 递增 */
+    @Column(name = "version_number", nullable = false, updatable = false)
+    private Integer versionNumber;
+
+    @Column(columnDefinition = "TEXT", nullable = false, updatable = false)
+    private String config;
+
+    /** 保存时编译的执行计划（{@link com.mindflow.common.plan.ExecutionPlan#encode()}）；升级前补建的版本为空 */
+    @Column(name = "execution_plan", columnDefinition = "TEXT", updatable = false)
+    private String executionPlan;
+
+    @Column(name = "create_time", updatable = false)
+    private LocalDateTime createTime;
+
+    @PrePersist
+    public void prePersist() {
+        createTime = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getWorkflowDefinitionId() {
+        return workflowDefinitionId;
+    }
+
+    public void setWorkflowDefinitionId(Long workflowDefinitionId) {
+        this.workflowDefinitionId = workflowDefinitionId;
+    }
+
+    public Integer getVersionNumber() {
+        return versionNumber;
+    }
+
+    public void setVersionNumber(Integer versionNumber) {
+        this.versionNumber = versionNumber;
+    }
+
+    public String getConfig() {
+        return config;
+    }
+
+    public void setConfig(String config) {
+        this.config = config;
+    }
+
+    public String getExecutionPlan() {
+        return executionPlan;
+    }
+
+    public void setExecutionPlan(String executionPlan) {
+        this.executionPlan = executionPlan;
+    }
+
+    public LocalDateTime getCreateTime() {
+        return createTime;
+    }
+
+    public void setCreateTime(LocalDateTime createTime) {
+        this.createTime = createTime;
+    }
+}
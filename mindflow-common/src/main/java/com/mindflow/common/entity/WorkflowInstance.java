@@ -4,7 +4,12 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "workflow_instance")
+@Table(name = "workflow_instance", indexes = {
+        @Index(name = "idx_batch_id", columnList = "batch_id"),
+        @Index(name = "idx_parent_instance_id", columnList = "parent_instance_id"),
+        @Index(name = "idx_instance_status_start_time", columnList = "status, start_time"),
+        @Index(name = "idx_status_end_time", columnList = "status, end_time")
+})
 public class WorkflowInstance {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -13,13 +18,17 @@ public class WorkflowInstance {
     @Column(name = "workflow_definition_id", nullable = false)
     private Long workflowDefinitionId;
 
+    /** 创建时固定的定义版本，实例运行期间始终按该版本推进；早于版本表创建的实例为空 */
+    @Column(name = "definition_version_id")
+    private Long definitionVersionId;
+
     @Column(length = 50)
     private String status;
 
     @Column(columnDefinition = "TEXT")
     private String input;
 
-    @Column(columnDefinition = "TEXT")
+    @Column(columnDefinition = "MEDIUMTEXT")
     private String output;
 
     @Column(name = "error_message", columnDefinition = "TEXT")
@@ -31,6 +40,22 @@ public class WorkflowInstance {
     @Column(name = "end_time")
     private LocalDateTime endTime;
 
+    /** 乐观锁版本号，每次状态迁移加一 */
+    @Version
+    @Column(nullable = false)
+    private Long version;
+
+    /** 批量提交时所属的批次 */
+    @Column(name = "batch_id", length = 36)
+    private String batchId;
+
+    /** 由子工作流节点启动时，父实例和父节点实例的 ID */
+    @Column(name = "parent_instance_id")
+    private Long parentInstanceId;
+
+    @Column(name = "parent_node_instance_id")
+    private Long parentNodeInstanceId;
+
     @PrePersist
     public void prePersist() {
         startTime = LocalDateTime.now();
@@ -56,6 +81,14 @@ public class WorkflowInstance {
         this.workflowDefinitionId = workflowDefinitionId;
     }
 
+    public Long getDefinitionVersionId() {
+        return definitionVersionId;
+    }
+
+    public void setDefinitionVersionId(Long definitionVersionId) {
+        this.definitionVersionId = definitionVersionId;
+    }
+
     public String getStatus() {
         return status;
     }
@@ -103,5 +136,36 @@ public class WorkflowInstance {
     public void setEndTime(LocalDateTime endTime) {
         this.endTime = endTime;
     }
-}
 
+    public String getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+
+    public Long getParentInstanceId() {
+        return parentInstanceId;
+    }
+
+    public void setParentInstanceId(Long parentInstanceId) {
+        this.parentInstanceId = parentInstanceId;
+    }
+
+    public Long getParentNodeInstanceId() {
+        return parentNodeInstanceId;
+    }
+
+    public void setParentNodeInstanceId(Long parentNodeInstanceId) {
+        this.parentNodeInstanceId = parentNodeInstanceId;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
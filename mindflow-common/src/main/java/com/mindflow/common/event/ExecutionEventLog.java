@@ -0,0 +1,174 @@
+package com.mindflow.common.event;
+
+import com.mindflow.common.entity.ExecutionEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 执行事件日志的批量写入器：状态迁移成功后调用 append 入队，后台线程按批 INSERT 到 execution_event，
+ * 热路径上不增加数据库往返。每条事件带迁移后的行版本号作为序号，多个服务异步写入时按序号而不是自增 id 排序。
+ *
+ * 事件不丢弃：队列满时调用方阻塞等待写入线程腾出空间，写入失败时整批退避重试，直到数据库恢复。
+ *
+ * 各服务通过 {@code @Import(ExecutionEventLog.class)} 注册。
+ */
+public class ExecutionEventLog {
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionEventLog.class);
+
+    private static final String INSERT_EVENT = "INSERT INTO execution_event "
+            + "(workflow_instance_id, node_instance_id, node_id, transition, seq, detail, create_time) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+    private static final int DETAIL_MAX_LENGTH = 500;
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${mindflow.event-log.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mindflow.event-log.batch-size:500}")
+    private int batchSize;
+
+    /** 未攒满一批时最多等待的毫秒数 */
+    @Value("${mindflow.event-log.flush-interval:200}")
+    private long flushInterval;
+
+    @Value("${mindflow.event-log.queue-capacity:100000}")
+    private int queueCapacity;
+
+    private BlockingQueue<ExecutionEvent> queue;
+    private final AtomicLong blocked = new AtomicLong();
+    private Thread writer;
+    private volatile boolean running;
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        running = true;
+        writer = new Thread(this::run, "mindflow-event-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * 记录节点状态迁移，sequence 为迁移后节点行的版本号
+     */
+    public void node(Long workflowInstanceId, Long nodeInstanceId, String nodeId, String status, long sequence,
+                     String detail) {
+        append(workflowInstanceId, nodeInstanceId, nodeId, status, sequence, detail);
+    }
+
+    /**
+     * 记录实例状态迁移，transition 为 INSTANCE_ + 状态，sequence 为迁移后实例行的版本号（创建时为 0）
+     */
+    public void instance(Long workflowInstanceId, String status, long sequence, String detail) {
+        append(workflowInstanceId, null, null, "INSTANCE_" + status, sequence, detail);
+    }
+
+    private void append(Long workflowInstanceId, Long nodeInstanceId, String nodeId, String transition, long sequence,
+                        String detail) {
+        if (!enabled) {
+            return;
+        }
+        ExecutionEvent event = new ExecutionEvent();
+        event.setWorkflowInstanceId(workflowInstanceId);
+        event.setNodeInstanceId(nodeInstanceId);
+        event.setNodeId(nodeId);
+        event.setTransition(transition);
+        event.setSequence(sequence);
+        event.setDetail(detail != null && detail.length() > DETAIL_MAX_LENGTH
+                ? detail.substring(0, DETAIL_MAX_LENGTH) : detail);
+        event.setCreateTime(LocalDateTime.now());
+        if (queue.offer(event)) {
+            return;
+        }
+        if (blocked.incrementAndGet() % 1000 == 1) {
+            logger.warn("执行事件日志队列已满，等待写入: 累计 {} 次", blocked.get());
+        }
+        try {
+            queue.put(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("写入执行事件日志被中断", e);
+        }
+    }
+
+    private void run() {
+        List<ExecutionEvent> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                ExecutionEvent first = queue.poll(flushInterval, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                running = false;
+                logger.error("执行事件日志写入线程被中断，未写入 {} 条", batch.size());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 写入一批事件，失败时退避重试；停机时中断等待，剩余的事件记录到日志中
+     */
+    private void write(List<ExecutionEvent> batch) throws InterruptedException {
+        long backoff = flushInterval;
+        while (true) {
+            try {
+                jdbcTemplate.batchUpdate(INSERT_EVENT, batch, batch.size(), (ps, event) -> {
+                    ps.setLong(1, event.getWorkflowInstanceId());
+                    ps.setObject(2, event.getNodeInstanceId());
+                    ps.setString(3, event.getNodeId());
+                    ps.setString(4, event.getTransition());
+                    ps.setLong(5, event.getSequence());
+                    ps.setString(6, event.getDetail());
+                    ps.setTimestamp(7, Timestamp.valueOf(event.getCreateTime()));
+                });
+                return;
+            } catch (Exception e) {
+                if (!running) {
+                    logger.error("停机时写入执行事件日志失败，未写入 {} 条: {}", batch.size(), e.getMessage());
+                    return;
+                }
+                logger.error("写入执行事件日志失败，{}ms 后重试 {} 条: {}", backoff, batch.size(), e.getMessage());
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_RETRY_BACKOFF_MS);
+            }
+        }
+    }
+
+    /**
+     * 停机时写完队列中剩余的事件
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+}
@@ -0,0 +1,69 @@
+package com.mindflow.common.instance;
+
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.entity.NodeInstance;
+import com.mindflow.common.entity.WorkflowDefinition;
+import com.mindflow.common.entity.WorkflowInstance;
+import com.mindflow.common.util.JsonUtils;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 提交实例：写入实例行，非延迟创建模式下同时写入全部节点的 PENDING 行，并构造工作流创建事件。
+ * 在调用方的事务内执行，调用方在事务提交后把 {@link #createdEvent} 发送到 {@link #WORKFLOW_CREATED_TOPIC}。
+ *
+ * API 和压测的提交路径共用：API 通过 {@code @Import(WorkflowInstanceCreator.class)} 注册，压测在编排器的上下文中创建。
+ */
+public class WorkflowInstanceCreator {
+    public static final String WORKFLOW_CREATED_TOPIC = "mindflow-workflow-created";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * 创建固定到定义当前版本的实例（定义的 config 即该版本的配置）；延迟创建模式下节点行由编排器在调度时插入
+     */
+    public WorkflowInstance create(WorkflowDefinition definition, String input, boolean lazyNodes) {
+        WorkflowDefinitionDTO.WorkflowConfig config = JsonUtils.fromJson(
+                definition.getConfig(), WorkflowDefinitionDTO.WorkflowConfig.class);
+        if (config == null || config.getNodes() == null) {
+            throw new RuntimeException("工作流配置无效");
+        }
+
+        WorkflowInstance instance = new WorkflowInstance();
+        instance.setWorkflowDefinitionId(definition.getId());
+        instance.setDefinitionVersionId(definition.getCurrentVersionId());
+        instance.setStatus("RUNNING");
+        instance.setInput(input);
+        entityManager.persist(instance);
+
+        if (!lazyNodes) {
+            for (WorkflowDefinitionDTO.NodeConfig nodeConfig : config.getNodes()) {
+                NodeInstance nodeInstance = new NodeInstance();
+                nodeInstance.setWorkflowInstanceId(instance.getId());
+                nodeInstance.setNodeId(nodeConfig.getId());
+                nodeInstance.setNodeType(nodeConfig.getType());
+                nodeInstance.setNodeName(nodeConfig.getName());
+                nodeInstance.setStatus("PENDING");
+                nodeInstance.setInput(input);
+                entityManager.persist(nodeInstance);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * 工作流创建事件，由编排器处理
+     */
+    public static Map<String, Object> createdEvent(WorkflowInstance instance) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("workflowInstanceId", instance.getId());
+        event.put("workflowDefinitionId", instance.getWorkflowDefinitionId());
+        event.put("definitionVersionId", instance.getDefinitionVersionId());
+        event.put("input", instance.getInput());
+        return event;
+    }
+}
@@ -0,0 +1,44 @@
+package com.mindflow.common.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 统计 Hibernate 发出的 SQL 语句数，用于度量每个事件的数据库往返次数
+ *
+ * 通过 spring.jpa.properties.hibernate.session_factory.statement_inspector 注册，
+ * 由 Hibernate 反射创建，因此计数使用静态变量。
+ */
+public class DbStatementCounter implements StatementInspector {
+    private static final ThreadLocal<int[]> CURRENT = ThreadLocal.withInitial(() -> new int[1]);
+    private static final AtomicLong TOTAL = new AtomicLong();
+
+    @Override
+    public String inspect(String sql) {
+        CURRENT.get()[0]++;
+        TOTAL.incrementAndGet();
+        return sql;
+    }
+
+    /**
+     * 开始处理一个事件前清零当前线程的计数
+     */
+    public static void reset() {
+        CURRENT.get()[0] = 0;
+    }
+
+    /**
+     * 当前线程自上次 reset 以来的语句数
+     */
+    public static int current() {
+        return CURRENT.get()[0];
+    }
+
+    /**
+     * 进程启动以来的语句总数
+     */
+    public static long total() {
+        return TOTAL.get();
+    }
+}
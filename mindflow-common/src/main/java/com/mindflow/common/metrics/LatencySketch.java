@@ -0,0 +1,97 @@
+package com.mindflow.common.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 可合并的延迟分位数草图（对数分桶，相对误差约 1%）
+ *
+ * 每个桶覆盖 (gamma^(i-1), gamma^i] 毫秒，只保存桶下标和计数，大小与样本数无关；
+ * 两个草图按桶相加即可合并，适合增量累积后定期落库。
+ */
+public class LatencySketch {
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+
+    private final TreeMap<Integer, Long> buckets = new TreeMap<>();
+    /** 小于 1ms 的样本 */
+    private long zeroCount;
+    private long count;
+
+    public void add(long millis) {
+        if (millis < 1) {
+            zeroCount++;
+        } else {
+            buckets.merge((int) Math.ceil(Math.log(millis) / LOG_GAMMA), 1L, Long::sum);
+        }
+        count++;
+    }
+
+    public void merge(LatencySketch other) {
+        zeroCount += other.zeroCount;
+        count += other.count;
+        other.buckets.forEach((index, n) -> buckets.merge(index, n, Long::sum));
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 估算分位数（毫秒），q 取值 0~1，没有样本时返回 0
+     */
+    public long quantile(double q) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(q * count);
+        long seen = zeroCount;
+        if (seen >= rank) {
+            return 0;
+        }
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            seen += bucket.getValue();
+            if (seen >= rank) {
+                return Math.round(2 * Math.pow(GAMMA, bucket.getKey()) / (GAMMA + 1));
+            }
+        }
+        return Math.round(2 * Math.pow(GAMMA, buckets.lastKey()) / (GAMMA + 1));
+    }
+
+    /**
+     * 编码为 "zeroCount|index:count,index:count"
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder().append(zeroCount).append('|');
+        boolean first = true;
+        for (Map.Entry<Integer, Long> bucket : buckets.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            sb.append(bucket.getKey()).append(':').append(bucket.getValue());
+            first = false;
+        }
+        return sb.toString();
+    }
+
+    public static LatencySketch decode(String encoded) {
+        LatencySketch sketch = new LatencySketch();
+        if (encoded == null || encoded.isEmpty()) {
+            return sketch;
+        }
+        int bar = encoded.indexOf('|');
+        sketch.zeroCount = Long.parseLong(encoded.substring(0, bar));
+        sketch.count = sketch.zeroCount;
+        String body = encoded.substring(bar + 1);
+        if (!body.isEmpty()) {
+            for (String pair : body.split(",")) {
+                int colon = pair.indexOf(':');
+                long n = Long.parseLong(pair.substring(colon + 1));
+                sketch.buckets.put(Integer.parseInt(pair.substring(0, colon)), n);
+                sketch.count += n;
+            }
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,98 @@
+package com.mindflow.common.plan;
+
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 定义版本的配置及其执行计划，按节点 ID 直接取节点配置、入边和出边，运行时不再遍历全部边。
+ * 构造后只读，可在多个实例和线程之间共用。
+ */
+public class CompiledWorkflow {
+    private final WorkflowDefinitionDTO.WorkflowConfig config;
+    private final ExecutionPlan plan;
+    private final Map<String, Integer> indexById;
+    private final List<List<WorkflowDefinitionDTO.EdgeConfig>> incoming;
+    private final List<List<WorkflowDefinitionDTO.EdgeConfig>> outgoing;
+    private final List<WorkflowDefinitionDTO.NodeConfig> entryNodes;
+    private final List<WorkflowDefinitionDTO.NodeConfig> terminalNodes;
+
+    public CompiledWorkflow(WorkflowDefinitionDTO.WorkflowConfig config, ExecutionPlan plan) {
+        List<WorkflowDefinitionDTO.NodeConfig> nodes = config.getNodes();
+        List<WorkflowDefinitionDTO.EdgeConfig> edges = config.getEdges() != null ? config.getEdges() : List.of();
+        if (plan.getNodeCount() != nodes.size()) {
+            throw new IllegalArgumentException("执行计划与配置的节点数不一致: " + plan.getNodeCount() + " != " + nodes.size());
+        }
+        this.config = config;
+        this.plan = plan;
+        this.indexById = new HashMap<>();
+        this.incoming = new ArrayList<>(nodes.size());
+        this.outgoing = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            indexById.put(nodes.get(i).getId(), i);
+            incoming.add(edgesAt(edges, plan.getIncoming(i)));
+            outgoing.add(edgesAt(edges, plan.getOutgoing(i)));
+        }
+        this.entryNodes = nodesAt(nodes, plan.getEntries());
+        this.terminalNodes = nodesAt(nodes, plan.getTerminals());
+    }
+
+    public WorkflowDefinitionDTO.WorkflowConfig getConfig() {
+        return config;
+    }
+
+    public ExecutionPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * 节点配置，不存在时返回 null
+     */
+    public WorkflowDefinitionDTO.NodeConfig getNode(String nodeId) {
+        Integer index = indexById.get(nodeId);
+        return index != null ? config.getNodes().get(index) : null;
+    }
+
+    public List<WorkflowDefinitionDTO.EdgeConfig> getIncomingEdges(String nodeId) {
+        Integer index = indexById.get(nodeId);
+        return index != null ? incoming.get(index) : List.of();
+    }
+
+    public List<WorkflowDefinitionDTO.EdgeConfig> getOutgoingEdges(String nodeId) {
+        Integer index = indexById.get(nodeId);
+        return index != null ? outgoing.get(index) : List.of();
+    }
+
+    public List<WorkflowDefinitionDTO.NodeConfig> getEntryNodes() {
+        return entryNodes;
+    }
+
+    /**
+     * 没有出边的结束节点，工作流输出取自这些节点
+     */
+    public List<WorkflowDefinitionDTO.NodeConfig> getTerminalNodes() {
+        return terminalNodes;
+    }
+
+    private static List<WorkflowDefinitionDTO.EdgeConfig> edgesAt(List<WorkflowDefinitionDTO.EdgeConfig> edges,
+                                                                 int[] indexes) {
+        List<WorkflowDefinitionDTO.EdgeConfig> result = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            result.add(edges.get(index));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static List<WorkflowDefinitionDTO.NodeConfig> nodesAt(List<WorkflowDefinitionDTO.NodeConfig> nodes,
+                                                                 int[] indexes) {
+        List<WorkflowDefinitionDTO.NodeConfig> result = new ArrayList<>(indexes.length);
+        for (int index : indexes) {
+            result.add(nodes.get(index));
+        }
+        return Collections.unmodifiableList(result);
+    }
+}
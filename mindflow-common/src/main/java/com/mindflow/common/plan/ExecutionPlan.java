@@ -0,0 +1,119 @@
+package com.mindflow.common.plan;
+
+import java.util.Arrays;
+
+/**
+ * 定义版本的执行计划：保存定义时由 {@link WorkflowCompiler} 计算并随版本存储，运行时只按下标查表，不再分析图结构。
+ * 节点和边的下标对应配置中 nodes / edges 的位置。
+ */
+public class ExecutionPlan {
+    private static final String FORMAT_VERSION = "1";
+
+    /** 节点所在的拓扑层，入口节点为 0 */
+    private final int[] levels;
+    /** 每个节点的入边下标，长度即扇入数 */
+    private final int[][] incoming;
+    /** 每个节点的出边下标 */
+    private final int[][] outgoing;
+    private final int[] entries;
+    private final int[] terminals;
+    /** 最长路径上的节点数，即串行执行的最少步数 */
+    private final int depth;
+
+    public ExecutionPlan(int[] levels, int[][] incoming, int[][] outgoing, int[] entries, int[] terminals, int depth) {
+        this.levels = levels;
+        this.incoming = incoming;
+        this.outgoing = outgoing;
+        this.entries = entries;
+        this.terminals = terminals;
+        this.depth = depth;
+    }
+
+    public int getNodeCount() {
+        return levels.length;
+    }
+
+    public int getLevel(int node) {
+        return levels[node];
+    }
+
+    public int getFanIn(int node) {
+        return incoming[node].length;
+    }
+
+    public int[] getIncoming(int node) {
+        return incoming[node];
+    }
+
+    public int[] getOutgoing(int node) {
+        return outgoing[node];
+    }
+
+    public int[] getEntries() {
+        return entries;
+    }
+
+    public int[] getTerminals() {
+        return terminals;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * 编码为 "格式版本|最长路径|入口|结束节点|层:入边:出边;..."，下标列表以 "." 分隔
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder(FORMAT_VERSION).append('|').append(depth).append('|');
+        appendList(sb, entries);
+        sb.append('|');
+        appendList(sb, terminals);
+        sb.append('|');
+        for (int i = 0; i < levels.length; i++) {
+            if (i > 0) {
+                sb.append(';');
+            }
+            sb.append(levels[i]).append(':');
+            appendList(sb, incoming[i]);
+            sb.append(':');
+            appendList(sb, outgoing[i]);
+        }
+        return sb.toString();
+    }
+
+    public static ExecutionPlan decode(String encoded) {
+        String[] parts = encoded.split("\\|", -1);
+        if (parts.length != 5 || !FORMAT_VERSION.equals(parts[0])) {
+            throw new IllegalArgumentException("不支持的执行计划格式: " + parts[0]);
+        }
+        String[] nodes = parts[4].isEmpty() ? new String[0] : parts[4].split(";", -1);
+        int[] levels = new int[nodes.length];
+        int[][] incoming = new int[nodes.length][];
+        int[][] outgoing = new int[nodes.length][];
+        for (int i = 0; i < nodes.length; i++) {
+            String[] fields = nodes[i].split(":", -1);
+            levels[i] = Integer.parseInt(fields[0]);
+            incoming[i] = parseList(fields[1]);
+            outgoing[i] = parseList(fields[2]);
+        }
+        return new ExecutionPlan(levels, incoming, outgoing, parseList(parts[2]), parseList(parts[3]),
+                Integer.parseInt(parts[1]));
+    }
+
+    private static void appendList(StringBuilder sb, int[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                sb.append('.');
+            }
+            sb.append(values[i]);
+        }
+    }
+
+    private static int[] parseList(String value) {
+        if (value.isEmpty()) {
+            return new int[0];
+        }
+        return Arrays.stream(value.split("\\.")).mapToInt(Integer::parseInt).toArray();
+    }
+}
@@ -0,0 +1,234 @@
+package com.mindflow.common.plan;
+
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.exception.MindFlowException;
+import com.mindflow.common.state.RoutingStateStore;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.ParseException;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 定义编译：保存定义时校验 DAG 并生成 {@link ExecutionPlan}，无效的图在保存时被拒绝，而不是在运行时卡住实例。
+ *
+ * 校验项：节点 ID 重复或为空、边指向不存在的节点、环以及只能经由环到达的节点、未知的状态存储；
+ * 给出已知类型时还校验未知的节点类型、缺少的必填配置和无法解析的边条件（SpEL），
+ * 避免条件在运行时求值失败被当作未选中、悄悄跳过下游。
+ */
+public final class WorkflowCompiler {
+
+    /** 各节点类型执行时必需的配置项 */
+    private static final Map<String, List<String>> REQUIRED_CONFIG = Map.of(
+            "http", List.of("url"),
+            "email", List.of("to"),
+            "map", List.of("task"),
+            "subworkflow", List.of("definitionId"));
+
+    private static final ExpressionParser CONDITION_PARSER = new SpelExpressionParser();
+
+    private WorkflowCompiler() {
+    }
+
+    /**
+     * 校验并生成执行计划，定义无效时抛出 {@link MindFlowException}，消息中列出全部问题；
+     * knownTypes 为 null 时只校验图结构
+     */
+    public static ExecutionPlan compile(WorkflowDefinitionDTO.WorkflowConfig config, Set<String> knownTypes) {
+        List<String> errors = new ArrayList<>();
+        List<WorkflowDefinitionDTO.NodeConfig> nodes = config != null ? config.getNodes() : null;
+        if (nodes == null || nodes.isEmpty()) {
+            throw invalid(List.of("没有节点"));
+        }
+        List<WorkflowDefinitionDTO.EdgeConfig> edges = config.getEdges() != null ? config.getEdges() : List.of();
+        if (config.getStateStore() != null && !RoutingStateStore.STORES.contains(config.getStateStore())) {
+            errors.add("未知的状态存储: " + config.getStateStore() + "，可选 " + RoutingStateStore.STORES);
+        }
+
+        Map<String, Integer> indexById = new HashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            WorkflowDefinitionDTO.NodeConfig node = nodes.get(i);
+            if (node.getId() == null || node.getId().isBlank()) {
+                errors.add("第 " + (i + 1) + " 个节点缺少 ID");
+                continue;
+            }
+            if (indexById.putIfAbsent(node.getId(), i) != null) {
+                errors.add("节点 ID 重复: " + node.getId());
+            }
+            if (knownTypes != null) {
+                checkNode(node, knownTypes, errors);
+            }
+        }
+
+        int[] sources = new int[edges.size()];
+        int[] targets = new int[edges.size()];
+        for (int e = 0; e < edges.size(); e++) {
+            WorkflowDefinitionDTO.EdgeConfig edge = edges.get(e);
+            Integer source = indexById.get(edge.getSource());
+            Integer target = indexById.get(edge.getTarget());
+            if (source == null || target == null) {
+                errors.add("边 " + edge.getSource() + " -> " + edge.getTarget() + " 指向不存在的节点");
+                continue;
+            }
+            sources[e] = source;
+            targets[e] = target;
+            if (knownTypes != null) {
+                checkCondition(edge, errors);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw invalid(errors);
+        }
+
+        int n = nodes.size();
+        List<List<Integer>> incoming = new ArrayList<>(n);
+        List<List<Integer>> outgoing = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            incoming.add(new ArrayList<>());
+            outgoing.add(new ArrayList<>());
+        }
+        for (int e = 0; e < edges.size(); e++) {
+            outgoing.get(sources[e]).add(e);
+            incoming.get(targets[e]).add(e);
+        }
+
+        // 按入度逐层剥离，剩下的节点在环上或只能经由环到达
+        int[] levels = new int[n];
+        int[] remaining = new int[n];
+        Deque<Integer> ready = new ArrayDeque<>();
+        List<Integer> entries = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            remaining[i] = incoming.get(i).size();
+            if (remaining[i] == 0) {
+                ready.add(i);
+                entries.add(i);
+            }
+        }
+        int visited = 0;
+        int depth = 0;
+        while (!ready.isEmpty()) {
+            int node = ready.poll();
+            visited++;
+            depth = Math.max(depth, levels[node] + 1);
+            for (int e : outgoing.get(node)) {
+                int target = targets[e];
+                levels[target] = Math.max(levels[target], levels[node] + 1);
+                if (--remaining[target] == 0) {
+                    ready.add(target);
+                }
+            }
+        }
+        if (visited < n) {
+            Set<Integer> cycle = findCycle(remaining, incoming, sources);
+            errors.add("存在环: " + describe(nodes, cycle, true));
+            Set<Integer> unreachable = new LinkedHashSet<>();
+            for (int i = 0; i < n; i++) {
+                if (remaining[i] > 0 && !cycle.contains(i)) {
+                    unreachable.add(i);
+                }
+            }
+            if (!unreachable.isEmpty()) {
+                errors.add("只能经由环到达、永远不会执行的节点: " + describe(nodes, unreachable, false));
+            }
+            throw invalid(errors);
+        }
+
+        List<Integer> terminals = new ArrayList<>();
+        int[][] in = new int[n][];
+        int[][] out = new int[n][];
+        for (int i = 0; i < n; i++) {
+            in[i] = toArray(incoming.get(i));
+            out[i] = toArray(outgoing.get(i));
+            if (out[i].length == 0) {
+                terminals.add(i);
+            }
+        }
+        return new ExecutionPlan(levels, in, out, toArray(entries), toArray(terminals), depth);
+    }
+
+    private static void checkNode(WorkflowDefinitionDTO.NodeConfig node, Set<String> knownTypes, List<String> errors) {
+        if (node.getType() == null || !knownTypes.contains(node.getType())) {
+            errors.add("节点 " + node.getId() + " 的类型未知: " + node.getType());
+            return;
+        }
+        Map<String, Object> nodeConfig = node.getConfig() != null ? node.getConfig() : Map.of();
+        for (String key : REQUIRED_CONFIG.getOrDefault(node.getType(), List.of())) {
+            Object value = nodeConfig.get(key);
+            if (value == null || (value instanceof String s && s.isBlank())) {
+                errors.add("节点 " + node.getId() + " 缺少配置: " + key);
+            }
+        }
+        // map 节点的子任务同样由 worker 执行
+        if ("map".equals(node.getType()) && nodeConfig.get("task") instanceof Map<?, ?> task
+                && !knownTypes.contains(String.valueOf(task.get("type")))) {
+            errors.add("节点 " + node.getId() + " 的子任务类型未知: " + task.get("type"));
+        }
+    }
+
+    private static void checkCondition(WorkflowDefinitionDTO.EdgeConfig edge, List<String> errors) {
+        String condition = edge.getCondition();
+        if (condition == null || condition.isBlank()) {
+            return;
+        }
+        try {
+            CONDITION_PARSER.parseExpression(condition);
+        } catch (ParseException e) {
+            errors.add("边 " + edge.getSource() + " -> " + edge.getTarget() + " 的条件无法解析: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 找出剩余节点中的一个环。剩余节点都至少有一条来自剩余节点的入边，沿入边反向走一定会回到走过的节点
+     */
+    private static Set<Integer> findCycle(int[] remaining, List<List<Integer>> incoming, int[] sources) {
+        int node = 0;
+        while (remaining[node] == 0) {
+            node++;
+        }
+        Map<Integer, Integer> step = new HashMap<>();
+        List<Integer> path = new ArrayList<>();
+        while (!step.containsKey(node)) {
+            step.put(node, path.size());
+            path.add(node);
+            for (int e : incoming.get(node)) {
+                if (remaining[sources[e]] > 0) {
+                    node = sources[e];
+                    break;
+                }
+            }
+        }
+        // 反向走得到的顺序与边的方向相反
+        List<Integer> cycle = new ArrayList<>(path.subList(step.get(node), path.size()));
+        Collections.reverse(cycle);
+        return new LinkedHashSet<>(cycle);
+    }
+
+    private static String describe(List<WorkflowDefinitionDTO.NodeConfig> nodes, Set<Integer> indexes,
+                                   boolean closeLoop) {
+        List<String> ids = new ArrayList<>();
+        for (int i : indexes) {
+            ids.add(nodes.get(i).getId());
+        }
+        if (closeLoop && !ids.isEmpty()) {
+            ids.add(ids.get(0));
+            return String.join(" -> ", ids);
+        }
+        return String.join(", ", ids);
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static MindFlowException invalid(List<String> errors) {
+        return new MindFlowException("INVALID_DEFINITION", "工作流定义无效: " + String.join("; ", errors));
+    }
+}
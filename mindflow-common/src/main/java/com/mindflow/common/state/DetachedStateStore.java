@@ -0,0 +1,28 @@
+package com.mindflow.common.state;
+
+import com.mindflow.common.entity.NodeInstance;
+import com.mindflow.common.entity.WorkflowInstance;
+
+import java.util.Collection;
+import java.util.function.Function;
+
+/**
+ * 执行期间代替 MySQL 持有实例状态的存储（Redis、内存），由 {@link RoutingStateStore} 按定义选择。
+ * 实例开始时连同全部节点行装入，之后的读取和迁移都不经过 MySQL，结束后整体写回 MySQL 再移出
+ */
+public interface DetachedStateStore extends StateStore {
+
+    /**
+     * 装入实例及其全部节点行；实例已装入时不覆盖，返回 false
+     */
+    boolean load(WorkflowInstance instance, Collection<NodeInstance> nodes);
+
+    boolean containsInstance(Long workflowInstanceId);
+
+    boolean containsNode(Long nodeInstanceId);
+
+    /**
+     * 把实例和节点行的最终状态交给 persister，之后移出，返回 persister 的结果；实例不在存储中时返回 null
+     */
+    <T> T remove(Long workflowInstanceId, Function<InstanceSnapshot, T> persister);
+}
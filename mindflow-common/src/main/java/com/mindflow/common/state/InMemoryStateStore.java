@@ -0,0 +1,248 @@
+package com.mindflow.common.state;
+
+import com.mindflow.common.entity.NodeInstance;
+import com.mindflow.common.entity.WorkflowInstance;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 进程内的状态存储，用于测试和嵌入模式：编排器和 worker 在同一进程内共享同一个实例（如压测的内嵌集群）。
+ *
+ * 只保存由 {@link RoutingStateStore} 装入的实例，行数据以副本形式放在内存中，同一实例的迁移在该实例的锁内完成，
+ * 版本号与数据库实现一致（每次迁移加一）。读写都不经过数据库，进程退出后未写回的实例状态随之丢失。
+ */
+public class InMemoryStateStore implements DetachedStateStore {
+
+    private final Map<Long, Entry> instances = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> entriesByNodeId = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean load(WorkflowInstance instance, Collection<NodeInstance> nodes) {
+        Entry entry = new Entry(copy(instance));
+        synchronized (entry) {
+            if (instances.putIfAbsent(instance.getId(), entry) != null) {
+                return false;
+            }
+            for (NodeInstance node : nodes) {
+                entry.nodes.put(node.getId(), copy(node));
+                entriesByNodeId.put(node.getId(), entry);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean containsInstance(Long workflowInstanceId) {
+        return instances.containsKey(workflowInstanceId);
+    }
+
+    @Override
+    public boolean containsNode(Long nodeInstanceId) {
+        return entriesByNodeId.containsKey(nodeInstanceId);
+    }
+
+    /**
+     * persister 执行期间持有该实例的锁，其他线程在移出前读到的都是内存中的状态，不会读到尚未写回的数据库行；
+     * persister 抛出异常时实例同样被移出
+     */
+    @Override
+    public <T> T remove(Long workflowInstanceId, Function<InstanceSnapshot, T> persister) {
+        Entry entry = instances.get(workflowInstanceId);
+        if (entry == null) {
+            return null;
+        }
+        synchronized (entry) {
+            try {
+                List<NodeInstance> nodes = new ArrayList<>();
+                entry.nodes.values().forEach(node -> nodes.add(copy(node)));
+                return persister.apply(new InstanceSnapshot(copy(entry.instance), nodes));
+            } finally {
+                instances.remove(workflowInstanceId);
+                entry.nodes.keySet().forEach(entriesByNodeId::remove);
+            }
+        }
+    }
+
+    @Override
+    public Optional<WorkflowInstance> findInstance(Long workflowInstanceId) {
+        Entry entry = instances.get(workflowInstanceId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        synchronized (entry) {
+            return Optional.of(copy(entry.instance));
+        }
+    }
+
+    @Override
+    public List<NodeState> findNodes(Long workflowInstanceId) {
+        Entry entry = instances.get(workflowInstanceId);
+        if (entry == null) {
+            return List.of();
+        }
+        synchronized (entry) {
+            List<NodeState> nodes = new ArrayList<>(entry.nodes.size());
+            entry.nodes.values().forEach(node -> nodes.add(state(node)));
+            return nodes;
+        }
+    }
+
+    @Override
+    public Optional<NodeState> findNode(Long nodeInstanceId) {
+        Entry entry = entriesByNodeId.get(nodeInstanceId);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        synchronized (entry) {
+            NodeInstance node = entry.nodes.get(nodeInstanceId);
+            return node != null ? Optional.of(state(node)) : Optional.empty();
+        }
+    }
+
+    @Override
+    public Map<Long, String> findNodeOutputs(Collection<Long> nodeInstanceIds) {
+        Map<Long, String> outputs = new HashMap<>();
+        for (Long nodeInstanceId : nodeInstanceIds) {
+            Entry entry = entriesByNodeId.get(nodeInstanceId);
+            if (entry == null) {
+                continue;
+            }
+            synchronized (entry) {
+                NodeInstance node = entry.nodes.get(nodeInstanceId);
+                if (node != null) {
+                    outputs.put(nodeInstanceId, node.getOutput());
+                }
+            }
+        }
+        return outputs;
+    }
+
+    @Override
+    public long markNodeRunning(Long nodeInstanceId, String input, LocalDateTime now) {
+        return transitNode(nodeInstanceId, "PENDING", node -> {
+            node.setStatus("RUNNING");
+            node.setInput(input);
+            node.setStartTime(now);
+        });
+    }
+
+    @Override
+    public long markNodeSkipped(Long nodeInstanceId, LocalDateTime now) {
+        return transitNode(nodeInstanceId, "PENDING", node -> {
+            node.setStatus("SKIPPED");
+            node.setEndTime(now);
+        });
+    }
+
+    @Override
+    public long finishNode(Long nodeInstanceId, String status, String output, String errorMessage,
+                           LocalDateTime executeTime, LocalDateTime endTime) {
+        return transitNode(nodeInstanceId, "RUNNING", node -> {
+            node.setStatus(status);
+            node.setOutput(output);
+            node.setErrorMessage(errorMessage);
+            if (executeTime != null) {
+                node.setExecuteTime(executeTime);
+            }
+            node.setEndTime(endTime);
+        });
+    }
+
+    @Override
+    public long finishInstance(Long workflowInstanceId, String status, String output, String errorMessage,
+                               LocalDateTime now) {
+        Entry entry = instances.get(workflowInstanceId);
+        if (entry == null) {
+            return 0L;
+        }
+        synchronized (entry) {
+            WorkflowInstance instance = entry.instance;
+            if (!"RUNNING".equals(instance.getStatus())) {
+                return 0L;
+            }
+            instance.setStatus(status);
+            instance.setOutput(output);
+            instance.setErrorMessage(errorMessage);
+            instance.setEndTime(now);
+            instance.setVersion(instance.getVersion() + 1);
+            return instance.getVersion();
+        }
+    }
+
+    private long transitNode(Long nodeInstanceId, String expectedStatus, Consumer<NodeInstance> change) {
+        Entry entry = entriesByNodeId.get(nodeInstanceId);
+        if (entry == null) {
+            return 0L;
+        }
+        synchronized (entry) {
+            NodeInstance node = entry.nodes.get(nodeInstanceId);
+            if (node == null || !expectedStatus.equals(node.getStatus())) {
+                return 0L;
+            }
+            change.accept(node);
+            node.setVersion(node.getVersion() + 1);
+            return node.getVersion();
+        }
+    }
+
+    private static NodeState state(NodeInstance node) {
+        return new NodeState(node.getId(), node.getNodeId(), node.getNodeName(), node.getStatus(),
+                node.getStartTime(), node.getEndTime());
+    }
+
+    private static WorkflowInstance copy(WorkflowInstance source) {
+        WorkflowInstance instance = new WorkflowInstance();
+        instance.setId(source.getId());
+        instance.setWorkflowDefinitionId(source.getWorkflowDefinitionId());
+        instance.setDefinitionVersionId(source.getDefinitionVersionId());
+        instance.setStatus(source.getStatus());
+        instance.setInput(source.getInput());
+        instance.setOutput(source.getOutput());
+        instance.setErrorMessage(source.getErrorMessage());
+        instance.setStartTime(source.getStartTime());
+        instance.setEndTime(source.getEndTime());
+        instance.setVersion(source.getVersion() != null ? source.getVersion() : 0L);
+        instance.setBatchId(source.getBatchId());
+        instance.setParentInstanceId(source.getParentInstanceId());
+        instance.setParentNodeInstanceId(source.getParentNodeInstanceId());
+        return instance;
+    }
+
+    private static NodeInstance copy(NodeInstance source) {
+        NodeInstance node = new NodeInstance();
+        node.setId(source.getId());
+        node.setWorkflowInstanceId(source.getWorkflowInstanceId());
+        node.setNodeId(source.getNodeId());
+        node.setNodeType(source.getNodeType());
+        node.setNodeName(source.getNodeName());
+        node.setStatus(source.getStatus());
+        node.setInput(source.getInput());
+        node.setOutput(source.getOutput());
+        node.setErrorMessage(source.getErrorMessage());
+        node.setStartTime(source.getStartTime());
+        node.setExecuteTime(source.getExecuteTime());
+        node.setEndTime(source.getEndTime());
+        node.setVersion(source.getVersion() != null ? source.getVersion() : 0L);
+        return node;
+    }
+
+    private static class Entry {
+        private final WorkflowInstance instance;
+        /** 按插入顺序，写回时与装入时的节点顺序一致 */
+        private final Map<Long, NodeInstance> nodes = new LinkedHashMap<>();
+
+        Entry(WorkflowInstance instance) {
+            this.instance = instance;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.mindflow.common.state;
+
+import com.mindflow.common.entity.NodeInstance;
+import com.mindflow.common.entity.WorkflowInstance;
+
+import java.util.List;
+
+/**
+ * 移出 {@link DetachedStateStore} 前实例和全部节点行的最终状态，用于写回 MySQL
+ */
+public class InstanceSnapshot {
+    private final WorkflowInstance instance;
+    private final List<NodeInstance> nodes;
+
+    public InstanceSnapshot(WorkflowInstance instance, List<NodeInstance> nodes) {
+        this.instance = instance;
+        this.nodes = nodes;
+    }
+
+    public WorkflowInstance getInstance() {
+        return instance;
+    }
+
+    public List<NodeInstance> getNodes() {
+        return nodes;
+    }
+}
@@ -0,0 +1,221 @@
+package com.mindflow.common.state;
+
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.entity.NodeInstance;
+import com.mindflow.common.entity.WorkflowInstance;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * 基于 MySQL 的状态存储：推进实例时只读取状态列，输出按需单独查询，迁移是只更新相关列的条件 UPDATE，每次迁移一个短事务，
+ * 提交后调用方才发送后续事件。命中后在同一事务内读回该行的版本号，行锁保证读到的就是本次迁移的结果。
+ *
+ * 实体在 mindflow-common 中，由 {@link StateStoreAutoConfiguration} 注册，不必在每个模块里重复定义迁移语句。
+ */
+public class JpaStateStore implements StateStore {
+    private static final String NODE_STATE =
+            "new com.mindflow.common.state.NodeState(n.id, n.nodeId, n.nodeName, n.status, n.startTime, n.endTime)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    public Optional<WorkflowInstance> findInstance(Long workflowInstanceId) {
+        return Optional.ofNullable(entityManager.find(WorkflowInstance.class, workflowInstanceId));
+    }
+
+    @Override
+    public List<NodeState> findNodes(Long workflowInstanceId) {
+        return entityManager.createQuery("select " + NODE_STATE
+                        + " from NodeInstance n where n.workflowInstanceId = :workflowInstanceId", NodeState.class)
+                .setParameter("workflowInstanceId", workflowInstanceId)
+                .getResultList();
+    }
+
+    @Override
+    public Optional<NodeState> findNode(Long nodeInstanceId) {
+        return entityManager.createQuery("select " + NODE_STATE + " from NodeInstance n where n.id = :id",
+                        NodeState.class)
+                .setParameter("id", nodeInstanceId)
+                .getResultList()
+                .stream()
+                .findFirst();
+    }
+
+    @Override
+    public Map<Long, String> findNodeOutputs(Collection<Long> nodeInstanceIds) {
+        Map<Long, String> outputs = new HashMap<>();
+        if (nodeInstanceIds.isEmpty()) {
+            return outputs;
+        }
+        List<Object[]> rows = entityManager.createQuery(
+                        "select n.id, n.output from NodeInstance n where n.id in :ids", Object[].class)
+                .setParameter("ids", nodeInstanceIds)
+                .getResultList();
+        for (Object[] row : rows) {
+            outputs.put((Long) row[0], (String) row[1]);
+        }
+        return outputs;
+    }
+
+    @Override
+    public long markNodeRunning(Long nodeInstanceId, String input, LocalDateTime now) {
+        return update(NodeInstance.class, nodeInstanceId, "update NodeInstance n set n.status = 'RUNNING', n.input = :input, n.startTime = :now, "
+                + "n.version = n.version + 1 where n.id = :id and n.status = 'PENDING'",
+                "id", nodeInstanceId, "input", input, "now", now);
+    }
+
+    @Override
+    public long markNodeSkipped(Long nodeInstanceId, LocalDateTime now) {
+        return update(NodeInstance.class, nodeInstanceId, "update NodeInstance n set n.status = 'SKIPPED', n.endTime = :now, n.version = n.version + 1 "
+                + "where n.id = :id and n.status = 'PENDING'",
+                "id", nodeInstanceId, "now", now);
+    }
+
+    @Override
+    public long finishNode(Long nodeInstanceId, String status, String output, String errorMessage,
+                              LocalDateTime executeTime, LocalDateTime endTime) {
+        if (executeTime == null) {
+            // 未开始执行就结束（如投递失败）时保留原有的 executeTime
+            return update(NodeInstance.class, nodeInstanceId, "update NodeInstance n set n.status = :status, n.output = :output, "
+                    + "n.errorMessage = :errorMessage, n.endTime = :endTime, n.version = n.version + 1 "
+                    + "where n.id = :id and n.status = 'RUNNING'",
+                    "id", nodeInstanceId, "status", status, "output", output, "errorMessage", errorMessage,
+                    "endTime", endTime);
+        }
+        return update(NodeInstance.class, nodeInstanceId, "update NodeInstance n set n.status = :status, n.output = :output, "
+                + "n.errorMessage = :errorMessage, n.executeTime = :executeTime, n.endTime = :endTime, "
+                + "n.version = n.version + 1 where n.id = :id and n.status = 'RUNNING'",
+                "id", nodeInstanceId, "status", status, "output", output, "errorMessage", errorMessage,
+                "executeTime", executeTime, "endTime", endTime);
+    }
+
+    @Override
+    public long finishInstance(Long workflowInstanceId, String status, String output, String errorMessage,
+                                  LocalDateTime now) {
+        return update(WorkflowInstance.class, workflowInstanceId, "update WorkflowInstance w set w.status = :status, w.output = :output, "
+                + "w.errorMessage = :errorMessage, w.endTime = :now, w.version = w.version + 1 "
+                + "where w.id = :id and w.status = 'RUNNING'",
+                "id", workflowInstanceId, "status", status, "output", output, "errorMessage", errorMessage,
+                "now", now);
+    }
+
+    /**
+     * 实例的完整节点行，装入 {@link DetachedStateStore} 时使用。延迟创建模式下尚未插入的节点在这里一次补建为 PENDING，
+     * 实例在外部存储中执行期间不再逐个插入节点行；并发装入同一实例时唯一约束冲突的一方重新读取
+     */
+    public List<NodeInstance> findNodeRows(WorkflowInstance instance, List<WorkflowDefinitionDTO.NodeConfig> nodeConfigs) {
+        List<NodeInstance> rows = findNodeRows(instance.getId());
+        Set<String> existing = new HashSet<>();
+        rows.forEach(row -> existing.add(row.getNodeId()));
+        List<WorkflowDefinitionDTO.NodeConfig> missing = nodeConfigs.stream()
+                .filter(nodeConfig -> !existing.contains(nodeConfig.getId()))
+                .toList();
+        if (missing.isEmpty()) {
+            return rows;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (WorkflowDefinitionDTO.NodeConfig nodeConfig : missing) {
+                    NodeInstance node = new NodeInstance();
+                    node.setWorkflowInstanceId(instance.getId());
+                    node.setNodeId(nodeConfig.getId());
+                    node.setNodeType(nodeConfig.getType());
+                    node.setNodeName(nodeConfig.getName());
+                    node.setStatus("PENDING");
+                    node.setInput(instance.getInput());
+                    entityManager.persist(node);
+                }
+            });
+        } catch (RuntimeException e) {
+            rows = findNodeRows(instance.getId());
+            if (rows.size() < nodeConfigs.size()) {
+                throw e;
+            }
+            return rows;
+        }
+        return findNodeRows(instance.getId());
+    }
+
+    private List<NodeInstance> findNodeRows(Long workflowInstanceId) {
+        return entityManager.createQuery(
+                        "select n from NodeInstance n where n.workflowInstanceId = :workflowInstanceId", NodeInstance.class)
+                .setParameter("workflowInstanceId", workflowInstanceId)
+                .getResultList();
+    }
+
+    /**
+     * 把在 {@link DetachedStateStore} 中执行完的实例一次写回：实例行仍为 RUNNING 时在同一事务内更新实例和全部节点行，
+     * 实例已被其他途径结束（如 API 终止）时以数据库为准，不写入并返回 false
+     */
+    public boolean writeBack(WorkflowInstance instance, Collection<NodeInstance> nodes) {
+        Boolean written = transactionTemplate.execute(status -> {
+            int updated = entityManager.createQuery("update WorkflowInstance w set w.status = :status, "
+                            + "w.output = :output, w.errorMessage = :errorMessage, w.endTime = :endTime, "
+                            + "w.version = :version where w.id = :id and w.status = 'RUNNING'")
+                    .setParameter("id", instance.getId())
+                    .setParameter("status", instance.getStatus())
+                    .setParameter("output", instance.getOutput())
+                    .setParameter("errorMessage", instance.getErrorMessage())
+                    .setParameter("endTime", instance.getEndTime())
+                    .setParameter("version", instance.getVersion())
+                    .executeUpdate();
+            if (updated == 0) {
+                return false;
+            }
+            for (NodeInstance node : nodes) {
+                entityManager.createQuery("update NodeInstance n set n.status = :status, n.input = :input, "
+                                + "n.output = :output, n.errorMessage = :errorMessage, n.startTime = :startTime, "
+                                + "n.executeTime = :executeTime, n.endTime = :endTime, n.version = :version "
+                                + "where n.id = :id")
+                        .setParameter("id", node.getId())
+                        .setParameter("status", node.getStatus())
+                        .setParameter("input", node.getInput())
+                        .setParameter("output", node.getOutput())
+                        .setParameter("errorMessage", node.getErrorMessage())
+                        .setParameter("startTime", node.getStartTime())
+                        .setParameter("executeTime", node.getExecuteTime())
+                        .setParameter("endTime", node.getEndTime())
+                        .setParameter("version", node.getVersion())
+                        .executeUpdate();
+            }
+            return true;
+        });
+        return Boolean.TRUE.equals(written);
+    }
+
+    /**
+     * 执行条件 UPDATE，参数按 名称, 值 成对传入；命中时返回该行迁移后的版本号，未命中返回 0
+     */
+    private long update(Class<?> entity, Long id, String jpql, Object... params) {
+        Long version = transactionTemplate.execute(status -> {
+            Query query = entityManager.createQuery(jpql);
+            for (int i = 0; i < params.length; i += 2) {
+                query.setParameter((String) params[i], params[i + 1]);
+            }
+            if (query.executeUpdate() == 0) {
+                return 0L;
+            }
+            return entityManager.createQuery("select e.version from " + entity.getSimpleName() + " e where e.id = :id",
+                            Long.class)
+                    .setParameter("id", id)
+                    .getSingleResult();
+        });
+        return version != null ? version : 0L;
+    }
+}
@@ -0,0 +1,50 @@
+package com.mindflow.common.state;
+
+import java.time.LocalDateTime;
+
+/**
+ * 推进实例时用到的节点状态，不含 input / output；
+ * 需要输出时通过 {@link StateStore#findNodeOutputs} 只读取相关节点
+ */
+public class NodeState {
+    private final Long id;
+    private final String nodeId;
+    private final String nodeName;
+    private final String status;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+
+    public NodeState(Long id, String nodeId, String nodeName, String status, LocalDateTime startTime,
+                     LocalDateTime endTime) {
+        this.id = id;
+        this.nodeId = nodeId;
+        this.nodeName = nodeName;
+        this.status = status;
+        this.startTime = startTime;
+        this.endTime = endTime;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public String getNodeName() {
+        return nodeName;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+}
@@ -0,0 +1,419 @@
+package com.mindflow.common.state;
+
+import com.mindflow.common.entity.NodeInstance;
+import com.mindflow.common.entity.WorkflowInstance;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * 基于 Redis 的状态存储：定义配置 stateStore 为 redis 的实例在执行期间的读取和迁移都是几条哈希命令，不经过 MySQL。
+ * 已结束的实例记入待写回集合，由编排器定期批量写回 MySQL 后删除（见 {@link RoutingStateStore#flushFinished}）。
+ * <ul>
+ *   <li>mindflow:state:{id} —— 哈希，实例行的各列</li>
+ *   <li>mindflow:state:{id}:nodes —— 哈希，{nodeInstanceId}:{列} -> 值，推进实例时读取的状态列</li>
+ *   <li>mindflow:state:{id}:data —— 哈希，同上，input / output / errorMessage / executeTime</li>
+ *   <li>mindflow:state:node:{nodeInstanceId} —— 节点所属的实例 ID</li>
+ *   <li>mindflow:state:finished —— 有序集合，已结束待写回的实例，分数为结束时的毫秒时间戳</li>
+ * </ul>
+ * 条件迁移用 HSETNX 占位保证同一行只成功一次：节点离开 PENDING（left）、节点结束（done）、实例结束（done）各一次，
+ * 版本号用 HINCRBY 递增，与数据库实现一致。所有键带 ttl，写回丢失的实例在键过期后由对账按数据库中的状态重新推进。
+ */
+public class RedisStateStore implements DetachedStateStore {
+    private static final String KEY_PREFIX = "mindflow:state:";
+    private static final String FINISHED_KEY = KEY_PREFIX + "finished";
+    /** 节点哈希中的装入占位，重复装入同一实例时只有第一次生效 */
+    private static final String LOADED_FIELD = "loaded";
+
+    private static final String LEFT = "left";
+    private static final String DONE = "done";
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration ttl;
+
+    public RedisStateStore(StringRedisTemplate redisTemplate, Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.ttl = ttl;
+    }
+
+    @Override
+    public boolean load(WorkflowInstance instance, Collection<NodeInstance> nodes) {
+        Long workflowInstanceId = instance.getId();
+        HashOperations<String, String, String> hash = redisTemplate.opsForHash();
+        if (!hash.putIfAbsent(nodesKey(workflowInstanceId), LOADED_FIELD, "1")) {
+            return false;
+        }
+        Map<String, String> nodeFields = new HashMap<>();
+        Map<String, String> dataFields = new HashMap<>();
+        for (NodeInstance node : nodes) {
+            String prefix = node.getId() + ":";
+            put(nodeFields, prefix + "nodeId", node.getNodeId());
+            put(nodeFields, prefix + "nodeName", node.getNodeName());
+            put(nodeFields, prefix + "nodeType", node.getNodeType());
+            put(nodeFields, prefix + "status", node.getStatus());
+            put(nodeFields, prefix + "startTime", node.getStartTime());
+            put(nodeFields, prefix + "endTime", node.getEndTime());
+            put(nodeFields, prefix + "version", node.getVersion() != null ? node.getVersion() : 0L);
+            // 装入时已离开 PENDING 或已结束的节点预先占位
+            if (!"PENDING".equals(node.getStatus())) {
+                put(nodeFields, prefix + LEFT, node.getStatus());
+            }
+            if (!"PENDING".equals(node.getStatus()) && !"RUNNING".equals(node.getStatus())) {
+                put(nodeFields, prefix + DONE, node.getStatus());
+            }
+            put(dataFields, prefix + "input", node.getInput());
+            put(dataFields, prefix + "output", node.getOutput());
+            put(dataFields, prefix + "errorMessage", node.getErrorMessage());
+            put(dataFields, prefix + "executeTime", node.getExecuteTime());
+            redisTemplate.opsForValue().set(nodeKey(node.getId()), String.valueOf(workflowInstanceId), ttl);
+        }
+        hash.putAll(nodesKey(workflowInstanceId), nodeFields);
+        if (!dataFields.isEmpty()) {
+            hash.putAll(dataKey(workflowInstanceId), dataFields);
+        }
+
+        // 实例哈希最后写入：它存在即表示装入完成，路由据此把实例交给本存储
+        Map<String, String> instanceFields = new HashMap<>();
+        put(instanceFields, "workflowDefinitionId", instance.getWorkflowDefinitionId());
+        put(instanceFields, "definitionVersionId", instance.getDefinitionVersionId());
+        put(instanceFields, "status", instance.getStatus());
+        put(instanceFields, "input", instance.getInput());
+        put(instanceFields, "startTime", instance.getStartTime());
+        put(instanceFields, "version", instance.getVersion() != null ? instance.getVersion() : 0L);
+        put(instanceFields, "batchId", instance.getBatchId());
+        put(instanceFields, "parentInstanceId", instance.getParentInstanceId());
+        put(instanceFields, "parentNodeInstanceId", instance.getParentNodeInstanceId());
+        hash.putAll(instanceKey(workflowInstanceId), instanceFields);
+        redisTemplate.expire(nodesKey(workflowInstanceId), ttl);
+        redisTemplate.expire(dataKey(workflowInstanceId), ttl);
+        redisTemplate.expire(instanceKey(workflowInstanceId), ttl);
+        return true;
+    }
+
+    @Override
+    public boolean containsInstance(Long workflowInstanceId) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(instanceKey(workflowInstanceId)));
+    }
+
+    @Override
+    public boolean containsNode(Long nodeInstanceId) {
+        return findInstanceId(nodeInstanceId) != null;
+    }
+
+    /**
+     * 待写回的实例，按结束时间从早到晚
+     */
+    public List<Long> findFinished(int limit) {
+        Set<String> ids = redisTemplate.opsForZSet().rangeByScore(FINISHED_KEY, 0, Double.MAX_VALUE, 0, limit);
+        List<Long> result = new ArrayList<>();
+        if (ids != null) {
+            ids.forEach(id -> result.add(Long.valueOf(id)));
+        }
+        return result;
+    }
+
+    /**
+     * 认领一个待写回的实例，多个编排器并发写回时只有一方成功
+     */
+    public boolean claimFinished(Long workflowInstanceId) {
+        Long removed = redisTemplate.opsForZSet().remove(FINISHED_KEY, String.valueOf(workflowInstanceId));
+        return removed != null && removed > 0;
+    }
+
+    /**
+     * persister 抛出异常时实例保留在 Redis 中并重新放回待写回集合，下次写回时重试
+     */
+    @Override
+    public <T> T remove(Long workflowInstanceId, Function<InstanceSnapshot, T> persister) {
+        Optional<WorkflowInstance> instance = findInstance(workflowInstanceId);
+        if (instance.isEmpty()) {
+            return null;
+        }
+        Map<Long, Map<String, String>> nodeRows = rows(redisTemplate.<String, String>opsForHash()
+                .entries(nodesKey(workflowInstanceId)));
+        Map<Long, Map<String, String>> dataRows = rows(redisTemplate.<String, String>opsForHash()
+                .entries(dataKey(workflowInstanceId)));
+        List<NodeInstance> nodes = new ArrayList<>(nodeRows.size());
+        nodeRows.forEach((id, fields) -> nodes.add(node(workflowInstanceId, id, fields,
+                dataRows.getOrDefault(id, Map.of()))));
+
+        T result;
+        try {
+            result = persister.apply(new InstanceSnapshot(instance.get(), nodes));
+        } catch (RuntimeException e) {
+            redisTemplate.opsForZSet().add(FINISHED_KEY, String.valueOf(workflowInstanceId), System.currentTimeMillis());
+            throw e;
+        }
+        List<String> keys = new ArrayList<>();
+        keys.add(instanceKey(workflowInstanceId));
+        keys.add(nodesKey(workflowInstanceId));
+        keys.add(dataKey(workflowInstanceId));
+        nodeRows.keySet().forEach(id -> keys.add(nodeKey(id)));
+        redisTemplate.delete(keys);
+        return result;
+    }
+
+    @Override
+    public Optional<WorkflowInstance> findInstance(Long workflowInstanceId) {
+        Map<String, String> fields = redisTemplate.<String, String>opsForHash().entries(instanceKey(workflowInstanceId));
+        if (fields.isEmpty()) {
+            return Optional.empty();
+        }
+        WorkflowInstance instance = new WorkflowInstance();
+        instance.setId(workflowInstanceId);
+        instance.setWorkflowDefinitionId(toLong(fields.get("workflowDefinitionId")));
+        instance.setDefinitionVersionId(toLong(fields.get("definitionVersionId")));
+        instance.setStatus(fields.get("status"));
+        instance.setInput(fields.get("input"));
+        instance.setOutput(fields.get("output"));
+        instance.setErrorMessage(fields.get("errorMessage"));
+        instance.setStartTime(toTime(fields.get("startTime")));
+        instance.setEndTime(toTime(fields.get("endTime")));
+        instance.setVersion(toLong(fields.get("version")));
+        instance.setBatchId(fields.get("batchId"));
+        instance.setParentInstanceId(toLong(fields.get("parentInstanceId")));
+        instance.setParentNodeInstanceId(toLong(fields.get("parentNodeInstanceId")));
+        return Optional.of(instance);
+    }
+
+    @Override
+    public List<NodeState> findNodes(Long workflowInstanceId) {
+        Map<Long, Map<String, String>> rows = rows(redisTemplate.<String, String>opsForHash()
+                .entries(nodesKey(workflowInstanceId)));
+        List<NodeState> nodes = new ArrayList<>(rows.size());
+        rows.forEach((id, fields) -> nodes.add(state(id, fields)));
+        return nodes;
+    }
+
+    @Override
+    public Optional<NodeState> findNode(Long nodeInstanceId) {
+        Long workflowInstanceId = findInstanceId(nodeInstanceId);
+        if (workflowInstanceId == null) {
+            return Optional.empty();
+        }
+        List<String> columns = List.of("nodeId", "nodeName", "status", "startTime", "endTime");
+        List<String> fields = new ArrayList<>(columns.size());
+        columns.forEach(column -> fields.add(nodeInstanceId + ":" + column));
+        List<String> values = redisTemplate.<String, String>opsForHash().multiGet(nodesKey(workflowInstanceId), fields);
+        if (values.get(0) == null) {
+            return Optional.empty();
+        }
+        Map<String, String> row = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+            row.put(columns.get(i), values.get(i));
+        }
+        return Optional.of(state(nodeInstanceId, row));
+    }
+
+    @Override
+    public Map<Long, String> findNodeOutputs(Collection<Long> nodeInstanceIds) {
+        Map<Long, List<Long>> idsByInstance = new HashMap<>();
+        for (Long nodeInstanceId : nodeInstanceIds) {
+            Long workflowInstanceId = findInstanceId(nodeInstanceId);
+            if (workflowInstanceId != null) {
+                idsByInstance.computeIfAbsent(workflowInstanceId, k -> new ArrayList<>()).add(nodeInstanceId);
+            }
+        }
+        Map<Long, String> outputs = new HashMap<>();
+        idsByInstance.forEach((workflowInstanceId, ids) -> {
+            List<String> fields = new ArrayList<>(ids.size());
+            ids.forEach(id -> fields.add(id + ":output"));
+            List<String> values = redisTemplate.<String, String>opsForHash().multiGet(dataKey(workflowInstanceId), fields);
+            for (int i = 0; i < ids.size(); i++) {
+                outputs.put(ids.get(i), values.get(i));
+            }
+        });
+        return outputs;
+    }
+
+    @Override
+    public long markNodeRunning(Long nodeInstanceId, String input, LocalDateTime now) {
+        Long workflowInstanceId = findInstanceId(nodeInstanceId);
+        if (workflowInstanceId == null || !claim(nodesKey(workflowInstanceId), nodeInstanceId + ":" + LEFT, "RUNNING")) {
+            return 0L;
+        }
+        Map<String, String> nodeFields = new HashMap<>();
+        put(nodeFields, nodeInstanceId + ":status", "RUNNING");
+        put(nodeFields, nodeInstanceId + ":startTime", now);
+        Map<String, String> dataFields = new HashMap<>();
+        dataFields.put(nodeInstanceId + ":input", input);
+        return transit(workflowInstanceId, nodeInstanceId, nodeFields, dataFields);
+    }
+
+    @Override
+    public long markNodeSkipped(Long nodeInstanceId, LocalDateTime now) {
+        Long workflowInstanceId = findInstanceId(nodeInstanceId);
+        if (workflowInstanceId == null || !claim(nodesKey(workflowInstanceId), nodeInstanceId + ":" + LEFT, "SKIPPED")) {
+            return 0L;
+        }
+        // 跳过的节点同时视为已结束
+        claim(nodesKey(workflowInstanceId), nodeInstanceId + ":" + DONE, "SKIPPED");
+        Map<String, String> nodeFields = new HashMap<>();
+        put(nodeFields, nodeInstanceId + ":status", "SKIPPED");
+        put(nodeFields, nodeInstanceId + ":endTime", now);
+        return transit(workflowInstanceId, nodeInstanceId, nodeFields, Map.of());
+    }
+
+    @Override
+    public long finishNode(Long nodeInstanceId, String status, String output, String errorMessage,
+                           LocalDateTime executeTime, LocalDateTime endTime) {
+        Long workflowInstanceId = findInstanceId(nodeInstanceId);
+        if (workflowInstanceId == null) {
+            return 0L;
+        }
+        String key = nodesKey(workflowInstanceId);
+        Object left = redisTemplate.opsForHash().get(key, nodeInstanceId + ":" + LEFT);
+        if (!"RUNNING".equals(left) || !claim(key, nodeInstanceId + ":" + DONE, status)) {
+            return 0L;
+        }
+        Map<String, String> nodeFields = new HashMap<>();
+        put(nodeFields, nodeInstanceId + ":status", status);
+        put(nodeFields, nodeInstanceId + ":endTime", endTime);
+        Map<String, String> dataFields = new HashMap<>();
+        dataFields.put(nodeInstanceId + ":output", output);
+        dataFields.put(nodeInstanceId + ":errorMessage", errorMessage);
+        if (executeTime != null) {
+            put(dataFields, nodeInstanceId + ":executeTime", executeTime);
+        }
+        return transit(workflowInstanceId, nodeInstanceId, nodeFields, dataFields);
+    }
+
+    @Override
+    public long finishInstance(Long workflowInstanceId, String status, String output, String errorMessage,
+                               LocalDateTime now) {
+        String key = instanceKey(workflowInstanceId);
+        if (!containsInstance(workflowInstanceId) || !claim(key, DONE, status)) {
+            return 0L;
+        }
+        Map<String, String> fields = new HashMap<>();
+        put(fields, "status", status);
+        put(fields, "endTime", now);
+        Map<String, String> nullable = new HashMap<>();
+        nullable.put("output", output);
+        nullable.put("errorMessage", errorMessage);
+        long version = redisTemplate.opsForHash().increment(key, "version", 1);
+        write(key, fields, nullable);
+        redisTemplate.opsForZSet().add(FINISHED_KEY, String.valueOf(workflowInstanceId), System.currentTimeMillis());
+        return version;
+    }
+
+    private long transit(Long workflowInstanceId, Long nodeInstanceId, Map<String, String> nodeFields,
+                         Map<String, String> dataFields) {
+        long version = redisTemplate.opsForHash().increment(nodesKey(workflowInstanceId),
+                nodeInstanceId + ":version", 1);
+        redisTemplate.opsForHash().putAll(nodesKey(workflowInstanceId), nodeFields);
+        write(dataKey(workflowInstanceId), Map.of(), dataFields);
+        return version;
+    }
+
+    /**
+     * 写入 fields；nullable 中值为 null 的字段删除，与数据库中置为 NULL 一致
+     */
+    private void write(String key, Map<String, String> fields, Map<String, String> nullable) {
+        Map<String, String> values = new HashMap<>(fields);
+        List<Object> cleared = new ArrayList<>();
+        nullable.forEach((field, value) -> {
+            if (value != null) {
+                values.put(field, value);
+            } else {
+                cleared.add(field);
+            }
+        });
+        if (!values.isEmpty()) {
+            redisTemplate.opsForHash().putAll(key, values);
+        }
+        if (!cleared.isEmpty()) {
+            redisTemplate.opsForHash().delete(key, cleared.toArray());
+        }
+    }
+
+    private boolean claim(String key, String field, String value) {
+        return redisTemplate.opsForHash().putIfAbsent(key, field, value);
+    }
+
+    private Long findInstanceId(Long nodeInstanceId) {
+        return toLong(redisTemplate.opsForValue().get(nodeKey(nodeInstanceId)));
+    }
+
+    /**
+     * 把 {nodeInstanceId}:{列} 形式的字段按节点分组，按节点 ID 排序
+     */
+    private static Map<Long, Map<String, String>> rows(Map<String, String> fields) {
+        Map<Long, Map<String, String>> rows = new TreeMap<>();
+        fields.forEach((field, value) -> {
+            int separator = field.indexOf(':');
+            if (separator <= 0) {
+                return;
+            }
+            Long id = Long.valueOf(field.substring(0, separator));
+            rows.computeIfAbsent(id, k -> new LinkedHashMap<>()).put(field.substring(separator + 1), value);
+        });
+        return rows;
+    }
+
+    private static NodeState state(Long id, Map<String, String> row) {
+        return new NodeState(id, row.get("nodeId"), row.get("nodeName"), row.get("status"),
+                toTime(row.get("startTime")), toTime(row.get("endTime")));
+    }
+
+    private static NodeInstance node(Long workflowInstanceId, Long id, Map<String, String> row,
+                                     Map<String, String> data) {
+        NodeInstance node = new NodeInstance();
+        node.setId(id);
+        node.setWorkflowInstanceId(workflowInstanceId);
+        node.setNodeId(row.get("nodeId"));
+        node.setNodeType(row.get("nodeType"));
+        node.setNodeName(row.get("nodeName"));
+        node.setStatus(row.get("status"));
+        node.setStartTime(toTime(row.get("startTime")));
+        node.setEndTime(toTime(row.get("endTime")));
+        node.setVersion(toLong(row.get("version")));
+        node.setInput(data.get("input"));
+        node.setOutput(data.get("output"));
+        node.setErrorMessage(data.get("errorMessage"));
+        node.setExecuteTime(toTime(data.get("executeTime")));
+        return node;
+    }
+
+    private static void put(Map<String, String> fields, String field, Object value) {
+        if (value != null) {
+            fields.put(field, value.toString());
+        }
+    }
+
+    private static Long toLong(String value) {
+        return value != null ? Long.valueOf(value) : null;
+    }
+
+    private static LocalDateTime toTime(String value) {
+        return value != null ? LocalDateTime.parse(value) : null;
+    }
+
+    private static String instanceKey(Long workflowInstanceId) {
+        return KEY_PREFIX + workflowInstanceId;
+    }
+
+    private static String nodesKey(Long workflowInstanceId) {
+        return KEY_PREFIX + workflowInstanceId + ":nodes";
+    }
+
+    private static String dataKey(Long workflowInstanceId) {
+        return KEY_PREFIX + workflowInstanceId + ":data";
+    }
+
+    private static String nodeKey(Long nodeInstanceId) {
+        return KEY_PREFIX + "node:" + nodeInstanceId;
+    }
+}
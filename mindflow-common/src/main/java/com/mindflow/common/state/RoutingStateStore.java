@@ -0,0 +1,199 @@
+package com.mindflow.common.state;
+
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.entity.WorkflowInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按定义选择实例的状态存储：定义配置 stateStore 为 redis 或 memory 的实例在开始执行时从 MySQL 装入对应的
+ * {@link DetachedStateStore}，执行期间的读取和迁移都不经过 MySQL；其余实例直接读写 MySQL。
+ * <ul>
+ *   <li>redis —— 实例结束时只在 Redis 中标记，由编排器定期调用 {@link #flushFinished} 批量写回 MySQL 后删除</li>
+ *   <li>memory —— 实例结束时同步写回后移出内存。只在编排器和 worker 共享同一个 {@link InMemoryStateStore} bean 时可用
+ *   （嵌入模式，如压测的内嵌集群），API 保存定义时默认不接受</li>
+ * </ul>
+ * 对应的存储未注册时按 mysql 处理并记录告警。实例在写回前对 API 查询和对账扫描不可见，
+ * 期间 API 的终止在写回时生效（以数据库中的终态为准），写回丢失的实例由对账从数据库中的状态重新推进。
+ */
+public class RoutingStateStore implements StateStore {
+    private static final Logger logger = LoggerFactory.getLogger(RoutingStateStore.class);
+
+    public static final String MYSQL = "mysql";
+    public static final String REDIS = "redis";
+    public static final String MEMORY = "memory";
+    public static final Set<String> STORES = Set.of(MYSQL, REDIS, MEMORY);
+
+    private final JpaStateStore durable;
+    /** 未注册内存存储时为 null */
+    private final InMemoryStateStore memory;
+    /** 未配置 Redis 时为 null */
+    private final RedisStateStore redis;
+    private final Set<String> fallbackLogged = ConcurrentHashMap.newKeySet();
+
+    public RoutingStateStore(JpaStateStore durable, InMemoryStateStore memory, RedisStateStore redis) {
+        this.durable = durable;
+        this.memory = memory;
+        this.redis = redis;
+    }
+
+    /**
+     * 处理实例的第一个事件（工作流创建事件）前调用，按定义的 stateStore 决定实例放在哪里；重复调用无副作用
+     */
+    public void select(Long workflowInstanceId, WorkflowDefinitionDTO.WorkflowConfig config) {
+        String store = config.getStateStore();
+        if (store == null || MYSQL.equals(store) || isDetached(workflowInstanceId)) {
+            return;
+        }
+        DetachedStateStore target = REDIS.equals(store) ? redis : MEMORY.equals(store) ? memory : null;
+        if (target == null) {
+            if (fallbackLogged.add(store)) {
+                logger.warn("未注册状态存储 {}，改用 MySQL: workflowInstanceId={}", store, workflowInstanceId);
+            }
+            return;
+        }
+        Optional<WorkflowInstance> instance = durable.findInstance(workflowInstanceId);
+        if (instance.isEmpty() || !"RUNNING".equals(instance.get().getStatus())) {
+            return;
+        }
+        if (target.load(instance.get(), durable.findNodeRows(instance.get(), config.getNodes()))) {
+            logger.debug("实例已装入状态存储 {}: workflowInstanceId={}", store, workflowInstanceId);
+        }
+    }
+
+    /**
+     * 实例是否由 Redis 或内存存储持有；对账扫描跳过这些实例，数据库中的行在写回前不会更新
+     */
+    public boolean isDetached(Long workflowInstanceId) {
+        return detachedInstance(workflowInstanceId) != null;
+    }
+
+    /**
+     * 把 Redis 中已结束的实例批量写回 MySQL 后删除，返回本次写回的实例数。多个编排器并发调用时每个实例只由认领到的一方写回，
+     * 写回失败的实例放回待写回集合下次重试
+     */
+    public int flushFinished(int limit) {
+        if (redis == null) {
+            return 0;
+        }
+        int flushed = 0;
+        for (Long workflowInstanceId : redis.findFinished(limit)) {
+            if (!redis.claimFinished(workflowInstanceId)) {
+                continue;
+            }
+            Boolean written = redis.remove(workflowInstanceId,
+                    snapshot -> durable.writeBack(snapshot.getInstance(), snapshot.getNodes()));
+            if (Boolean.FALSE.equals(written)) {
+                logger.info("实例已在数据库中结束，丢弃 Redis 中的结果: workflowInstanceId={}", workflowInstanceId);
+            }
+            flushed++;
+        }
+        return flushed;
+    }
+
+    @Override
+    public Optional<WorkflowInstance> findInstance(Long workflowInstanceId) {
+        return forInstance(workflowInstanceId).findInstance(workflowInstanceId);
+    }
+
+    @Override
+    public List<NodeState> findNodes(Long workflowInstanceId) {
+        return forInstance(workflowInstanceId).findNodes(workflowInstanceId);
+    }
+
+    @Override
+    public Optional<NodeState> findNode(Long nodeInstanceId) {
+        return forNode(nodeInstanceId).findNode(nodeInstanceId);
+    }
+
+    @Override
+    public Map<Long, String> findNodeOutputs(Collection<Long> nodeInstanceIds) {
+        if (memory == null && redis == null) {
+            return durable.findNodeOutputs(nodeInstanceIds);
+        }
+        Map<StateStore, List<Long>> idsByStore = new HashMap<>();
+        for (Long nodeInstanceId : nodeInstanceIds) {
+            idsByStore.computeIfAbsent(forNode(nodeInstanceId), k -> new ArrayList<>()).add(nodeInstanceId);
+        }
+        Map<Long, String> outputs = new HashMap<>();
+        idsByStore.forEach((store, ids) -> outputs.putAll(store.findNodeOutputs(ids)));
+        return outputs;
+    }
+
+    @Override
+    public long markNodeRunning(Long nodeInstanceId, String input, LocalDateTime now) {
+        return forNode(nodeInstanceId).markNodeRunning(nodeInstanceId, input, now);
+    }
+
+    @Override
+    public long markNodeSkipped(Long nodeInstanceId, LocalDateTime now) {
+        return forNode(nodeInstanceId).markNodeSkipped(nodeInstanceId, now);
+    }
+
+    @Override
+    public long finishNode(Long nodeInstanceId, String status, String output, String errorMessage,
+                           LocalDateTime executeTime, LocalDateTime endTime) {
+        return forNode(nodeInstanceId).finishNode(nodeInstanceId, status, output, errorMessage, executeTime, endTime);
+    }
+
+    /**
+     * 内存中的实例结束时把实例和全部节点行写回 MySQL 再移出内存，返回时数据库中已是终态；Redis 中的实例只标记结束，
+     * 由 {@link #flushFinished} 写回。写回前实例已被终止的，以数据库为准。写回失败时内存中的实例同样被移出，
+     * 由对账按数据库中的状态重新推进
+     */
+    @Override
+    public long finishInstance(Long workflowInstanceId, String status, String output, String errorMessage,
+                               LocalDateTime now) {
+        DetachedStateStore store = detachedInstance(workflowInstanceId);
+        if (store == null) {
+            return durable.finishInstance(workflowInstanceId, status, output, errorMessage, now);
+        }
+        long sequence = store.finishInstance(workflowInstanceId, status, output, errorMessage, now);
+        if (sequence == 0 || store != memory) {
+            return sequence;
+        }
+        Boolean written = memory.remove(workflowInstanceId,
+                snapshot -> durable.writeBack(snapshot.getInstance(), snapshot.getNodes()));
+        if (!Boolean.TRUE.equals(written)) {
+            logger.info("实例已在数据库中结束，丢弃内存中的结果: workflowInstanceId={}, status={}",
+                    workflowInstanceId, status);
+            return 0L;
+        }
+        return sequence;
+    }
+
+    private DetachedStateStore detachedInstance(Long workflowInstanceId) {
+        if (memory != null && memory.containsInstance(workflowInstanceId)) {
+            return memory;
+        }
+        if (redis != null && redis.containsInstance(workflowInstanceId)) {
+            return redis;
+        }
+        return null;
+    }
+
+    private StateStore forInstance(Long workflowInstanceId) {
+        DetachedStateStore store = detachedInstance(workflowInstanceId);
+        return store != null ? store : durable;
+    }
+
+    private StateStore forNode(Long nodeInstanceId) {
+        if (memory != null && memory.containsNode(nodeInstanceId)) {
+            return memory;
+        }
+        if (redis != null && redis.containsNode(nodeInstanceId)) {
+            return redis;
+        }
+        return durable;
+    }
+}
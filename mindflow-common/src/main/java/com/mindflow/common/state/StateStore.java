@@ -0,0 +1,61 @@
+package com.mindflow.common.state;
+
+import com.mindflow.common.entity.WorkflowInstance;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 实例和节点状态的读取与迁移，编排器和 worker 处理每个事件时通过它访问状态。
+ *
+ * 迁移都带前置状态条件，成功时返回迁移后该行的版本号（每次迁移加一，新建的行为 0），作为执行事件日志中
+ * 该行事件的序号；返回 0 表示状态已被其他事件迁移（重复、乱序的事件或实例已被终止），调用方据此放弃后续动作。
+ * 实现必须保证同一行上的并发迁移只有一个成功。
+ *
+ * 默认实现为 {@link RoutingStateStore}（MySQL，按定义可选内存），由 {@link StateStoreAutoConfiguration} 注册；
+ * 部署方提供自己的 StateStore bean 时不再注册默认实现。
+ */
+public interface StateStore {
+
+    Optional<WorkflowInstance> findInstance(Long workflowInstanceId);
+
+    /**
+     * 实例全部节点的 ID 和状态，不读取 input / output；延迟创建模式下尚未调度的节点不在其中
+     */
+    List<NodeState> findNodes(Long workflowInstanceId);
+
+    /**
+     * 单个节点的状态，不读取 input / output
+     */
+    Optional<NodeState> findNode(Long nodeInstanceId);
+
+    /**
+     * 给定节点的输出，节点实例 ID -> output；只在求值边条件、取下游输入和汇总实例输出时读取
+     */
+    Map<Long, String> findNodeOutputs(Collection<Long> nodeInstanceIds);
+
+    /**
+     * PENDING -> RUNNING，同时写入节点输入
+     */
+    long markNodeRunning(Long nodeInstanceId, String input, LocalDateTime now);
+
+    /**
+     * PENDING -> SKIPPED
+     */
+    long markNodeSkipped(Long nodeInstanceId, LocalDateTime now);
+
+    /**
+     * RUNNING -> SUCCESS / FAILED，输出只在这里写入一次；executeTime 为 null 时保留原值
+     */
+    long finishNode(Long nodeInstanceId, String status, String output, String errorMessage,
+                       LocalDateTime executeTime, LocalDateTime endTime);
+
+    /**
+     * 实例 RUNNING -> 终态
+     */
+    long finishInstance(Long workflowInstanceId, String status, String output, String errorMessage,
+                           LocalDateTime now);
+}
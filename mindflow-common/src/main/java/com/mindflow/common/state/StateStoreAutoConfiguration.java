@@ -0,0 +1,55 @@
+package com.mindflow.common.state;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+/**
+ * 默认的状态存储：MySQL 实现加按定义选择 Redis / 内存存储的 {@link RoutingStateStore}。
+ *
+ * 自动配置在各服务自己的 bean 之后处理：服务提供了自己的 StateStore bean 时这里都不注册。
+ * {@link RedisStateStore} 在存在 StringRedisTemplate 时注册；{@link InMemoryStateStore} 不在这里创建，
+ * 由嵌入模式的宿主在编排器和 worker 的上下文中注册同一个实例。
+ */
+@AutoConfiguration(after = RedisAutoConfiguration.class)
+public class StateStoreAutoConfiguration {
+
+    @Bean
+    @ConditionalOnMissingBean(value = StateStore.class, ignored = {InMemoryStateStore.class, RedisStateStore.class})
+    public JpaStateStore jpaStateStore() {
+        return new JpaStateStore();
+    }
+
+    @Bean
+    @Primary
+    @ConditionalOnBean(JpaStateStore.class)
+    public RoutingStateStore routingStateStore(JpaStateStore jpaStateStore,
+                                               ObjectProvider<InMemoryStateStore> inMemoryStateStore,
+                                               ObjectProvider<RedisStateStore> redisStateStore) {
+        return new RoutingStateStore(jpaStateStore, inMemoryStateStore.getIfAvailable(),
+                redisStateStore.getIfAvailable());
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(StringRedisTemplate.class)
+    static class RedisStateStoreConfiguration {
+
+        @Bean
+        @ConditionalOnBean(StringRedisTemplate.class)
+        @ConditionalOnMissingBean
+        public RedisStateStore redisStateStore(StringRedisTemplate stringRedisTemplate,
+                                               @Value("${mindflow.state.redis.ttl:24h}") Duration ttl) {
+            return new RedisStateStore(stringRedisTemplate, ttl);
+        }
+    }
+}
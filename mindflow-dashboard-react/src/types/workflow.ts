@@ -17,6 +17,8 @@ export interface WorkflowEdge {
   id: string;
   source: string;
   target: string;
+  /** 分支条件（SpEL），基于上游节点输出求值 */
+  condition?: string;
 }
 
 export interface WorkflowConfig {
@@ -39,7 +41,7 @@ export interface NodeInstance {
   nodeId: string;
   nodeType: string;
   nodeName: string;
-  status: 'PENDING' | 'RUNNING' | 'SUCCESS' | 'FAILED' | 'TERMINATED';
+  status: 'PENDING' | 'RUNNING' | 'SUCCESS' | 'FAILED' | 'SKIPPED' | 'TERMINATED';
   input?: string;
   output?: string;
   errorMessage?: string;
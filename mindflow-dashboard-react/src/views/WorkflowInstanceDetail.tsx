@@ -29,6 +29,7 @@ import {
   Error,
   HourglassEmpty,
   PlayArrow,
+  SkipNext,
   StopCircle,
 } from '@mui/icons-material';
 import { workflowInstanceAPI } from '../api/workflow';
@@ -86,6 +87,7 @@ const WorkflowInstanceDetail: React.FC = () => {
       RUNNING: { label: '运行中', color: 'primary', icon: <PlayArrow fontSize="small" /> },
       SUCCESS: { label: '已完成', color: 'success', icon: <CheckCircle fontSize="small" /> },
       FAILED: { label: '失败', color: 'error', icon: <Error fontSize="small" /> },
+      SKIPPED: { label: '已跳过', color: 'default', icon: <SkipNext fontSize="small" /> },
       TERMINATED: { label: '已终止', color: 'warning', icon: <StopCircle fontSize="small" /> },
     };
     
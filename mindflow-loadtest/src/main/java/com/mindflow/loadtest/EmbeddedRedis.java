@@ -0,0 +1,378 @@
+package com.mindflow.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 压测用的进程内 Redis 替身：只实现 RESP2 协议和编排器 map 节点、状态广播、Redis 状态存储用到的命令
+ * （字符串、哈希、列表、有序集合的部分命令，EXISTS、DEL、EXPIRE、PUBLISH），数据放在内存里，不处理过期。
+ *
+ * 不支持 EVAL，worker 的任务认领和限流在压测中仍然关闭。
+ */
+public class EmbeddedRedis implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedRedis.class);
+    /** 按字节原样保存，避免多字节字符改变长度 */
+    private static final Charset RAW = StandardCharsets.ISO_8859_1;
+
+    private final Map<String, Object> data = new HashMap<>();
+    private final ServerSocket serverSocket;
+    private final Thread acceptor;
+    private volatile boolean running = true;
+
+    public EmbeddedRedis() throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        this.acceptor = new Thread(this::accept, "mindflow-embedded-redis");
+        this.acceptor.setDaemon(true);
+    }
+
+    public void start() {
+        acceptor.start();
+        logger.info("内嵌 Redis 已启动: port={}", getPort());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread connection = new Thread(() -> serve(socket), "mindflow-embedded-redis-conn");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                if (running) {
+                    logger.error("内嵌 Redis 接受连接失败", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             InputStream in = new BufferedInputStream(socket.getInputStream());
+             OutputStream out = new BufferedOutputStream(socket.getOutputStream())) {
+            List<String> command;
+            while ((command = readCommand(in)) != null) {
+                Object reply;
+                synchronized (data) {
+                    reply = execute(command);
+                }
+                writeReply(out, reply);
+                if (in.available() == 0) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            // 连接关闭
+        }
+    }
+
+    private Object execute(List<String> command) {
+        String name = command.get(0).toUpperCase(Locale.ROOT);
+        List<String> args = command.subList(1, command.size());
+        switch (name) {
+            case "PING":
+                return Status.of("PONG");
+            case "CLIENT":
+            case "SELECT":
+                return Status.of("OK");
+            case "HSET":
+            case "HMSET": {
+                Map<String, String> hash = hash(args.get(0), true);
+                long added = 0;
+                for (int i = 1; i + 1 < args.size(); i += 2) {
+                    if (hash.put(args.get(i), args.get(i + 1)) == null) {
+                        added++;
+                    }
+                }
+                return "HMSET".equals(name) ? Status.of("OK") : added;
+            }
+            case "HSETNX": {
+                Map<String, String> hash = hash(args.get(0), true);
+                return hash.putIfAbsent(args.get(1), args.get(2)) == null ? 1L : 0L;
+            }
+            case "HINCRBY": {
+                Map<String, String> hash = hash(args.get(0), true);
+                long value = Long.parseLong(hash.getOrDefault(args.get(1), "0")) + Long.parseLong(args.get(2));
+                hash.put(args.get(1), String.valueOf(value));
+                return value;
+            }
+            case "HGET": {
+                Map<String, String> hash = hash(args.get(0), false);
+                return hash != null ? hash.get(args.get(1)) : null;
+            }
+            case "HMGET": {
+                Map<String, String> hash = hash(args.get(0), false);
+                List<Object> items = new ArrayList<>();
+                for (String field : args.subList(1, args.size())) {
+                    items.add(hash != null ? hash.get(field) : null);
+                }
+                return items;
+            }
+            case "HDEL": {
+                Map<String, String> hash = hash(args.get(0), false);
+                long removed = 0;
+                if (hash != null) {
+                    for (String field : args.subList(1, args.size())) {
+                        if (hash.remove(field) != null) {
+                            removed++;
+                        }
+                    }
+                }
+                return removed;
+            }
+            case "HGETALL": {
+                Map<String, String> hash = hash(args.get(0), false);
+                List<Object> items = new ArrayList<>();
+                if (hash != null) {
+                    hash.forEach((k, v) -> {
+                        items.add(k);
+                        items.add(v);
+                    });
+                }
+                return items;
+            }
+            case "RPUSH": {
+                List<String> list = list(args.get(0));
+                list.addAll(args.subList(1, args.size()));
+                return (long) list.size();
+            }
+            case "LINDEX": {
+                Object value = data.get(args.get(0));
+                if (!(value instanceof List)) {
+                    return null;
+                }
+                List<String> list = (List<String>) value;
+                int index = Integer.parseInt(args.get(1));
+                if (index < 0) {
+                    index += list.size();
+                }
+                return index >= 0 && index < list.size() ? list.get(index) : null;
+            }
+            case "GET": {
+                Object value = data.get(args.get(0));
+                return value instanceof String ? value : null;
+            }
+            case "SET":
+                data.put(args.get(0), args.get(1));
+                return Status.of("OK");
+            case "SETEX":
+            case "PSETEX":
+                data.put(args.get(0), args.get(2));
+                return Status.of("OK");
+            case "EXISTS": {
+                long found = 0;
+                for (String key : args) {
+                    if (data.containsKey(key)) {
+                        found++;
+                    }
+                }
+                return found;
+            }
+            case "ZADD": {
+                Map<String, Double> zset = zset(args.get(0), true);
+                long added = 0;
+                for (int i = 1; i + 1 < args.size(); i += 2) {
+                    if (zset.put(args.get(i + 1), score(args.get(i))) == null) {
+                        added++;
+                    }
+                }
+                return added;
+            }
+            case "ZREM": {
+                Map<String, Double> zset = zset(args.get(0), false);
+                long removed = 0;
+                if (zset != null) {
+                    for (String member : args.subList(1, args.size())) {
+                        if (zset.remove(member) != null) {
+                            removed++;
+                        }
+                    }
+                    if (zset.isEmpty()) {
+                        data.remove(args.get(0));
+                    }
+                }
+                return removed;
+            }
+            case "ZRANGEBYSCORE": {
+                Map<String, Double> zset = zset(args.get(0), false);
+                double min = score(args.get(1));
+                double max = score(args.get(2));
+                long offset = 0;
+                long count = -1;
+                for (int i = 3; i < args.size(); i++) {
+                    if ("LIMIT".equalsIgnoreCase(args.get(i))) {
+                        offset = Long.parseLong(args.get(i + 1));
+                        count = Long.parseLong(args.get(i + 2));
+                    }
+                }
+                List<Object> items = new ArrayList<>();
+                if (zset != null) {
+                    zset.entrySet().stream()
+                            .filter(e -> e.getValue() >= min && e.getValue() <= max)
+                            .sorted(Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                            .skip(offset)
+                            .limit(count < 0 ? Long.MAX_VALUE : count)
+                            .forEach(e -> items.add(e.getKey()));
+                }
+                return items;
+            }
+            case "DEL": {
+                long removed = 0;
+                for (String key : args) {
+                    if (data.remove(key) != null) {
+                        removed++;
+                    }
+                }
+                return removed;
+            }
+            case "EXPIRE":
+            case "PEXPIRE":
+                return data.containsKey(args.get(0)) ? 1L : 0L;
+            case "PUBLISH":
+                return 0L;
+            default:
+                return new ErrorReply("ERR unknown command '" + command.get(0) + "'");
+        }
+    }
+
+    private Map<String, String> hash(String key, boolean create) {
+        Object value = data.get(key);
+        if (value == null && create) {
+            value = new LinkedHashMap<String, String>();
+            data.put(key, value);
+        }
+        return (Map<String, String>) value;
+    }
+
+    private Map<String, Double> zset(String key, boolean create) {
+        Object value = data.get(key);
+        if (value == null && create) {
+            value = new ZSet();
+            data.put(key, value);
+        }
+        return (Map<String, Double>) value;
+    }
+
+    /**
+     * 分数或分数区间的边界，开区间前缀 ( 按闭区间处理
+     */
+    private static double score(String value) {
+        String bound = value.startsWith("(") ? value.substring(1) : value;
+        switch (bound.toLowerCase(Locale.ROOT)) {
+            case "+inf":
+            case "inf":
+                return Double.POSITIVE_INFINITY;
+            case "-inf":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                return Double.parseDouble(bound);
+        }
+    }
+
+    private List<String> list(String key) {
+        return (List<String>) data.computeIfAbsent(key, k -> new ArrayList<String>());
+    }
+
+    /**
+     * 读取一条 RESP 数组形式的命令，连接关闭时返回 null
+     */
+    private List<String> readCommand(InputStream in) throws IOException {
+        int type = in.read();
+        if (type < 0) {
+            return null;
+        }
+        if (type != '*') {
+            throw new IOException("不支持的请求格式: " + (char) type);
+        }
+        int count = Integer.parseInt(readLine(in));
+        List<String> command = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (in.read() != '$') {
+                throw new IOException("不支持的请求格式");
+            }
+            int length = Integer.parseInt(readLine(in));
+            byte[] bytes = in.readNBytes(length);
+            in.readNBytes(2);
+            command.add(new String(bytes, RAW));
+        }
+        return command;
+    }
+
+    private String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c < 0) {
+                throw new IOException("连接已关闭");
+            }
+            line.append((char) c);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    private void writeReply(OutputStream out, Object reply) throws IOException {
+        if (reply == null) {
+            out.write("$-1\r\n".getBytes(RAW));
+        } else if (reply instanceof Status status) {
+            out.write(("+" + status.value + "\r\n").getBytes(RAW));
+        } else if (reply instanceof ErrorReply error) {
+            out.write(("-" + error.message + "\r\n").getBytes(RAW));
+        } else if (reply instanceof Long number) {
+            out.write((":" + number + "\r\n").getBytes(RAW));
+        } else if (reply instanceof String value) {
+            byte[] bytes = value.getBytes(RAW);
+            out.write(("$" + bytes.length + "\r\n").getBytes(RAW));
+            out.write(bytes);
+            out.write("\r\n".getBytes(RAW));
+        } else if (reply instanceof List<?> items) {
+            out.write(("*" + items.size() + "\r\n").getBytes(RAW));
+            for (Object item : items) {
+                writeReply(out, item);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            // 忽略
+        }
+    }
+
+    /** 有序集合：成员 -> 分数，与哈希区分类型 */
+    private static class ZSet extends HashMap<String, Double> {
+    }
+
+    private record Status(String value) {
+        static Status of(String value) {
+            return new Status(value);
+        }
+    }
+
+    private record ErrorReply(String message) {
+    }
+}
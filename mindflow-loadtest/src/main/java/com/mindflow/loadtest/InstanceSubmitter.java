@@ -0,0 +1,64 @@
+package com.mindflow.loadtest;
+
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.entity.WorkflowDefinition;
+import com.mindflow.common.entity.WorkflowDefinitionVersion;
+import com.mindflow.common.entity.WorkflowInstance;
+import com.mindflow.common.instance.WorkflowInstanceCreator;
+import com.mindflow.common.plan.WorkflowCompiler;
+import com.mindflow.common.util.JsonUtils;
+import com.mindflow.orchestrator.repository.WorkflowDefinitionRepository;
+import com.mindflow.orchestrator.repository.WorkflowDefinitionVersionRepository;
+import org.springframework.context.ApplicationContext;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 代替 API 服务提交实例：与 WorkflowService.createWorkflowInstance 共用 {@link WorkflowInstanceCreator}，
+ * 事务提交后发送 mindflow-workflow-created
+ */
+public class InstanceSubmitter {
+    private final WorkflowDefinitionRepository workflowDefinitionRepository;
+    private final WorkflowDefinitionVersionRepository workflowDefinitionVersionRepository;
+    private final WorkflowInstanceCreator workflowInstanceCreator;
+    private final TransactionTemplate transactionTemplate;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final boolean lazyNodes;
+
+    @SuppressWarnings("unchecked")
+    public InstanceSubmitter(ApplicationContext context, boolean lazyNodes) {
+        this.lazyNodes = lazyNodes;
+        this.workflowDefinitionRepository = context.getBean(WorkflowDefinitionRepository.class);
+        this.workflowDefinitionVersionRepository = context.getBean(WorkflowDefinitionVersionRepository.class);
+        this.workflowInstanceCreator = context.getAutowireCapableBeanFactory().createBean(WorkflowInstanceCreator.class);
+        this.transactionTemplate = context.getBean(TransactionTemplate.class);
+        this.kafkaTemplate = context.getBean(KafkaTemplate.class);
+    }
+
+    public WorkflowDefinition createDefinition(String name, WorkflowDefinitionDTO.WorkflowConfig config) {
+        return transactionTemplate.execute(status -> {
+            WorkflowDefinition definition = new WorkflowDefinition();
+            definition.setName(name);
+            definition.setDescription("压测生成");
+            definition.setConfig(JsonUtils.toJson(config));
+            definition = workflowDefinitionRepository.save(definition);
+
+            WorkflowDefinitionVersion version = new WorkflowDefinitionVersion();
+            version.setWorkflowDefinitionId(definition.getId());
+            version.setVersionNumber(1);
+            version.setConfig(definition.getConfig());
+            version.setExecutionPlan(WorkflowCompiler.compile(config, null).encode());
+            version = workflowDefinitionVersionRepository.save(version);
+            definition.setCurrentVersionId(version.getId());
+            return workflowDefinitionRepository.save(definition);
+        });
+    }
+
+    public Long submit(WorkflowDefinition definition, String input) throws Exception {
+        WorkflowInstance instance = transactionTemplate.execute(
+                status -> workflowInstanceCreator.create(definition, input, lazyNodes));
+        kafkaTemplate.send(WorkflowInstanceCreator.WORKFLOW_CREATED_TOPIC, String.valueOf(instance.getId()),
+                JsonUtils.toJson(WorkflowInstanceCreator.createdEvent(instance))).get();
+        return instance.getId();
+    }
+}
@@ -0,0 +1,58 @@
+package com.mindflow.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 节点耗时分布（毫秒）：
+ * fixed:10 / uniform:5-20 / exp:20（均值）/ lognormal:20:0.5（中位数:sigma）
+ */
+public abstract class LatencyDistribution {
+
+    public abstract long sample();
+
+    public static LatencyDistribution parse(String spec) {
+        String[] parts = spec.split(":");
+        switch (parts[0]) {
+            case "fixed" -> {
+                long millis = Long.parseLong(parts[1]);
+                return new LatencyDistribution() {
+                    @Override
+                    public long sample() {
+                        return millis;
+                    }
+                };
+            }
+            case "uniform" -> {
+                String[] range = parts[1].split("-");
+                long min = Long.parseLong(range[0]);
+                long max = Long.parseLong(range[1]);
+                return new LatencyDistribution() {
+                    @Override
+                    public long sample() {
+                        return ThreadLocalRandom.current().nextLong(min, max + 1);
+                    }
+                };
+            }
+            case "exp" -> {
+                double mean = Double.parseDouble(parts[1]);
+                return new LatencyDistribution() {
+                    @Override
+                    public long sample() {
+                        return Math.round(-mean * Math.log(1 - ThreadLocalRandom.current().nextDouble()));
+                    }
+                };
+            }
+            case "lognormal" -> {
+                double mu = Math.log(Double.parseDouble(parts[1]));
+                double sigma = Double.parseDouble(parts[2]);
+                return new LatencyDistribution() {
+                    @Override
+                    public long sample() {
+                        return Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+                    }
+                };
+            }
+            default -> throw new IllegalArgumentException("不支持的耗时分布: " + spec);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.mindflow.loadtest;
+
+import com.mindflow.common.entity.WorkflowDefinition;
+import com.mindflow.common.metrics.LatencySketch;
+import com.mindflow.common.util.JsonUtils;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 按目标速率开环提交实例，监听 mindflow-status-updates 上的终态事件记录完成延迟
+ *
+ * 延迟从计划提交时刻算起，提交线程跟不上时排队的时间也计入，避免协调遗漏（coordinated omission）。
+ */
+public class LoadDriver implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LoadDriver.class);
+    private static final String STATUS_UPDATE_TOPIC = "mindflow-status-updates";
+    private static final Set<String> TERMINAL_STATUSES = Set.of("SUCCESS", "FAILED", "TERMINATED");
+
+    private final InstanceSubmitter submitter;
+    private final LoadTestOptions options;
+    private final KafkaConsumer<String, String> consumer;
+    private final Thread listener;
+    private volatile boolean running = true;
+
+    /** 实例 ID -> 计划提交时刻（nanoTime） */
+    private final Map<Long, Long> inFlight = new ConcurrentHashMap<>();
+    /** 提交完成前就收到终态的实例（极快的工作流） */
+    private final Map<Long, Long> earlyCompletions = new ConcurrentHashMap<>();
+    private Phase phase;
+
+    public LoadDriver(PipelineCluster cluster, InstanceSubmitter submitter, LoadTestOptions options) {
+        this.submitter = submitter;
+        this.options = options;
+
+        Properties props = new Properties();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, cluster.getBootstrapServers());
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "mindflow-loadtest-" + UUID.randomUUID());
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        this.consumer = new KafkaConsumer<>(props);
+        this.consumer.subscribe(List.of(STATUS_UPDATE_TOPIC));
+        // 等到分区分配完成再开始提交，否则最早的终态事件会被 latest 跳过
+        while (consumer.assignment().isEmpty()) {
+            consumer.poll(Duration.ofMillis(100));
+        }
+
+        this.listener = new Thread(this::listen, "mindflow-loadtest-listener");
+        this.listener.setDaemon(true);
+        this.listener.start();
+    }
+
+    /**
+     * 执行一轮压测，返回该轮的统计
+     */
+    public Phase run(WorkflowDefinition definition, int instances) throws InterruptedException {
+        Phase current = new Phase(instances);
+        this.phase = current;
+        inFlight.clear();
+        earlyCompletions.clear();
+
+        ExecutorService pool = Executors.newFixedThreadPool(options.getSubmitters());
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / options.getRate());
+        long start = System.nanoTime();
+        current.startNanos = start;
+        for (int i = 0; i < instances; i++) {
+            long intended = start + i * interval;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            pool.execute(() -> submitOne(current, definition, intended));
+        }
+        pool.shutdown();
+        pool.awaitTermination(options.getTimeoutSeconds(), TimeUnit.SECONDS);
+        current.submitEndNanos = System.nanoTime();
+
+        if (!current.done.await(options.getTimeoutSeconds(), TimeUnit.SECONDS)) {
+            logger.warn("等待超时，仍有 {} 个实例未完成", inFlight.size());
+        }
+        current.endNanos = System.nanoTime();
+        current.timedOut = inFlight.size();
+        return current;
+    }
+
+    private void submitOne(Phase current, WorkflowDefinition definition, long intended) {
+        long begin = System.nanoTime();
+        try {
+            Long instanceId = submitter.submit(definition, "{}");
+            current.submitLatency.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin));
+            current.instanceIds.add(instanceId);
+            Long completedAt = earlyCompletions.remove(instanceId);
+            if (completedAt != null) {
+                complete(current, intended, completedAt, true);
+            } else {
+                inFlight.put(instanceId, intended);
+                // 提交与监听线程之间的竞争：再检查一次
+                completedAt = earlyCompletions.remove(instanceId);
+                if (completedAt != null && inFlight.remove(instanceId) != null) {
+                    complete(current, intended, completedAt, true);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("提交实例失败", e);
+            current.submitErrors.incrementAndGet();
+            current.done.countDown();
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try {
+                for (ConsumerRecord<String, String> record : consumer.poll(Duration.ofMillis(100))) {
+                    Map<String, Object> update = JsonUtils.fromJson(record.value(), Map.class);
+                    String status = (String) update.get("status");
+                    if (!TERMINAL_STATUSES.contains(status) || update.get("workflowInstanceId") == null) {
+                        continue;
+                    }
+                    long now = System.nanoTime();
+                    Long instanceId = ((Number) update.get("workflowInstanceId")).longValue();
+                    Long intended = inFlight.remove(instanceId);
+                    Phase current = phase;
+                    if (intended != null && current != null) {
+                        complete(current, intended, now, "SUCCESS".equals(status));
+                    } else if (current != null) {
+                        earlyCompletions.put(instanceId, now);
+                    }
+                }
+            } catch (Exception e) {
+                if (running) {
+                    logger.error("监听状态更新失败", e);
+                }
+            }
+        }
+        consumer.close();
+    }
+
+    private void complete(Phase current, long intended, long completedAt, boolean success) {
+        current.completionLatency.add(TimeUnit.NANOSECONDS.toMillis(completedAt - intended));
+        if (success) {
+            current.succeeded.incrementAndGet();
+        } else {
+            current.failed.incrementAndGet();
+        }
+        current.lastCompletionNanos = Math.max(current.lastCompletionNanos, completedAt);
+        current.done.countDown();
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        listener.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * 单轮压测的原始统计
+     */
+    public static class Phase {
+        final int instances;
+        final CountDownLatch done;
+        final Set<Long> instanceIds = ConcurrentHashMap.newKeySet();
+        final LatencySketch completionLatency = new SynchronizedSketch();
+        final LatencySketch submitLatency = new SynchronizedSketch();
+        final AtomicInteger succeeded = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger submitErrors = new AtomicInteger();
+        volatile long startNanos;
+        volatile long submitEndNanos;
+        volatile long lastCompletionNanos;
+        volatile long endNanos;
+        volatile int timedOut;
+
+        Phase(int instances) {
+            this.instances = instances;
+            this.done = new CountDownLatch(instances);
+        }
+    }
+
+    private static class SynchronizedSketch extends LatencySketch {
+        @Override
+        public synchronized void add(long millis) {
+            super.add(millis);
+        }
+
+        @Override
+        public synchronized long quantile(double q) {
+            return super.quantile(q);
+        }
+    }
+}
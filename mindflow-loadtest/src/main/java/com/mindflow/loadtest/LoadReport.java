@@ -0,0 +1,166 @@
+package com.mindflow.loadtest;
+
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.entity.NodeInstance;
+import com.mindflow.common.metrics.LatencySketch;
+import com.mindflow.common.util.JsonUtils;
+import com.mindflow.orchestrator.repository.NodeInstanceRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 汇总单轮压测结果：吞吐、完成延迟、节点间跳转延迟、每实例的数据库语句数和 Kafka 收发次数
+ */
+public class LoadReport {
+    private final Map<String, Object> report = new LinkedHashMap<>();
+
+    public LoadReport(LoadTestOptions options, WorkflowDefinitionDTO.WorkflowConfig config, LoadDriver.Phase phase,
+                      NodeInstanceRepository nodeInstanceRepository,
+                      long dbStatements, long kafkaSends, long kafkaReceives) {
+        int completed = phase.succeeded.get() + phase.failed.get();
+        double elapsedSeconds = (Math.max(phase.lastCompletionNanos, phase.submitEndNanos) - phase.startNanos) / 1e9;
+        double submitSeconds = (phase.submitEndNanos - phase.startNanos) / 1e9;
+
+        report.put("options", options.toMap());
+        report.put("workflow", Map.of(
+                "nodes", config.getNodes().size(),
+                "edges", config.getEdges() != null ? config.getEdges().size() : 0));
+
+        Map<String, Object> counts = new LinkedHashMap<>();
+        counts.put("submitted", phase.instanceIds.size());
+        counts.put("succeeded", phase.succeeded.get());
+        counts.put("failed", phase.failed.get());
+        counts.put("submitErrors", phase.submitErrors.get());
+        counts.put("timedOut", phase.timedOut);
+        report.put("instances", counts);
+
+        Map<String, Object> throughput = new LinkedHashMap<>();
+        throughput.put("elapsedSeconds", round(elapsedSeconds));
+        throughput.put("submittedPerSecond", round(phase.instanceIds.size() / submitSeconds));
+        throughput.put("completedPerSecond", round(completed / elapsedSeconds));
+        throughput.put("nodesPerSecond", round(completed * config.getNodes().size() / elapsedSeconds));
+        report.put("throughput", throughput);
+
+        report.put("completionLatencyMs", percentiles(phase.completionLatency));
+        report.put("submitLatencyMs", percentiles(phase.submitLatency));
+        analyzeNodes(config, phase, nodeInstanceRepository);
+
+        int base = Math.max(1, phase.instanceIds.size());
+        Map<String, Object> operations = new LinkedHashMap<>();
+        operations.put("dbStatements", dbStatements);
+        operations.put("dbStatementsPerInstance", round((double) dbStatements / base));
+        operations.put("kafkaSends", kafkaSends);
+        operations.put("kafkaSendsPerInstance", round((double) kafkaSends / base));
+        operations.put("kafkaReceives", kafkaReceives);
+        operations.put("kafkaReceivesPerInstance", round((double) kafkaReceives / base));
+        report.put("operations", operations);
+    }
+
+    /**
+     * 从节点实例时间戳计算跳转延迟（上游最晚结束 -> 下游派发）、排队等待和执行耗时
+     */
+    private void analyzeNodes(WorkflowDefinitionDTO.WorkflowConfig config, LoadDriver.Phase phase,
+                              NodeInstanceRepository nodeInstanceRepository) {
+        Map<String, List<String>> upstream = new HashMap<>();
+        if (config.getEdges() != null) {
+            for (WorkflowDefinitionDTO.EdgeConfig edge : config.getEdges()) {
+                upstream.computeIfAbsent(edge.getTarget(), k -> new ArrayList<>()).add(edge.getSource());
+            }
+        }
+
+        LatencySketch hop = new LatencySketch();
+        LatencySketch queueWait = new LatencySketch();
+        LatencySketch execution = new LatencySketch();
+        for (Long instanceId : phase.instanceIds) {
+            Map<String, NodeInstance> nodes = new HashMap<>();
+            for (NodeInstance node : nodeInstanceRepository.findByWorkflowInstanceId(instanceId)) {
+                nodes.put(node.getNodeId(), node);
+            }
+            for (NodeInstance node : nodes.values()) {
+                if (node.getExecuteTime() != null && node.getStartTime() != null) {
+                    queueWait.add(millis(node.getStartTime(), node.getExecuteTime()));
+                    if (node.getEndTime() != null) {
+                        execution.add(millis(node.getExecuteTime(), node.getEndTime()));
+                    }
+                }
+                LocalDateTime ready = null;
+                for (String source : upstream.getOrDefault(node.getNodeId(), List.of())) {
+                    NodeInstance parent = nodes.get(source);
+                    if (parent == null || parent.getEndTime() == null) {
+                        ready = null;
+                        break;
+                    }
+                    if (ready == null || parent.getEndTime().isAfter(ready)) {
+                        ready = parent.getEndTime();
+                    }
+                }
+                if (ready != null && node.getStartTime() != null) {
+                    hop.add(millis(ready, node.getStartTime()));
+                }
+            }
+        }
+        report.put("nodeHopLatencyMs", percentiles(hop));
+        report.put("queueWaitMs", percentiles(queueWait));
+        report.put("executionMs", percentiles(execution));
+    }
+
+    public void write(Path path) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Files.writeString(path, JsonUtils.toJson(report));
+    }
+
+    public String summary() {
+        Map<String, Object> throughput = (Map<String, Object>) report.get("throughput");
+        Map<String, Object> completion = (Map<String, Object>) report.get("completionLatencyMs");
+        Map<String, Object> hop = (Map<String, Object>) report.get("nodeHopLatencyMs");
+        Map<String, Object> operations = (Map<String, Object>) report.get("operations");
+        return String.format("""
+                        ===== MindFlow 压测报告 =====
+                        参数        %s
+                        实例        %s
+                        吞吐        %s 实例/秒（%s 节点/秒），耗时 %s 秒
+                        完成延迟    p50=%sms p95=%sms p99=%sms max=%sms
+                        节点跳转    p50=%sms p95=%sms p99=%sms
+                        排队等待    %s
+                        执行耗时    %s
+                        数据库语句  %s 条/实例
+                        Kafka       发送 %s 次/实例，消费 %s 次/实例
+                        """,
+                report.get("options"), report.get("instances"),
+                throughput.get("completedPerSecond"), throughput.get("nodesPerSecond"), throughput.get("elapsedSeconds"),
+                completion.get("p50"), completion.get("p95"), completion.get("p99"), completion.get("max"),
+                hop.get("p50"), hop.get("p95"), hop.get("p99"),
+                report.get("queueWaitMs"), report.get("executionMs"),
+                operations.get("dbStatementsPerInstance"),
+                operations.get("kafkaSendsPerInstance"), operations.get("kafkaReceivesPerInstance"));
+    }
+
+    private Map<String, Object> percentiles(LatencySketch sketch) {
+        Map<String, Object> p = new LinkedHashMap<>();
+        p.put("count", sketch.getCount());
+        p.put("p50", sketch.quantile(0.50));
+        p.put("p95", sketch.quantile(0.95));
+        p.put("p99", sketch.quantile(0.99));
+        p.put("max", sketch.quantile(1.0));
+        return p;
+    }
+
+    private long millis(LocalDateTime from, LocalDateTime to) {
+        return Math.max(0, Duration.between(from, to).toMillis());
+    }
+
+    private double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,55 @@
+package com.mindflow.loadtest;
+
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.entity.WorkflowDefinition;
+import com.mindflow.common.metrics.DbStatementCounter;
+import com.mindflow.orchestrator.repository.NodeInstanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+
+/**
+ * 端到端压测入口
+ *
+ * mvn -pl mindflow-loadtest -am install -DskipTests
+ * mvn -pl mindflow-loadtest exec:java -Dexec.args="--shape=diamond --nodes=3 --instances=1000 --rate=100 --latency=exp:20"
+ */
+public class LoadTestApplication {
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestApplication.class);
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        WorkflowDefinitionDTO.WorkflowConfig config = WorkflowConfigGenerator.generate(options);
+
+        try (PipelineCluster cluster = new PipelineCluster()) {
+            cluster.start();
+            InstanceSubmitter submitter = new InstanceSubmitter(cluster.getOrchestrator(), options.isLazyNodes());
+            WorkflowDefinition definition = submitter.createDefinition(
+                    "loadtest-" + options.getShape() + "-" + options.getNodes(), config);
+
+            try (LoadDriver driver = new LoadDriver(cluster, submitter, options)) {
+                if (options.getWarmup() > 0) {
+                    logger.info("预热: {} 个实例", options.getWarmup());
+                    driver.run(definition, options.getWarmup());
+                }
+
+                long dbBefore = DbStatementCounter.total();
+                long sendsBefore = cluster.kafkaSends();
+                long receivesBefore = cluster.kafkaReceives();
+                logger.info("开始压测: {}", options.toMap());
+                LoadDriver.Phase phase = driver.run(definition, options.getInstances());
+
+                LoadReport report = new LoadReport(options, config, phase,
+                        cluster.getOrchestrator().getBean(NodeInstanceRepository.class),
+                        DbStatementCounter.total() - dbBefore,
+                        cluster.kafkaSends() - sendsBefore,
+                        cluster.kafkaReceives() - receivesBefore);
+                report.write(Path.of(options.getReport()));
+                System.out.println(report.summary());
+                logger.info("报告已写入: {}", options.getReport());
+            }
+        }
+        System.exit(0);
+    }
+}
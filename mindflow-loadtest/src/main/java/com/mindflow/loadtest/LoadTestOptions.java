@@ -0,0 +1,159 @@
+package com.mindflow.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 压测参数，命令行形如 --shape=diamond --nodes=4 --instances=1000 --rate=50 --latency=exp:20
+ */
+public class LoadTestOptions {
+    /** 工作流形状：chain / diamond / fanout / random / map */
+    private String shape = "chain";
+
+    /** chain/random 为节点数，diamond 为串联的菱形个数，fanout 为并行分支数，map 为每个实例拆分的元素数 */
+    private int nodes = 5;
+
+    /** map 形状中每个 map 节点同时在途的子任务数 */
+    private int mapConcurrency = 8;
+
+    /** random 形状中额外连边的概率 */
+    private double edgeProbability = 0.3;
+
+    /** 每个节点的耗时分布，见 LatencyDistribution */
+    private String latency = "fixed:10";
+
+    /** 正式压测提交的实例数 */
+    private int instances = 500;
+
+    /** 预热实例数，不计入报告 */
+    private int warmup = 50;
+
+    /** 目标提交速率（实例/秒） */
+    private double rate = 50;
+
+    /** 并发提交线程数 */
+    private int submitters = 8;
+
+    /** 提交结束后等待全部实例完成的最长时间（秒） */
+    private int timeoutSeconds = 300;
+
+    private long seed = 42;
+
+    /** 延迟创建节点行（mindflow.instance.lazy-nodes） */
+    private boolean lazyNodes = false;
+
+    /** 实例状态存储（定义配置 stateStore）：mysql / redis / memory */
+    private String stateStore = "mysql";
+
+    /** 报告输出路径（JSON） */
+    private String report = "target/loadtest-report.json";
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("参数格式应为 --key=value: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        LoadTestOptions options = new LoadTestOptions();
+        options.shape = values.getOrDefault("shape", options.shape);
+        options.nodes = Integer.parseInt(values.getOrDefault("nodes", String.valueOf(options.nodes)));
+        options.edgeProbability = Double.parseDouble(
+                values.getOrDefault("edge-probability", String.valueOf(options.edgeProbability)));
+        options.mapConcurrency = Integer.parseInt(
+                values.getOrDefault("map-concurrency", String.valueOf(options.mapConcurrency)));
+        options.latency = values.getOrDefault("latency", options.latency);
+        options.instances = Integer.parseInt(values.getOrDefault("instances", String.valueOf(options.instances)));
+        options.warmup = Integer.parseInt(values.getOrDefault("warmup", String.valueOf(options.warmup)));
+        options.rate = Double.parseDouble(values.getOrDefault("rate", String.valueOf(options.rate)));
+        options.submitters = Integer.parseInt(values.getOrDefault("submitters", String.valueOf(options.submitters)));
+        options.timeoutSeconds = Integer.parseInt(values.getOrDefault("timeout", String.valueOf(options.timeoutSeconds)));
+        options.seed = Long.parseLong(values.getOrDefault("seed", String.valueOf(options.seed)));
+        options.report = values.getOrDefault("report", options.report);
+        options.lazyNodes = Boolean.parseBoolean(values.getOrDefault("lazy-nodes", String.valueOf(options.lazyNodes)));
+        options.stateStore = values.getOrDefault("state-store", options.stateStore);
+        // 提前校验耗时分布格式
+        LatencyDistribution.parse(options.latency);
+        return options;
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new java.util.LinkedHashMap<>();
+        map.put("shape", shape);
+        map.put("nodes", nodes);
+        if ("random".equals(shape)) {
+            map.put("edgeProbability", edgeProbability);
+        }
+        if ("map".equals(shape)) {
+            map.put("mapConcurrency", mapConcurrency);
+        }
+        map.put("latency", latency);
+        map.put("instances", instances);
+        map.put("warmup", warmup);
+        map.put("rate", rate);
+        map.put("submitters", submitters);
+        map.put("seed", seed);
+        map.put("lazyNodes", lazyNodes);
+        map.put("stateStore", stateStore);
+        return map;
+    }
+
+    public String getShape() {
+        return shape;
+    }
+
+    public int getNodes() {
+        return nodes;
+    }
+
+    public double getEdgeProbability() {
+        return edgeProbability;
+    }
+
+    public int getMapConcurrency() {
+        return mapConcurrency;
+    }
+
+    public String getLatency() {
+        return latency;
+    }
+
+    public int getInstances() {
+        return instances;
+    }
+
+    public int getWarmup() {
+        return warmup;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public int getSubmitters() {
+        return submitters;
+    }
+
+    public int getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public boolean isLazyNodes() {
+        return lazyNodes;
+    }
+
+    public String getStateStore() {
+        return stateStore;
+    }
+
+    public String getReport() {
+        return report;
+    }
+}
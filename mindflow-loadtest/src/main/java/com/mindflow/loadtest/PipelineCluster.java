@@ -0,0 +1,109 @@
+package com.mindflow.loadtest;
+
+import com.mindflow.common.state.InMemoryStateStore;
+import com.mindflow.orchestrator.OrchestratorApplication;
+import com.mindflow.worker.WorkerApplication;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * 单进程内的完整流水线：内嵌 Kafka、内存 H2、内嵌 Redis 替身（见 {@link EmbeddedRedis}），
+ * 编排器和 worker 各自一个 Spring 上下文，两者共享同一个 {@link InMemoryStateStore}，定义配置 stateStore 为 memory 时使用
+ *
+ * 两个模块的 application.yml 在同一 classpath 上会互相覆盖，因此通过 spring.config.name
+ * 分别加载 loadtest-orchestrator.yml / loadtest-worker.yml。
+ */
+public class PipelineCluster implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineCluster.class);
+    private static final String[] TOPICS = {
+            "mindflow-workflow-created", "mindflow-tasks", "mindflow-tasks-deferred", "mindflow-node-completed",
+            "mindflow-status-updates", "mindflow-node-progress"
+    };
+    private static final int PARTITIONS = 8;
+    private static final String DATASOURCE_URL = "jdbc:h2:mem:mindflow;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private final EmbeddedKafkaKraftBroker broker;
+    private final EmbeddedRedis redis;
+    private final InMemoryStateStore stateStore = new InMemoryStateStore();
+    private ConfigurableApplicationContext orchestrator;
+    private ConfigurableApplicationContext worker;
+
+    public PipelineCluster() throws IOException {
+        this.broker = new EmbeddedKafkaKraftBroker(1, PARTITIONS, TOPICS);
+        this.redis = new EmbeddedRedis();
+    }
+
+    public void start() {
+        broker.afterPropertiesSet();
+        redis.start();
+        logger.info("内嵌 Kafka 已启动: {}", getBootstrapServers());
+        // 依次启动，避免两个上下文同时执行 ddl-auto
+        orchestrator = startContext(OrchestratorApplication.class, "loadtest-orchestrator");
+        worker = startContext(WorkerApplication.class, "loadtest-worker");
+        logger.info("编排器和 worker 已启动");
+    }
+
+    private ConfigurableApplicationContext startContext(Class<?> application, String configName) {
+        return new SpringApplicationBuilder(application)
+                .web(WebApplicationType.NONE)
+                .initializers(context -> context.getBeanFactory().registerSingleton("inMemoryStateStore", stateStore))
+                .run("--spring.config.name=" + configName,
+                        "--spring.kafka.bootstrap-servers=" + getBootstrapServers(),
+                        "--spring.datasource.url=" + DATASOURCE_URL,
+                        "--spring.data.redis.host=127.0.0.1",
+                        "--spring.data.redis.port=" + redis.getPort());
+    }
+
+    public String getBootstrapServers() {
+        return broker.getBrokersAsString();
+    }
+
+    public ConfigurableApplicationContext getOrchestrator() {
+        return orchestrator;
+    }
+
+    /**
+     * 两个上下文中 KafkaTemplate 发送次数之和
+     */
+    public long kafkaSends() {
+        return timerCount("spring.kafka.template");
+    }
+
+    /**
+     * 两个上下文中监听器处理的消息数之和
+     */
+    public long kafkaReceives() {
+        return timerCount("spring.kafka.listener");
+    }
+
+    private long timerCount(String name) {
+        long count = 0;
+        for (ConfigurableApplicationContext context : List.of(orchestrator, worker)) {
+            for (Timer timer : context.getBean(MeterRegistry.class).find(name).timers()) {
+                count += timer.count();
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() {
+        if (worker != null) {
+            worker.close();
+        }
+        if (orchestrator != null) {
+            orchestrator.close();
+        }
+        broker.destroy();
+        redis.close();
+    }
+}
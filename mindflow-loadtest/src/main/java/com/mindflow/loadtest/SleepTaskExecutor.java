@@ -0,0 +1,47 @@
+package com.mindflow.loadtest;
+
+import com.mindflow.common.dto.TaskMessage;
+import com.mindflow.plugin.TaskExecutor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 压测用执行器：按节点配置中的 latency 分布休眠后返回成功，不做其他工作。通过 SPI 注册到 PluginManager
+ *
+ * 配置了 items 时输出中附带同样个数的元素，供下游 map 节点拆分
+ */
+public class SleepTaskExecutor implements TaskExecutor {
+    private final Map<String, LatencyDistribution> distributions = new ConcurrentHashMap<>();
+
+    @Override
+    public String getType() {
+        return "sleep";
+    }
+
+    @Override
+    public Map<String, Object> execute(TaskMessage taskMessage) throws Exception {
+        Map<String, Object> nodeConfig = taskMessage.getNodeConfig();
+        String spec = nodeConfig != null && nodeConfig.get("latency") instanceof String s ? s : "fixed:0";
+        long millis = distributions.computeIfAbsent(spec, LatencyDistribution::parse).sample();
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("output", taskMessage.getNodeId());
+        result.put("status", "SUCCESS");
+        result.put("sleptMs", millis);
+        if (nodeConfig != null && nodeConfig.get("items") instanceof Number items) {
+            List<Integer> values = new ArrayList<>(items.intValue());
+            for (int i = 0; i < items.intValue(); i++) {
+                values.add(i);
+            }
+            result.put("items", values);
+        }
+        return result;
+    }
+}
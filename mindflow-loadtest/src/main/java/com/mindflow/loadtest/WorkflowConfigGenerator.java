@@ -0,0 +1,156 @@
+package com.mindflow.loadtest;
+
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 生成压测用的工作流配置，除 map 形状中的 map / reduce 节点外都是 sleep 类型
+ */
+public class WorkflowConfigGenerator {
+    private final String latency;
+    private final List<WorkflowDefinitionDTO.NodeConfig> nodes = new ArrayList<>();
+    private final List<WorkflowDefinitionDTO.EdgeConfig> edges = new ArrayList<>();
+
+    private WorkflowConfigGenerator(String latency) {
+        this.latency = latency;
+    }
+
+    public static WorkflowDefinitionDTO.WorkflowConfig generate(LoadTestOptions options) {
+        WorkflowConfigGenerator generator = new WorkflowConfigGenerator(options.getLatency());
+        switch (options.getShape()) {
+            case "chain" -> generator.chain(options.getNodes());
+            case "diamond" -> generator.diamonds(options.getNodes());
+            case "fanout" -> generator.fanOut(options.getNodes());
+            case "random" -> generator.random(options.getNodes(), options.getEdgeProbability(), options.getSeed());
+            case "map" -> generator.map(options.getNodes(), options.getMapConcurrency());
+            default -> throw new IllegalArgumentException("不支持的工作流形状: " + options.getShape());
+        }
+        WorkflowDefinitionDTO.WorkflowConfig config = new WorkflowDefinitionDTO.WorkflowConfig();
+        config.setNodes(generator.nodes);
+        config.setEdges(generator.edges);
+        config.setStateStore(options.getStateStore());
+        return config;
+    }
+
+    /**
+     * n1 -> n2 -> ... -> nN
+     */
+    private void chain(int count) {
+        String previous = null;
+        for (int i = 1; i <= count; i++) {
+            String id = node("n" + i);
+            if (previous != null) {
+                edge(previous, id);
+            }
+            previous = id;
+        }
+    }
+
+    /**
+     * 串联 depth 个菱形：每个菱形一分为二再汇合，节点数 1 + 3 * depth
+     */
+    private void diamonds(int depth) {
+        String join = node("d0");
+        for (int i = 1; i <= depth; i++) {
+            String left = node("d" + i + "l");
+            String right = node("d" + i + "r");
+            String next = node("d" + i);
+            edge(join, left);
+            edge(join, right);
+            edge(left, next);
+            edge(right, next);
+            join = next;
+        }
+    }
+
+    /**
+     * 一个入口扇出 width 个并行分支，再汇合到一个出口
+     */
+    private void fanOut(int width) {
+        String source = node("source");
+        String sink = node("sink");
+        for (int i = 1; i <= width; i++) {
+            String branch = node("b" + i);
+            edge(source, branch);
+            edge(branch, sink);
+        }
+    }
+
+    /**
+     * 随机 DAG：节点按编号拓扑有序，每个非入口节点至少有一条来自更小编号节点的入边
+     */
+    private void random(int count, double edgeProbability, long seed) {
+        Random random = new Random(seed);
+        List<String> ids = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            String id = node("r" + i);
+            if (!ids.isEmpty()) {
+                int parent = random.nextInt(ids.size());
+                edge(ids.get(parent), id);
+                for (int j = 0; j < ids.size(); j++) {
+                    if (j != parent && random.nextDouble() < edgeProbability) {
+                        edge(ids.get(j), id);
+                    }
+                }
+            }
+            ids.add(id);
+        }
+    }
+
+    /**
+     * source 输出 items 个元素 -> map 节点逐个以 sleep 子任务处理 -> reduce 计数
+     */
+    private void map(int items, int maxConcurrency) {
+        String source = node("source");
+        nodes.get(nodes.size() - 1).getConfig().put("items", items);
+
+        WorkflowDefinitionDTO.NodeConfig map = new WorkflowDefinitionDTO.NodeConfig();
+        map.setId("map");
+        map.setType("map");
+        map.setName("map");
+        Map<String, Object> task = new HashMap<>();
+        task.put("type", "sleep");
+        task.put("config", Map.of("latency", latency));
+        Map<String, Object> mapConfig = new HashMap<>();
+        mapConfig.put("itemsPath", "items");
+        mapConfig.put("maxConcurrency", maxConcurrency);
+        mapConfig.put("task", task);
+        map.setConfig(mapConfig);
+        nodes.add(map);
+
+        WorkflowDefinitionDTO.NodeConfig reduce = new WorkflowDefinitionDTO.NodeConfig();
+        reduce.setId("reduce");
+        reduce.setType("reduce");
+        reduce.setName("reduce");
+        reduce.setConfig(new HashMap<>(Map.of("operation", "count")));
+        nodes.add(reduce);
+
+        edge(source, "map");
+        edge("map", "reduce");
+    }
+
+    private String node(String id) {
+        WorkflowDefinitionDTO.NodeConfig node = new WorkflowDefinitionDTO.NodeConfig();
+        node.setId(id);
+        node.setType("sleep");
+        node.setName(id);
+        Map<String, Object> config = new HashMap<>();
+        config.put("latency", latency);
+        node.setConfig(config);
+        nodes.add(node);
+        return id;
+    }
+
+    private void edge(String source, String target) {
+        WorkflowDefinitionDTO.EdgeConfig edge = new WorkflowDefinitionDTO.EdgeConfig();
+        edge.setId(source + "-" + target);
+        edge.setSource(source);
+        edge.setTarget(target);
+        edges.add(edge);
+    }
+}
@@ -1,13 +1,18 @@
 package com.mindflow.orchestrator;
 
+import com.mindflow.common.event.ExecutionEventLog;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EntityScan("com.mindflow.common.entity")
 @EnableJpaRepositories("com.mindflow.orchestrator.repository")
+@EnableScheduling
+@Import(ExecutionEventLog.class)
 public class OrchestratorApplication {
     public static void main(String[] args) {
         SpringApplication.run(OrchestratorApplication.class, args);
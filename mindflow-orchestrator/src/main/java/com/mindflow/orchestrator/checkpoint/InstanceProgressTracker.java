@@ -0,0 +1,223 @@
+package com.mindflow.orchestrator.checkpoint;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 实例最近推进时间：编排器每处理一个实例的事件就记录一次，实例结束时移除。
+ * 对账扫描据此跳过近期仍在推进的实例，不必为它们查询节点行。
+ *
+ * 内存状态定期写入本地快照文件，两次快照之间的每次变更追加到内存映射的日志文件（只写映射内存，没有系统调用）。
+ * 重启时加载快照并重放日志，重启后的第一轮对账同样可以跳过重启前仍在推进的实例。
+ * 文件只是加速用的缓存，丢失或损坏时退化为全部查库。
+ */
+@Component
+public class InstanceProgressTracker {
+    private static final Logger logger = LoggerFactory.getLogger(InstanceProgressTracker.class);
+
+    private static final String SNAPSHOT_FILE = "progress.snapshot";
+    private static final String JOURNAL_FILE = "progress.journal";
+    private static final int SNAPSHOT_MAGIC = 0x4D465031;
+    /** 日志记录：实例 ID + 推进时间（REMOVED 表示实例已结束），实例 ID 为 0 的位置即日志末尾 */
+    private static final int RECORD_SIZE = 16;
+    private static final long REMOVED = -1L;
+
+    @Value("${mindflow.checkpoint.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mindflow.checkpoint.dir:data/orchestrator}")
+    private String dir;
+
+    @Value("${mindflow.checkpoint.journal-size:64MB}")
+    private DataSize journalSize;
+
+    /** 早于停滞阈值的记录对对账没有帮助，写快照时淘汰 */
+    @Value("${mindflow.recovery.stall-after:5m}")
+    private Duration retention;
+
+    private final Map<Long, Long> lastProgress = new ConcurrentHashMap<>();
+
+    private MappedByteBuffer journal;
+    private int journalPosition;
+
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            Path base = Paths.get(dir);
+            Files.createDirectories(base);
+            readSnapshot(base.resolve(SNAPSHOT_FILE));
+            try (RandomAccessFile file = new RandomAccessFile(base.resolve(JOURNAL_FILE).toFile(), "rw");
+                 FileChannel channel = file.getChannel()) {
+                file.setLength(journalSize.toBytes() / RECORD_SIZE * RECORD_SIZE);
+                journal = channel.map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+            }
+            int replayed = replayJournal();
+            checkpoint();
+            logger.info("已加载实例推进检查点: 实例 {} 个, 重放日志 {} 条, 耗时 {}ms", lastProgress.size(), replayed,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            // 检查点不可用时只在内存中记录，对账全部查库
+            logger.warn("加载实例推进检查点失败，不再持久化: dir={}, error={}", dir, e.getMessage());
+            lastProgress.clear();
+            journal = null;
+        }
+    }
+
+    /**
+     * 记录实例在当前时刻有推进
+     */
+    public void touch(Long workflowInstanceId) {
+        long now = System.currentTimeMillis();
+        lastProgress.put(workflowInstanceId, now);
+        append(workflowInstanceId, now);
+    }
+
+    /**
+     * 实例已结束，不再需要对账
+     */
+    public void remove(Long workflowInstanceId) {
+        if (lastProgress.remove(workflowInstanceId) != null) {
+            append(workflowInstanceId, REMOVED);
+        }
+    }
+
+    /**
+     * 实例在 since 之后是否有过推进；没有记录时返回 false，由调用方查库判断
+     */
+    public boolean progressedSince(Long workflowInstanceId, LocalDateTime since) {
+        Long millis = lastProgress.get(workflowInstanceId);
+        return millis != null && millis > since.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private synchronized void append(long workflowInstanceId, long millis) {
+        if (journal == null) {
+            return;
+        }
+        if (journalPosition + RECORD_SIZE > journal.capacity()) {
+            // 日志写满时提前做一次快照
+            checkpoint();
+        }
+        // 先写时间再写实例 ID，读到非 0 的实例 ID 时该条记录已完整
+        journal.putLong(journalPosition + 8, millis);
+        journal.putLong(journalPosition, workflowInstanceId);
+        journalPosition += RECORD_SIZE;
+    }
+
+    /**
+     * 淘汰过期记录，写入新快照并清空日志
+     */
+    @Scheduled(initialDelayString = "${mindflow.checkpoint.interval:30000}",
+            fixedDelayString = "${mindflow.checkpoint.interval:30000}")
+    public synchronized void checkpoint() {
+        long expireBefore = System.currentTimeMillis() - retention.toMillis();
+        lastProgress.values().removeIf(millis -> millis < expireBefore);
+        if (journal == null) {
+            return;
+        }
+        try {
+            writeSnapshot(Paths.get(dir));
+        } catch (IOException e) {
+            logger.warn("写入实例推进快照失败: error={}", e.getMessage());
+            return;
+        }
+        // 快照已包含日志中的全部变更，即使清空日志前宕机，重放旧日志的结果也与快照一致
+        for (int i = 0; i < journalPosition; i += 8) {
+            journal.putLong(i, 0L);
+        }
+        journalPosition = 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        checkpoint();
+        if (journal != null) {
+            journal.force();
+        }
+    }
+
+    private void readSnapshot(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < 8 || buffer.getInt() != SNAPSHOT_MAGIC) {
+                logger.warn("实例推进快照格式不正确，忽略: {}", path);
+                return;
+            }
+            int count = buffer.getInt();
+            if (count < 0 || buffer.remaining() < (long) count * RECORD_SIZE) {
+                logger.warn("实例推进快照不完整，忽略: {}", path);
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                lastProgress.put(buffer.getLong(), buffer.getLong());
+            }
+        }
+    }
+
+    private void writeSnapshot(Path base) throws IOException {
+        Path tmp = base.resolve(SNAPSHOT_FILE + ".tmp");
+        Map<Long, Long> entries = Map.copyOf(lastProgress);
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    8L + (long) entries.size() * RECORD_SIZE);
+            buffer.putInt(SNAPSHOT_MAGIC);
+            buffer.putInt(entries.size());
+            entries.forEach((id, millis) -> {
+                buffer.putLong(id);
+                buffer.putLong(millis);
+            });
+            buffer.force();
+        }
+        Files.move(tmp, base.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private int replayJournal() {
+        int replayed = 0;
+        for (int position = 0; position + RECORD_SIZE <= journal.capacity(); position += RECORD_SIZE) {
+            long workflowInstanceId = journal.getLong(position);
+            if (workflowInstanceId == 0L) {
+                break;
+            }
+            long millis = journal.getLong(position + 8);
+            if (millis == REMOVED) {
+                lastProgress.remove(workflowInstanceId);
+            } else {
+                lastProgress.put(workflowInstanceId, millis);
+            }
+            replayed++;
+        }
+        journalPosition = replayed * RECORD_SIZE;
+        return replayed;
+    }
+}
@@ -0,0 +1,105 @@
+package com.mindflow.orchestrator.metrics;
+
+import com.mindflow.common.entity.NodeLatencyStats;
+import com.mindflow.common.metrics.LatencySketch;
+import com.mindflow.orchestrator.repository.NodeLatencyStatsRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 在内存中按 (定义, 节点) 累积排队/执行耗时草图，定期与库中的草图合并，不需要扫描历史节点实例
+ */
+@Component
+public class NodeLatencyAggregator {
+    private static final Logger logger = LoggerFactory.getLogger(NodeLatencyAggregator.class);
+
+    @Autowired
+    private NodeLatencyStatsRepository nodeLatencyStatsRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private Map<Key, Pending> pending = new HashMap<>();
+
+    public synchronized void record(Long workflowDefinitionId, String nodeId, Long queueWaitMs, Long executionMs) {
+        Pending p = pending.computeIfAbsent(new Key(workflowDefinitionId, nodeId), k -> new Pending());
+        if (queueWaitMs != null) {
+            p.queue.add(queueWaitMs);
+        }
+        if (executionMs != null) {
+            p.execution.add(executionMs);
+        }
+        p.samples++;
+    }
+
+    @Scheduled(fixedDelayString = "${mindflow.metrics.latency-flush-interval:10000}")
+    @PreDestroy
+    public void flush() {
+        Map<Key, Pending> batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new HashMap<>();
+        }
+        for (Map.Entry<Key, Pending> entry : batch.entrySet()) {
+            Key key = entry.getKey();
+            Pending p = entry.getValue();
+            try {
+                transactionTemplate.executeWithoutResult(status -> merge(key, p));
+            } catch (Exception e) {
+                // 唯一键冲突（另一实例刚插入）等情况放回下一轮重试
+                logger.warn("节点延迟统计落库失败，下次重试: definitionId={}, nodeId={}, error={}",
+                        key.workflowDefinitionId(), key.nodeId(), e.getMessage());
+                synchronized (this) {
+                    pending.merge(key, p, Pending::mergeFrom);
+                }
+            }
+        }
+    }
+
+    private void merge(Key key, Pending p) {
+        NodeLatencyStats stats = nodeLatencyStatsRepository
+                .findByWorkflowDefinitionIdAndNodeId(key.workflowDefinitionId(), key.nodeId())
+                .orElseGet(() -> {
+                    NodeLatencyStats created = new NodeLatencyStats();
+                    created.setWorkflowDefinitionId(key.workflowDefinitionId());
+                    created.setNodeId(key.nodeId());
+                    created.setSampleCount(0L);
+                    return created;
+                });
+        LatencySketch queue = LatencySketch.decode(stats.getQueueSketch());
+        LatencySketch execution = LatencySketch.decode(stats.getExecutionSketch());
+        queue.merge(p.queue);
+        execution.merge(p.execution);
+        stats.setQueueSketch(queue.encode());
+        stats.setExecutionSketch(execution.encode());
+        stats.setSampleCount(stats.getSampleCount() + p.samples);
+        nodeLatencyStatsRepository.save(stats);
+    }
+
+    private record Key(Long workflowDefinitionId, String nodeId) {
+    }
+
+    private static class Pending {
+        private final LatencySketch queue = new LatencySketch();
+        private final LatencySketch execution = new LatencySketch();
+        private long samples;
+
+        Pending mergeFrom(Pending other) {
+            queue.merge(other.queue);
+            execution.merge(other.execution);
+            samples += other.samples;
+            return this;
+        }
+    }
+}
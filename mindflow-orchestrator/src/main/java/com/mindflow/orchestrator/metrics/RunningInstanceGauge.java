@@ -0,0 +1,45 @@
+package com.mindflow.orchestrator.metrics;
+
+import com.mindflow.orchestrator.repository.WorkflowInstanceRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 运行中工作流实例数；定时刷新缓存值，避免每次抓取指标都查库
+ */
+@Component
+public class RunningInstanceGauge {
+    private static final Logger logger = LoggerFactory.getLogger(RunningInstanceGauge.class);
+
+    @Autowired
+    private WorkflowInstanceRepository workflowInstanceRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong runningInstances = new AtomicLong();
+
+    @PostConstruct
+    public void register() {
+        Gauge.builder("mindflow.instances.running", runningInstances, AtomicLong::get)
+                .description("运行中的工作流实例数")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${mindflow.metrics.running-instances-refresh:15000}")
+    public void refresh() {
+        try {
+            runningInstances.set(workflowInstanceRepository.countByStatus("RUNNING"));
+        } catch (Exception e) {
+            logger.warn("刷新运行中实例数失败: {}", e.getMessage());
+        }
+    }
+}
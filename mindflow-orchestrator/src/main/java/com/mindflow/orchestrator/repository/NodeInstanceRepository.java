@@ -1,13 +1,52 @@
 package com.mindflow.orchestrator.repository;
 
 import com.mindflow.common.entity.NodeInstance;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
+/**
+ * 对账扫描等批量查询；处理事件时的状态读取和迁移见 {@link com.mindflow.common.state.StateStore}
+ */
 @Repository
 public interface NodeInstanceRepository extends JpaRepository<NodeInstance, Long> {
     List<NodeInstance> findByWorkflowInstanceId(Long workflowInstanceId);
-}
 
+    List<NodeInstance> findByWorkflowInstanceIdIn(Collection<Long> workflowInstanceIds);
+
+    /**
+     * 按 (start_time, id) 翻页查询开始早于 cutoff 仍为 RUNNING 的节点，走 idx_node_status_start_time
+     */
+    @Query("select n from NodeInstance n where n.status = 'RUNNING' and n.startTime < :cutoff "
+            + "and n.nodeType not in :excludedTypes "
+            + "and (n.startTime > :afterTime or (n.startTime = :afterTime and n.id > :afterId)) "
+            + "order by n.startTime, n.id")
+    List<NodeInstance> findRunningStartedBefore(@Param("cutoff") LocalDateTime cutoff,
+                                                @Param("excludedTypes") Collection<String> excludedTypes,
+                                                @Param("afterTime") LocalDateTime afterTime,
+                                                @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * 同上，只查给定类型的节点（由编排器推进的 map / 子工作流节点）
+     */
+    @Query("select n from NodeInstance n where n.status = 'RUNNING' and n.startTime < :cutoff "
+            + "and n.nodeType in :types "
+            + "and (n.startTime > :afterTime or (n.startTime = :afterTime and n.id > :afterId)) "
+            + "order by n.startTime, n.id")
+    List<NodeInstance> findRunningOfTypesStartedBefore(@Param("cutoff") LocalDateTime cutoff,
+                                                       @Param("types") Collection<String> types,
+                                                       @Param("afterTime") LocalDateTime afterTime,
+                                                       @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * 实例中最近一次节点结束的时间，没有结束的节点时为 null
+     */
+    @Query("select max(n.endTime) from NodeInstance n where n.workflowInstanceId = :workflowInstanceId")
+    LocalDateTime findLastEndTime(@Param("workflowInstanceId") Long workflowInstanceId);
+}
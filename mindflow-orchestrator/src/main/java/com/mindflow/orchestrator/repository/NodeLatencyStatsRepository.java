@@ -0,0 +1,18 @@
+package com.mindflow.orchestrator.repository;
+
+import com.mindflow.common.entity.NodeLatencyStats;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface NodeLatencyStatsRepository extends JpaRepository<NodeLatencyStats, Long> {
+    /**
+     * 加行锁读取，多个编排器实例同时落库时按顺序合并
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<NodeLatencyStats> findByWorkflowDefinitionIdAndNodeId(Long workflowDefinitionId, String nodeId);
+}
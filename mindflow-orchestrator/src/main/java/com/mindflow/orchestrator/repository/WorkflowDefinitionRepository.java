@@ -2,6 +2,8 @@ package com.mindflow.orchestrator.repository;
 
 import com.mindflow.common.entity.WorkflowDefinition;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,5 +11,10 @@ import java.util.List;
 @Repository
 public interface WorkflowDefinitionRepository extends JpaRepository<WorkflowDefinition, Long> {
     List<WorkflowDefinition> findByStatus(String status);
-}
 
+    /**
+     * 只读取当前版本 ID，用于为新实例选择版本；定义不存在时返回空列表
+     */
+    @Query("select d.currentVersionId from WorkflowDefinition d where d.id = :id")
+    List<Long> findCurrentVersionIdById(@Param("id") Long id);
+}
@@ -0,0 +1,9 @@
+package com.mindflow.orchestrator.repository;
+
+import com.mindflow.common.entity.WorkflowDefinitionVersion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface WorkflowDefinitionVersionRepository extends JpaRepository<WorkflowDefinitionVersion, Long> {
+}
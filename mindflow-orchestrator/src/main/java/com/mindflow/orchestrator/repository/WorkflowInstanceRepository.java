@@ -1,13 +1,41 @@
 package com.mindflow.orchestrator.repository;
 
 import com.mindflow.common.entity.WorkflowInstance;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface WorkflowInstanceRepository extends JpaRepository<WorkflowInstance, Long> {
     List<WorkflowInstance> findByWorkflowDefinitionId(Long workflowDefinitionId);
-}
 
+    long countByStatus(String status);
+
+    /**
+     * 只读父实例 ID，不加载 input / output；顶层实例返回空
+     */
+    @Query("select w.parentInstanceId from WorkflowInstance w where w.id = :id")
+    Optional<Long> findParentInstanceIdById(@Param("id") Long id);
+
+    /**
+     * 子工作流节点启动的子实例，走 idx_parent_instance_id
+     */
+    List<WorkflowInstance> findByParentInstanceIdAndParentNodeInstanceId(Long parentInstanceId,
+                                                                         Long parentNodeInstanceId);
+
+    /**
+     * 按 (start_time, id) 翻页查询开始早于 cutoff 仍为 RUNNING 的实例，走 idx_instance_status_start_time
+     */
+    @Query("select w from WorkflowInstance w where w.status = 'RUNNING' and w.startTime < :cutoff "
+            + "and (w.startTime > :afterTime or (w.startTime = :afterTime and w.id > :afterId)) "
+            + "order by w.startTime, w.id")
+    List<WorkflowInstance> findRunningStartedBefore(@Param("cutoff") LocalDateTime cutoff,
+                                                    @Param("afterTime") LocalDateTime afterTime,
+                                                    @Param("afterId") Long afterId, Pageable pageable);
+}
@@ -0,0 +1,77 @@
+package com.mindflow.orchestrator.service;
+
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.util.JsonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.expression.MapAccessor;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.SimpleEvaluationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 边条件求值：条件为 SpEL 表达式，以上游节点输出为根对象。
+ * 输出是 JSON 对象时可直接按字段访问，如 {@code classification == 'X'}；
+ * 任何输出都可通过变量 {@code #output}（原始字符串）访问，如 {@code #output.contains('yes')}。
+ */
+@Component
+public class EdgeConditionEvaluator {
+    private static final Logger logger = LoggerFactory.getLogger(EdgeConditionEvaluator.class);
+
+    private final ExpressionParser parser = new SpelExpressionParser();
+
+    /** 解析后的表达式缓存，同一定义的条件在每次节点完成时都会重复求值 */
+    private final Map<String, Expression> expressionCache = new ConcurrentHashMap<>();
+
+    /**
+     * 边是否被选中：无条件的边总是选中，条件求值异常视为未选中
+     */
+    public boolean isTaken(WorkflowDefinitionDTO.EdgeConfig edge, String output) {
+        String condition = edge.getCondition();
+        if (condition == null || condition.isBlank()) {
+            return true;
+        }
+        try {
+            Expression expression = expressionCache.computeIfAbsent(condition, parser::parseExpression);
+            Boolean result = expression.getValue(createContext(output), parseOutput(output), Boolean.class);
+            return Boolean.TRUE.equals(result);
+        } catch (Exception e) {
+            logger.warn("边条件求值失败，按未选中处理: {} -> {}, condition={}, error={}",
+                    edge.getSource(), edge.getTarget(), condition, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 只读、不允许类型引用和构造器的上下文，条件来自用户定义
+     */
+    private EvaluationContext createContext(String output) {
+        EvaluationContext context = SimpleEvaluationContext
+                .forPropertyAccessors(new MapAccessor())
+                .withInstanceMethods()
+                .build();
+        context.setVariable("output", output);
+        return context;
+    }
+
+    private Object parseOutput(String output) {
+        if (output == null) {
+            return null;
+        }
+        String trimmed = output.trim();
+        if (trimmed.startsWith("{")) {
+            try {
+                return JsonUtils.fromJson(trimmed, Map.class);
+            } catch (Exception e) {
+                // 不是合法 JSON，按原始字符串处理
+            }
+        }
+        return output;
+    }
+}
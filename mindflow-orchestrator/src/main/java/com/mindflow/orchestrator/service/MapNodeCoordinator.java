@@ -0,0 +1,338 @@
+package com.mindflow.orchestrator.service;
+
+import com.mindflow.common.dto.TaskMessage;
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.entity.NodeInstance;
+import com.mindflow.common.state.NodeState;
+import com.mindflow.common.state.StateStore;
+import com.mindflow.common.util.JsonUtils;
+import com.mindflow.orchestrator.repository.NodeInstanceRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * map 节点：把上游输出中的数组拆成 N 个子任务派发给 worker，同时在途的子任务不超过 maxConcurrency，
+ * 每完成一个补发一个。子任务不建 node_instance 行，进度只记在 Redis：
+ * <ul>
+ *   <li>mindflow:map:{nodeInstanceId} —— 哈希，total / next（已派发数）/ done（已完成数）/ progressAt（最近一次
+ *   子任务完成的毫秒时间戳）及子任务配置</li>
+ *   <li>mindflow:map:{nodeInstanceId}:items —— 列表，待处理的元素</li>
+ *   <li>mindflow:map:{nodeInstanceId}:results —— 哈希，序号 -> 子任务输出</li>
+ * </ul>
+ * 全部完成后按序号汇总为 map 节点的输出，经 NodeResultPublisher 发送节点完成事件，下游（通常是 reduce 节点）照常调度。
+ * 子任务丢失导致长时间没有进展的 map 节点由 RecoveryScanner 通过 {@link #failIfStalled} 标记失败。
+ *
+ * 节点配置示例：{"itemsPath": "items", "maxConcurrency": 32, "task": {"type": "ai", "config": {...}}}
+ */
+@Component
+public class MapNodeCoordinator {
+    private static final Logger logger = LoggerFactory.getLogger(MapNodeCoordinator.class);
+    private static final String TASK_TOPIC = "mindflow-tasks";
+    private static final String KEY_PREFIX = "mindflow:map:";
+    private static final int PUSH_BATCH_SIZE = 1000;
+
+    public static final String NODE_TYPE = "map";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private NodeInstanceRepository nodeInstanceRepository;
+
+    @Autowired
+    private StateStore stateStore;
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private NodeResultPublisher nodeResultPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** 未配置 maxConcurrency 时每个 map 节点同时在途的子任务数 */
+    @Value("${mindflow.map.max-concurrency:16}")
+    private int defaultMaxConcurrency;
+
+    /** Redis 中进度数据的保留时间，防止异常中断的 map 节点遗留数据 */
+    @Value("${mindflow.map.state-ttl-hours:24}")
+    private long stateTtlHours;
+
+    /**
+     * 拆分输入并派发第一批子任务；map 节点行此时已是 RUNNING
+     */
+    public void start(Long workflowInstanceId, Long mapNodeInstanceId, WorkflowDefinitionDTO.NodeConfig nodeConfig,
+                      String input) {
+        Map<String, Object> config = nodeConfig.getConfig() != null ? nodeConfig.getConfig() : Map.of();
+        Object task = config.get("task");
+        if (!(task instanceof Map) || ((Map<?, ?>) task).get("type") == null) {
+            finish(workflowInstanceId, mapNodeInstanceId, nodeConfig.getId(), "FAILED", null, "map 节点缺少 task.type 配置");
+            return;
+        }
+
+        List<Object> items;
+        try {
+            items = extractItems(input, (String) config.getOrDefault("itemsPath", "items"));
+        } catch (Exception e) {
+            finish(workflowInstanceId, mapNodeInstanceId, nodeConfig.getId(), "FAILED", null, e.getMessage());
+            return;
+        }
+        if (items.isEmpty()) {
+            logger.info("map 节点没有待处理元素，直接完成: nodeId={}", nodeConfig.getId());
+            finish(workflowInstanceId, mapNodeInstanceId, nodeConfig.getId(), "SUCCESS", aggregate(0, Map.of()), null);
+            return;
+        }
+
+        int maxConcurrency = config.get("maxConcurrency") instanceof Number n ? n.intValue() : defaultMaxConcurrency;
+        int firstBatch = Math.min(Math.max(1, maxConcurrency), items.size());
+
+        String key = stateKey(mapNodeInstanceId);
+        List<String> encoded = new ArrayList<>(items.size());
+        for (Object item : items) {
+            encoded.add(item instanceof String s ? s : JsonUtils.toJson(item));
+        }
+        for (int from = 0; from < encoded.size(); from += PUSH_BATCH_SIZE) {
+            redisTemplate.opsForList().rightPushAll(itemsKey(mapNodeInstanceId),
+                    encoded.subList(from, Math.min(encoded.size(), from + PUSH_BATCH_SIZE)));
+        }
+        Map<String, String> state = new HashMap<>();
+        state.put("workflowInstanceId", String.valueOf(workflowInstanceId));
+        state.put("nodeId", nodeConfig.getId());
+        state.put("nodeName", String.valueOf(nodeConfig.getName()));
+        state.put("task", JsonUtils.toJson(task));
+        state.put("total", String.valueOf(items.size()));
+        state.put("next", String.valueOf(firstBatch));
+        state.put("done", "0");
+        state.put("progressAt", String.valueOf(System.currentTimeMillis()));
+        redisTemplate.opsForHash().putAll(key, state);
+        Duration ttl = Duration.ofHours(stateTtlHours);
+        redisTemplate.expire(key, ttl);
+        redisTemplate.expire(itemsKey(mapNodeInstanceId), ttl);
+
+        // 第一批异步发送后统一等待确认
+        List<CompletableFuture<?>> futures = new ArrayList<>(firstBatch);
+        for (int i = 0; i < firstBatch; i++) {
+            futures.add(kafkaTemplate.send(TASK_TOPIC, String.valueOf(workflowInstanceId), JsonUtils.toJson(
+                    childTask(workflowInstanceId, mapNodeInstanceId, state, i, encoded.get(i)))));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+        } catch (Exception e) {
+            logger.error("推送 map 子任务到 Kafka 失败: nodeId={}, error={}", nodeConfig.getId(), e.getMessage());
+            failOnce(mapNodeInstanceId, state, "发送子任务到队列失败: " + e.getMessage());
+            return;
+        }
+        meterRegistry.counter("mindflow.map.items").increment(items.size());
+        logger.info("map 节点已启动: nodeId={}, total={}, maxConcurrency={}", nodeConfig.getId(), items.size(), firstBatch);
+    }
+
+    /**
+     * 处理子任务完成事件：记录结果，补发下一个元素，全部完成时汇总
+     */
+    public void onItemCompleted(Map<String, Object> event) {
+        Long nodeInstanceId = ((Number) event.get("nodeInstanceId")).longValue();
+        int itemIndex = ((Number) event.get("itemIndex")).intValue();
+        String status = (String) event.get("status");
+        String key = stateKey(nodeInstanceId);
+
+        Map<String, String> state = loadState(key);
+        if (state.isEmpty() || state.containsKey("failed")) {
+            logger.info("map 节点已结束，忽略子任务完成事件: nodeInstanceId={}, itemIndex={}", nodeInstanceId, itemIndex);
+            return;
+        }
+
+        if (!"SUCCESS".equals(status)) {
+            Object error = event.get("errorMessage") != null ? event.get("errorMessage") : event.get("output");
+            failOnce(nodeInstanceId, state, "第 " + itemIndex + " 项执行失败: " + error);
+            return;
+        }
+
+        // 重复投递的完成事件不重复计数
+        String output = (String) event.get("output");
+        if (!redisTemplate.opsForHash().putIfAbsent(resultsKey(nodeInstanceId), String.valueOf(itemIndex),
+                output != null ? output : "null")) {
+            logger.info("重复的子任务完成事件，忽略: nodeInstanceId={}, itemIndex={}", nodeInstanceId, itemIndex);
+            return;
+        }
+        long done = redisTemplate.opsForHash().increment(key, "done", 1);
+        redisTemplate.opsForHash().put(key, "progressAt", String.valueOf(System.currentTimeMillis()));
+        if (done == 1) {
+            redisTemplate.expire(resultsKey(nodeInstanceId), Duration.ofHours(stateTtlHours));
+        }
+        int total = Integer.parseInt(state.get("total"));
+        Long workflowInstanceId = Long.valueOf(state.get("workflowInstanceId"));
+
+        if (done >= total) {
+            Map<Object, Object> results = redisTemplate.opsForHash().entries(resultsKey(nodeInstanceId));
+            finish(workflowInstanceId, nodeInstanceId, state.get("nodeId"), "SUCCESS", aggregate(total, results), null);
+            return;
+        }
+
+        // 被终止的节点不再补发
+        String mapStatus = stateStore.findNode(nodeInstanceId).map(NodeState::getStatus).orElse(null);
+        if (!"RUNNING".equals(mapStatus)) {
+            logger.info("map 节点不再运行，停止派发: nodeInstanceId={}", nodeInstanceId);
+            return;
+        }
+
+        long next = redisTemplate.opsForHash().increment(key, "next", 1) - 1;
+        if (next >= total) {
+            return;
+        }
+        String item = redisTemplate.opsForList().index(itemsKey(nodeInstanceId), next);
+        try {
+            kafkaTemplate.send(TASK_TOPIC, String.valueOf(workflowInstanceId), JsonUtils.toJson(
+                    childTask(workflowInstanceId, nodeInstanceId, state, (int) next, item))).get();
+        } catch (Exception e) {
+            logger.error("推送 map 子任务到 Kafka 失败: nodeInstanceId={}, itemIndex={}, error={}",
+                    nodeInstanceId, next, e.getMessage());
+            failOnce(nodeInstanceId, state, "发送子任务到队列失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 对账：Redis 中的进度已丢失、或 failBefore 之后没有子任务完成的 map 节点标记失败；
+     * 已记下失败但完成事件未送达的补发一次。返回是否处理了该节点
+     */
+    public boolean failIfStalled(NodeInstance mapNode, LocalDateTime failBefore) {
+        Map<String, String> state = loadState(stateKey(mapNode.getId()));
+        if (state.isEmpty()) {
+            finish(mapNode.getWorkflowInstanceId(), mapNode.getId(), mapNode.getNodeId(), "FAILED", null,
+                    "map 节点的进度数据已丢失");
+            return true;
+        }
+        if (state.containsKey("failed")) {
+            finish(mapNode.getWorkflowInstanceId(), mapNode.getId(), mapNode.getNodeId(), "FAILED", null,
+                    state.get("failed"));
+            return true;
+        }
+        long progressAt = Long.parseLong(state.getOrDefault("progressAt", "0"));
+        if (progressAt >= failBefore.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()) {
+            return false;
+        }
+        logger.warn("map 节点长时间没有进展: nodeInstanceId={}, done={}/{}", mapNode.getId(), state.get("done"),
+                state.get("total"));
+        failOnce(mapNode.getId(), state, "map 节点长时间没有子任务完成，对账时标记失败");
+        return true;
+    }
+
+    private TaskMessage childTask(Long workflowInstanceId, Long nodeInstanceId, Map<String, String> state,
+                                  int itemIndex, String item) {
+        Map<String, Object> task = JsonUtils.fromJson(state.get("task"), Map.class);
+        TaskMessage taskMessage = new TaskMessage();
+        taskMessage.setWorkflowInstanceId(workflowInstanceId);
+        taskMessage.setNodeInstanceId(nodeInstanceId);
+        taskMessage.setNodeId(state.get("nodeId"));
+        taskMessage.setNodeType((String) task.get("type"));
+        taskMessage.setNodeName(state.get("nodeName") + "[" + itemIndex + "]");
+        taskMessage.setNodeConfig((Map<String, Object>) task.get("config"));
+        taskMessage.setInput(item);
+        taskMessage.setContext(new HashMap<>());
+        taskMessage.setDispatchTime(System.currentTimeMillis());
+        taskMessage.setItemIndex(itemIndex);
+        return taskMessage;
+    }
+
+    /**
+     * 只有第一个失败的子任务会让 map 节点失败，之后的完成事件都被忽略
+     */
+    private void failOnce(Long nodeInstanceId, Map<String, String> state, String errorMessage) {
+        if (redisTemplate.opsForHash().putIfAbsent(stateKey(nodeInstanceId), "failed", errorMessage)) {
+            finish(Long.valueOf(state.get("workflowInstanceId")), nodeInstanceId, state.get("nodeId"),
+                    "FAILED", null, errorMessage);
+        }
+    }
+
+    /**
+     * 写回 map 节点的最终状态并发送节点完成事件，清理 Redis 中的进度
+     */
+    private void finish(Long workflowInstanceId, Long nodeInstanceId, String nodeId, String status, String output,
+                        String errorMessage) {
+        nodeResultPublisher.complete(workflowInstanceId, nodeInstanceId, nodeId, status, output, errorMessage);
+        if ("SUCCESS".equals(status)) {
+            redisTemplate.delete(List.of(stateKey(nodeInstanceId), itemsKey(nodeInstanceId), resultsKey(nodeInstanceId)));
+        } else {
+            // 保留 failed 标记直到过期，用于忽略仍在途的子任务
+            redisTemplate.delete(List.of(itemsKey(nodeInstanceId), resultsKey(nodeInstanceId)));
+        }
+        logger.info("map 节点结束: nodeInstanceId={}, status={}", nodeInstanceId, status);
+    }
+
+    /**
+     * 按序号汇总子任务输出：{"status": "SUCCESS", "total": N, "results": [...]}
+     */
+    private String aggregate(int total, Map<Object, Object> results) {
+        List<Object> ordered = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            String value = (String) results.get(String.valueOf(i));
+            ordered.add(value != null ? parseJson(value) : null);
+        }
+        Map<String, Object> output = new HashMap<>();
+        output.put("status", "SUCCESS");
+        output.put("total", total);
+        output.put("results", ordered);
+        return JsonUtils.toJson(output);
+    }
+
+    /**
+     * 从输入中取出数组：输入本身是数组，或按 itemsPath（支持 a.b 形式）取对象中的字段；
+     * 字段值是 JSON 数组字符串时（例如 AI 输出）也会被解析
+     */
+    private List<Object> extractItems(String input, String itemsPath) {
+        Object value = input != null ? parseJson(input) : null;
+        if (value instanceof Map && itemsPath != null && !itemsPath.isBlank()) {
+            for (String part : itemsPath.split("\\.")) {
+                value = value instanceof Map ? ((Map<?, ?>) value).get(part) : null;
+            }
+        }
+        if (value instanceof String s && s.trim().startsWith("[")) {
+            value = parseJson(s);
+        }
+        if (!(value instanceof List)) {
+            throw new RuntimeException("map 节点输入中没有数组: itemsPath=" + itemsPath);
+        }
+        return (List<Object>) value;
+    }
+
+    private Object parseJson(String value) {
+        try {
+            return JsonUtils.fromJson(value, Object.class);
+        } catch (Exception e) {
+            return value;
+        }
+    }
+
+    private Map<String, String> loadState(String key) {
+        Map<String, String> state = new HashMap<>();
+        redisTemplate.opsForHash().entries(key).forEach((k, v) -> state.put((String) k, (String) v));
+        return state;
+    }
+
+    private String stateKey(Long nodeInstanceId) {
+        return KEY_PREFIX + nodeInstanceId;
+    }
+
+    private String itemsKey(Long nodeInstanceId) {
+        return KEY_PREFIX + nodeInstanceId + ":items";
+    }
+
+    private String resultsKey(Long nodeInstanceId) {
+        return KEY_PREFIX + nodeInstanceId + ":results";
+    }
+}
@@ -3,12 +3,16 @@ package com.mindflow.orchestrator.service;
 import com.mindflow.common.dto.TaskMessage;
 import com.mindflow.common.dto.WorkflowDefinitionDTO;
 import com.mindflow.common.entity.NodeInstance;
-import com.mindflow.common.entity.WorkflowDefinition;
+import com.mindflow.common.event.ExecutionEventLog;
 import com.mindflow.common.entity.WorkflowInstance;
+import com.mindflow.common.metrics.DbStatementCounter;
+import com.mindflow.common.plan.CompiledWorkflow;
 import com.mindflow.common.util.JsonUtils;
-import com.mindflow.orchestrator.repository.NodeInstanceRepository;
-import com.mindflow.orchestrator.repository.WorkflowDefinitionRepository;
-import com.mindflow.orchestrator.repository.WorkflowInstanceRepository;
+import com.mindflow.common.state.NodeState;
+import com.mindflow.common.state.StateStore;
+import com.mindflow.orchestrator.checkpoint.InstanceProgressTracker;
+import com.mindflow.orchestrator.metrics.NodeLatencyAggregator;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,10 +20,15 @@ import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class NodeCompletionConsumer {
@@ -28,235 +37,185 @@ public class NodeCompletionConsumer {
     private static final String STATUS_UPDATE_TOPIC = "mindflow-status-updates";
 
     @Autowired
-    private WorkflowDefinitionRepository workflowDefinitionRepository;
+    private WorkflowDefinitionCache workflowDefinitionCache;
 
     @Autowired
-    private WorkflowInstanceRepository workflowInstanceRepository;
+    private KafkaTemplate<String, String> kafkaTemplate;
 
     @Autowired
-    private NodeInstanceRepository nodeInstanceRepository;
+    private MeterRegistry meterRegistry;
 
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private NodeLatencyAggregator nodeLatencyAggregator;
+
+    @Autowired
+    private NodeInstanceMaterializer nodeInstanceMaterializer;
+
+    @Autowired
+    private EdgeConditionEvaluator edgeConditionEvaluator;
+
+    @Autowired
+    private MapNodeCoordinator mapNodeCoordinator;
+
+    @Autowired
+    private SubWorkflowLauncher subWorkflowLauncher;
+
+    @Autowired
+    private ExecutionEventLog executionEventLog;
+
+    @Autowired
+    private StateStore stateStore;
+
+    @Autowired
+    private InstanceProgressTracker instanceProgressTracker;
 
     @KafkaListener(topics = "mindflow-node-completed", groupId = "mindflow-orchestrator-group")
     public void handleNodeCompleted(String message) {
+        long start = System.nanoTime();
+        DbStatementCounter.reset();
         try {
             logger.info("收到节点完成事件: {}", message);
 
             Map<String, Object> event = JsonUtils.fromJson(message, Map.class);
+            // map 节点的子任务只更新 Redis 中的进度，map 节点整体完成时会再发一条完成事件
+            if (event.get("itemIndex") != null) {
+                mapNodeCoordinator.onItemCompleted(event);
+                return;
+            }
             Long workflowInstanceId = ((Number) event.get("workflowInstanceId")).longValue();
             Long nodeInstanceId = ((Number) event.get("nodeInstanceId")).longValue();
             String nodeId = (String) event.get("nodeId");
-            String status = (String) event.get("status");
-            String output = (String) event.get("output");
 
             logger.info("节点完成: workflowInstanceId={}, nodeInstanceId={}, status={}",
-                    workflowInstanceId, nodeInstanceId, status);
-
-            // 获取节点实例
-            NodeInstance nodeInstance = nodeInstanceRepository.findById(nodeInstanceId)
-                    .orElseThrow(() -> new RuntimeException("节点实例不存在"));
+                    workflowInstanceId, nodeInstanceId, event.get("status"));
 
             // 获取工作流实例和定义
-            WorkflowInstance workflowInstance = workflowInstanceRepository.findById(workflowInstanceId)
+            WorkflowInstance workflowInstance = stateStore.findInstance(workflowInstanceId)
                     .orElseThrow(() -> new RuntimeException("工作流实例不存在"));
 
-            // 如果节点失败，立即标记工作流为失败
-            if ("FAILED".equals(status)) {
-                workflowInstance.setStatus("FAILED");
-                workflowInstance.setEndTime(java.time.LocalDateTime.now());
-                workflowInstance.setErrorMessage("节点 " + nodeInstance.getNodeName() + " 执行失败");
-                workflowInstanceRepository.save(workflowInstance);
-                
-                // 发送状态更新通知
-                broadcastStatusUpdate(workflowInstanceId, "FAILED", "节点执行失败");
-                logger.info("工作流失败: workflowInstanceId={}, 原因: 节点执行失败", workflowInstanceId);
+            // 状态以数据库行为准：完成事件在行更新提交之后才发送，重复或乱序到达的事件在这里被忽略
+            if (!"RUNNING".equals(workflowInstance.getStatus())) {
+                logger.info("工作流已结束，忽略节点完成事件: workflowInstanceId={}, status={}",
+                        workflowInstanceId, workflowInstance.getStatus());
                 return;
             }
 
-            WorkflowDefinition definition = workflowDefinitionRepository.findById(workflowInstance.getWorkflowDefinitionId())
-                    .orElseThrow(() -> new RuntimeException("工作流定义不存在"));
-
-            // 解析配置
-            WorkflowDefinitionDTO.WorkflowConfig config = JsonUtils.fromJson(
-                    definition.getConfig(), WorkflowDefinitionDTO.WorkflowConfig.class);
-
-            // 找到下一个节点
-            List<String> nextNodeIds = new ArrayList<>();
-            if (config.getEdges() != null) {
-                logger.info("工作流配置中有 {} 条边", config.getEdges().size());
-                for (WorkflowDefinitionDTO.EdgeConfig edge : config.getEdges()) {
-                    logger.debug("检查边: source={}, target={}, 当前节点={}", 
-                            edge.getSource(), edge.getTarget(), nodeInstance.getNodeId());
-                    if (edge.getSource().equals(nodeInstance.getNodeId())) {
-                        nextNodeIds.add(edge.getTarget());
-                        logger.info("找到下一个节点: {}", edge.getTarget());
-                    }
+            // 一次性查询所有节点的状态（包含当前节点），避免逐个查询；输出在需要时再按节点读取
+            List<NodeState> allNodeInstances = stateStore.findNodes(workflowInstanceId);
+            NodeState nodeInstance = allNodeInstances.stream()
+                    .filter(ni -> ni.getId().equals(nodeInstanceId))
+                    .findFirst()
+                    .orElseThrow(() -> new RuntimeException("节点实例不存在"));
+            String status = nodeInstance.getStatus();
+            if (!"SUCCESS".equals(status) && !"FAILED".equals(status)) {
+                logger.info("节点尚未结束，忽略过期的完成事件: nodeInstanceId={}, status={}", nodeInstanceId, status);
+                return;
+            }
+            instanceProgressTracker.touch(workflowInstanceId);
+
+            if (event.get("executionMs") instanceof Number executionMs) {
+                Number queueWaitMs = (Number) event.get("queueWaitMs");
+                nodeLatencyAggregator.record(workflowInstance.getWorkflowDefinitionId(), nodeId,
+                        queueWaitMs != null ? queueWaitMs.longValue() : null, executionMs.longValue());
+            }
+
+            // 如果节点失败，立即标记工作流为失败
+            if ("FAILED".equals(status)) {
+                if (finishWorkflow(workflowInstance, "FAILED", null,
+                        "节点 " + nodeInstance.getNodeName() + " 执行失败", "节点执行失败")) {
+                    logger.info("工作流失败: workflowInstanceId={}, 原因: 节点执行失败", workflowInstanceId);
                 }
-            } else {
-                logger.warn("工作流配置中没有边定义");
+                return;
             }
-            
-            logger.info("当前节点 {} 的下一个节点列表: {}", nodeInstance.getNodeId(), nextNodeIds);
 
-            // 性能优化：一次性查询所有节点实例，避免多次数据库查询
-            List<NodeInstance> allNodeInstances = nodeInstanceRepository.findByWorkflowInstanceId(workflowInstanceId);
-            Map<String, NodeInstance> nodeInstanceMap = new HashMap<>();
-            for (NodeInstance ni : allNodeInstances) {
+            // 实例固定版本的配置和执行计划（来自缓存），下游、入边和结束节点直接查表
+            CompiledWorkflow workflow = workflowDefinitionCache.getWorkflow(workflowInstance);
+
+            Map<String, NodeState> nodeInstanceMap = new HashMap<>();
+            for (NodeState ni : allNodeInstances) {
                 nodeInstanceMap.put(ni.getNodeId(), ni);
             }
             logger.debug("已加载工作流实例的所有节点: {}", nodeInstanceMap.keySet());
 
-            // 检查每个下一个节点的依赖是否都完成
-            for (String nextNodeId : nextNodeIds) {
-                logger.info("开始检查下一个节点 {} 的依赖", nextNodeId);
-                boolean allDependenciesCompleted = true;
-                List<String> dependencies = new ArrayList<>();
-                if (config.getEdges() != null) {
-                    for (WorkflowDefinitionDTO.EdgeConfig edge : config.getEdges()) {
-                        if (edge.getTarget().equals(nextNodeId)) {
-                            dependencies.add(edge.getSource());
-                            
-                            // 如果依赖节点是当前完成的节点，直接使用消息中的状态
-                            String dependencyStatus;
-                            if (edge.getSource().equals(nodeId)) {
-                                dependencyStatus = status;
-                                logger.info("依赖节点 {} 是当前完成的节点，使用消息中的状态: {}", 
-                                        edge.getSource(), status);
-                            } else {
-                                // 否则从缓存的 Map 中获取（已经从数据库查询）
-                                NodeInstance dependencyNode = nodeInstanceMap.get(edge.getSource());
-                                if (dependencyNode == null) {
-                                    logger.warn("未找到依赖节点实例: {}", edge.getSource());
-                                    allDependenciesCompleted = false;
-                                    break;
-                                }
-                                dependencyStatus = dependencyNode.getStatus();
-                                logger.info("依赖节点 {} 的状态（从数据库）: {}", edge.getSource(), dependencyStatus);
-                            }
-                            
-                            if (!"SUCCESS".equals(dependencyStatus)) {
-                                logger.info("依赖节点 {} 尚未成功完成，状态: {}", edge.getSource(), dependencyStatus);
-                                allDependenciesCompleted = false;
-                                break;
-                            }
-                        }
-                    }
-                }
-                
-                logger.info("节点 {} 的所有依赖: {}, 是否全部完成: {}", nextNodeId, dependencies, allDependenciesCompleted);
-
-                if (allDependenciesCompleted) {
-                    logger.info("节点 {} 的所有依赖已完成，准备推送任务", nextNodeId);
-                    // 推送下一个节点（从缓存的 Map 中获取）
-                    NodeInstance nextNodeInstance = nodeInstanceMap.get(nextNodeId);
-
-                    if (nextNodeInstance == null) {
-                        logger.error("未找到下一个节点实例: nodeId={}, workflowInstanceId={}", nextNodeId, workflowInstanceId);
-                        // 打印所有节点实例供调试
-                        logger.error("当前工作流实例的所有节点: {}", nodeInstanceMap.keySet());
-                        continue;
-                    }
-
-                    logger.info("找到下一个节点实例: nodeId={}, status={}", nextNodeId, nextNodeInstance.getStatus());
-                    
-                    if (!"PENDING".equals(nextNodeInstance.getStatus())) {
-                        logger.info("下一个节点状态不是 PENDING，跳过推送: nodeId={}, status={}", 
-                                nextNodeId, nextNodeInstance.getStatus());
-                        continue;
-                    }
+            // 各节点的当前状态
+            // 延迟创建模式下尚未调度的节点没有行，按定义补为 PENDING
+            Map<String, String> nodeStatusMap = new HashMap<>();
+            for (WorkflowDefinitionDTO.NodeConfig node : workflow.getConfig().getNodes()) {
+                nodeStatusMap.put(node.getId(), "PENDING");
+            }
+            for (NodeState node : allNodeInstances) {
+                nodeStatusMap.put(node.getNodeId(), node.getStatus());
+            }
+            NodeOutputs nodeOutputs = new NodeOutputs(nodeInstanceMap);
 
-                    WorkflowDefinitionDTO.NodeConfig nextNodeConfig = config.getNodes().stream()
-                            .filter(n -> n.getId().equals(nextNodeId))
-                            .findFirst()
-                            .orElse(null);
+            // 从当前节点出发推进下游：条件全部落空的节点标记为 SKIPPED，并继续向其下游传播
+            Deque<String> resolvedNodeIds = new ArrayDeque<>();
+            resolvedNodeIds.add(nodeId);
+            while (!resolvedNodeIds.isEmpty()) {
+                String sourceId = resolvedNodeIds.poll();
+                List<String> nextNodeIds = new ArrayList<>();
+                for (WorkflowDefinitionDTO.EdgeConfig edge : workflow.getOutgoingEdges(sourceId)) {
+                    nextNodeIds.add(edge.getTarget());
+                }
+                logger.info("节点 {} 的下一个节点列表: {}", sourceId, nextNodeIds);
+                if (nextNodeIds.isEmpty()) {
+                    logger.info("节点 {} 没有后续节点，可能是结束节点", sourceId);
+                }
 
-                    if (nextNodeConfig == null) {
-                        logger.error("未找到下一个节点配置: nodeId={}", nextNodeId);
+                for (String nextNodeId : nextNodeIds) {
+                    if (!"PENDING".equals(nodeStatusMap.get(nextNodeId))) {
+                        logger.info("下一个节点状态不是 PENDING，跳过: nodeId={}, status={}",
+                                nextNodeId, nodeStatusMap.get(nextNodeId));
                         continue;
                     }
 
-                    // 先更新节点状态为 RUNNING
-                    nextNodeInstance.setStatus("RUNNING");
-                    nextNodeInstance.setStartTime(java.time.LocalDateTime.now());
-                    nodeInstanceRepository.save(nextNodeInstance);
-                    logger.info("已更新下一个节点状态为 RUNNING: nodeId={}", nextNodeId);
-                    
-                    TaskMessage taskMessage = new TaskMessage();
-                    taskMessage.setWorkflowInstanceId(workflowInstanceId);
-                    taskMessage.setNodeInstanceId(nextNodeInstance.getId());
-                    taskMessage.setNodeId(nextNodeConfig.getId());
-                    taskMessage.setNodeType(nextNodeConfig.getType());
-                    taskMessage.setNodeName(nextNodeConfig.getName());
-                    taskMessage.setNodeConfig(nextNodeConfig.getConfig());
-                    taskMessage.setInput(output);
-                    taskMessage.setContext(new HashMap<>());
-
-                    // 然后发送到 Kafka
-                    String taskMsg = JsonUtils.toJson(taskMessage);
-                    try {
-                        kafkaTemplate.send(TASK_TOPIC, taskMsg).get(); // 同步等待发送完成
-                        logger.info("成功推送下一个任务到 Kafka: nodeId={}", nextNodeId);
-                    } catch (Exception e) {
-                        logger.error("推送下一个任务到 Kafka 失败: nodeId={}, error={}", nextNodeId, e.getMessage());
-                        // 回滚状态，标记节点为失败
-                        nextNodeInstance.setStatus("FAILED");
-                        nextNodeInstance.setErrorMessage("发送任务到队列失败: " + e.getMessage());
-                        nodeInstanceRepository.save(nextNodeInstance);
+                    // 边的两端在保存定义时已校验存在
+                    WorkflowDefinitionDTO.NodeConfig nextNodeConfig = workflow.getNode(nextNodeId);
+                    List<String> takenSources = new ArrayList<>();
+                    String decision = resolveDependencies(workflow, nextNodeId, nodeStatusMap, nodeOutputs,
+                            takenSources);
+                    logger.info("节点 {} 的依赖检查结果: {}", nextNodeId, decision);
+                    if ("RUN".equals(decision)) {
+                        String newStatus = dispatchNode(workflowInstanceId, nextNodeConfig,
+                                nodeInstanceMap.get(nextNodeId), dependencyInput(takenSources, nodeInstanceMap,
+                                        nodeOutputs));
+                        if (newStatus != null) {
+                            nodeStatusMap.put(nextNodeId, newStatus);
+                        }
+                    } else if ("SKIP".equals(decision)) {
+                        if (skipNode(workflowInstanceId, nextNodeConfig, nodeInstanceMap.get(nextNodeId))) {
+                            nodeStatusMap.put(nextNodeId, "SKIPPED");
+                            resolvedNodeIds.add(nextNodeId);
+                        }
+                    } else {
+                        logger.info("节点 {} 的依赖尚未全部完成，暂不推送", nextNodeId);
                     }
-                } else {
-                    logger.info("节点 {} 的依赖尚未全部完成，暂不推送", nextNodeId);
                 }
             }
-            
-            if (nextNodeIds.isEmpty()) {
-                logger.info("节点 {} 没有后续节点，可能是结束节点", nodeInstance.getNodeId());
-            }
 
-            // 检查工作流状态（复用前面已查询的 allNodeInstances）
-            // 特殊处理：当前完成的节点状态需要使用 Kafka 消息中的状态（避免数据库事务未提交问题）
-            Map<String, String> nodeStatusMap = new HashMap<>();
-            for (NodeInstance node : allNodeInstances) {
-                // 如果是当前完成的节点，使用消息中的状态
-                if (node.getNodeId().equals(nodeId)) {
-                    nodeStatusMap.put(node.getNodeId(), status);
-                    logger.debug("节点 {} 使用消息中的状态: {}", node.getNodeId(), status);
-                } else {
-                    nodeStatusMap.put(node.getNodeId(), node.getStatus());
-                }
-            }
-            
             // 如果有节点失败，立即标记工作流失败
             boolean hasFailedNode = nodeStatusMap.values().stream().anyMatch(s -> "FAILED".equals(s));
-            if (hasFailedNode && !"FAILED".equals(workflowInstance.getStatus())) {
-                workflowInstance.setStatus("FAILED");
-                workflowInstance.setEndTime(java.time.LocalDateTime.now());
-                workflowInstance.setErrorMessage("节点执行失败");
-                workflowInstanceRepository.save(workflowInstance);
-                logger.warn("工作流因节点失败而终止: workflowInstanceId={}", workflowInstanceId);
-                
-                // 通过 Kafka 发送工作流失败状态更新
-                broadcastStatusUpdate(workflowInstanceId, "FAILED", "节点执行失败");
+            if (hasFailedNode) {
+                if (finishWorkflow(workflowInstance, "FAILED", null, "节点执行失败", "节点执行失败")) {
+                    logger.warn("工作流因节点失败而终止: workflowInstanceId={}", workflowInstanceId);
+                }
                 return; // 不再处理后续节点
             }
             
-            // 检查工作流是否全部完成（使用包含最新状态的 Map）
+            // 检查工作流是否全部完成（使用包含最新状态的 Map），被跳过的分支视为已完成
             boolean allCompleted = nodeStatusMap.values().stream()
-                    .allMatch(s -> "SUCCESS".equals(s) || "FAILED".equals(s));
+                    .allMatch(s -> "SUCCESS".equals(s) || "FAILED".equals(s) || "SKIPPED".equals(s));
 
             if (allCompleted) {
                 // 使用 nodeStatusMap 判断是否全部成功（包含当前节点的最新状态）
-                boolean allSuccess = nodeStatusMap.values().stream().allMatch(s -> "SUCCESS".equals(s));
+                boolean allSuccess = nodeStatusMap.values().stream()
+                        .allMatch(s -> "SUCCESS".equals(s) || "SKIPPED".equals(s));
                 String finalStatus = allSuccess ? "SUCCESS" : "FAILED";
-                workflowInstance.setStatus(finalStatus);
-                workflowInstance.setEndTime(java.time.LocalDateTime.now());
-                workflowInstanceRepository.save(workflowInstance);
-                
-                // 发送状态更新通知
-                broadcastStatusUpdate(workflowInstanceId, finalStatus, "工作流执行完成");
-                logger.info("工作流完成: workflowInstanceId={}, status={}, 节点状态: {}", 
-                        workflowInstanceId, finalStatus, nodeStatusMap);
+                if (finishWorkflow(workflowInstance, finalStatus,
+                        workflowOutput(workflow, nodeStatusMap, nodeOutputs), null, "工作流执行完成")) {
+                    logger.info("工作流完成: workflowInstanceId={}, status={}, 节点状态: {}",
+                            workflowInstanceId, finalStatus, nodeStatusMap);
+                }
             } else {
                 // 发送节点状态更新通知
                 logger.debug("工作流尚未完成，节点状态: {}", nodeStatusMap);
@@ -265,9 +224,208 @@ public class NodeCompletionConsumer {
 
         } catch (Exception e) {
             logger.error("处理节点完成事件失败", e);
+        } finally {
+            meterRegistry.timer("mindflow.completion.handle").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            meterRegistry.summary("mindflow.db.statements.per.event", "event", "node-completed")
+                    .record(DbStatementCounter.current());
         }
     }
 
+    /**
+     * 以条件更新把实例从 RUNNING 迁移到终态，只有迁移成功的一方广播状态并回传父实例；
+     * 并发处理同一实例最后几个节点的事件时，另一方在这里返回 false
+     */
+    private boolean finishWorkflow(WorkflowInstance workflowInstance, String status, String output,
+                                   String errorMessage, String broadcastMessage) {
+        java.time.LocalDateTime now = java.time.LocalDateTime.now();
+        long sequence = stateStore.finishInstance(workflowInstance.getId(), status, output, errorMessage, now);
+        if (sequence == 0) {
+            logger.info("工作流已被其他事件结束: workflowInstanceId={}", workflowInstance.getId());
+            return false;
+        }
+        workflowInstance.setStatus(status);
+        workflowInstance.setOutput(output);
+        workflowInstance.setErrorMessage(errorMessage);
+        workflowInstance.setEndTime(now);
+        executionEventLog.instance(workflowInstance.getId(), status, sequence, errorMessage);
+        instanceProgressTracker.remove(workflowInstance.getId());
+        subWorkflowLauncher.onWorkflowFinished(workflowInstance);
+
+        // 发送状态更新通知
+        broadcastStatusUpdate(workflowInstance.getId(), status, broadcastMessage);
+        return true;
+    }
+
+    /**
+     * 工作流输出：只有一个成功的结束节点（没有出边）时为该节点的输出，多个时为 节点 ID -> 输出 的 JSON 对象
+     */
+    private String workflowOutput(CompiledWorkflow workflow, Map<String, String> nodeStatusMap,
+                                  NodeOutputs nodeOutputs) {
+        List<String> succeeded = new ArrayList<>();
+        for (WorkflowDefinitionDTO.NodeConfig node : workflow.getTerminalNodes()) {
+            if ("SUCCESS".equals(nodeStatusMap.get(node.getId()))) {
+                succeeded.add(node.getId());
+            }
+        }
+        nodeOutputs.load(succeeded);
+        Map<String, Object> outputs = new LinkedHashMap<>();
+        for (String nodeId : succeeded) {
+            outputs.put(nodeId, nodeOutputs.get(nodeId));
+        }
+        if (outputs.size() == 1) {
+            return (String) outputs.values().iterator().next();
+        }
+        return JsonUtils.toJson(outputs);
+    }
+
+    /**
+     * 根据入边判断节点能否执行：
+     * 任一上游未结束返回 WAIT；上游全部结束且至少一条入边被选中返回 RUN，否则返回 SKIP。
+     * SKIPPED 的上游视为已满足但不选中该边，成功的上游按边条件判断，只有带条件的边才读取上游输出；
+     * 被选中边的上游追加到 takenSources。
+     */
+    private String resolveDependencies(CompiledWorkflow workflow, String targetNodeId,
+                                       Map<String, String> nodeStatusMap, NodeOutputs nodeOutputs,
+                                       List<String> takenSources) {
+        boolean anyTaken = false;
+        for (WorkflowDefinitionDTO.EdgeConfig edge : workflow.getIncomingEdges(targetNodeId)) {
+            String dependencyStatus = nodeStatusMap.get(edge.getSource());
+            if ("SKIPPED".equals(dependencyStatus)) {
+                continue;
+            }
+            if (!"SUCCESS".equals(dependencyStatus)) {
+                logger.info("依赖节点 {} 尚未成功完成，状态: {}", edge.getSource(), dependencyStatus);
+                return "WAIT";
+            }
+            String condition = edge.getCondition();
+            String output = condition == null || condition.isBlank() ? null : nodeOutputs.get(edge.getSource());
+            if (edgeConditionEvaluator.isTaken(edge, output)) {
+                anyTaken = true;
+                takenSources.add(edge.getSource());
+            } else {
+                logger.info("边条件不满足: {} -> {}, condition={}", edge.getSource(), targetNodeId, edge.getCondition());
+            }
+        }
+        return anyTaken ? "RUN" : "SKIP";
+    }
+
+    /**
+     * 节点的输入：被选中边的上游中最后结束的那个节点的输出。正常推进时就是触发本次事件的节点；
+     * 经由 SKIPPED 节点传播到的节点，输入取自它自己的上游，而不是触发事件的节点
+     */
+    private String dependencyInput(List<String> takenSources, Map<String, NodeState> nodeInstanceMap,
+                                   NodeOutputs nodeOutputs) {
+        String latest = null;
+        java.time.LocalDateTime latestEnd = null;
+        for (String sourceId : takenSources) {
+            NodeState source = nodeInstanceMap.get(sourceId);
+            java.time.LocalDateTime end = source != null ? source.getEndTime() : null;
+            if (latest == null || (end != null && (latestEnd == null || end.isAfter(latestEnd)))) {
+                latest = sourceId;
+                latestEnd = end;
+            }
+        }
+        return latest != null ? nodeOutputs.get(latest) : null;
+    }
+
+    /**
+     * 将节点置为 RUNNING 并推送任务，返回节点的新状态；节点已被其他事件调度时返回 null
+     */
+    private String dispatchNode(Long workflowInstanceId, WorkflowDefinitionDTO.NodeConfig nextNodeConfig,
+                                NodeState nextNode, String input) {
+        String nextNodeId = nextNodeConfig.getId();
+        Long nextNodeInstanceId;
+        long sequence;
+        if (nextNode == null) {
+            // 延迟创建模式：节点行在调度时才插入
+            NodeInstance materialized = nodeInstanceMaterializer.materialize(workflowInstanceId, nextNodeConfig, input);
+            if (materialized == null) {
+                return null;
+            }
+            nextNodeInstanceId = materialized.getId();
+            sequence = materialized.getVersion();
+            logger.info("已创建下一个节点实例并置为 RUNNING: nodeId={}", nextNodeId);
+        } else {
+            // 先更新节点状态为 RUNNING，条件更新保证同一节点只被一个事件调度
+            nextNodeInstanceId = nextNode.getId();
+            sequence = stateStore.markNodeRunning(nextNodeInstanceId, input, java.time.LocalDateTime.now());
+            if (sequence == 0) {
+                logger.info("节点已被其他事件调度: nodeId={}", nextNodeId);
+                return null;
+            }
+            logger.info("已更新下一个节点状态为 RUNNING: nodeId={}", nextNodeId);
+        }
+        executionEventLog.node(workflowInstanceId, nextNodeInstanceId, nextNodeId, "RUNNING", sequence, null);
+
+        // map 和子工作流节点由编排器自身执行，不直接交给 worker
+        if (MapNodeCoordinator.NODE_TYPE.equals(nextNodeConfig.getType())) {
+            mapNodeCoordinator.start(workflowInstanceId, nextNodeInstanceId, nextNodeConfig, input);
+            return "RUNNING";
+        }
+        if (SubWorkflowLauncher.NODE_TYPE.equals(nextNodeConfig.getType())) {
+            subWorkflowLauncher.start(workflowInstanceId, nextNodeInstanceId, nextNodeConfig, input);
+            return "RUNNING";
+        }
+
+        TaskMessage taskMessage = new TaskMessage();
+        taskMessage.setWorkflowInstanceId(workflowInstanceId);
+        taskMessage.setNodeInstanceId(nextNodeInstanceId);
+        taskMessage.setNodeId(nextNodeConfig.getId());
+        taskMessage.setNodeType(nextNodeConfig.getType());
+        taskMessage.setNodeName(nextNodeConfig.getName());
+        taskMessage.setNodeConfig(nextNodeConfig.getConfig());
+        taskMessage.setInput(input);
+        taskMessage.setContext(new HashMap<>());
+        taskMessage.setDispatchTime(System.currentTimeMillis());
+
+        // 然后发送到 Kafka
+        String taskMsg = JsonUtils.toJson(taskMessage);
+        try {
+            kafkaTemplate.send(TASK_TOPIC, String.valueOf(workflowInstanceId), taskMsg).get(); // 同步等待发送完成
+            logger.info("成功推送下一个任务到 Kafka: nodeId={}", nextNodeId);
+            return "RUNNING";
+        } catch (Exception e) {
+            logger.error("推送下一个任务到 Kafka 失败: nodeId={}, error={}", nextNodeId, e.getMessage());
+            // 回滚状态，标记节点为失败
+            String errorMessage = "发送任务到队列失败: " + e.getMessage();
+            long failedSequence = stateStore.finishNode(nextNodeInstanceId, "FAILED", null, errorMessage, null,
+                    java.time.LocalDateTime.now());
+            if (failedSequence > 0) {
+                executionEventLog.node(workflowInstanceId, nextNodeInstanceId, nextNodeId, "FAILED",
+                        failedSequence, errorMessage);
+            }
+            return "FAILED";
+        }
+    }
+
+    /**
+     * 将未被任何分支选中的节点标记为 SKIPPED，不派发到 Worker；返回 false 表示已被其他事件处理
+     */
+    private boolean skipNode(Long workflowInstanceId, WorkflowDefinitionDTO.NodeConfig nodeConfig,
+                             NodeState node) {
+        Long nodeInstanceId;
+        long sequence;
+        if (node == null) {
+            NodeInstance materialized = nodeInstanceMaterializer.materialize(workflowInstanceId, nodeConfig, null,
+                    "SKIPPED");
+            if (materialized == null) {
+                return false;
+            }
+            nodeInstanceId = materialized.getId();
+            sequence = materialized.getVersion();
+        } else {
+            nodeInstanceId = node.getId();
+            sequence = stateStore.markNodeSkipped(nodeInstanceId, java.time.LocalDateTime.now());
+            if (sequence == 0) {
+                return false;
+            }
+        }
+        executionEventLog.node(workflowInstanceId, nodeInstanceId, nodeConfig.getId(), "SKIPPED", sequence, null);
+        meterRegistry.counter("mindflow.node.skipped").increment();
+        logger.info("节点未被任何分支选中，已跳过: workflowInstanceId={}, nodeId={}", workflowInstanceId, nodeConfig.getId());
+        return true;
+    }
+
     /**
      * 广播状态更新到前端
      */
@@ -280,11 +438,45 @@ public class NodeCompletionConsumer {
             statusUpdate.put("timestamp", System.currentTimeMillis());
             
             String updateMessage = JsonUtils.toJson(statusUpdate);
-            kafkaTemplate.send(STATUS_UPDATE_TOPIC, updateMessage);
+            kafkaTemplate.send(STATUS_UPDATE_TOPIC, String.valueOf(workflowInstanceId), updateMessage);
             logger.debug("发送状态更新通知: workflowInstanceId={}, status={}", workflowInstanceId, status);
         } catch (Exception e) {
             logger.error("发送状态更新失败", e);
         }
     }
-}
 
+    /**
+     * 本次事件内按需读取并缓存节点输出：只有带条件的边、下游输入和实例输出需要，其余节点的输出不读取
+     */
+    private class NodeOutputs {
+        private final Map<String, NodeState> nodes;
+        private final Map<String, String> loaded = new HashMap<>();
+
+        NodeOutputs(Map<String, NodeState> nodes) {
+            this.nodes = nodes;
+        }
+
+        String get(String nodeId) {
+            load(List.of(nodeId));
+            return loaded.get(nodeId);
+        }
+
+        /**
+         * 一次查询读取尚未缓存的节点输出；没有节点行的节点（延迟创建模式下未调度）没有输出
+         */
+        void load(Collection<String> nodeIds) {
+            Map<Long, String> pending = new HashMap<>();
+            for (String nodeId : nodeIds) {
+                NodeState node = nodes.get(nodeId);
+                if (node != null && !loaded.containsKey(nodeId)) {
+                    pending.put(node.getId(), nodeId);
+                }
+            }
+            if (pending.isEmpty()) {
+                return;
+            }
+            Map<Long, String> outputs = stateStore.findNodeOutputs(pending.keySet());
+            pending.forEach((id, nodeId) -> loaded.put(nodeId, outputs.get(id)));
+        }
+    }
+}
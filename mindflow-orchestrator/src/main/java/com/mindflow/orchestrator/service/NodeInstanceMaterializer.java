@@ -0,0 +1,53 @@
+package com.mindflow.orchestrator.service;
+
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.entity.NodeInstance;
+import com.mindflow.orchestrator.repository.NodeInstanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * 延迟创建节点行：实例创建时不预先插入 PENDING 行，节点被调度时才直接以 RUNNING 状态插入。
+ * 没有行的节点即为 PENDING。(workflow_instance_id, node_id) 唯一约束保证同一节点只被调度一次。
+ * 放在 Redis / 内存存储中的实例在装入时已补齐全部节点行，不经过这里。
+ */
+@Component
+public class NodeInstanceMaterializer {
+    private static final Logger logger = LoggerFactory.getLogger(NodeInstanceMaterializer.class);
+
+    @Autowired
+    private NodeInstanceRepository nodeInstanceRepository;
+
+    /**
+     * 插入 RUNNING 状态的节点行；并发调度时唯一约束冲突的一方返回 null，由先插入的一方派发
+     */
+    public NodeInstance materialize(Long workflowInstanceId, WorkflowDefinitionDTO.NodeConfig nodeConfig, String input) {
+        return materialize(workflowInstanceId, nodeConfig, input, "RUNNING");
+    }
+
+    /**
+     * 以指定状态插入节点行，跳过的分支以 SKIPPED 插入
+     */
+    public NodeInstance materialize(Long workflowInstanceId, WorkflowDefinitionDTO.NodeConfig nodeConfig, String input,
+                                    String status) {
+        NodeInstance nodeInstance = new NodeInstance();
+        nodeInstance.setWorkflowInstanceId(workflowInstanceId);
+        nodeInstance.setNodeId(nodeConfig.getId());
+        nodeInstance.setNodeType(nodeConfig.getType());
+        nodeInstance.setNodeName(nodeConfig.getName());
+        nodeInstance.setStatus(status);
+        nodeInstance.setInput(input);
+        if ("SKIPPED".equals(status)) {
+            nodeInstance.setEndTime(java.time.LocalDateTime.now());
+        }
+        try {
+            return nodeInstanceRepository.save(nodeInstance);
+        } catch (DataIntegrityViolationException e) {
+            logger.info("节点已被调度，跳过: workflowInstanceId={}, nodeId={}", workflowInstanceId, nodeConfig.getId());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.mindflow.orchestrator.service;
+
+import com.mindflow.common.event.ExecutionEventLog;
+import com.mindflow.common.util.JsonUtils;
+import com.mindflow.common.state.StateStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 由编排器自身执行的节点（map、子工作流）结束时，像 worker 一样写回节点状态并发送节点完成事件，
+ * 由 NodeCompletionConsumer 照常推进下游
+ */
+@Component
+public class NodeResultPublisher {
+    private static final Logger logger = LoggerFactory.getLogger(NodeResultPublisher.class);
+    private static final String NODE_COMPLETED_TOPIC = "mindflow-node-completed";
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private ExecutionEventLog executionEventLog;
+
+    @Autowired
+    private StateStore stateStore;
+
+    /**
+     * 节点仍为 RUNNING 时写入终态并发送完成事件，返回 false 表示节点已被终止或已结束
+     */
+    public boolean complete(Long workflowInstanceId, Long nodeInstanceId, String nodeId, String status, String output,
+                            String errorMessage) {
+        long sequence = stateStore.finishNode(nodeInstanceId, status, output, errorMessage, null,
+                java.time.LocalDateTime.now());
+        if (sequence == 0) {
+            logger.info("节点已不是 RUNNING，不发送完成事件: nodeInstanceId={}, nodeId={}", nodeInstanceId, nodeId);
+            return false;
+        }
+        executionEventLog.node(workflowInstanceId, nodeInstanceId, nodeId, status, sequence, errorMessage);
+
+        Map<String, Object> completionEvent = new HashMap<>();
+        completionEvent.put("workflowInstanceId", workflowInstanceId);
+        completionEvent.put("nodeInstanceId", nodeInstanceId);
+        completionEvent.put("nodeId", nodeId);
+        completionEvent.put("status", status);
+        completionEvent.put("output", output);
+        completionEvent.put("errorMessage", errorMessage);
+        try {
+            kafkaTemplate.send(NODE_COMPLETED_TOPIC, String.valueOf(workflowInstanceId),
+                    JsonUtils.toJson(completionEvent)).get();
+            logger.info("已发送节点完成事件: nodeInstanceId={}, nodeId={}, status={}", nodeInstanceId, nodeId, status);
+        } catch (Exception e) {
+            logger.error("发送节点完成事件失败: nodeInstanceId={}, error={}", nodeInstanceId, e.getMessage());
+        }
+        return true;
+    }
+}
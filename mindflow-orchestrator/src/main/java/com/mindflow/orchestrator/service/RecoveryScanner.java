@@ -0,0 +1,334 @@
+package com.mindflow.orchestrator.service;
+
+import com.mindflow.common.dto.TaskMessage;
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.entity.NodeInstance;
+import com.mindflow.common.entity.WorkflowInstance;
+import com.mindflow.common.state.RoutingStateStore;
+import com.mindflow.common.util.JsonUtils;
+import com.mindflow.orchestrator.checkpoint.InstanceProgressTracker;
+import com.mindflow.orchestrator.repository.NodeInstanceRepository;
+import com.mindflow.orchestrator.repository.WorkflowInstanceRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 在途实例对账：启动后和之后定期扫描长时间未推进的 RUNNING 实例和节点。
+ * <ul>
+ *     <li>RUNNING 超过 redispatch-after 的节点重新投递任务（worker 端按节点认领去重），超过 fail-after 的标记失败</li>
+ *     <li>RUNNING 超过 redispatch-after 的 map / 子工作流节点交给各自的协调器检查：进度丢失、子实例丢失或结果未回传的
+ *     立即处理，超过 fail-after 没有进展（map 没有子任务完成、子实例没有节点结束）的标记失败</li>
+ *     <li>没有 RUNNING 节点、且最近一次节点结束也早于 stall-after 的实例，补发丢失的事件：
+ *     尚无节点结束时重发工作流创建事件，否则重发已结束节点的完成事件</li>
+ * </ul>
+ * 近期有推进记录的实例（见 {@link InstanceProgressTracker}）跳过节点查询；由 Redis / 内存状态存储持有的实例在写回前
+ * 不更新数据库行，整个跳过（见 {@link RoutingStateStore}）。
+ * 只做翻页读取和 Kafka 投递，实际的状态迁移仍由各消费者以条件更新完成，与正常完成路径并发也不会重复推进。
+ */
+@Component
+public class RecoveryScanner {
+    private static final Logger logger = LoggerFactory.getLogger(RecoveryScanner.class);
+    private static final String TASK_TOPIC = "mindflow-tasks";
+    private static final String NODE_COMPLETED_TOPIC = "mindflow-node-completed";
+    private static final String WORKFLOW_CREATED_TOPIC = "mindflow-workflow-created";
+    private static final LocalDateTime SCAN_START = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    /** 由编排器自身推进的节点：map 的进度在 Redis 中，子工作流等待子实例结束 */
+    private static final Set<String> ORCHESTRATED_TYPES = Set.of(MapNodeCoordinator.NODE_TYPE, SubWorkflowLauncher.NODE_TYPE);
+
+    @Autowired
+    private WorkflowInstanceRepository workflowInstanceRepository;
+
+    @Autowired
+    private NodeInstanceRepository nodeInstanceRepository;
+
+    @Autowired
+    private WorkflowDefinitionCache workflowDefinitionCache;
+
+    @Autowired
+    private NodeResultPublisher nodeResultPublisher;
+
+    @Autowired
+    private MapNodeCoordinator mapNodeCoordinator;
+
+    @Autowired
+    private SubWorkflowLauncher subWorkflowLauncher;
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private InstanceProgressTracker instanceProgressTracker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /** 自定义 StateStore 时不存在 */
+    @Autowired(required = false)
+    private RoutingStateStore routingStateStore;
+
+    @Value("${mindflow.recovery.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mindflow.recovery.redispatch-after:10m}")
+    private Duration redispatchAfter;
+
+    @Value("${mindflow.recovery.fail-after:2h}")
+    private Duration failAfter;
+
+    @Value("${mindflow.recovery.stall-after:5m}")
+    private Duration stallAfter;
+
+    @Value("${mindflow.recovery.page-size:500}")
+    private int pageSize;
+
+    /** 两页之间的暂停，避免对账挤占正常事件处理的数据库和 Kafka 资源 */
+    @Value("${mindflow.recovery.page-pause:100ms}")
+    private Duration pagePause;
+
+    @Scheduled(initialDelayString = "${mindflow.recovery.initial-delay:30000}",
+            fixedDelayString = "${mindflow.recovery.interval:300000}")
+    public void scan() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            int nodes = recoverRunningNodes() + recoverOrchestratedNodes();
+            int instances = recoverStalledInstances();
+            if (nodes > 0 || instances > 0) {
+                logger.info("在途实例对账完成: 节点 {} 个, 实例 {} 个, 耗时 {}ms", nodes, instances,
+                        Duration.ofNanos(System.nanoTime() - start).toMillis());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("在途实例对账失败", e);
+        }
+    }
+
+    /**
+     * 长时间 RUNNING 的 worker 节点：任务发送丢失或 worker 执行结果未写回
+     */
+    private int recoverRunningNodes() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime failBefore = now.minus(failAfter);
+        LocalDateTime afterTime = SCAN_START;
+        Long afterId = 0L;
+        int recovered = 0;
+        while (true) {
+            List<NodeInstance> page = nodeInstanceRepository.findRunningStartedBefore(now.minus(redispatchAfter),
+                    ORCHESTRATED_TYPES, afterTime, afterId, PageRequest.of(0, pageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            Map<Long, WorkflowInstance> instances = workflowInstanceRepository.findAllById(
+                    page.stream().map(NodeInstance::getWorkflowInstanceId).collect(Collectors.toSet()))
+                    .stream().collect(Collectors.toMap(WorkflowInstance::getId, w -> w));
+            for (NodeInstance node : page) {
+                WorkflowInstance instance = instances.get(node.getWorkflowInstanceId());
+                if (instance == null || !"RUNNING".equals(instance.getStatus()) || isDetached(instance.getId())) {
+                    continue;
+                }
+                if (node.getStartTime().isBefore(failBefore)) {
+                    nodeResultPublisher.complete(node.getWorkflowInstanceId(), node.getId(), node.getNodeId(),
+                            "FAILED", null, "节点执行超时，对账时标记失败");
+                    meterRegistry.counter("mindflow.recovery.nodes", "action", "failed").increment();
+                } else {
+                    redispatch(instance, node);
+                    meterRegistry.counter("mindflow.recovery.nodes", "action", "redispatched").increment();
+                }
+                recovered++;
+            }
+            NodeInstance last = page.get(page.size() - 1);
+            afterTime = last.getStartTime();
+            afterId = last.getId();
+            if (page.size() < pageSize) {
+                break;
+            }
+            Thread.sleep(pagePause.toMillis());
+        }
+        return recovered;
+    }
+
+    /**
+     * 长时间 RUNNING 的 map / 子工作流节点：没有 worker 任务可重投，由对应的协调器判断是否已停滞
+     */
+    private int recoverOrchestratedNodes() throws InterruptedException {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime failBefore = now.minus(failAfter);
+        LocalDateTime afterTime = SCAN_START;
+        Long afterId = 0L;
+        int recovered = 0;
+        while (true) {
+            List<NodeInstance> page = nodeInstanceRepository.findRunningOfTypesStartedBefore(
+                    now.minus(redispatchAfter), ORCHESTRATED_TYPES, afterTime, afterId, PageRequest.of(0, pageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            for (NodeInstance node : page) {
+                if (isDetached(node.getWorkflowInstanceId())) {
+                    continue;
+                }
+                try {
+                    boolean handled = MapNodeCoordinator.NODE_TYPE.equals(node.getNodeType())
+                            ? mapNodeCoordinator.failIfStalled(node, failBefore)
+                            : subWorkflowLauncher.failIfStalled(node, failBefore);
+                    if (handled) {
+                        meterRegistry.counter("mindflow.recovery.nodes", "action", "orchestrated").increment();
+                        recovered++;
+                    }
+                } catch (Exception e) {
+                    logger.error("检查编排节点失败: nodeInstanceId={}, error={}", node.getId(), e.getMessage());
+                }
+            }
+            NodeInstance last = page.get(page.size() - 1);
+            afterTime = last.getStartTime();
+            afterId = last.getId();
+            if (page.size() < pageSize) {
+                break;
+            }
+            Thread.sleep(pagePause.toMillis());
+        }
+        return recovered;
+    }
+
+    /**
+     * 没有在途节点却仍为 RUNNING 的实例：工作流创建事件或节点完成事件丢失
+     */
+    private int recoverStalledInstances() throws InterruptedException {
+        LocalDateTime stallBefore = LocalDateTime.now().minus(stallAfter);
+        LocalDateTime afterTime = SCAN_START;
+        Long afterId = 0L;
+        int recovered = 0;
+        while (true) {
+            List<WorkflowInstance> page = workflowInstanceRepository.findRunningStartedBefore(stallBefore,
+                    afterTime, afterId, PageRequest.of(0, pageSize));
+            if (page.isEmpty()) {
+                break;
+            }
+            // 近期由本编排器推进过的实例不会停滞，不必查询节点
+            List<WorkflowInstance> candidates = page.stream()
+                    .filter(i -> !instanceProgressTracker.progressedSince(i.getId(), stallBefore))
+                    .filter(i -> !isDetached(i.getId()))
+                    .collect(Collectors.toList());
+            // 一次查询其余实例的节点，在内存中按实例重建执行状态
+            Map<Long, List<NodeInstance>> nodesByInstance = candidates.isEmpty() ? Map.of()
+                    : nodeInstanceRepository.findByWorkflowInstanceIdIn(
+                    candidates.stream().map(WorkflowInstance::getId).collect(Collectors.toList()))
+                    .stream().collect(Collectors.groupingBy(NodeInstance::getWorkflowInstanceId));
+            for (WorkflowInstance instance : candidates) {
+                List<NodeInstance> nodes = nodesByInstance.getOrDefault(instance.getId(), List.of());
+                if (nodes.stream().anyMatch(n -> "RUNNING".equals(n.getStatus()))) {
+                    continue;
+                }
+                LocalDateTime lastEnd = nodes.stream().map(NodeInstance::getEndTime).filter(Objects::nonNull)
+                        .max(LocalDateTime::compareTo).orElse(null);
+                if (lastEnd != null && lastEnd.isAfter(stallBefore)) {
+                    continue;
+                }
+                if (resume(instance, nodes)) {
+                    recovered++;
+                }
+            }
+            WorkflowInstance last = page.get(page.size() - 1);
+            afterTime = last.getStartTime();
+            afterId = last.getId();
+            if (page.size() < pageSize) {
+                break;
+            }
+            Thread.sleep(pagePause.toMillis());
+        }
+        return recovered;
+    }
+
+    private boolean isDetached(Long workflowInstanceId) {
+        return routingStateStore != null && routingStateStore.isDetached(workflowInstanceId);
+    }
+
+    private boolean resume(WorkflowInstance instance, List<NodeInstance> nodes) {
+        List<NodeInstance> finished = new ArrayList<>();
+        for (NodeInstance node : nodes) {
+            if ("SUCCESS".equals(node.getStatus()) || "FAILED".equals(node.getStatus())) {
+                finished.add(node);
+            }
+        }
+        String key = String.valueOf(instance.getId());
+        try {
+            if (finished.isEmpty()) {
+                Map<String, Object> event = new HashMap<>();
+                event.put("workflowInstanceId", instance.getId());
+                event.put("workflowDefinitionId", instance.getWorkflowDefinitionId());
+                event.put("definitionVersionId", instance.getDefinitionVersionId());
+                event.put("input", instance.getInput());
+                kafkaTemplate.send(WORKFLOW_CREATED_TOPIC, key, JsonUtils.toJson(event)).get();
+                meterRegistry.counter("mindflow.recovery.instances", "action", "recreated").increment();
+            } else {
+                // 完成事件的处理以数据库行为准，重复发送不会重复派发下游
+                for (NodeInstance node : finished) {
+                    Map<String, Object> event = new HashMap<>();
+                    event.put("workflowInstanceId", instance.getId());
+                    event.put("nodeInstanceId", node.getId());
+                    event.put("nodeId", node.getNodeId());
+                    event.put("status", node.getStatus());
+                    kafkaTemplate.send(NODE_COMPLETED_TOPIC, key, JsonUtils.toJson(event)).get();
+                }
+                meterRegistry.counter("mindflow.recovery.instances", "action", "replayed").increment();
+            }
+            logger.info("已补发停滞实例的事件: workflowInstanceId={}, 已结束节点 {} 个", instance.getId(), finished.size());
+            return true;
+        } catch (Exception e) {
+            logger.error("补发停滞实例的事件失败: workflowInstanceId={}, error={}", instance.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private void redispatch(WorkflowInstance instance, NodeInstance node) {
+        WorkflowDefinitionDTO.NodeConfig nodeConfig;
+        try {
+            nodeConfig = workflowDefinitionCache.getWorkflow(instance).getNode(node.getNodeId());
+        } catch (Exception e) {
+            nodeConfig = null;
+        }
+        if (nodeConfig == null) {
+            nodeResultPublisher.complete(instance.getId(), node.getId(), node.getNodeId(), "FAILED", null,
+                    "对账时未找到节点配置");
+            return;
+        }
+
+        TaskMessage taskMessage = new TaskMessage();
+        taskMessage.setWorkflowInstanceId(instance.getId());
+        taskMessage.setNodeInstanceId(node.getId());
+        taskMessage.setNodeId(nodeConfig.getId());
+        taskMessage.setNodeType(nodeConfig.getType());
+        taskMessage.setNodeName(nodeConfig.getName());
+        taskMessage.setNodeConfig(nodeConfig.getConfig());
+        taskMessage.setInput(node.getInput());
+        taskMessage.setContext(new HashMap<>());
+        taskMessage.setDispatchTime(System.currentTimeMillis());
+        try {
+            kafkaTemplate.send(TASK_TOPIC, String.valueOf(instance.getId()), JsonUtils.toJson(taskMessage)).get();
+            logger.info("已重新投递长时间未结束的节点: workflowInstanceId={}, nodeId={}, startTime={}",
+                    instance.getId(), node.getNodeId(), node.getStartTime());
+        } catch (Exception e) {
+            logger.error("重新投递节点失败: nodeInstanceId={}, error={}", node.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.mindflow.orchestrator.service;
+
+import com.mindflow.common.state.RoutingStateStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 定期把 Redis 状态存储中已结束的实例写回 MySQL（见 {@link RoutingStateStore#flushFinished}），
+ * 每轮按批写回直到没有待写回的实例；多个编排器同时运行时每个实例只由其中一个写回
+ */
+@Component
+public class StateStoreFlusher {
+    private static final Logger logger = LoggerFactory.getLogger(StateStoreFlusher.class);
+
+    /** 自定义 StateStore 时不存在 */
+    @Autowired(required = false)
+    private RoutingStateStore routingStateStore;
+
+    @Value("${mindflow.state.redis.flush-batch-size:200}")
+    private int batchSize;
+
+    @Scheduled(fixedDelayString = "${mindflow.state.redis.flush-interval:1000}")
+    public void flush() {
+        if (routingStateStore == null) {
+            return;
+        }
+        try {
+            int flushed;
+            do {
+                flushed = routingStateStore.flushFinished(batchSize);
+            } while (flushed >= batchSize);
+        } catch (Exception e) {
+            logger.warn("写回 Redis 中已结束的实例失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.mindflow.orchestrator.service;
+
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.entity.NodeInstance;
+import com.mindflow.common.event.ExecutionEventLog;
+import com.mindflow.common.entity.WorkflowInstance;
+import com.mindflow.common.util.JsonUtils;
+import com.mindflow.common.state.NodeState;
+import com.mindflow.common.state.RoutingStateStore;
+import com.mindflow.common.state.StateStore;
+import com.mindflow.orchestrator.repository.NodeInstanceRepository;
+import com.mindflow.orchestrator.repository.WorkflowInstanceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 子工作流节点：启动另一个定义的子实例，子实例结束时把结果作为该节点的完成事件回传给父实例。
+ * 父子实例通过 parent_instance_id / parent_node_instance_id 关联，全程由完成事件驱动，不轮询；
+ * 子实例丢失、结果未回传或长时间没有进展时由 RecoveryScanner 通过 {@link #failIfStalled} 兜底。
+ *
+ * 节点配置示例：{"definitionId": 12}
+ */
+@Component
+public class SubWorkflowLauncher {
+    private static final Logger logger = LoggerFactory.getLogger(SubWorkflowLauncher.class);
+    private static final String WORKFLOW_CREATED_TOPIC = "mindflow-workflow-created";
+
+    public static final String NODE_TYPE = "subworkflow";
+
+    @Autowired
+    private WorkflowInstanceRepository workflowInstanceRepository;
+
+    @Autowired
+    private NodeInstanceRepository nodeInstanceRepository;
+
+    @Autowired
+    private WorkflowDefinitionCache workflowDefinitionCache;
+
+    @Autowired
+    private NodeResultPublisher nodeResultPublisher;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private ExecutionEventLog executionEventLog;
+
+    @Autowired
+    private StateStore stateStore;
+
+    /** 自定义 StateStore 时不存在 */
+    @Autowired(required = false)
+    private RoutingStateStore routingStateStore;
+
+    /** 为 true 时子实例也不预先创建节点行 */
+    @Value("${mindflow.instance.lazy-nodes:false}")
+    private boolean lazyNodes;
+
+    /** 最大嵌套层数，防止定义之间循环调用 */
+    @Value("${mindflow.subworkflow.max-depth:8}")
+    private int maxDepth;
+
+    /**
+     * 创建子实例并发送工作流创建事件；父节点此时已是 RUNNING，直到子实例结束
+     */
+    public void start(Long workflowInstanceId, Long parentNodeInstanceId, WorkflowDefinitionDTO.NodeConfig nodeConfig,
+                      String input) {
+        Object definitionId = nodeConfig.getConfig() != null ? nodeConfig.getConfig().get("definitionId") : null;
+        if (definitionId == null) {
+            fail(workflowInstanceId, parentNodeInstanceId, nodeConfig.getId(), "子工作流节点缺少 definitionId 配置");
+            return;
+        }
+
+        Long childDefinitionId;
+        Long childVersionId;
+        WorkflowDefinitionDTO.WorkflowConfig childConfig;
+        try {
+            // 子实例固定到启动时子定义的当前版本
+            childDefinitionId = Long.valueOf(definitionId.toString());
+            childVersionId = workflowDefinitionCache.getCurrentVersionId(childDefinitionId);
+            childConfig = workflowDefinitionCache.getWorkflow(childVersionId).getConfig();
+            int depth = depthOf(workflowInstanceId);
+            if (depth >= maxDepth) {
+                throw new RuntimeException("子工作流嵌套超过 " + maxDepth + " 层");
+            }
+        } catch (Exception e) {
+            fail(workflowInstanceId, parentNodeInstanceId, nodeConfig.getId(), e.getMessage());
+            return;
+        }
+
+        Long childInstanceId = transactionTemplate.execute(status -> {
+            WorkflowInstance child = new WorkflowInstance();
+            child.setWorkflowDefinitionId(childDefinitionId);
+            child.setDefinitionVersionId(childVersionId);
+            child.setStatus("RUNNING");
+            child.setInput(input);
+            child.setParentInstanceId(workflowInstanceId);
+            child.setParentNodeInstanceId(parentNodeInstanceId);
+            child = workflowInstanceRepository.save(child);
+
+            if (!lazyNodes) {
+                List<NodeInstance> nodes = new ArrayList<>();
+                for (WorkflowDefinitionDTO.NodeConfig childNode : childConfig.getNodes()) {
+                    NodeInstance nodeInstance = new NodeInstance();
+                    nodeInstance.setWorkflowInstanceId(child.getId());
+                    nodeInstance.setNodeId(childNode.getId());
+                    nodeInstance.setNodeType(childNode.getType());
+                    nodeInstance.setNodeName(childNode.getName());
+                    nodeInstance.setStatus("PENDING");
+                    nodeInstance.setInput(input);
+                    nodes.add(nodeInstance);
+                }
+                nodeInstanceRepository.saveAll(nodes);
+            }
+            return child.getId();
+        });
+        executionEventLog.instance(childInstanceId, "CREATED", 0, null);
+
+        Map<String, Object> event = new HashMap<>();
+        event.put("workflowInstanceId", childInstanceId);
+        event.put("workflowDefinitionId", childDefinitionId);
+        event.put("definitionVersionId", childVersionId);
+        event.put("input", input);
+        try {
+            kafkaTemplate.send(WORKFLOW_CREATED_TOPIC, String.valueOf(childInstanceId), JsonUtils.toJson(event)).get();
+            logger.info("已启动子工作流: parentInstanceId={}, nodeId={}, childInstanceId={}",
+                    workflowInstanceId, nodeConfig.getId(), childInstanceId);
+        } catch (Exception e) {
+            logger.error("发送子工作流创建事件失败: childInstanceId={}, error={}", childInstanceId, e.getMessage());
+            String errorMessage = "发送工作流创建事件失败: " + e.getMessage();
+            long sequence = stateStore.finishInstance(childInstanceId, "FAILED", null, errorMessage,
+                    java.time.LocalDateTime.now());
+            if (sequence > 0) {
+                executionEventLog.instance(childInstanceId, "FAILED", sequence, errorMessage);
+            }
+            fail(workflowInstanceId, parentNodeInstanceId, nodeConfig.getId(), "发送子工作流创建事件失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 实例到达终态时调用：子实例把状态和输出作为父节点的完成事件回传
+     */
+    public void onWorkflowFinished(WorkflowInstance instance) {
+        if (instance.getParentNodeInstanceId() == null) {
+            return;
+        }
+        Long parentNodeInstanceId = instance.getParentNodeInstanceId();
+        String parentNodeId = stateStore.findNode(parentNodeInstanceId)
+                .filter(node -> "RUNNING".equals(node.getStatus()))
+                .map(NodeState::getNodeId)
+                .orElse(null);
+        if (parentNodeId == null) {
+            logger.info("父节点不再运行，不回传子工作流结果: childInstanceId={}", instance.getId());
+            return;
+        }
+        if ("SUCCESS".equals(instance.getStatus())) {
+            nodeResultPublisher.complete(instance.getParentInstanceId(), parentNodeInstanceId, parentNodeId,
+                    "SUCCESS", instance.getOutput(), null);
+        } else {
+            nodeResultPublisher.complete(instance.getParentInstanceId(), parentNodeInstanceId, parentNodeId,
+                    "FAILED", null, "子工作流 " + instance.getId() + " 执行失败: " + instance.getErrorMessage());
+        }
+    }
+
+    /**
+     * 对账：子实例不存在时父节点标记失败；子实例已结束但结果未回传时补发；子实例仍在运行、
+     * 但 failBefore 之后既没有启动也没有节点结束的，子实例和父节点一并标记失败。返回是否处理了该节点
+     */
+    public boolean failIfStalled(NodeInstance parentNode, LocalDateTime failBefore) {
+        List<WorkflowInstance> children = workflowInstanceRepository.findByParentInstanceIdAndParentNodeInstanceId(
+                parentNode.getWorkflowInstanceId(), parentNode.getId());
+        if (children.isEmpty()) {
+            fail(parentNode.getWorkflowInstanceId(), parentNode.getId(), parentNode.getNodeId(), "子工作流实例不存在");
+            return true;
+        }
+        WorkflowInstance child = children.get(0);
+        if (routingStateStore != null && routingStateStore.isDetached(child.getId())) {
+            // Redis / 内存中的子实例在写回前不更新数据库行，无法按数据库判断进展
+            return false;
+        }
+        if (!"RUNNING".equals(child.getStatus())) {
+            onWorkflowFinished(child);
+            return true;
+        }
+        LocalDateTime lastEnd = nodeInstanceRepository.findLastEndTime(child.getId());
+        if ((lastEnd != null && !lastEnd.isBefore(failBefore))
+                || (child.getStartTime() != null && !child.getStartTime().isBefore(failBefore))) {
+            return false;
+        }
+        String errorMessage = "子工作流长时间没有进展，对账时标记失败";
+        long sequence = stateStore.finishInstance(child.getId(), "FAILED", null, errorMessage, LocalDateTime.now());
+        if (sequence == 0) {
+            // 子实例刚好结束，由正常路径回传结果
+            return false;
+        }
+        executionEventLog.instance(child.getId(), "FAILED", sequence, errorMessage);
+        child.setStatus("FAILED");
+        child.setErrorMessage(errorMessage);
+        onWorkflowFinished(child);
+        return true;
+    }
+
+    /**
+     * 沿父实例链向上计数，每层只读取 parent_instance_id
+     */
+    private int depthOf(Long workflowInstanceId) {
+        int depth = 0;
+        Long current = workflowInstanceId;
+        while (current != null && depth <= maxDepth) {
+            current = workflowInstanceRepository.findParentInstanceIdById(current).orElse(null);
+            if (current != null) {
+                depth++;
+            }
+        }
+        return depth;
+    }
+
+    private void fail(Long workflowInstanceId, Long parentNodeInstanceId, String parentNodeId, String errorMessage) {
+        logger.warn("子工作流节点启动失败: nodeId={}, error={}", parentNodeId, errorMessage);
+        nodeResultPublisher.complete(workflowInstanceId, parentNodeInstanceId, parentNodeId,
+                "FAILED", null, errorMessage);
+    }
+}
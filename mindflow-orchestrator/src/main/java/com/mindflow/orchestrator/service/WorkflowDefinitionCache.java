@@ -0,0 +1,78 @@
+package com.mindflow.orchestrator.service;
+
+import com.mindflow.common.dto.WorkflowDefinitionDTO;
+import com.mindflow.common.entity.WorkflowDefinitionVersion;
+import com.mindflow.common.entity.WorkflowInstance;
+import com.mindflow.common.plan.CompiledWorkflow;
+import com.mindflow.common.plan.ExecutionPlan;
+import com.mindflow.common.plan.WorkflowCompiler;
+import com.mindflow.common.util.JsonUtils;
+import com.mindflow.orchestrator.repository.WorkflowDefinitionRepository;
+import com.mindflow.orchestrator.repository.WorkflowDefinitionVersionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 已解析的工作流配置及其执行计划的缓存，按定义版本 ID 缓存。版本行写入后不再修改，缓存项永不过期，
+ * 修改定义只会产生新版本，不需要失效通知；同一版本的所有实例（包括子工作流实例）共用同一份解析结果。
+ */
+@Component
+public class WorkflowDefinitionCache {
+    private static final Logger logger = LoggerFactory.getLogger(WorkflowDefinitionCache.class);
+
+    @Autowired
+    private WorkflowDefinitionRepository workflowDefinitionRepository;
+
+    @Autowired
+    private WorkflowDefinitionVersionRepository workflowDefinitionVersionRepository;
+
+    private final Map<Long, CompiledWorkflow> cache = new ConcurrentHashMap<>();
+
+    public CompiledWorkflow getWorkflow(Long versionId) {
+        CompiledWorkflow workflow = cache.get(versionId);
+        if (workflow != null) {
+            return workflow;
+        }
+        WorkflowDefinitionVersion version = workflowDefinitionVersionRepository.findById(versionId)
+                .orElseThrow(() -> new RuntimeException("工作流定义版本不存在: " + versionId));
+        WorkflowDefinitionDTO.WorkflowConfig config = JsonUtils.fromJson(
+                version.getConfig(), WorkflowDefinitionDTO.WorkflowConfig.class);
+        // 升级前补建的版本没有保存执行计划，在这里编译一次
+        ExecutionPlan plan = version.getExecutionPlan() != null
+                ? ExecutionPlan.decode(version.getExecutionPlan()) : WorkflowCompiler.compile(config, null);
+        workflow = new CompiledWorkflow(config, plan);
+        cache.put(versionId, workflow);
+        logger.debug("已加载工作流定义版本: definitionId={}, versionId={}, version={}",
+                version.getWorkflowDefinitionId(), versionId, version.getVersionNumber());
+        return workflow;
+    }
+
+    /**
+     * 实例固定的版本；早于版本表创建的实例没有版本，按定义的当前版本推进
+     */
+    public CompiledWorkflow getWorkflow(WorkflowInstance instance) {
+        Long versionId = instance.getDefinitionVersionId() != null
+                ? instance.getDefinitionVersionId() : getCurrentVersionId(instance.getWorkflowDefinitionId());
+        return getWorkflow(versionId);
+    }
+
+    /**
+     * 定义的当前版本，新实例（如子工作流实例）固定到该版本
+     */
+    public Long getCurrentVersionId(Long definitionId) {
+        List<Long> versionIds = workflowDefinitionRepository.findCurrentVersionIdById(definitionId);
+        if (versionIds.isEmpty()) {
+            throw new RuntimeException("工作流定义不存在: " + definitionId);
+        }
+        if (versionIds.get(0) == null) {
+            throw new RuntimeException("工作流定义没有版本: " + definitionId);
+        }
+        return versionIds.get(0);
+    }
+}
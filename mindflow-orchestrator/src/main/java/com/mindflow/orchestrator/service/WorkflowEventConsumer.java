@@ -3,10 +3,15 @@ package com.mindflow.orchestrator.service;
 import com.mindflow.common.dto.TaskMessage;
 import com.mindflow.common.dto.WorkflowDefinitionDTO;
 import com.mindflow.common.entity.NodeInstance;
-import com.mindflow.common.entity.WorkflowDefinition;
+import com.mindflow.common.event.ExecutionEventLog;
+import com.mindflow.common.metrics.DbStatementCounter;
+import com.mindflow.common.plan.CompiledWorkflow;
 import com.mindflow.common.util.JsonUtils;
-import com.mindflow.orchestrator.repository.NodeInstanceRepository;
-import com.mindflow.orchestrator.repository.WorkflowDefinitionRepository;
+import com.mindflow.common.state.NodeState;
+import com.mindflow.common.state.RoutingStateStore;
+import com.mindflow.common.state.StateStore;
+import com.mindflow.orchestrator.checkpoint.InstanceProgressTracker;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,7 +19,6 @@ import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,16 +29,39 @@ public class WorkflowEventConsumer {
     private static final String TASK_TOPIC = "mindflow-tasks";
 
     @Autowired
-    private WorkflowDefinitionRepository workflowDefinitionRepository;
+    private WorkflowDefinitionCache workflowDefinitionCache;
 
     @Autowired
-    private NodeInstanceRepository nodeInstanceRepository;
+    private KafkaTemplate<String, String> kafkaTemplate;
 
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private NodeInstanceMaterializer nodeInstanceMaterializer;
+
+    @Autowired
+    private MapNodeCoordinator mapNodeCoordinator;
+
+    @Autowired
+    private SubWorkflowLauncher subWorkflowLauncher;
+
+    @Autowired
+    private ExecutionEventLog executionEventLog;
+
+    @Autowired
+    private StateStore stateStore;
+
+    /** 自定义 StateStore 时不存在 */
+    @Autowired(required = false)
+    private RoutingStateStore routingStateStore;
+
+    @Autowired
+    private InstanceProgressTracker instanceProgressTracker;
 
     @KafkaListener(topics = "mindflow-workflow-created", groupId = "mindflow-orchestrator-group")
     public void handleWorkflowCreated(String message) {
+        DbStatementCounter.reset();
         try {
             logger.info("收到工作流创建事件: {}", message);
             
@@ -42,95 +69,104 @@ public class WorkflowEventConsumer {
             Long workflowInstanceId = ((Number) event.get("workflowInstanceId")).longValue();
             Long workflowDefinitionId = ((Number) event.get("workflowDefinitionId")).longValue();
             String input = (String) event.get("input");
-
-            // 获取工作流定义
-            WorkflowDefinition definition = workflowDefinitionRepository.findById(workflowDefinitionId)
-                    .orElseThrow(() -> new RuntimeException("工作流定义不存在"));
-
-            // 解析配置
-            WorkflowDefinitionDTO.WorkflowConfig config = JsonUtils.fromJson(
-                    definition.getConfig(), WorkflowDefinitionDTO.WorkflowConfig.class);
-
-            // 构建依赖图
-            Map<String, List<String>> dependencyMap = new HashMap<>();
-            if (config.getEdges() != null) {
-                for (WorkflowDefinitionDTO.EdgeConfig edge : config.getEdges()) {
-                    dependencyMap.computeIfAbsent(edge.getTarget(), k -> new ArrayList<>()).add(edge.getSource());
-                }
+            instanceProgressTracker.touch(workflowInstanceId);
+
+            // 实例固定版本的已解析配置（来自缓存）；没有版本的旧实例按定义的当前版本
+            Long definitionVersionId = event.get("definitionVersionId") != null
+                    ? ((Number) event.get("definitionVersionId")).longValue()
+                    : workflowDefinitionCache.getCurrentVersionId(workflowDefinitionId);
+            CompiledWorkflow workflow = workflowDefinitionCache.getWorkflow(definitionVersionId);
+            if (routingStateStore != null) {
+                routingStateStore.select(workflowInstanceId, workflow.getConfig());
             }
 
-            // 找到入口节点（没有依赖的节点）
-            List<String> entryNodeIds = new ArrayList<>();
-            for (WorkflowDefinitionDTO.NodeConfig node : config.getNodes()) {
-                if (!dependencyMap.containsKey(node.getId())) {
-                    entryNodeIds.add(node.getId());
-                }
-            }
-            
-            logger.info("找到 {} 个入口节点: {}", entryNodeIds.size(), entryNodeIds);
+            // 入口节点（没有依赖的节点）来自保存定义时编译的执行计划
+            List<WorkflowDefinitionDTO.NodeConfig> entryNodes = workflow.getEntryNodes();
+            logger.info("找到 {} 个入口节点", entryNodes.size());
 
             // 推送入口节点到 Kafka
-            List<NodeInstance> allNodeInstances = nodeInstanceRepository.findByWorkflowInstanceId(workflowInstanceId);
+            List<NodeState> allNodeInstances = stateStore.findNodes(workflowInstanceId);
             logger.info("查询到 {} 个节点实例", allNodeInstances.size());
             
-            Map<String, NodeInstance> nodeInstanceMap = new HashMap<>();
-            for (NodeInstance ni : allNodeInstances) {
+            Map<String, NodeState> nodeInstanceMap = new HashMap<>();
+            for (NodeState ni : allNodeInstances) {
                 nodeInstanceMap.put(ni.getNodeId(), ni);
             }
 
-            for (String nodeId : entryNodeIds) {
-                NodeInstance nodeInstance = nodeInstanceMap.get(nodeId);
-                WorkflowDefinitionDTO.NodeConfig nodeConfig = config.getNodes().stream()
-                        .filter(n -> n.getId().equals(nodeId))
-                        .findFirst()
-                        .orElse(null);
+            for (WorkflowDefinitionDTO.NodeConfig nodeConfig : entryNodes) {
+                String nodeId = nodeConfig.getId();
+                NodeState node = nodeInstanceMap.get(nodeId);
+                Long nodeInstanceId;
+                long sequence;
+                if (node == null) {
+                    // 延迟创建模式：节点行在调度时才插入
+                    NodeInstance materialized = nodeInstanceMaterializer.materialize(workflowInstanceId, nodeConfig, input);
+                    if (materialized == null) {
+                        continue;
+                    }
+                    nodeInstanceId = materialized.getId();
+                    sequence = materialized.getVersion();
+                    logger.info("已创建节点实例并置为 RUNNING: nodeId={}", nodeId);
+                } else {
+                    // 先更新节点状态为 RUNNING，重复投递的创建事件在这里被忽略
+                    nodeInstanceId = node.getId();
+                    sequence = stateStore.markNodeRunning(nodeInstanceId, input, java.time.LocalDateTime.now());
+                    if (sequence == 0) {
+                        logger.info("入口节点已被调度，跳过: nodeId={}", nodeId);
+                        continue;
+                    }
+                    logger.info("已更新节点状态为 RUNNING: nodeId={}", nodeId);
+                }
+                executionEventLog.node(workflowInstanceId, nodeInstanceId, nodeId, "RUNNING", sequence, null);
 
-                if (nodeConfig == null) {
-                    logger.error("未找到节点配置: nodeId={}", nodeId);
+                // map 和子工作流节点由编排器自身执行
+                if (MapNodeCoordinator.NODE_TYPE.equals(nodeConfig.getType())) {
+                    mapNodeCoordinator.start(workflowInstanceId, nodeInstanceId, nodeConfig, input);
                     continue;
                 }
-                
-                if (nodeInstance == null) {
-                    logger.error("未找到节点实例: nodeId={}", nodeId);
+                if (SubWorkflowLauncher.NODE_TYPE.equals(nodeConfig.getType())) {
+                    subWorkflowLauncher.start(workflowInstanceId, nodeInstanceId, nodeConfig, input);
                     continue;
                 }
-
-                // 先更新节点状态为 RUNNING
-                nodeInstance.setStatus("RUNNING");
-                nodeInstance.setStartTime(java.time.LocalDateTime.now());
-                nodeInstanceRepository.save(nodeInstance);
-                logger.info("已更新节点状态为 RUNNING: nodeId={}", nodeId);
                 
                 TaskMessage taskMessage = new TaskMessage();
                 taskMessage.setWorkflowInstanceId(workflowInstanceId);
-                taskMessage.setNodeInstanceId(nodeInstance.getId());
+                taskMessage.setNodeInstanceId(nodeInstanceId);
                 taskMessage.setNodeId(nodeConfig.getId());
                 taskMessage.setNodeType(nodeConfig.getType());
                 taskMessage.setNodeName(nodeConfig.getName());
                 taskMessage.setNodeConfig(nodeConfig.getConfig());
                 taskMessage.setInput(input);
                 taskMessage.setContext(new HashMap<>());
+                taskMessage.setDispatchTime(System.currentTimeMillis());
 
                 // 然后发送到 Kafka
                 String taskMsg = JsonUtils.toJson(taskMessage);
                 try {
-                    kafkaTemplate.send(TASK_TOPIC, taskMsg).get(); // 同步等待发送完成
+                    kafkaTemplate.send(TASK_TOPIC, String.valueOf(workflowInstanceId), taskMsg).get(); // 同步等待发送完成
                     logger.info("成功推送任务到 Kafka: nodeId={}, instanceId={}", nodeId, workflowInstanceId);
                 } catch (Exception e) {
                     logger.error("推送任务到 Kafka 失败: nodeId={}, error={}", nodeId, e.getMessage());
                     // 回滚状态，标记节点为失败
-                    nodeInstance.setStatus("FAILED");
-                    nodeInstance.setErrorMessage("发送任务到队列失败: " + e.getMessage());
-                    nodeInstanceRepository.save(nodeInstance);
+                    String errorMessage = "发送任务到队列失败: " + e.getMessage();
+                    long failedSequence = stateStore.finishNode(nodeInstanceId, "FAILED", null, errorMessage,
+                            null, java.time.LocalDateTime.now());
+                    if (failedSequence > 0) {
+                        executionEventLog.node(workflowInstanceId, nodeInstanceId, nodeId, "FAILED",
+                                failedSequence, errorMessage);
+                    }
                 }
             }
             
-            if (entryNodeIds.isEmpty()) {
+            if (entryNodes.isEmpty()) {
                 logger.warn("工作流没有入口节点: workflowInstanceId={}", workflowInstanceId);
             }
 
         } catch (Exception e) {
             logger.error("处理工作流创建事件失败", e);
+        } finally {
+            meterRegistry.summary("mindflow.db.statements.per.event", "event", "workflow-created")
+                    .record(DbStatementCounter.current());
         }
     }
 }
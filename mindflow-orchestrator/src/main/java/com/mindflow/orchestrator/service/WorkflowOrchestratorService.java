@@ -2,15 +2,14 @@ package com.mindflow.orchestrator.service;
 
 import com.mindflow.common.dto.*;
 import com.mindflow.common.entity.NodeInstance;
-import com.mindflow.common.entity.WorkflowDefinition;
 import com.mindflow.common.entity.WorkflowInstance;
 import com.mindflow.common.util.JsonUtils;
 import com.mindflow.orchestrator.repository.NodeInstanceRepository;
-import com.mindflow.orchestrator.repository.WorkflowDefinitionRepository;
 import com.mindflow.orchestrator.repository.WorkflowInstanceRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,7 +22,7 @@ public class WorkflowOrchestratorService {
     private static final String TASK_TOPIC = "mindflow-tasks";
 
     @Autowired
-    private WorkflowDefinitionRepository workflowDefinitionRepository;
+    private WorkflowDefinitionCache workflowDefinitionCache;
 
     @Autowired
     private WorkflowInstanceRepository workflowInstanceRepository;
@@ -34,23 +33,29 @@ public class WorkflowOrchestratorService {
     @Autowired
     private KafkaTemplate<String, String> kafkaTemplate;
 
+    @Autowired
+    private NodeInstanceMaterializer nodeInstanceMaterializer;
+
+    /** 为 true 时不预先创建 PENDING 节点行，节点被调度时才插入 */
+    @Value("${mindflow.instance.lazy-nodes:false}")
+    private boolean lazyNodes;
+
     @Transactional
     public Long createWorkflowInstance(Long workflowDefinitionId, String input) {
         logger.info("创建工作流实例: workflowDefinitionId={}", workflowDefinitionId);
 
-        WorkflowDefinition definition = workflowDefinitionRepository.findById(workflowDefinitionId)
-                .orElseThrow(() -> new RuntimeException("工作流定义不存在: " + workflowDefinitionId));
+        Long definitionVersionId = workflowDefinitionCache.getCurrentVersionId(workflowDefinitionId);
 
-        // 创建工作流实例
+        // 创建工作流实例，固定到定义的当前版本
         WorkflowInstance instance = new WorkflowInstance();
         instance.setWorkflowDefinitionId(workflowDefinitionId);
+        instance.setDefinitionVersionId(definitionVersionId);
         instance.setStatus("RUNNING");
         instance.setInput(input);
         instance = workflowInstanceRepository.save(instance);
 
         // 解析工作流配置
-        WorkflowDefinitionDTO.WorkflowConfig config = JsonUtils.fromJson(
-                definition.getConfig(), WorkflowDefinitionDTO.WorkflowConfig.class);
+        WorkflowDefinitionDTO.WorkflowConfig config = workflowDefinitionCache.getWorkflow(definitionVersionId).getConfig();
 
         if (config == null || config.getNodes() == null) {
             throw new RuntimeException("工作流配置无效");
@@ -60,17 +65,19 @@ public class WorkflowOrchestratorService {
         Map<String, NodeInstance> nodeInstanceMap = new HashMap<>();
         List<NodeInstance> nodeInstances = new ArrayList<>();
 
-        for (WorkflowDefinitionDTO.NodeConfig nodeConfig : config.getNodes()) {
-            NodeInstance nodeInstance = new NodeInstance();
-            nodeInstance.setWorkflowInstanceId(instance.getId());
-            nodeInstance.setNodeId(nodeConfig.getId());
-            nodeInstance.setNodeType(nodeConfig.getType());
-            nodeInstance.setNodeName(nodeConfig.getName());
-            nodeInstance.setStatus("PENDING");
-            nodeInstance.setInput(input);
-            nodeInstance = nodeInstanceRepository.save(nodeInstance);
-            nodeInstanceMap.put(nodeConfig.getId(), nodeInstance);
-            nodeInstances.add(nodeInstance);
+        if (!lazyNodes) {
+            for (WorkflowDefinitionDTO.NodeConfig nodeConfig : config.getNodes()) {
+                NodeInstance nodeInstance = new NodeInstance();
+                nodeInstance.setWorkflowInstanceId(instance.getId());
+                nodeInstance.setNodeId(nodeConfig.getId());
+                nodeInstance.setNodeType(nodeConfig.getType());
+                nodeInstance.setNodeName(nodeConfig.getName());
+                nodeInstance.setStatus("PENDING");
+                nodeInstance.setInput(input);
+                nodeInstance = nodeInstanceRepository.save(nodeInstance);
+                nodeInstanceMap.put(nodeConfig.getId(), nodeInstance);
+                nodeInstances.add(nodeInstance);
+            }
         }
 
         // 构建依赖图
@@ -98,6 +105,9 @@ public class WorkflowOrchestratorService {
                     .orElse(null);
 
             if (nodeConfig != null) {
+                if (nodeInstance == null) {
+                    nodeInstance = nodeInstanceMaterializer.materialize(instance.getId(), nodeConfig, input);
+                }
                 TaskMessage taskMessage = new TaskMessage();
                 taskMessage.setWorkflowInstanceId(instance.getId());
                 taskMessage.setNodeInstanceId(nodeInstance.getId());
@@ -107,6 +117,7 @@ public class WorkflowOrchestratorService {
                 taskMessage.setNodeConfig(nodeConfig.getConfig());
                 taskMessage.setInput(input);
                 taskMessage.setContext(new HashMap<>());
+                taskMessage.setDispatchTime(System.currentTimeMillis());
 
                 String message = JsonUtils.toJson(taskMessage);
                 kafkaTemplate.send(TASK_TOPIC, message);
@@ -136,12 +147,8 @@ public class WorkflowOrchestratorService {
         WorkflowInstance workflowInstance = workflowInstanceRepository.findById(workflowInstanceId)
                 .orElseThrow(() -> new RuntimeException("工作流实例不存在"));
 
-        WorkflowDefinition definition = workflowDefinitionRepository.findById(workflowInstance.getWorkflowDefinitionId())
-                .orElseThrow(() -> new RuntimeException("工作流定义不存在"));
-
-        // 解析配置
-        WorkflowDefinitionDTO.WorkflowConfig config = JsonUtils.fromJson(
-                definition.getConfig(), WorkflowDefinitionDTO.WorkflowConfig.class);
+        // 实例固定版本的配置
+        WorkflowDefinitionDTO.WorkflowConfig config = workflowDefinitionCache.getWorkflow(workflowInstance).getConfig();
 
         // 找到下一个节点
         List<String> nextNodeIds = new ArrayList<>();
@@ -182,12 +189,17 @@ public class WorkflowOrchestratorService {
                         .findFirst()
                         .orElse(null);
 
-                if (nextNodeInstance != null && "PENDING".equals(nextNodeInstance.getStatus())) {
-                    WorkflowDefinitionDTO.NodeConfig nextNodeConfig = config.getNodes().stream()
-                            .filter(n -> n.getId().equals(nextNodeId))
-                            .findFirst()
-                            .orElse(null);
+                WorkflowDefinitionDTO.NodeConfig nextNodeConfig = config.getNodes().stream()
+                        .filter(n -> n.getId().equals(nextNodeId))
+                        .findFirst()
+                        .orElse(null);
+                // 延迟创建模式：没有行的节点即为 PENDING，调度时才插入
+                boolean schedulable = nextNodeInstance == null || "PENDING".equals(nextNodeInstance.getStatus());
+                if (schedulable && nextNodeInstance == null && nextNodeConfig != null) {
+                    nextNodeInstance = nodeInstanceMaterializer.materialize(workflowInstanceId, nextNodeConfig, output);
+                }
 
+                if (schedulable && nextNodeInstance != null) {
                     if (nextNodeConfig != null) {
                         TaskMessage taskMessage = new TaskMessage();
                         taskMessage.setWorkflowInstanceId(workflowInstanceId);
@@ -198,6 +210,7 @@ public class WorkflowOrchestratorService {
                         taskMessage.setNodeConfig(nextNodeConfig.getConfig());
                         taskMessage.setInput(output);
                         taskMessage.setContext(new HashMap<>());
+                        taskMessage.setDispatchTime(System.currentTimeMillis());
 
                         String message = JsonUtils.toJson(taskMessage);
                         kafkaTemplate.send(TASK_TOPIC, message);
@@ -212,7 +225,8 @@ public class WorkflowOrchestratorService {
 
         // 检查工作流是否完成
         List<NodeInstance> allNodes = nodeInstanceRepository.findByWorkflowInstanceId(workflowInstanceId);
-        boolean allCompleted = allNodes.stream()
+        // 延迟创建模式下未调度的节点没有行，行数少于定义节点数即未完成
+        boolean allCompleted = allNodes.size() >= config.getNodes().size() && allNodes.stream()
                 .allMatch(n -> "SUCCESS".equals(n.getStatus()) || "FAILED".equals(n.getStatus()));
 
         if (allCompleted) {
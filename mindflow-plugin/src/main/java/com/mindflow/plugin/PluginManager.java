@@ -1,25 +1,57 @@
 package com.mindflow.plugin;
 
+import com.mindflow.common.dto.TaskMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
+/**
+ * 任务执行器管理：内置执行器（Spring 管理的和 classpath 上通过 SPI 声明的）在启动时加载；
+ * 插件目录中的执行器各自使用独立的类加载器，首次执行该类型的任务时才加载，jar 替换或删除后不重启即可重新加载或卸载。
+ * 同一类型在插件目录和内置执行器中都存在时使用插件目录中的版本。
+ */
 @Component
 public class PluginManager {
     private static final Logger logger = LoggerFactory.getLogger(PluginManager.class);
-    
+
     private final Map<String, TaskExecutor> executors = new HashMap<>();
-    
+
+    /** 插件目录中已加载的执行器 */
+    private final Map<String, LoadedPlugin> plugins = new ConcurrentHashMap<>();
+
+    /** 最近一次扫描到的插件目录内容 */
+    private volatile Map<String, PluginSource> sources = Map.of();
+
+    private ScheduledExecutorService scanner;
+
     @Autowired(required = false)
     private List<TaskExecutor> springExecutors;
 
+    @Autowired
+    private PluginProperties pluginProperties;
+
     @PostConstruct
     public void init() {
         // 加载 Spring 管理的执行器
@@ -29,7 +61,7 @@ public class PluginManager {
                 logger.info("加载任务执行器: type={}", executor.getType());
             }
         }
-        
+
         // 通过 SPI 加载其他执行器
         ServiceLoader<TaskExecutor> serviceLoader = ServiceLoader.load(TaskExecutor.class);
         for (TaskExecutor executor : serviceLoader) {
@@ -38,11 +70,54 @@ public class PluginManager {
                 logger.info("通过 SPI 加载任务执行器: type={}", executor.getType());
             }
         }
-        
+
         logger.info("任务执行器加载完成，共 {} 个", executors.size());
+
+        // 插件目录只记录有哪些类型，不加载
+        scan();
+        long interval = pluginProperties.getScanInterval().toMillis();
+        if (interval > 0) {
+            scanner = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "mindflow-plugin-scanner");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scanner.scheduleWithFixedDelay(this::scan, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 预热内置执行器和配置为预加载的插件，worker 在开始消费任务前调用；任一执行器预热失败时抛出异常
+     */
+    public void warmUp() {
+        for (TaskExecutor executor : executors.values()) {
+            if (sources.containsKey(executor.getType())) {
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            try {
+                executor.warmUp();
+            } catch (Exception e) {
+                throw new RuntimeException("任务执行器预热失败: type=" + executor.getType(), e);
+            }
+            logger.info("任务执行器预热完成: type={}, 耗时 {}ms", executor.getType(), System.currentTimeMillis() - start);
+        }
+        for (String type : pluginProperties.getPreload()) {
+            if (!sources.containsKey(type)) {
+                throw new RuntimeException("预加载的插件不存在: type=" + type);
+            }
+            getExecutor(type);
+        }
     }
 
     public TaskExecutor getExecutor(String type) {
+        LoadedPlugin plugin = plugins.get(type);
+        if (plugin != null) {
+            return plugin;
+        }
+        if (sources.containsKey(type)) {
+            return loadPlugin(type);
+        }
         TaskExecutor executor = executors.get(type);
         if (executor == null) {
             throw new IllegalArgumentException("不支持的任务类型: " + type);
@@ -51,7 +126,274 @@ public class PluginManager {
     }
 
     public boolean hasExecutor(String type) {
-        return executors.containsKey(type);
+        return executors.containsKey(type) || sources.containsKey(type);
     }
-}
 
+    /**
+     * 扫描插件目录：新增的类型只做记录，已加载的插件 jar 有变化时重新加载，jar 被删除时卸载。
+     * 重新加载失败时继续使用旧版本
+     */
+    public synchronized void scan() {
+        Map<String, PluginSource> found;
+        try {
+            found = listPlugins(Paths.get(pluginProperties.getDirectory()));
+        } catch (IOException e) {
+            logger.error("扫描插件目录失败: directory={}", pluginProperties.getDirectory(), e);
+            return;
+        }
+        for (PluginSource source : found.values()) {
+            if (!sources.containsKey(source.type)) {
+                logger.info("发现插件: type={}, jars={}{}", source.type, source.jars,
+                        executors.containsKey(source.type) ? "，将替代内置执行器" : "");
+            }
+        }
+        sources = found;
+
+        for (LoadedPlugin plugin : new ArrayList<>(plugins.values())) {
+            PluginSource source = found.get(plugin.type);
+            if (source == null) {
+                plugins.remove(plugin.type);
+                plugin.retire();
+                logger.info("插件已从目录删除，卸载: type={}", plugin.type);
+            } else if (!source.equals(plugin.source)) {
+                try {
+                    LoadedPlugin replacement = load(source);
+                    plugins.put(plugin.type, replacement);
+                    plugin.retire();
+                    logger.info("插件已重新加载: type={}", plugin.type);
+                } catch (Exception e) {
+                    logger.error("重新加载插件失败，继续使用旧版本: type={}", plugin.type, e);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scanner != null) {
+            scanner.shutdown();
+        }
+        for (LoadedPlugin plugin : plugins.values()) {
+            plugin.retire();
+        }
+        plugins.clear();
+    }
+
+    private synchronized LoadedPlugin loadPlugin(String type) {
+        LoadedPlugin plugin = plugins.get(type);
+        if (plugin != null) {
+            return plugin;
+        }
+        PluginSource source = sources.get(type);
+        if (source == null) {
+            throw new IllegalArgumentException("不支持的任务类型: " + type);
+        }
+        try {
+            plugin = load(source);
+        } catch (Exception e) {
+            throw new RuntimeException("加载插件失败: type=" + type, e);
+        }
+        plugins.put(type, plugin);
+        return plugin;
+    }
+
+    /**
+     * 在独立的类加载器中实例化并预热插件。jar 先复制到临时目录再加载，部署时直接覆盖目录中的 jar 不会影响正在使用的版本
+     */
+    private LoadedPlugin load(PluginSource source) throws Exception {
+        long start = System.currentTimeMillis();
+        Path workDir = Files.createTempDirectory("mindflow-plugin-" + source.type + "-");
+        URLClassLoader loader = null;
+        try {
+            List<URL> urls = new ArrayList<>();
+            for (Path jar : source.jars) {
+                urls.add(Files.copy(jar, workDir.resolve(jar.getFileName())).toUri().toURL());
+            }
+            loader = new URLClassLoader("plugin-" + source.type, urls.toArray(new URL[0]),
+                    PluginManager.class.getClassLoader());
+
+            // 只实例化插件自己的类，父加载器上的内置 SPI 执行器不重复创建
+            URLClassLoader pluginLoader = loader;
+            TaskExecutor executor = ServiceLoader.load(TaskExecutor.class, loader).stream()
+                    .filter(provider -> provider.type().getClassLoader() == pluginLoader)
+                    .map(ServiceLoader.Provider::get)
+                    .filter(candidate -> source.type.equals(candidate.getType()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalStateException("插件中没有类型为 " + source.type + " 的执行器"));
+
+            ClassLoader previous = Thread.currentThread().getContextClassLoader();
+            Thread.currentThread().setContextClassLoader(loader);
+            try {
+                executor.warmUp();
+            } finally {
+                Thread.currentThread().setContextClassLoader(previous);
+            }
+            logger.info("插件加载完成: type={}, class={}, 耗时 {}ms", source.type, executor.getClass().getName(),
+                    System.currentTimeMillis() - start);
+            return new LoadedPlugin(source, executor, loader, workDir);
+        } catch (Exception e) {
+            if (loader != null) {
+                loader.close();
+            }
+            deleteQuietly(workDir);
+            throw e;
+        }
+    }
+
+    private static Map<String, PluginSource> listPlugins(Path directory) throws IOException {
+        Map<String, PluginSource> found = new HashMap<>();
+        if (!Files.isDirectory(directory)) {
+            return found;
+        }
+        try (Stream<Path> entries = Files.list(directory)) {
+            for (Path entry : entries.sorted().toList()) {
+                String name = entry.getFileName().toString();
+                List<Path> jars;
+                String type;
+                if (Files.isDirectory(entry)) {
+                    type = name;
+                    try (Stream<Path> files = Files.list(entry)) {
+                        jars = files.filter(PluginManager::isJar).sorted().toList();
+                    }
+                } else if (isJar(entry)) {
+                    type = name.substring(0, name.length() - ".jar".length());
+                    jars = List.of(entry);
+                } else {
+                    continue;
+                }
+                if (jars.isEmpty()) {
+                    continue;
+                }
+                List<Long> stamps = new ArrayList<>();
+                for (Path jar : jars) {
+                    stamps.add(Files.getLastModifiedTime(jar).toMillis());
+                    stamps.add(Files.size(jar));
+                }
+                found.put(type, new PluginSource(type, jars, stamps));
+            }
+        }
+        return found;
+    }
+
+    private static boolean isJar(Path path) {
+        return Files.isRegularFile(path) && path.getFileName().toString().endsWith(".jar");
+    }
+
+    private static void deleteQuietly(Path directory) {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            logger.warn("删除插件临时目录失败: {}", directory, e);
+        }
+    }
+
+    /**
+     * 插件目录中的一个类型：jar 列表及其修改时间和大小，任一变化即视为新版本
+     */
+    private static final class PluginSource {
+        private final String type;
+        private final List<Path> jars;
+        private final List<Long> stamps;
+
+        private PluginSource(String type, List<Path> jars, List<Long> stamps) {
+            this.type = type;
+            this.jars = jars;
+            this.stamps = stamps;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PluginSource other)) {
+                return false;
+            }
+            return type.equals(other.type) && jars.equals(other.jars) && stamps.equals(other.stamps);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, jars, stamps);
+        }
+    }
+
+    /**
+     * 已加载的插件执行器。被替换或卸载后等正在执行的任务结束再关闭类加载器；
+     * 类加载器关闭后才开始执行的调用（取到旧实例后插件已被替换）转到当前版本
+     */
+    private final class LoadedPlugin implements TaskExecutor {
+        private final PluginSource source;
+        private final String type;
+        private final TaskExecutor delegate;
+        private final URLClassLoader loader;
+        private final Path workDir;
+        private int inFlight;
+        private boolean retired;
+        private boolean closed;
+
+        private LoadedPlugin(PluginSource source, TaskExecutor delegate, URLClassLoader loader, Path workDir) {
+            this.source = source;
+            this.type = source.type;
+            this.delegate = delegate;
+            this.loader = loader;
+            this.workDir = workDir;
+        }
+
+        @Override
+        public String getType() {
+            return type;
+        }
+
+        @Override
+        public Map<String, Object> execute(TaskMessage taskMessage) throws Exception {
+            return execute(taskMessage, ProgressEmitter.NOOP);
+        }
+
+        @Override
+        public Map<String, Object> execute(TaskMessage taskMessage, ProgressEmitter progress) throws Exception {
+            if (!enter()) {
+                return getExecutor(type).execute(taskMessage, progress);
+            }
+            ClassLoader previous = Thread.currentThread().getContextClassLoader();
+            Thread.currentThread().setContextClassLoader(loader);
+            try {
+                return delegate.execute(taskMessage, progress);
+            } finally {
+                Thread.currentThread().setContextClassLoader(previous);
+                exit();
+            }
+        }
+
+        private synchronized boolean enter() {
+            if (closed) {
+                return false;
+            }
+            inFlight++;
+            return true;
+        }
+
+        private synchronized void exit() {
+            inFlight--;
+            closeIfIdle();
+        }
+
+        private synchronized void retire() {
+            retired = true;
+            closeIfIdle();
+        }
+
+        private void closeIfIdle() {
+            if (!retired || inFlight > 0 || closed) {
+                return;
+            }
+            closed = true;
+            try {
+                loader.close();
+            } catch (IOException e) {
+                logger.warn("关闭插件类加载器失败: type={}", type, e);
+            }
+            deleteQuietly(workDir);
+            logger.info("插件旧版本已释放: type={}", type);
+        }
+    }
+}
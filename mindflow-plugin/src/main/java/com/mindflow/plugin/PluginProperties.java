@@ -0,0 +1,51 @@
+package com.mindflow.plugin;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 插件目录配置（mindflow.plugin.*）
+ *
+ * 目录中每个“类型名.jar”或“类型名/”子目录（其中全部 jar）提供一种节点类型的执行器，
+ * 执行器通过 META-INF/services/com.mindflow.plugin.TaskExecutor 声明，getType() 必须与文件名一致。
+ */
+@Component
+@ConfigurationProperties(prefix = "mindflow.plugin")
+public class PluginProperties {
+    /** 插件目录，不存在时只使用内置执行器 */
+    private String directory = "plugins";
+
+    /** 扫描插件目录的间隔，发现 jar 新增、替换或删除时加载、重新加载或卸载；0 表示只在启动时扫描 */
+    private Duration scanInterval = Duration.ofSeconds(30);
+
+    /** 启动时加载并预热的插件类型，其余插件在首次执行该类型的任务时加载 */
+    private List<String> preload = new ArrayList<>();
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public Duration getScanInterval() {
+        return scanInterval;
+    }
+
+    public void setScanInterval(Duration scanInterval) {
+        this.scanInterval = scanInterval;
+    }
+
+    public List<String> getPreload() {
+        return preload;
+    }
+
+    public void setPreload(List<String> preload) {
+        this.preload = preload;
+    }
+}
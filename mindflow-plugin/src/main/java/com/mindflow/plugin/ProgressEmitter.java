@@ -0,0 +1,12 @@
+package com.mindflow.plugin;
+
+/**
+ * 任务执行过程中的增量输出通道（如 AI 逐 token 输出），由 worker 转发给实时订阅者
+ */
+@FunctionalInterface
+public interface ProgressEmitter {
+    ProgressEmitter NOOP = chunk -> {
+    };
+
+    void emit(String chunk);
+}
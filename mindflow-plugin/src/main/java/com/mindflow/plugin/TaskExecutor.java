@@ -8,5 +8,18 @@ public interface TaskExecutor {
     String getType();
     
     Map<String, Object> execute(TaskMessage taskMessage) throws Exception;
-}
 
+    /**
+     * 支持增量输出的执行入口，默认忽略进度通道
+     */
+    default Map<String, Object> execute(TaskMessage taskMessage, ProgressEmitter progress) throws Exception {
+        return execute(taskMessage);
+    }
+
+    /**
+     * 预热：建立连接、加载模型等首次执行前的准备工作。worker 在开始消费任务前调用，
+     * 插件目录中按需加载的执行器在首次使用前调用；抛出异常时该执行器不可用
+     */
+    default void warmUp() throws Exception {
+    }
+}
@@ -0,0 +1,130 @@
+package com.mindflow.plugin.ai;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 推理请求微批：同一模型在批量窗口内的并发请求合并为一次批量调用，再把结果拆分给各个任务
+ */
+@Component
+public class AiBatchingClient {
+    private static final Logger logger = LoggerFactory.getLogger(AiBatchingClient.class);
+
+    @Autowired
+    private AiProperties aiProperties;
+
+    @Autowired
+    private InferenceClient inferenceClient;
+
+    /** 每个模型当前正在攒的批次 */
+    private final Map<String, Batch> openBatches = new HashMap<>();
+
+    private ScheduledExecutorService windowTimer;
+    private ExecutorService senders;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger counter = new AtomicInteger();
+        windowTimer = Executors.newSingleThreadScheduledExecutor(r -> daemon(r, "mindflow-ai-batch-window"));
+        senders = Executors.newFixedThreadPool(aiProperties.getMaxConcurrentBatches(),
+                r -> daemon(r, "mindflow-ai-batch-" + counter.incrementAndGet()));
+    }
+
+    public CompletableFuture<String> submit(String model, String prompt, String input) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("prompt", prompt);
+        request.put("input", input);
+        CompletableFuture<String> future = new CompletableFuture<>();
+
+        Batch full = null;
+        synchronized (openBatches) {
+            Batch batch = openBatches.get(model);
+            if (batch == null) {
+                Batch created = new Batch(model);
+                created.window = windowTimer.schedule(() -> flush(created),
+                        aiProperties.getBatchWindow().toMillis(), TimeUnit.MILLISECONDS);
+                openBatches.put(model, created);
+                batch = created;
+            }
+            batch.requests.add(request);
+            batch.futures.add(future);
+            if (batch.requests.size() >= aiProperties.getMaxBatchSize()) {
+                openBatches.remove(model);
+                batch.window.cancel(false);
+                full = batch;
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return future;
+    }
+
+    private void flush(Batch batch) {
+        synchronized (openBatches) {
+            if (openBatches.get(batch.model) != batch) {
+                return; // 已经因攒满被发出
+            }
+            openBatches.remove(batch.model);
+        }
+        send(batch);
+    }
+
+    private void send(Batch batch) {
+        senders.execute(() -> {
+            long start = System.currentTimeMillis();
+            try {
+                List<String> outputs = inferenceClient.generateBatch(batch.model, batch.requests);
+                for (int i = 0; i < outputs.size(); i++) {
+                    batch.futures.get(i).complete(outputs.get(i));
+                }
+                logger.debug("批量推理完成: model={}, size={}, 耗时={}ms",
+                        batch.model, batch.requests.size(), System.currentTimeMillis() - start);
+            } catch (Exception e) {
+                logger.error("批量推理失败: model={}, size={}, error={}", batch.model, batch.requests.size(), e.getMessage());
+                for (CompletableFuture<String> future : batch.futures) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        windowTimer.shutdownNow();
+        senders.shutdown();
+    }
+
+    private static Thread daemon(Runnable r, String name) {
+        Thread thread = new Thread(r, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private static class Batch {
+        private final String model;
+        private final List<Map<String, Object>> requests = new ArrayList<>();
+        private final List<CompletableFuture<String>> futures = new ArrayList<>();
+        private ScheduledFuture<?> window;
+
+        private Batch(String model) {
+            this.model = model;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.mindflow.plugin.ai;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * AI 任务配置（mindflow.ai.*）
+ */
+@Component
+@ConfigurationProperties(prefix = "mindflow.ai")
+public class AiProperties {
+    /** 调用模式：simulate（本地模拟）/ remote（逐条调用）/ batch（合并并发请求批量调用） */
+    private String mode = "simulate";
+
+    /** remote 模式下使用流式接口，逐段输出推送给实时订阅者 */
+    private boolean stream = false;
+
+    /** 推理服务地址，单条调用 POST {endpoint}，批量调用 POST {endpoint}/batch */
+    private String endpoint = "http://localhost:8500/v1/generate";
+
+    /** 批量窗口：第一条请求到达后最多等待多久再发出 */
+    private Duration batchWindow = Duration.ofMillis(10);
+
+    /** 单批最大条数，攒满立即发出 */
+    private int maxBatchSize = 16;
+
+    /** 同时在途的批量请求数 */
+    private int maxConcurrentBatches = 4;
+
+    /** 单个任务等待推理结果的超时 */
+    private Duration requestTimeout = Duration.ofSeconds(60);
+
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public boolean isStream() {
+        return stream;
+    }
+
+    public void setStream(boolean stream) {
+        this.stream = stream;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public Duration getBatchWindow() {
+        return batchWindow;
+    }
+
+    public void setBatchWindow(Duration batchWindow) {
+        this.batchWindow = batchWindow;
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(int maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getMaxConcurrentBatches() {
+        return maxConcurrentBatches;
+    }
+
+    public void setMaxConcurrentBatches(int maxConcurrentBatches) {
+        this.maxConcurrentBatches = maxConcurrentBatches;
+    }
+
+    public Duration getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    public void setRequestTimeout(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+    }
+}
@@ -0,0 +1,96 @@
+package com.mindflow.plugin.ai;
+
+import com.mindflow.common.util.JsonUtils;
+import com.mindflow.plugin.ProgressEmitter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 推理服务 HTTP 客户端
+ *
+ * 单条：POST {endpoint} {"model", "prompt", "input"} -> {"output"}
+ * 批量：POST {endpoint}/batch {"model", "requests": [{"prompt", "input"}]} -> {"outputs": [...]}，结果与请求顺序一致
+ * 流式：POST {endpoint}/stream {"model", "prompt", "input"} -> 逐行 {"chunk"}（NDJSON）
+ */
+@Component
+public class InferenceClient {
+
+    @Autowired
+    private AiProperties aiProperties;
+
+    @Autowired
+    private RestTemplate inferenceRestTemplate;
+
+    public String generate(String model, String prompt, String input) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", model);
+        request.put("prompt", prompt);
+        request.put("input", input);
+
+        Map<?, ?> response = inferenceRestTemplate.postForObject(aiProperties.getEndpoint(), request, Map.class);
+        if (response == null || !response.containsKey("output")) {
+            throw new IllegalStateException("推理服务返回结果无效");
+        }
+        return String.valueOf(response.get("output"));
+    }
+
+    public List<String> generateBatch(String model, List<Map<String, Object>> requests) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", model);
+        request.put("requests", requests);
+
+        Map<?, ?> response = inferenceRestTemplate.postForObject(aiProperties.getEndpoint() + "/batch", request, Map.class);
+        Object outputs = response != null ? response.get("outputs") : null;
+        if (!(outputs instanceof List<?> list) || list.size() != requests.size()) {
+            throw new IllegalStateException("推理服务批量结果数量与请求不一致");
+        }
+        List<String> result = new ArrayList<>(list.size());
+        for (Object output : list) {
+            result.add(String.valueOf(output));
+        }
+        return result;
+    }
+
+    /**
+     * 流式调用，每收到一段输出就通过 progress 发出，返回完整输出
+     */
+    public String generateStream(String model, String prompt, String input, ProgressEmitter progress) {
+        Map<String, Object> request = new HashMap<>();
+        request.put("model", model);
+        request.put("prompt", prompt);
+        request.put("input", input);
+
+        return inferenceRestTemplate.execute(aiProperties.getEndpoint() + "/stream", HttpMethod.POST,
+                inferenceRestTemplate.httpEntityCallback(new HttpEntity<>(request), String.class),
+                response -> {
+                    StringBuilder output = new StringBuilder();
+                    try (BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(response.getBody(), StandardCharsets.UTF_8))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (line.isBlank()) {
+                                continue;
+                            }
+                            Map<?, ?> event = JsonUtils.fromJson(line, Map.class);
+                            Object chunk = event.get("chunk");
+                            if (chunk != null) {
+                                output.append(chunk);
+                                progress.emit(String.valueOf(chunk));
+                            }
+                        }
+                    }
+                    return output.toString();
+                });
+    }
+}
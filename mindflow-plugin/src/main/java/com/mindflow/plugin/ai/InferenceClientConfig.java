@@ -0,0 +1,34 @@
+package com.mindflow.plugin.ai;
+
+import com.mindflow.plugin.http.HttpClientProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+
+/**
+ * 推理服务专用的客户端：读超时取 mindflow.ai.request-timeout，推理耗时通常长于 HTTP 任务的 read-timeout
+ */
+@Configuration
+public class InferenceClientConfig {
+
+    @Autowired
+    private AiProperties aiProperties;
+
+    @Autowired
+    private HttpClientProperties httpClientProperties;
+
+    @Bean
+    public RestTemplate inferenceRestTemplate() {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(httpClientProperties.isHttp2Enabled() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .connectTimeout(httpClientProperties.getConnectTimeout())
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(aiProperties.getRequestTimeout());
+        return new RestTemplate(factory);
+    }
+}
@@ -0,0 +1,119 @@
+package com.mindflow.plugin.ai;
+
+import com.mindflow.common.util.JsonUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * 本地推理服务桩，实现 InferenceClient 使用的单条/批量/流式接口，用于联调和压测
+ *
+ * 延迟模型模拟 GPU 批处理：单次调用固定开销 baseLatencyMs，批量时每多一条只增加 perItemLatencyMs。
+ * 启动：java -cp mindflow-plugin.jar com.mindflow.plugin.ai.StubInferenceServer [port] [baseLatencyMs] [perItemLatencyMs]
+ */
+public class StubInferenceServer {
+    private static final Logger logger = LoggerFactory.getLogger(StubInferenceServer.class);
+
+    private final HttpServer server;
+    private final long baseLatencyMs;
+    private final long perItemLatencyMs;
+
+    public StubInferenceServer(int port, long baseLatencyMs, long perItemLatencyMs) throws IOException {
+        this.baseLatencyMs = baseLatencyMs;
+        this.perItemLatencyMs = perItemLatencyMs;
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+        this.server.createContext("/v1/generate", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        logger.info("推理服务桩已启动: port={}, baseLatencyMs={}, perItemLatencyMs={}",
+                getPort(), baseLatencyMs, perItemLatencyMs);
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            Map<String, Object> request = JsonUtils.fromJson(body, Map.class);
+            String model = String.valueOf(request.get("model"));
+            Map<String, Object> response = new HashMap<>();
+
+            if (exchange.getRequestURI().getPath().endsWith("/stream")) {
+                stream(exchange, render(model, request));
+                return;
+            }
+            if (exchange.getRequestURI().getPath().endsWith("/batch")) {
+                List<Map<String, Object>> requests = (List<Map<String, Object>>) request.get("requests");
+                Thread.sleep(baseLatencyMs + perItemLatencyMs * requests.size());
+                List<String> outputs = new ArrayList<>();
+                for (Map<String, Object> item : requests) {
+                    outputs.add(render(model, item));
+                }
+                response.put("outputs", outputs);
+            } else {
+                Thread.sleep(baseLatencyMs);
+                response.put("output", render(model, request));
+            }
+            write(exchange, 200, JsonUtils.toJson(response));
+        } catch (Exception e) {
+            write(exchange, 500, JsonUtils.toJson(Map.of("error", String.valueOf(e.getMessage()))));
+        }
+    }
+
+    /**
+     * 首段输出在 baseLatencyMs 后到达，之后每段间隔 perItemLatencyMs
+     */
+    private void stream(HttpExchange exchange, String output) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson;charset=UTF-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            Thread.sleep(baseLatencyMs);
+            for (int i = 0; i < output.length(); i += 4) {
+                String chunk = output.substring(i, Math.min(output.length(), i + 4));
+                out.write((JsonUtils.toJson(Map.of("chunk", chunk)) + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                Thread.sleep(perItemLatencyMs);
+            }
+        }
+    }
+
+    private String render(String model, Map<String, Object> request) {
+        return "AI 处理结果: " + request.get("prompt") + " (模型: " + model + ")";
+    }
+
+    private void write(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json;charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8500;
+        long base = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        long perItem = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        new StubInferenceServer(port, base, perItem).start();
+    }
+}
@@ -0,0 +1,94 @@
+package com.mindflow.plugin.http;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResponseExtractor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 流式读取完整响应体，超过 max-response-size 直接失败，不返回截断的内容（下游节点拿到的不完整 JSON 无法使用）。
+ * 不落盘：本地文件路径对其他 worker 上的下游节点没有意义，临时文件也会在 worker 上不断累积
+ */
+public class BoundedResponseExtractor implements ResponseExtractor<BoundedResponseExtractor.Body> {
+    private static final int BUFFER_SIZE = 8192;
+
+    private final long maxResponseSize;
+
+    public BoundedResponseExtractor(HttpClientProperties properties) {
+        this.maxResponseSize = properties.getMaxResponseSize();
+    }
+
+    @Override
+    public Body extractData(ClientHttpResponse response) throws IOException {
+        Body body = new Body();
+        body.statusCode = response.getStatusCode().value();
+        body.headers = response.getHeaders();
+        Charset charset = resolveCharset(response.getHeaders());
+
+        // 声明了长度的响应不必读完就能判断
+        long contentLength = response.getHeaders().getContentLength();
+        if (contentLength > maxResponseSize) {
+            throw tooLarge();
+        }
+
+        ByteArrayOutputStream memory = new ByteArrayOutputStream(
+                contentLength > 0 ? (int) contentLength : BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = response.getBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (memory.size() + (long) read > maxResponseSize) {
+                    throw tooLarge();
+                }
+                memory.write(buffer, 0, read);
+            }
+        }
+
+        body.size = memory.size();
+        body.text = memory.toString(charset);
+        return body;
+    }
+
+    private IOException tooLarge() {
+        return new IOException("HTTP 响应体超过上限: " + maxResponseSize + " 字节");
+    }
+
+    private Charset resolveCharset(HttpHeaders headers) {
+        MediaType contentType = headers.getContentType();
+        if (contentType != null && contentType.getCharset() != null) {
+            return contentType.getCharset();
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    public static class Body {
+        private int statusCode;
+        private HttpHeaders headers;
+        private String text;
+        private long size;
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        /** 完整的响应体 */
+        public String getText() {
+            return text;
+        }
+
+        /** 响应体字节数 */
+        public long getSize() {
+            return size;
+        }
+    }
+}
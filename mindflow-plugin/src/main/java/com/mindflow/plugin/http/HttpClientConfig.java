@@ -0,0 +1,75 @@
+package com.mindflow.plugin.http;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+
+/**
+ * HTTP 任务共享的客户端：所有 HttpTaskExecutor 调用复用同一个连接池
+ */
+@Configuration
+public class HttpClientConfig {
+    private static final Logger logger = LoggerFactory.getLogger(HttpClientConfig.class);
+
+    @Autowired
+    private HttpClientProperties properties;
+
+    @Bean
+    public ClientHttpRequestFactory httpTaskRequestFactory() {
+        if (properties.isHttp2Enabled()) {
+            // JDK HttpClient 对 h2 服务端做多路复用，对 HTTP/1.1 服务端自动降级并保持长连接
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_2)
+                    .connectTimeout(properties.getConnectTimeout())
+                    .followRedirects(HttpClient.Redirect.NORMAL)
+                    .build();
+            JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(httpClient);
+            factory.setReadTimeout(properties.getReadTimeout());
+            logger.info("HTTP 任务客户端: JDK HttpClient (HTTP/2)");
+            return factory;
+        }
+
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxTotal())
+                .setMaxConnPerRoute(properties.getMaxPerRoute())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                        .setSocketTimeout(Timeout.of(properties.getReadTimeout()))
+                        .setTimeToLive(TimeValue.of(properties.getConnectionTtl()))
+                        .build())
+                .build();
+
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.of(properties.getReadTimeout()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.of(properties.getIdleEvictAfter()))
+                .build();
+        logger.info("HTTP 任务客户端: Apache HttpClient 连接池, maxTotal={}, maxPerRoute={}",
+                properties.getMaxTotal(), properties.getMaxPerRoute());
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    @Bean
+    public RestTemplate httpTaskRestTemplate(ClientHttpRequestFactory httpTaskRequestFactory) {
+        return new RestTemplate(httpTaskRequestFactory);
+    }
+}
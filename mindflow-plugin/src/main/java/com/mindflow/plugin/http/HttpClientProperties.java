@@ -0,0 +1,94 @@
+package com.mindflow.plugin.http;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * HTTP 任务连接池配置（mindflow.http.*）
+ */
+@Component
+@ConfigurationProperties(prefix = "mindflow.http")
+public class HttpClientProperties {
+    /** 启用 HTTP/2（JDK HttpClient，单连接多路复用）；关闭时使用 Apache HttpClient 连接池 */
+    private boolean http2Enabled = false;
+
+    private int maxTotal = 200;
+    private int maxPerRoute = 50;
+    private Duration connectTimeout = Duration.ofSeconds(5);
+    private Duration readTimeout = Duration.ofSeconds(30);
+
+    /** 空闲连接超过该时间后被回收 */
+    private Duration idleEvictAfter = Duration.ofSeconds(30);
+
+    /** 连接最长存活时间，避免长期复用到已下线的后端 */
+    private Duration connectionTtl = Duration.ofMinutes(5);
+
+    /** 响应体上限，超过时节点失败；output 总是完整的响应体 */
+    private long maxResponseSize = 64 * 1024 * 1024;
+
+    public boolean isHttp2Enabled() {
+        return http2Enabled;
+    }
+
+    public void setHttp2Enabled(boolean http2Enabled) {
+        this.http2Enabled = http2Enabled;
+    }
+
+    public int getMaxTotal() {
+        return maxTotal;
+    }
+
+    public void setMaxTotal(int maxTotal) {
+        this.maxTotal = maxTotal;
+    }
+
+    public int getMaxPerRoute() {
+        return maxPerRoute;
+    }
+
+    public void setMaxPerRoute(int maxPerRoute) {
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    public Duration getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public Duration getReadTimeout() {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    public Duration getIdleEvictAfter() {
+        return idleEvictAfter;
+    }
+
+    public void setIdleEvictAfter(Duration idleEvictAfter) {
+        this.idleEvictAfter = idleEvictAfter;
+    }
+
+    public Duration getConnectionTtl() {
+        return connectionTtl;
+    }
+
+    public void setConnectionTtl(Duration connectionTtl) {
+        this.connectionTtl = connectionTtl;
+    }
+
+    public long getMaxResponseSize() {
+        return maxResponseSize;
+    }
+
+    public void setMaxResponseSize(long maxResponseSize) {
+        this.maxResponseSize = maxResponseSize;
+    }
+}
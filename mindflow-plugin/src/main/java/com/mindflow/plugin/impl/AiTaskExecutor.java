@@ -1,18 +1,34 @@
 package com.mindflow.plugin.impl;
 
 import com.mindflow.common.dto.TaskMessage;
+import com.mindflow.plugin.ProgressEmitter;
 import com.mindflow.plugin.TaskExecutor;
+import com.mindflow.plugin.ai.AiBatchingClient;
+import com.mindflow.plugin.ai.AiProperties;
+import com.mindflow.plugin.ai.InferenceClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class AiTaskExecutor implements TaskExecutor {
     private static final Logger logger = LoggerFactory.getLogger(AiTaskExecutor.class);
 
+    @Autowired
+    private AiProperties aiProperties;
+
+    @Autowired
+    private InferenceClient inferenceClient;
+
+    @Autowired
+    private AiBatchingClient aiBatchingClient;
+
     @Override
     public String getType() {
         return "ai";
@@ -20,22 +36,51 @@ public class AiTaskExecutor implements TaskExecutor {
 
     @Override
     public Map<String, Object> execute(TaskMessage taskMessage) throws Exception {
+        return execute(taskMessage, ProgressEmitter.NOOP);
+    }
+
+    @Override
+    public Map<String, Object> execute(TaskMessage taskMessage, ProgressEmitter progress) throws Exception {
         logger.info("执行 AI 任务: nodeId={}, input={}", taskMessage.getNodeId(), taskMessage.getInput());
-        
+
         Map<String, Object> nodeConfig = taskMessage.getNodeConfig();
         String prompt = nodeConfig != null ? (String) nodeConfig.get("prompt") : "默认提示词";
         String model = nodeConfig != null ? (String) nodeConfig.get("model") : "gpt-3.5-turbo";
-        
-        // 模拟 AI 调用
-        Thread.sleep(1000);
-        
+        // 节点可以单独指定调用模式，否则使用全局配置
+        String mode = nodeConfig != null && nodeConfig.get("mode") instanceof String m ? m : aiProperties.getMode();
+        boolean stream = nodeConfig != null && nodeConfig.get("stream") instanceof Boolean b ? b : aiProperties.isStream();
+
+        String output;
+        switch (mode) {
+            case "remote" -> output = stream
+                    ? inferenceClient.generateStream(model, prompt, taskMessage.getInput(), progress)
+                    : inferenceClient.generate(model, prompt, taskMessage.getInput());
+            case "batch" -> {
+                try {
+                    output = aiBatchingClient.submit(model, prompt, taskMessage.getInput())
+                            .get(aiProperties.getRequestTimeout().toMillis(), TimeUnit.MILLISECONDS);
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+            default -> {
+                // 模拟 AI 调用，逐段输出
+                output = "AI 处理结果: " + prompt + " (模型: " + model + ")";
+                int chunks = 10;
+                int chunkSize = Math.max(1, (output.length() + chunks - 1) / chunks);
+                for (int i = 0; i < output.length(); i += chunkSize) {
+                    Thread.sleep(1000 / chunks);
+                    progress.emit(output.substring(i, Math.min(output.length(), i + chunkSize)));
+                }
+            }
+        }
+
         Map<String, Object> result = new HashMap<>();
-        result.put("output", "AI 处理结果: " + prompt + " (模型: " + model + ")");
+        result.put("output", output);
         result.put("status", "SUCCESS");
         result.put("model", model);
-        
-        logger.info("AI 任务执行完成: nodeId={}", taskMessage.getNodeId());
+
+        logger.info("AI 任务执行完成: nodeId={}, mode={}", taskMessage.getNodeId(), mode);
         return result;
     }
 }
-
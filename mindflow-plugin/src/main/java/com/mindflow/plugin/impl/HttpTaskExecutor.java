@@ -2,12 +2,14 @@ package com.mindflow.plugin.impl;
 
 import com.mindflow.common.dto.TaskMessage;
 import com.mindflow.plugin.TaskExecutor;
+import com.mindflow.plugin.http.BoundedResponseExtractor;
+import com.mindflow.plugin.http.HttpClientProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
@@ -17,7 +19,12 @@ import java.util.Map;
 @Component
 public class HttpTaskExecutor implements TaskExecutor {
     private static final Logger logger = LoggerFactory.getLogger(HttpTaskExecutor.class);
-    private final RestTemplate restTemplate = new RestTemplate();
+
+    @Autowired
+    private RestTemplate httpTaskRestTemplate;
+
+    @Autowired
+    private HttpClientProperties httpClientProperties;
 
     @Override
     public String getType() {
@@ -52,15 +59,19 @@ public class HttpTaskExecutor implements TaskExecutor {
         HttpEntity<Object> entity = new HttpEntity<>(body, httpHeaders);
         HttpMethod httpMethod = HttpMethod.valueOf(method.toUpperCase());
         
-        ResponseEntity<String> response = restTemplate.exchange(url, httpMethod, entity, String.class);
+        // 流式读取响应，超过 max-response-size 时节点失败，不会把超大的 body 整个读进内存
+        BoundedResponseExtractor.Body response = httpTaskRestTemplate.execute(url, httpMethod,
+                httpTaskRestTemplate.httpEntityCallback(entity, String.class),
+                new BoundedResponseExtractor(httpClientProperties));
         
         Map<String, Object> result = new HashMap<>();
-        result.put("output", response.getBody());
+        result.put("output", response.getText());
         result.put("status", "SUCCESS");
-        result.put("statusCode", response.getStatusCodeValue());
+        result.put("statusCode", response.getStatusCode());
         result.put("headers", response.getHeaders());
         
-        logger.info("HTTP 任务执行完成: nodeId={}, statusCode={}", taskMessage.getNodeId(), response.getStatusCodeValue());
+        logger.info("HTTP 任务执行完成: nodeId={}, statusCode={}, size={}",
+                taskMessage.getNodeId(), response.getStatusCode(), response.getSize());
         return result;
     }
 }
@@ -0,0 +1,87 @@
+package com.mindflow.plugin.impl;
+
+import com.mindflow.common.dto.TaskMessage;
+import com.mindflow.common.util.JsonUtils;
+import com.mindflow.plugin.TaskExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 汇总 map 节点的结果。输入为 map 节点输出 {"total": N, "results": [...]}，
+ * 按 operation 聚合每个结果中 field 字段（默认 output）的值：
+ * collect（默认，收集为数组）、concat（以 separator 拼接）、sum（数值求和）、count（计数）
+ */
+@Component
+public class ReduceTaskExecutor implements TaskExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(ReduceTaskExecutor.class);
+
+    @Override
+    public String getType() {
+        return "reduce";
+    }
+
+    @Override
+    public Map<String, Object> execute(TaskMessage taskMessage) throws Exception {
+        logger.info("执行汇总任务: nodeId={}", taskMessage.getNodeId());
+
+        Map<String, Object> nodeConfig = taskMessage.getNodeConfig() != null ? taskMessage.getNodeConfig() : Map.of();
+        String operation = (String) nodeConfig.getOrDefault("operation", "collect");
+        String field = (String) nodeConfig.getOrDefault("field", "output");
+
+        Map<String, Object> input = taskMessage.getInput() != null
+                ? JsonUtils.fromJson(taskMessage.getInput(), Map.class) : Map.of();
+        if (!(input.get("results") instanceof List)) {
+            throw new IllegalArgumentException("汇总任务的输入不是 map 节点的输出");
+        }
+
+        List<Object> values = new ArrayList<>();
+        for (Object item : (List<Object>) input.get("results")) {
+            values.add(item instanceof Map ? ((Map<?, ?>) item).get(field) : item);
+        }
+
+        Object output;
+        switch (operation) {
+            case "collect":
+                output = values;
+                break;
+            case "concat":
+                String separator = (String) nodeConfig.getOrDefault("separator", "\n");
+                List<String> parts = new ArrayList<>(values.size());
+                for (Object value : values) {
+                    parts.add(String.valueOf(value));
+                }
+                output = String.join(separator, parts);
+                break;
+            case "sum":
+                double sum = 0;
+                for (Object value : values) {
+                    if (value instanceof Number number) {
+                        sum += number.doubleValue();
+                    } else if (value != null) {
+                        sum += Double.parseDouble(value.toString());
+                    }
+                }
+                output = sum;
+                break;
+            case "count":
+                output = values.size();
+                break;
+            default:
+                throw new IllegalArgumentException("不支持的汇总操作: " + operation);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("output", output);
+        result.put("status", "SUCCESS");
+        result.put("count", values.size());
+
+        logger.info("汇总任务执行完成: nodeId={}, operation={}, count={}", taskMessage.getNodeId(), operation, values.size());
+        return result;
+    }
+}
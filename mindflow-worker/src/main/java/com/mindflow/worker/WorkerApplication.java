@@ -1,15 +1,18 @@
 package com.mindflow.worker;
 
+import com.mindflow.common.event.ExecutionEventLog;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 @SpringBootApplication
 @EntityScan("com.mindflow.common.entity")
 @EnableJpaRepositories("com.mindflow.worker.repository")
 @ComponentScan(basePackages = {"com.mindflow.worker", "com.mindflow.plugin"})
+@Import(ExecutionEventLog.class)
 public class WorkerApplication {
     public static void main(String[] args) {
         SpringApplication.run(WorkerApplication.class, args);
@@ -0,0 +1,45 @@
+package com.mindflow.worker.claim;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 任务执行认领配置（mindflow.task-claim.*）
+ */
+@Component
+@ConfigurationProperties(prefix = "mindflow.task-claim")
+public class TaskClaimProperties {
+    private boolean enabled = true;
+
+    /** 认领租约时长，执行期间每隔三分之一租约续约一次；持有者宕机后租约到期，任务才能被其他 worker 接手 */
+    private Duration lease = Duration.ofMinutes(5);
+
+    /** 执行结果的缓存时间，期间重复投递的任务直接使用缓存结果 */
+    private Duration resultTtl = Duration.ofHours(24);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getLease() {
+        return lease;
+    }
+
+    public void setLease(Duration lease) {
+        this.lease = lease;
+    }
+
+    public Duration getResultTtl() {
+        return resultTtl;
+    }
+
+    public void setResultTtl(Duration resultTtl) {
+        this.resultTtl = resultTtl;
+    }
+}
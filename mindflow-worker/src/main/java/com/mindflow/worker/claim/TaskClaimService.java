@@ -0,0 +1,207 @@
+package com.mindflow.worker.claim;
+
+import com.mindflow.common.dto.TaskMessage;
+import com.mindflow.common.util.JsonUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务执行认领
+ *
+ * 执行前在 Redis 中以 SET NX 认领节点实例（map 子任务按序号区分），认领带租约；执行结果缓存在 Redis 中。
+ * 再均衡或提交 offset 前宕机导致同一任务被重复投递时，已完成的直接复用缓存结果，正在执行的不再执行，
+ * 昂贵的节点（如 AI 调用）实际只执行一次。
+ *
+ * 执行期间每隔租约的三分之一续约一次，任务执行得比租约长时租约也不会过期，编排器超时重投的任务
+ * 在持有者存活时仍会得到 BUSY；持有者宕机后续约停止，租约到期才可被接手。
+ */
+@Service
+public class TaskClaimService {
+    private static final Logger logger = LoggerFactory.getLogger(TaskClaimService.class);
+    private static final String KEY_PREFIX = "mindflow:claim:";
+
+    @Autowired
+    private TaskClaimProperties properties;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final DefaultRedisScript<List> claimScript;
+    private final DefaultRedisScript<Long> releaseScript;
+    private final DefaultRedisScript<Long> renewScript;
+
+    /** 正在执行的认领：租约 key -> 认领者标识 */
+    private final Map<String, String> activeClaims = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService renewer;
+
+    public TaskClaimService() {
+        claimScript = new DefaultRedisScript<>();
+        claimScript.setLocation(new ClassPathResource("scripts/task_claim.lua"));
+        claimScript.setResultType(List.class);
+        releaseScript = new DefaultRedisScript<>();
+        releaseScript.setLocation(new ClassPathResource("scripts/task_release.lua"));
+        releaseScript.setResultType(Long.class);
+        renewScript = new DefaultRedisScript<>();
+        renewScript.setLocation(new ClassPathResource("scripts/task_renew.lua"));
+        renewScript.setResultType(Long.class);
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        long interval = Math.max(1000, properties.getLease().toMillis() / 3);
+        renewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mindflow-task-claim-renewer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        renewer.scheduleWithFixedDelay(this::renewAll, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (renewer != null) {
+            renewer.shutdownNow();
+        }
+    }
+
+    /**
+     * 认领任务的本次执行
+     */
+    @SuppressWarnings("unchecked")
+    public Claim claim(TaskMessage taskMessage) {
+        String key = claimKey(taskMessage);
+        if (!properties.isEnabled()) {
+            return new Claim(Outcome.CLAIMED, key, null, null);
+        }
+        String token = UUID.randomUUID().toString();
+        Claim claim;
+        try {
+            List<Object> result = redisTemplate.execute(claimScript, List.of(key, key + ":result"),
+                    token, String.valueOf(properties.getLease().toMillis()));
+            Outcome outcome = Outcome.valueOf(String.valueOf(result.get(0)));
+            Map<String, Object> cachedResult = outcome == Outcome.DONE
+                    ? JsonUtils.fromJson(String.valueOf(result.get(1)), Map.class) : null;
+            claim = new Claim(outcome, key, outcome == Outcome.CLAIMED ? token : null, cachedResult);
+        } catch (Exception e) {
+            // Redis 不可用时直接执行，退化为仅依赖节点状态判断
+            logger.warn("任务认领失败，直接执行: key={}, error={}", key, e.getMessage());
+            claim = new Claim(Outcome.CLAIMED, key, null, null);
+        }
+        meterRegistry.counter("mindflow.task.claim", "outcome", claim.outcome.name().toLowerCase()).increment();
+        if (claim.outcome != Outcome.CLAIMED) {
+            logger.info("任务重复投递: key={}, outcome={}", key, claim.outcome);
+        } else if (claim.token != null) {
+            activeClaims.put(key, claim.token);
+        }
+        return claim;
+    }
+
+    /**
+     * 缓存执行结果，之后重复投递的同一任务直接使用该结果；租约随后自然过期
+     */
+    public void complete(Claim claim, Map<String, Object> result) {
+        if (claim.token == null) {
+            return;
+        }
+        activeClaims.remove(claim.key, claim.token);
+        try {
+            redisTemplate.opsForValue().set(claim.key + ":result", JsonUtils.toJson(result), properties.getResultTtl());
+        } catch (Exception e) {
+            logger.warn("缓存任务结果失败: key={}, error={}", claim.key, e.getMessage());
+        }
+    }
+
+    /**
+     * 执行异常时释放租约，不缓存结果
+     */
+    public void release(Claim claim) {
+        if (claim.token == null) {
+            return;
+        }
+        activeClaims.remove(claim.key, claim.token);
+        try {
+            redisTemplate.execute(releaseScript, List.of(claim.key), claim.token);
+        } catch (Exception e) {
+            logger.warn("释放任务认领失败: key={}, error={}", claim.key, e.getMessage());
+        }
+    }
+
+    /**
+     * 为所有正在执行的认领续约；租约已丢失（如 Redis 重启、续约间隔内卡顿超过租约）时记录告警，
+     * 任务仍继续执行，结果由节点状态的条件更新兜底
+     */
+    private void renewAll() {
+        String lease = String.valueOf(properties.getLease().toMillis());
+        activeClaims.forEach((key, token) -> {
+            try {
+                Long renewed = redisTemplate.execute(renewScript, List.of(key), token, lease);
+                if (renewed == null || renewed == 0) {
+                    activeClaims.remove(key, token);
+                    meterRegistry.counter("mindflow.task.claim.lost").increment();
+                    logger.warn("任务认领租约已丢失: key={}", key);
+                }
+            } catch (Exception e) {
+                logger.warn("任务认领续约失败: key={}, error={}", key, e.getMessage());
+            }
+        });
+    }
+
+    private String claimKey(TaskMessage taskMessage) {
+        String key = KEY_PREFIX + taskMessage.getNodeInstanceId();
+        return taskMessage.getItemIndex() != null ? key + ":" + taskMessage.getItemIndex() : key;
+    }
+
+    public enum Outcome {
+        /** 本次投递获得执行权 */
+        CLAIMED,
+        /** 已执行完成，使用缓存结果 */
+        DONE,
+        /** 其他 worker 正在执行 */
+        BUSY
+    }
+
+    public static class Claim {
+        private final Outcome outcome;
+        private final String key;
+        private final String token;
+        private final Map<String, Object> cachedResult;
+
+        private Claim(Outcome outcome, String key, String token, Map<String, Object> cachedResult) {
+            this.outcome = outcome;
+            this.key = key;
+            this.token = token;
+            this.cachedResult = cachedResult;
+        }
+
+        public Outcome getOutcome() {
+            return outcome;
+        }
+
+        public Map<String, Object> getCachedResult() {
+            return cachedResult;
+        }
+    }
+}
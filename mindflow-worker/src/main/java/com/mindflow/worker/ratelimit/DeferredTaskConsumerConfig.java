@@ -0,0 +1,29 @@
+package com.mindflow.worker.ratelimit;
+
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+
+/**
+ * 延后队列的监听容器：沿用 spring.kafka.* 配置，改为手动确认，未到期的消息 nack 后由容器暂停消费并重新拉取
+ */
+@Configuration
+public class DeferredTaskConsumerConfig {
+    public static final String CONTAINER_FACTORY = "deferredTaskContainerFactory";
+    private static final long POLL_TIMEOUT_MS = 200;
+
+    @Bean(CONTAINER_FACTORY)
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> deferredTaskContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> kafkaConsumerFactory) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, kafkaConsumerFactory);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        // 暂停期间每次 poll 结束才检查是否到期，缩短 poll 超时让到期的消息及时恢复消费
+        factory.getContainerProperties().setPollTimeout(POLL_TIMEOUT_MS);
+        return factory;
+    }
+}
@@ -0,0 +1,125 @@
+package com.mindflow.worker.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 限流配置（mindflow.rate-limit.*）
+ */
+@Component
+@ConfigurationProperties(prefix = "mindflow.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = false;
+
+    /** 每次从 Redis 预租的令牌数，本地用完后再去 Redis 申请 */
+    private int leaseSize = 5;
+
+    /** 本地租到的令牌有效期，过期未用完的令牌直接丢弃，避免长期囤积 */
+    private Duration leaseTtl = Duration.ofSeconds(1);
+
+    /** 延后重投任务的间隔 */
+    private Duration deferDelay = Duration.ofSeconds(5);
+
+    /** 同一任务最多延后的次数，超过后节点失败，避免长期被限流的任务无限重投 */
+    private int maxDeferrals = 60;
+
+    private List<Rule> rules = new ArrayList<>();
+
+    public static class Rule {
+        /** 限流维度：type / host / api-key */
+        private String scope;
+
+        /** 匹配值，"*" 表示该维度下每个取值各自一个桶 */
+        private String match = "*";
+
+        /** 桶容量（允许的突发量） */
+        private int capacity;
+
+        /** 每秒补充的令牌数 */
+        private double refillPerSecond;
+
+        public String getScope() {
+            return scope;
+        }
+
+        public void setScope(String scope) {
+            this.scope = scope;
+        }
+
+        public String getMatch() {
+            return match;
+        }
+
+        public void setMatch(String match) {
+            this.match = match;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(int capacity) {
+            this.capacity = capacity;
+        }
+
+        public double getRefillPerSecond() {
+            return refillPerSecond;
+        }
+
+        public void setRefillPerSecond(double refillPerSecond) {
+            this.refillPerSecond = refillPerSecond;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getLeaseSize() {
+        return leaseSize;
+    }
+
+    public void setLeaseSize(int leaseSize) {
+        this.leaseSize = leaseSize;
+    }
+
+    public Duration getLeaseTtl() {
+        return leaseTtl;
+    }
+
+    public void setLeaseTtl(Duration leaseTtl) {
+        this.leaseTtl = leaseTtl;
+    }
+
+    public Duration getDeferDelay() {
+        return deferDelay;
+    }
+
+    public void setDeferDelay(Duration deferDelay) {
+        this.deferDelay = deferDelay;
+    }
+
+    public int getMaxDeferrals() {
+        return maxDeferrals;
+    }
+
+    public void setMaxDeferrals(int maxDeferrals) {
+        this.maxDeferrals = maxDeferrals;
+    }
+
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    public void setRules(List<Rule> rules) {
+        this.rules = rules;
+    }
+}
@@ -0,0 +1,226 @@
+package com.mindflow.worker.ratelimit;
+
+import com.mindflow.common.dto.TaskMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式令牌桶限流
+ *
+ * 桶状态保存在 Redis 中，所有 worker 共享；每个 worker 一次从 Redis 租用一批令牌在本地消费，
+ * 热路径上大部分请求不需要访问 Redis。
+ */
+@Service
+public class RateLimitService {
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitService.class);
+    private static final String KEY_PREFIX = "mindflow:ratelimit:";
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final DefaultRedisScript<List> tokenBucketScript;
+    private final Map<String, LocalLease> leases = new ConcurrentHashMap<>();
+
+    public RateLimitService() {
+        tokenBucketScript = new DefaultRedisScript<>();
+        tokenBucketScript.setLocation(new ClassPathResource("scripts/token_bucket.lua"));
+        tokenBucketScript.setResultType(List.class);
+    }
+
+    /**
+     * 为任务申请所有匹配规则的令牌，不等待：本地租约和 Redis 中都没有可用令牌时返回 false，由调用方延后重投。
+     * 在 Kafka 监听线程上调用，等待令牌会拖长一次 poll 的处理时间并触发再均衡
+     */
+    public boolean acquire(TaskMessage taskMessage) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        List<Bucket> buckets = resolveBuckets(taskMessage);
+        if (buckets.isEmpty()) {
+            return true;
+        }
+
+        long start = System.nanoTime();
+        boolean acquired = true;
+        try {
+            for (Bucket bucket : buckets) {
+                if (!acquire(bucket)) {
+                    logger.info("限流令牌不足，延后执行: nodeId={}, bucket={}", taskMessage.getNodeId(), bucket.key);
+                    acquired = false;
+                    break;
+                }
+            }
+            return acquired;
+        } finally {
+            Timer.builder("mindflow.ratelimit.wait")
+                    .description("执行前申请限流令牌的耗时")
+                    .tag("nodeType", String.valueOf(taskMessage.getNodeType()))
+                    .tag("outcome", acquired ? "acquired" : "deferred")
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private boolean acquire(Bucket bucket) {
+        LocalLease lease = leases.computeIfAbsent(bucket.key, k -> new LocalLease());
+        if (lease.tryTake()) {
+            return true;
+        }
+        lease.refill(bucket);
+        return lease.tryTake();
+    }
+
+    /**
+     * 从 Redis 租用一批令牌，返回租到的令牌数
+     */
+    @SuppressWarnings("unchecked")
+    private long leaseFromRedis(Bucket bucket) {
+        try {
+            List<Long> result = redisTemplate.execute(tokenBucketScript,
+                    List.of(KEY_PREFIX + bucket.key),
+                    String.valueOf(bucket.rule.getCapacity()),
+                    String.valueOf(bucket.rule.getRefillPerSecond()),
+                    String.valueOf(properties.getLeaseSize()));
+            return result.get(0);
+        } catch (Exception e) {
+            // Redis 不可用时放行，避免限流组件本身导致全部任务失败
+            logger.warn("限流令牌申请失败，放行本次请求: bucket={}, error={}", bucket.key, e.getMessage());
+            return properties.getLeaseSize();
+        }
+    }
+
+    private List<Bucket> resolveBuckets(TaskMessage taskMessage) {
+        List<Bucket> buckets = new ArrayList<>();
+        Map<String, Object> nodeConfig = taskMessage.getNodeConfig();
+
+        addBucket(buckets, "type", taskMessage.getNodeType());
+        addBucket(buckets, "host", extractHost(nodeConfig));
+        String apiKey = extractApiKey(nodeConfig);
+        if (apiKey != null) {
+            // 不把密钥明文写进 Redis key
+            String digest = DigestUtils.md5DigestAsHex(apiKey.getBytes(StandardCharsets.UTF_8));
+            addBucket(buckets, "api-key", apiKey, digest);
+        }
+        return buckets;
+    }
+
+    private void addBucket(List<Bucket> buckets, String scope, String value) {
+        addBucket(buckets, scope, value, value);
+    }
+
+    private void addBucket(List<Bucket> buckets, String scope, String value, String keyValue) {
+        if (value == null) {
+            return;
+        }
+        RateLimitProperties.Rule matched = null;
+        for (RateLimitProperties.Rule rule : properties.getRules()) {
+            if (!scope.equals(rule.getScope())) {
+                continue;
+            }
+            // 精确匹配优先于通配
+            if (value.equals(rule.getMatch())) {
+                matched = rule;
+                break;
+            }
+            if ("*".equals(rule.getMatch()) && matched == null) {
+                matched = rule;
+            }
+        }
+        if (matched != null && matched.getCapacity() > 0 && matched.getRefillPerSecond() > 0) {
+            buckets.add(new Bucket(scope + ":" + keyValue, matched));
+        }
+    }
+
+    private String extractHost(Map<String, Object> nodeConfig) {
+        if (nodeConfig == null) {
+            return null;
+        }
+        Object url = nodeConfig.get("url");
+        if (url == null) {
+            url = nodeConfig.get("endpoint");
+        }
+        if (!(url instanceof String)) {
+            return null;
+        }
+        try {
+            return URI.create((String) url).getHost();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private String extractApiKey(Map<String, Object> nodeConfig) {
+        if (nodeConfig == null) {
+            return null;
+        }
+        if (nodeConfig.get("apiKey") instanceof String apiKey) {
+            return apiKey;
+        }
+        if (nodeConfig.get("headers") instanceof Map<?, ?> headers) {
+            for (Map.Entry<?, ?> entry : headers.entrySet()) {
+                String name = String.valueOf(entry.getKey());
+                if ("Authorization".equalsIgnoreCase(name) || "X-API-Key".equalsIgnoreCase(name)) {
+                    return String.valueOf(entry.getValue());
+                }
+            }
+        }
+        return null;
+    }
+
+    private static class Bucket {
+        private final String key;
+        private final RateLimitProperties.Rule rule;
+
+        private Bucket(String key, RateLimitProperties.Rule rule) {
+            this.key = key;
+            this.rule = rule;
+        }
+    }
+
+    /**
+     * 本地持有的令牌租约
+     */
+    private class LocalLease {
+        private int tokens;
+        private long expiresAt;
+
+        synchronized boolean tryTake() {
+            if (tokens > 0 && System.currentTimeMillis() < expiresAt) {
+                tokens--;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized void refill(Bucket bucket) {
+            // 其他线程刚刚续租过，直接返回
+            if (tokens > 0 && System.currentTimeMillis() < expiresAt) {
+                return;
+            }
+            tokens = (int) leaseFromRedis(bucket);
+            expiresAt = System.currentTimeMillis() + properties.getLeaseTtl().toMillis();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.mindflow.worker.ratelimit;
+
+import com.mindflow.common.dto.TaskMessage;
+import com.mindflow.common.util.JsonUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 被限流或暂时无法执行的任务延后执行，而不是直接标记失败。
+ *
+ * 任务立即写入延后队列（mindflow-tasks-deferred），消息头带上最早执行时间；延后队列的消费者读到未到期的消息时
+ * nack 并暂停消费到期时间（见 {@link DeferredTaskConsumerConfig}），不在监听线程上等待。
+ * 所有消息的延后时长相同，同一分区内的到期时间按写入顺序递增，等待队首到期不会耽误后面的消息。
+ * 任务只保存在 Kafka 中，worker 重启不会丢失。
+ */
+@Component
+public class TaskDeferrer {
+    private static final Logger logger = LoggerFactory.getLogger(TaskDeferrer.class);
+    public static final String DEFERRED_TOPIC = "mindflow-tasks-deferred";
+    public static final String NOT_BEFORE_HEADER = "mindflow-not-before";
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 写入延后队列；超过最大延后次数或写入失败时抛出异常，由调用方把节点标记为失败
+     */
+    public void defer(TaskMessage taskMessage) {
+        Map<String, Object> context = taskMessage.getContext() != null
+                ? new HashMap<>(taskMessage.getContext()) : new HashMap<>();
+        int deferCount = context.get("deferCount") instanceof Number n ? n.intValue() + 1 : 1;
+        if (deferCount > properties.getMaxDeferrals()) {
+            meterRegistry.counter("mindflow.ratelimit.deferral.exhausted",
+                    "nodeType", String.valueOf(taskMessage.getNodeType())).increment();
+            throw new RuntimeException("任务已延后 " + properties.getMaxDeferrals() + " 次仍无法执行");
+        }
+        context.put("deferCount", deferCount);
+        taskMessage.setContext(context);
+
+        meterRegistry.counter("mindflow.ratelimit.deferred", "nodeType", String.valueOf(taskMessage.getNodeType()))
+                .increment();
+        logger.info("任务被限流，延后重投: nodeId={}, deferCount={}", taskMessage.getNodeId(), deferCount);
+        send(taskMessage);
+    }
+
+    /**
+     * 正在由其他 worker 执行的 map 子任务延后重试，不计入最大延后次数：持有者存活时执行时间不受限，
+     * 持有者宕机后租约过期，重试时由本 worker 接手
+     */
+    public void deferWhileBusy(TaskMessage taskMessage) {
+        meterRegistry.counter("mindflow.task.busy.deferred", "nodeType", String.valueOf(taskMessage.getNodeType()))
+                .increment();
+        logger.info("子任务正在其他 worker 上执行，延后重试: nodeId={}, itemIndex={}",
+                taskMessage.getNodeId(), taskMessage.getItemIndex());
+        send(taskMessage);
+    }
+
+    private void send(TaskMessage taskMessage) {
+        long notBefore = System.currentTimeMillis() + properties.getDeferDelay().toMillis();
+        ProducerRecord<String, String> record = new ProducerRecord<>(DEFERRED_TOPIC,
+                String.valueOf(taskMessage.getWorkflowInstanceId()), JsonUtils.toJson(taskMessage));
+        record.headers().add(NOT_BEFORE_HEADER, String.valueOf(notBefore).getBytes(StandardCharsets.UTF_8));
+        try {
+            kafkaTemplate.send(record).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("延后重投任务失败", e);
+        } catch (Exception e) {
+            throw new RuntimeException("延后重投任务失败", e);
+        }
+    }
+
+    /**
+     * 距离延后队列中消息最早执行时间的毫秒数，已到期或没有该消息头时返回 0
+     */
+    public long remainingDelay(ConsumerRecord<String, String> record) {
+        Header header = record.headers().lastHeader(NOT_BEFORE_HEADER);
+        if (header == null) {
+            return 0L;
+        }
+        long wait = Long.parseLong(new String(header.value(), StandardCharsets.UTF_8)) - System.currentTimeMillis();
+        // 时钟偏差或配置变更导致的异常值不超过一个延后间隔
+        return Math.max(0L, Math.min(wait, properties.getDeferDelay().toMillis()));
+    }
+}
@@ -10,4 +10,3 @@ import java.util.List;
 public interface NodeInstanceRepository extends JpaRepository<NodeInstance, Long> {
     List<NodeInstance> findByWorkflowInstanceId(Long workflowInstanceId);
 }
-
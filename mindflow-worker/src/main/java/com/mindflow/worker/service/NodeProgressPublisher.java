@@ -0,0 +1,47 @@
+package com.mindflow.worker.service;
+
+import com.mindflow.common.dto.TaskMessage;
+import com.mindflow.common.util.JsonUtils;
+import com.mindflow.plugin.ProgressEmitter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 把执行器的增量输出发布到进度主题，以实例 ID 作为 key 保证同一实例的输出有序
+ */
+@Service
+public class NodeProgressPublisher {
+    private static final Logger logger = LoggerFactory.getLogger(NodeProgressPublisher.class);
+    private static final String NODE_PROGRESS_TOPIC = "mindflow-node-progress";
+
+    @Autowired
+    private KafkaTemplate<String, String> kafkaTemplate;
+
+    public ProgressEmitter forTask(TaskMessage taskMessage) {
+        String key = String.valueOf(taskMessage.getWorkflowInstanceId());
+        AtomicLong sequence = new AtomicLong();
+        return chunk -> {
+            Map<String, Object> event = new HashMap<>();
+            event.put("workflowInstanceId", taskMessage.getWorkflowInstanceId());
+            event.put("nodeInstanceId", taskMessage.getNodeInstanceId());
+            event.put("nodeId", taskMessage.getNodeId());
+            event.put("seq", sequence.incrementAndGet());
+            event.put("chunk", chunk);
+            event.put("timestamp", System.currentTimeMillis());
+            // 异步发送，不阻塞执行器；进度消息丢失不影响最终结果
+            kafkaTemplate.send(NODE_PROGRESS_TOPIC, key, JsonUtils.toJson(event))
+                    .whenComplete((result, e) -> {
+                        if (e != null) {
+                            logger.debug("发送节点进度失败: nodeId={}, error={}", taskMessage.getNodeId(), e.getMessage());
+                        }
+                    });
+        };
+    }
+}
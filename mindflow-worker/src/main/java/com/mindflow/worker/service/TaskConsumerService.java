@@ -1,44 +1,95 @@
 package com.mindflow.worker.service;
 
 import com.mindflow.common.dto.TaskMessage;
-import com.mindflow.common.entity.NodeInstance;
+import com.mindflow.common.event.ExecutionEventLog;
+import com.mindflow.common.metrics.DbStatementCounter;
 import com.mindflow.common.util.JsonUtils;
+import com.mindflow.common.state.NodeState;
+import com.mindflow.common.state.StateStore;
 import com.mindflow.plugin.PluginManager;
 import com.mindflow.plugin.TaskExecutor;
-import com.mindflow.worker.repository.NodeInstanceRepository;
+import com.mindflow.worker.claim.TaskClaimService;
+import com.mindflow.worker.ratelimit.DeferredTaskConsumerConfig;
+import com.mindflow.worker.ratelimit.RateLimitService;
+import com.mindflow.worker.ratelimit.TaskDeferrer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class TaskConsumerService {
     private static final Logger logger = LoggerFactory.getLogger(TaskConsumerService.class);
     private static final String NODE_COMPLETED_TOPIC = "mindflow-node-completed";
 
+    /** 不随上下文自动启动，由 {@link WorkerWarmUp} 在执行器预热完成后启动 */
+    public static final String LISTENER_ID = "mindflow-task-consumer";
+    public static final String DEFERRED_LISTENER_ID = "mindflow-deferred-task-consumer";
+
     @Autowired
     private PluginManager pluginManager;
 
     @Autowired
-    private NodeInstanceRepository nodeInstanceRepository;
+    private KafkaTemplate<String, String> kafkaTemplate;
 
     @Autowired
-    private KafkaTemplate<String, String> kafkaTemplate;
+    private NodeProgressPublisher nodeProgressPublisher;
+
+    @Autowired
+    private RateLimitService rateLimitService;
+
+    @Autowired
+    private TaskDeferrer taskDeferrer;
+
+    @Autowired
+    private TaskClaimService taskClaimService;
+
+    @Autowired
+    private ExecutionEventLog executionEventLog;
+
+    @Autowired
+    private StateStore stateStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
-    @KafkaListener(topics = "mindflow-tasks", groupId = "mindflow-worker-group")
-    @Transactional
+    @Autowired
+    private Tracer tracer;
+
+    @KafkaListener(id = LISTENER_ID, topics = "mindflow-tasks", groupId = "mindflow-worker-group",
+            autoStartup = "false")
     public void consumeTask(String message) {
+        DbStatementCounter.reset();
+        java.time.LocalDateTime executeTime = null;
         try {
             logger.info("收到任务消息: {}", message);
             TaskMessage taskMessage = JsonUtils.fromJson(message, TaskMessage.class);
 
-            NodeInstance nodeInstance = nodeInstanceRepository.findById(taskMessage.getNodeInstanceId())
+            // 从编排器投递到 worker 开始处理的排队时间
+            if (taskMessage.getDispatchTime() != null) {
+                Timer.builder("mindflow.task.queue.wait")
+                        .tag("nodeType", String.valueOf(taskMessage.getNodeType()))
+                        .register(meterRegistry)
+                        .record(Math.max(0, System.currentTimeMillis() - taskMessage.getDispatchTime()),
+                                TimeUnit.MILLISECONDS);
+                recordQueueWaitSpan(taskMessage);
+            }
+
+            NodeState nodeInstance = stateStore.findNode(taskMessage.getNodeInstanceId())
                     .orElseThrow(() -> new RuntimeException("节点实例不存在"));
 
             if (!"RUNNING".equals(nodeInstance.getStatus())) {
@@ -47,17 +98,69 @@ public class TaskConsumerService {
                 return;
             }
 
+            // 限流：拿不到令牌的任务延后重投，节点保持 RUNNING
+            if (!rateLimitService.acquire(taskMessage)) {
+                taskDeferrer.defer(taskMessage);
+                return;
+            }
+
+            // map 节点的子任务共用 map 节点的行，不更新节点状态，只回报结果
+            boolean mapItem = taskMessage.getItemIndex() != null;
+
+            // 认领本次执行：已完成的重复投递直接使用缓存结果；其他 worker 正在执行的普通节点直接丢弃，
+            // 持有者宕机时由编排器的对账扫描在租约过期后重新投递。map 子任务不在对账范围内，延后重试直到持有者完成
+            // 或租约过期，不计入限流的最大延后次数
+            TaskClaimService.Claim claim = taskClaimService.claim(taskMessage);
+            if (claim.getOutcome() == TaskClaimService.Outcome.BUSY) {
+                if (mapItem) {
+                    taskDeferrer.deferWhileBusy(taskMessage);
+                }
+                return;
+            }
+
             // 执行任务
-            TaskExecutor executor = pluginManager.getExecutor(taskMessage.getNodeType());
-            Map<String, Object> result = executor.execute(taskMessage);
+            executeTime = java.time.LocalDateTime.now();
+            Map<String, Object> result;
+            if (claim.getOutcome() == TaskClaimService.Outcome.DONE) {
+                result = claim.getCachedResult();
+            } else {
+                TaskExecutor executor = pluginManager.getExecutor(taskMessage.getNodeType());
+                long executeStart = System.nanoTime();
+                Span executeSpan = tracer.nextSpan().name("task.execute")
+                        .tag("nodeType", String.valueOf(taskMessage.getNodeType()))
+                        .tag("nodeId", String.valueOf(taskMessage.getNodeId()))
+                        .start();
+                try (Tracer.SpanInScope ignored = tracer.withSpan(executeSpan)) {
+                    result = executor.execute(taskMessage, nodeProgressPublisher.forTask(taskMessage));
+                } catch (Exception e) {
+                    taskClaimService.release(claim);
+                    recordExecution(taskMessage, "ERROR", executeStart);
+                    executeSpan.error(e);
+                    throw e;
+                } finally {
+                    executeSpan.end();
+                }
+                taskClaimService.complete(claim, result);
+                recordExecution(taskMessage, "SUCCESS".equals(result.get("status")) ? "SUCCESS" : "FAILED",
+                        executeStart);
+            }
 
             // 更新节点状态
             String output = JsonUtils.toJson(result);
             String status = "SUCCESS".equals(result.get("status")) ? "SUCCESS" : "FAILED";
-            nodeInstance.setOutput(output);
-            nodeInstance.setStatus(status);
-            nodeInstance.setEndTime(java.time.LocalDateTime.now());
-            nodeInstanceRepository.save(nodeInstance);
+            if (mapItem) {
+                sendItemCompletion(taskMessage, status, output, null);
+                return;
+            }
+            java.time.LocalDateTime endTime = java.time.LocalDateTime.now();
+            // 条件更新并立即提交，完成事件只在写入生效后发送，编排器读到的行一定是终态
+            long sequence = stateStore.finishNode(nodeInstance.getId(), status, output, null, executeTime, endTime);
+            if (sequence == 0) {
+                logger.warn("节点已不是 RUNNING，丢弃执行结果: nodeId={}", taskMessage.getNodeId());
+                return;
+            }
+            executionEventLog.node(taskMessage.getWorkflowInstanceId(), nodeInstance.getId(), taskMessage.getNodeId(),
+                    status, sequence, null);
 
             // 通过 Kafka 通知编排器节点完成
             Map<String, Object> completionEvent = new HashMap<>();
@@ -66,10 +169,17 @@ public class TaskConsumerService {
             completionEvent.put("nodeId", taskMessage.getNodeId());
             completionEvent.put("status", status);
             completionEvent.put("output", output);
+            // 供编排器累积节点延迟统计
+            if (nodeInstance.getStartTime() != null) {
+                completionEvent.put("queueWaitMs",
+                        Duration.between(nodeInstance.getStartTime(), executeTime).toMillis());
+            }
+            completionEvent.put("executionMs", Duration.between(executeTime, endTime).toMillis());
 
             String eventMessage = JsonUtils.toJson(completionEvent);
             try {
-                kafkaTemplate.send(NODE_COMPLETED_TOPIC, eventMessage).get(); // 同步等待发送完成
+                kafkaTemplate.send(NODE_COMPLETED_TOPIC, String.valueOf(taskMessage.getWorkflowInstanceId()),
+                        eventMessage).get(); // 同步等待发送完成
                 logger.info("成功发送节点完成事件到 Kafka: nodeId={}, status={}", taskMessage.getNodeId(), status);
             } catch (Exception e) {
                 logger.error("发送节点完成事件到 Kafka 失败: nodeId={}, error={}", taskMessage.getNodeId(), e.getMessage());
@@ -82,13 +192,16 @@ public class TaskConsumerService {
             logger.error("任务执行失败", e);
             try {
                 TaskMessage taskMessage = JsonUtils.fromJson(message, TaskMessage.class);
-                NodeInstance nodeInstance = nodeInstanceRepository.findById(taskMessage.getNodeInstanceId())
-                        .orElse(null);
-                if (nodeInstance != null) {
-                    nodeInstance.setStatus("FAILED");
-                    nodeInstance.setErrorMessage(e.getMessage());
-                    nodeInstance.setEndTime(java.time.LocalDateTime.now());
-                    nodeInstanceRepository.save(nodeInstance);
+                if (taskMessage.getItemIndex() != null) {
+                    sendItemCompletion(taskMessage, "FAILED", null, e.getMessage());
+                    return;
+                }
+                // 结果已写入（如发送完成事件失败）或节点已被终止时不再改写
+                long sequence = stateStore.finishNode(taskMessage.getNodeInstanceId(), "FAILED", null, e.getMessage(),
+                        executeTime, java.time.LocalDateTime.now());
+                if (sequence > 0) {
+                    executionEventLog.node(taskMessage.getWorkflowInstanceId(), taskMessage.getNodeInstanceId(),
+                            taskMessage.getNodeId(), "FAILED", sequence, e.getMessage());
 
                     // 发送失败事件
                     Map<String, Object> completionEvent = new HashMap<>();
@@ -100,7 +213,8 @@ public class TaskConsumerService {
 
                     String eventMessage = JsonUtils.toJson(completionEvent);
                     try {
-                        kafkaTemplate.send(NODE_COMPLETED_TOPIC, eventMessage).get();
+                        kafkaTemplate.send(NODE_COMPLETED_TOPIC, String.valueOf(taskMessage.getWorkflowInstanceId()),
+                                eventMessage).get();
                         logger.info("成功发送节点失败事件到 Kafka: nodeId={}", taskMessage.getNodeId());
                     } catch (Exception sendEx) {
                         logger.error("发送节点失败事件到 Kafka 失败: {}", sendEx.getMessage());
@@ -109,6 +223,71 @@ public class TaskConsumerService {
             } catch (Exception ex) {
                 logger.error("更新失败状态时出错", ex);
             }
+        } finally {
+            meterRegistry.summary("mindflow.db.statements.per.event", "event", "task")
+                    .record(DbStatementCounter.current());
+        }
+    }
+
+    /**
+     * 延后队列：到期的消息按普通任务处理，偏移量在处理完成后才提交；未到期时 nack，
+     * 容器暂停消费到期时间后从该消息重新拉取，期间照常 poll，不会超出 max.poll.interval.ms
+     */
+    @KafkaListener(id = DEFERRED_LISTENER_ID, topics = TaskDeferrer.DEFERRED_TOPIC, groupId = "mindflow-worker-group",
+            containerFactory = DeferredTaskConsumerConfig.CONTAINER_FACTORY, autoStartup = "false")
+    public void consumeDeferredTask(ConsumerRecord<String, String> record, Acknowledgment acknowledgment) {
+        long wait = taskDeferrer.remainingDelay(record);
+        if (wait > 0) {
+            acknowledgment.nack(Duration.ofMillis(wait));
+            return;
+        }
+        consumeTask(record.value());
+        acknowledgment.acknowledge();
+    }
+
+    /**
+     * 回报 map 子任务的结果，由编排器记入 map 节点的进度
+     */
+    private void sendItemCompletion(TaskMessage taskMessage, String status, String output, String errorMessage) {
+        Map<String, Object> completionEvent = new HashMap<>();
+        completionEvent.put("workflowInstanceId", taskMessage.getWorkflowInstanceId());
+        completionEvent.put("nodeInstanceId", taskMessage.getNodeInstanceId());
+        completionEvent.put("nodeId", taskMessage.getNodeId());
+        completionEvent.put("itemIndex", taskMessage.getItemIndex());
+        completionEvent.put("status", status);
+        completionEvent.put("output", output);
+        completionEvent.put("errorMessage", errorMessage);
+        try {
+            kafkaTemplate.send(NODE_COMPLETED_TOPIC, String.valueOf(taskMessage.getWorkflowInstanceId()),
+                    JsonUtils.toJson(completionEvent)).get();
+            logger.info("成功发送子任务完成事件到 Kafka: nodeId={}, itemIndex={}, status={}",
+                    taskMessage.getNodeId(), taskMessage.getItemIndex(), status);
+        } catch (Exception e) {
+            throw new RuntimeException("发送子任务完成事件失败", e);
+        }
+    }
+
+    /**
+     * 补记排队等待 span：从编排器投递时刻到 worker 开始处理，挂在当前消费 span 下
+     */
+    private void recordQueueWaitSpan(TaskMessage taskMessage) {
+        Span.Builder builder = tracer.spanBuilder()
+                .name("task.queue.wait")
+                .tag("nodeType", String.valueOf(taskMessage.getNodeType()))
+                .startTimestamp(taskMessage.getDispatchTime(), TimeUnit.MILLISECONDS);
+        TraceContext parent = tracer.currentTraceContext().context();
+        if (parent != null) {
+            builder.setParent(parent);
         }
+        builder.start().end(System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void recordExecution(TaskMessage taskMessage, String outcome, long startNanos) {
+        Timer.builder("mindflow.task.execution")
+                .description("执行器耗时")
+                .tag("nodeType", String.valueOf(taskMessage.getNodeType()))
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
     }
 }
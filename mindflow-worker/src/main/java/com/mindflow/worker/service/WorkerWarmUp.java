@@ -0,0 +1,34 @@
+package com.mindflow.worker.service;
+
+import com.mindflow.plugin.PluginManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * 启动完成后先预热执行器，再启动任务监听器（含延后队列）加入消费组；预热完成前 worker 不领取任何分区，
+ * 首批任务不会落在尚未就绪的执行器上。预热失败时启动失败
+ */
+@Component
+public class WorkerWarmUp {
+    private static final Logger logger = LoggerFactory.getLogger(WorkerWarmUp.class);
+
+    @Autowired
+    private PluginManager pluginManager;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        long start = System.currentTimeMillis();
+        pluginManager.warmUp();
+        kafkaListenerEndpointRegistry.getListenerContainer(TaskConsumerService.LISTENER_ID).start();
+        kafkaListenerEndpointRegistry.getListenerContainer(TaskConsumerService.DEFERRED_LISTENER_ID).start();
+        logger.info("执行器预热完成，开始消费任务，耗时 {}ms", System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,10 @@
+-- 任务执行认领：已有缓存结果返回 {'DONE', 结果}，认领成功返回 {'CLAIMED'}，其他 worker 持有租约返回 {'BUSY'}
+-- KEYS[1] 租约 key；KEYS[2] 结果 key；ARGV[1] 认领者标识；ARGV[2] 租约毫秒数
+local result = redis.call('GET', KEYS[2])
+if result then
+    return {'DONE', result}
+end
+if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', tonumber(ARGV[2])) then
+    return {'CLAIMED'}
+end
+return {'BUSY'}
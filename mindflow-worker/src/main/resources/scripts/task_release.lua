@@ -0,0 +1,6 @@
+-- 释放认领：只删除自己持有的租约，租约过期后被其他 worker 接手时不误删
+-- KEYS[1] 租约 key；ARGV[1] 认领者标识
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
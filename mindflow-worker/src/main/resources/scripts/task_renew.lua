@@ -0,0 +1,6 @@
+-- 续约：只延长自己持有的租约，租约已过期或被其他 worker 接手时返回 0
+-- KEYS[1] 租约 key；ARGV[1] 认领者标识；ARGV[2] 租约毫秒数
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('PEXPIRE', KEYS[1], tonumber(ARGV[2]))
+end
+return 0
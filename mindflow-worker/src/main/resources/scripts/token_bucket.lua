@@ -0,0 +1,31 @@
+-- 令牌桶：一次申请多个令牌（本地租约），返回 {实际授予数, 下一个令牌需等待的毫秒数}
+-- KEYS[1] 桶的 key；ARGV[1] 容量；ARGV[2] 每秒补充数；ARGV[3] 申请数
+local key = KEYS[1]
+local capacity = tonumber(ARGV[1])
+local rate = tonumber(ARGV[2])
+local requested = tonumber(ARGV[3])
+
+-- 使用 Redis 服务端时间，避免各 worker 时钟不一致
+local t = redis.call('TIME')
+local now = tonumber(t[1]) * 1000 + math.floor(tonumber(t[2]) / 1000)
+
+local state = redis.call('HMGET', key, 'tokens', 'ts')
+local tokens = tonumber(state[1])
+local ts = tonumber(state[2])
+if tokens == nil then
+    tokens = capacity
+    ts = now
+end
+
+tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate / 1000)
+local granted = math.min(requested, math.floor(tokens))
+tokens = tokens - granted
+
+redis.call('HSET', key, 'tokens', tostring(tokens), 'ts', tostring(now))
+redis.call('PEXPIRE', key, math.ceil(capacity / rate * 1000) + 1000)
+
+local wait = 0
+if granted < 1 then
+    wait = math.ceil((1 - tokens) * 1000 / rate)
+end
+return {granted, wait}